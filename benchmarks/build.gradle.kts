@@ -0,0 +1,27 @@
+plugins {
+    alias(libs.plugins.jmh.plugin)
+}
+
+dependencies {
+    jmh(project(":commons"))
+    jmh(project(":services"))
+}
+
+// Зразки повідомлень — ті самі, що й у функціональних тестах services, без копій
+sourceSets {
+    named("jmh") {
+        resources.srcDir(project(":services").file("src/test/resources"))
+    }
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    // gc.alloc.rate.norm у звіті = байт алокацій на операцію
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    // логи пристроїв у файли спотворюють заміри — лише WARN у консоль
+    jvmArgsAppend.add("-Dlogback.configurationFile=logback-bench.xml")
+
+    // Частковий прогін: ./gradlew :benchmarks:jmh -PjmhIncludes=ParserBenchmark
+    findProperty("jmhIncludes")?.let { includes.add(it.toString()) }
+}
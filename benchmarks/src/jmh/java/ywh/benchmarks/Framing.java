@@ -0,0 +1,56 @@
+package ywh.benchmarks;
+
+import ywh.logging.DeviceLogger;
+import ywh.services.data.enums.SpecialBytes;
+import ywh.services.device.protocol.IProtocol;
+import ywh.services.device.protocol.astm.ASTMProtocol;
+import ywh.services.device.protocol.custom.CustomProtocol;
+import ywh.services.device.protocol.custom.StrategyFactory;
+import ywh.services.device.protocol.hl7.Hl7Protocol;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static ywh.benchmarks.Samples.IDLE_TIMEOUT_MS;
+
+/**
+ * Протокол кадрування разом із трафіком, який він розбирає.
+ * <p>
+ * Для {@link CustomProtocol} — кожна стратегія {@link StrategyFactory} на тому самому
+ * потоці MicroCC (два повідомлення з CR LF, по 867 ком у кожному), щоб їх можна було порівнювати між собою.
+ */
+public enum Framing {
+
+    ASTM("miura multi hex.txt", logger -> new ASTMProtocol(logger, IDLE_TIMEOUT_MS)),
+    HL7("dymindDF50 hex.txt", logger -> new Hl7Protocol(logger, IDLE_TIMEOUT_MS)),
+
+    END_BYTE(() -> StrategyFactory.byEndByte(SpecialBytes.LF).build()),
+    END_STRING(() -> StrategyFactory.byEndString(",TRANSFER FINISH").build()),
+    ANY_END_STRING(() -> StrategyFactory.byAnyEndString(",TRANSFER FINISH", ",TRANSFER ABORT", ",ERROR").build()),
+    BYTE_COUNT(() -> StrategyFactory.byByteCount((byte) ',', 867).build()),
+    END_BYTE_WITH_OFFSET(() -> StrategyFactory.byEndByteWithOffset(SpecialBytes.CR.getValue(), 1).build()),
+    MIN_SIZE(() -> StrategyFactory.byMinSize(1024).build()),
+    STRING_THEN_BYTE(() -> StrategyFactory.byStringThenByte(0, "TRANSFER FINISH", SpecialBytes.LF.getValue()).build());
+
+    private static final String CUSTOM_SAMPLE = "microcc hex.txt";
+
+    private final String sample;
+    private final Function<DeviceLogger, IProtocol> factory;
+
+    Framing(String sample, Function<DeviceLogger, IProtocol> factory) {
+        this.sample = sample;
+        this.factory = factory;
+    }
+
+    Framing(Supplier<CustomProtocol.StrategyContainer> strategy) {
+        this(CUSTOM_SAMPLE, logger -> new CustomProtocol(strategy.get(), logger, IDLE_TIMEOUT_MS));
+    }
+
+    IProtocol create(DeviceLogger logger) {
+        return factory.apply(logger);
+    }
+
+    byte[] sample() {
+        return Samples.hex(sample);
+    }
+}
@@ -0,0 +1,84 @@
+package ywh.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ywh.services.data.models.ParsingResult;
+import ywh.services.device.parsers.IParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Етап розбору: {@link IParser#parse(byte[])} на кадрах, які з того ж зразка сформував протокол парсера.
+ * <p>
+ * Кадрування виконується один раз у {@code @Setup}, тож заміряється лише парсер.
+ * Лічильники {@code bytes}/{@code results} у звіті — байти кадрів і результати за секунду,
+ * алокації на операцію — {@code gc.alloc.rate.norm} профайлера gc.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+    @Param
+    public ParserSample parser;
+
+    private IParser instance;
+    private final List<byte[]> frames = new ArrayList<>();
+    private long frameBytes;
+    private ParsingResult lastResult;
+    private long resultsFired;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long bytes;
+        public long results;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instance = parser.create();
+        instance.setLogger(Samples.logger());
+
+        var protocol = instance.getProtocol();
+        protocol.setTransport(data -> {
+        });
+        protocol.setFrameListener(frames::add);
+        Samples.feed(protocol, parser.sample(), 1024);
+        protocol.clearFrameListener();
+        if (frames.isEmpty()) {
+            throw new IllegalStateException(parser + ": sample produced no frames");
+        }
+        frameBytes = frames.stream().mapToLong(f -> f.length).sum();
+
+        instance.addResponseListener(result -> {
+            lastResult = result;
+            resultsFired++;
+        });
+        frames.forEach(instance::parse);
+        if (resultsFired == 0) {
+            throw new IllegalStateException(parser + ": sample produced no results");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Samples.closeQuietly(instance.getProtocol());
+    }
+
+    @Benchmark
+    public void parse(Counters counters, Blackhole blackhole) {
+        long before = resultsFired;
+        for (byte[] frame : frames) {
+            instance.parse(frame);
+        }
+        blackhole.consume(lastResult);
+        counters.bytes += frameBytes;
+        counters.results += resultsFired - before;
+    }
+}
@@ -0,0 +1,44 @@
+package ywh.benchmarks;
+
+import ywh.services.device.parsers.DymindDF50Vet;
+import ywh.services.device.parsers.IParser;
+import ywh.services.device.parsers.fujifilm.DryChemNX600Vet;
+import ywh.services.device.parsers.hti.MicroCCVet;
+import ywh.services.device.parsers.ise.MIURA;
+import ywh.services.device.parsers.mindray.Mindray700Series;
+import ywh.services.device.parsers.mindray.MindrayBC30Vet;
+import ywh.services.device.parsers.mindray.MindrayBS240Vet;
+
+import java.util.function.Supplier;
+
+/**
+ * Парсер і зразок його трафіку.
+ * Для MIURA, BC-30 і DF50 це записи з реальних приладів; для решти — синтетичні повідомлення
+ * у форматі, який очікує парсер (ASTM-кадри з коректними контрольними сумами).
+ */
+public enum ParserSample {
+
+    MIURA("miura multi hex.txt", MIURA::new),
+    MINDRAY_700("mindray 700 hex.txt", Mindray700Series::new),
+    MINDRAY_BC30("mindray bc 30 hex.txt", MindrayBC30Vet::new),
+    DYMIND_DF50("dymindDF50 hex.txt", DymindDF50Vet::new),
+    MICRO_CC("microcc hex.txt", MicroCCVet::new),
+    DRYCHEM_NX600("drychem nx600 hex.txt", DryChemNX600Vet::new),
+    MINDRAY_BS240("mindray bs240 hex.txt", MindrayBS240Vet::new);
+
+    private final String sample;
+    private final Supplier<IParser> factory;
+
+    ParserSample(String sample, Supplier<IParser> factory) {
+        this.sample = sample;
+        this.factory = factory;
+    }
+
+    IParser create() {
+        return factory.get();
+    }
+
+    byte[] sample() {
+        return Samples.hex(sample);
+    }
+}
@@ -0,0 +1,78 @@
+package ywh.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ywh.services.device.protocol.IProtocol;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кадрування: скільки байт за секунду протокол розбирає на кадри.
+ * <p>
+ * Одна операція — весь зразок, поданий фрагментами {@code chunkSize}
+ * ({@code 1} — побайтова доставка, {@code 1024} — типове читання з сокета).
+ * Лічильники {@code bytes}/{@code frames} у звіті — байти й кадри за секунду,
+ * алокації на операцію — {@code gc.alloc.rate.norm} профайлера gc.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtocolFramingBenchmark {
+
+    @Param
+    public Framing framing;
+
+    @Param({"1", "1024"})
+    public int chunkSize;
+
+    private IProtocol protocol;
+    private byte[] input;
+    private long framesFired;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long bytes;
+        public long frames;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = framing.sample();
+        protocol = framing.create(Samples.logger());
+        protocol.setTransport(data -> {
+        });
+        protocol.setFrameListener(new IProtocol.IFrameListener() {
+            @Override
+            public void onFrame(byte[] frame) {
+                framesFired++;
+            }
+
+            @Override
+            public void onFrame(byte[] data, int offset, int length) {
+                framesFired++; // кадр не зберігаємо — копія не потрібна
+            }
+        });
+
+        Samples.feed(protocol, input, chunkSize);
+        if (framesFired == 0) {
+            throw new IllegalStateException(framing + ": sample produced no frames");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Samples.closeQuietly(protocol);
+    }
+
+    @Benchmark
+    public long frame(Counters counters) {
+        long before = framesFired;
+        Samples.feed(protocol, input, chunkSize);
+        counters.bytes += input.length;
+        counters.frames += framesFired - before;
+        return framesFired;
+    }
+}
@@ -0,0 +1,52 @@
+package ywh.benchmarks;
+
+import ywh.logging.DeviceLogger;
+import ywh.services.device.protocol.IProtocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+/**
+ * Зразки трафіку для бенчмарків — hex-дампи з тестових ресурсів services.
+ */
+final class Samples {
+
+    static final long IDLE_TIMEOUT_MS = 15_000L;
+
+    private Samples() {
+    }
+
+    static byte[] hex(String resource) {
+        try (InputStream in = Samples.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) throw new IllegalStateException("Sample not found: " + resource);
+            String text = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+            return HexFormat.of().parseHex(text.replaceAll("[^0-9A-Fa-f]", ""));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static DeviceLogger logger() {
+        return new DeviceLogger("benchmark", StandardCharsets.UTF_8);
+    }
+
+    /** Подає дані в протокол фрагментами {@code chunkSize}, як їх віддає комунікатор. */
+    static void feed(IProtocol protocol, byte[] data, int chunkSize) {
+        for (int offset = 0; offset < data.length; offset += chunkSize) {
+            protocol.onBytes(data, offset, Math.min(chunkSize, data.length - offset));
+        }
+    }
+
+    static void closeQuietly(IProtocol protocol) {
+        if (protocol instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ignored) {
+                // бенчмарк завершується
+            }
+        }
+    }
+}
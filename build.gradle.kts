@@ -3,6 +3,7 @@ plugins {
     alias(libs.plugins.module.plugin) apply false
     alias(libs.plugins.fx.plugin) apply false
     alias(libs.plugins.jlink.plugin) apply false
+    alias(libs.plugins.jmh.plugin) apply false
 
 }
 
@@ -11,6 +11,7 @@ import java.util.Locale;
 
 public class DateTime {
     private static final String ASTM_PATTERN = "yyyyMMddHHmmss";
+    private static final DateTimeFormatter HL7_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
 
     private DateTime() {
     }
@@ -33,9 +34,7 @@ public class DateTime {
 
 
     public static String getHl7DateTime() {
-        Date dateNow = new Date();
-        SimpleDateFormat formatForDateNow = new SimpleDateFormat("yyyyMMddHHmmss");
-        return formatForDateNow.format(dateNow);
+        return LocalDateTime.now().format(HL7_FORMATTER);
     }
 
     public static String getDateTime() {
@@ -10,10 +10,8 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -25,8 +23,9 @@ public final class DeferredFileDeleter {
             new ConcurrentHashMap<>();
     private static final ReentrantLock LOCK = new ReentrantLock();
 
-    private static ScheduledExecutorService scheduler;
-    private static ScheduledFuture<?> mainTask;
+    // відкладені постановки в чергу (10 с) і головна задача — на спільному таймері
+    private static final Set<Timers.Timeout> DELAYED = ConcurrentHashMap.newKeySet();
+    private static Timers.Timeout mainTask;
 
     private static final Duration CHECK_INTERVAL = Duration.ofSeconds(10);
     private static final Duration DEFAULT_MAX_WAIT_TIME = Duration.ofMinutes(60);
@@ -34,16 +33,6 @@ public final class DeferredFileDeleter {
     private DeferredFileDeleter() {
     }
 
-    private static ScheduledExecutorService getScheduler() {
-        if (scheduler == null || scheduler.isShutdown()) {
-            scheduler = Executors.newScheduledThreadPool(
-                    1,
-                    Thread.ofVirtual().name("file-deleter-scheduler").factory()
-            );
-        }
-        return scheduler;
-    }
-
     /**
      * Додає файл для відкладеного видалення з 10-секундним очікуванням
      */
@@ -59,17 +48,9 @@ public final class DeferredFileDeleter {
         LOCK.lock();
         try {
             LOGGER.info("Scheduling " + (file.isDirectory() ? "directory" : "file") + " for deletion: " + file.getName(), ConsoleColor.MAGENTA);
-            getScheduler().schedule(() -> {
-                LOCK.lock();
-                try {
-                    // Додаємо сам файл/папку до черги
-                    PENDING_FILES.put(file, new FileTask(file, maxWaitTime));
-                    LOGGER.info((file.isDirectory() ? "Directory" : "File") + " added to deletion queue: " + file.getName());
-                    ensureMainTaskIsRunning();
-                } finally {
-                    LOCK.unlock();
-                }
-            }, 10, TimeUnit.SECONDS);
+            var enqueue = new DelayedEnqueue(file, maxWaitTime);
+            enqueue.timeout = Timers.schedule(enqueue, 10, TimeUnit.SECONDS);
+            DELAYED.add(enqueue.timeout);
         } finally {
             LOCK.unlock();
         }
@@ -83,12 +64,11 @@ public final class DeferredFileDeleter {
     private static void ensureMainTaskIsRunning() {
         LOCK.lock();
         try {
-            if (mainTask == null || mainTask.isCancelled() || mainTask.isDone()) {
-                mainTask = getScheduler().scheduleAtFixedRate(
+            if (mainTask == null || mainTask.isCancelled()) {
+                mainTask = Timers.scheduleWithFixedDelay(
                         DeferredFileDeleter::processAllFiles,
-                        5,
-                        CHECK_INTERVAL.toSeconds(),
-                        TimeUnit.SECONDS
+                        Duration.ofSeconds(5),
+                        CHECK_INTERVAL
                 );
                 LOGGER.info("File deletion task started",
                         ConsoleColor.MAGENTA);
@@ -106,7 +86,7 @@ public final class DeferredFileDeleter {
         try {
             if (PENDING_FILES.isEmpty()) {
                 LOGGER.info("No files to process, stopping deletion task", ConsoleColor.CYAN);
-                close();
+                stopMainTask();
                 return;
             }
         } finally {
@@ -214,32 +194,63 @@ public final class DeferredFileDeleter {
     }
 
     /**
-     * Закриває сервіс та очікує завершення всіх завдань
+     * Закриває сервіс: скасовує всі заплановані задачі
      */
     public static void close() {
+        LOCK.lock();
+        try {
+            stopMainTask();
+            DELAYED.forEach(Timers.Timeout::cancel);
+            DELAYED.clear();
+            LOGGER.info("DeferredFileDeleter closed",
+                    ConsoleColor.MAGENTA);
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static void stopMainTask() {
         LOCK.lock();
         try {
             if (mainTask != null && !mainTask.isCancelled()) {
-                mainTask.cancel(false);
+                mainTask.cancel();
                 LOGGER.info("Main deletion task stopped");
             }
-            if (scheduler != null) {
-                scheduler.shutdown();
-                if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
-                    scheduler.shutdownNow();
-                }
-                scheduler = null;
-                LOGGER.info("DeferredFileDeleter closed",
-                        ConsoleColor.MAGENTA);
-            }
-        } catch (InterruptedException e) {
-            scheduler.shutdownNow();
-            Thread.currentThread().interrupt();
+            mainTask = null;
         } finally {
             LOCK.unlock();
         }
     }
 
+    /**
+     * Відкладена постановка файлу в чергу; тримає власний таймер, щоб прибрати його з DELAYED.
+     * Задача бере LOCK, під яким таймер уже призначено в scheduleForDeletion.
+     */
+    private static final class DelayedEnqueue implements Runnable {
+        private final File file;
+        private final Duration maxWaitTime;
+        private Timers.Timeout timeout; // під LOCK
+
+        DelayedEnqueue(File file, Duration maxWaitTime) {
+            this.file = file;
+            this.maxWaitTime = maxWaitTime;
+        }
+
+        @Override
+        public void run() {
+            LOCK.lock();
+            try {
+                DELAYED.remove(timeout);
+                // Додаємо сам файл/папку до черги
+                PENDING_FILES.put(file, new FileTask(file, maxWaitTime));
+                LOGGER.info((file.isDirectory() ? "Directory" : "File") + " added to deletion queue: " + file.getName());
+                ensureMainTaskIsRunning();
+            } finally {
+                LOCK.unlock();
+            }
+        }
+    }
+
     private record FileTask(File file,
                             Duration maxWaitTime,
                             long startTime) {
@@ -0,0 +1,203 @@
+package ywh.commons;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Єдиний на процес таймер для тай-аутів протоколів, пауз відправки, повторних підключень тощо.
+ * <p>
+ * • ОДИН потік-планувальник на всі пристрої, що спить до найближчого дедлайну
+ *   (без періодичних «тиків»), тож пристрій без активних таймерів не коштує жодного пробудження;<br>
+ * • сам потік лише відраховує час — задачі виконуються у віртуальних потоках
+ *   (або в переданому {@link Executor}), тому блокуючий код не затримує чужі таймери;<br>
+ * • скасовані таймери одразу видаляються з черги.
+ */
+public final class Timers {
+
+    private Timers() { }
+
+    private static final ScheduledThreadPoolExecutor CLOCK = createClock();
+    private static final ExecutorService WORKERS
+            = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("timer-task-", 0).factory());
+
+    private static ScheduledThreadPoolExecutor createClock() {
+        var clock = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().daemon().name("timers").factory());
+        clock.setRemoveOnCancelPolicy(true);
+        clock.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return clock;
+    }
+
+    /** Запланована дія; {@link #cancel()} можна викликати будь-коли і кілька разів. */
+    public interface Timeout {
+        void cancel();
+
+        boolean isCancelled();
+    }
+
+    /* ────────────────── ОДНОРАЗОВІ ────────────────── */
+
+    public static Timeout schedule(Runnable task, Duration delay) {
+        return schedule(task, delay.toMillis(), TimeUnit.MILLISECONDS, WORKERS);
+    }
+
+    public static Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return schedule(task, delay, unit, WORKERS);
+    }
+
+    /**
+     * @param executor де виконати задачу; для збереження порядку — {@link #serialExecutor()}
+     */
+    public static Timeout schedule(Runnable task, long delay, TimeUnit unit, Executor executor) {
+        var timeout = new OneShot(task, executor);
+        timeout.future = CLOCK.schedule(timeout::dispatch, Math.max(0, delay), unit);
+        return timeout;
+    }
+
+    /* ────────────────── ПЕРІОДИЧНІ ────────────────── */
+
+    /**
+     * Повторює задачу із затримкою {@code delay} ПІСЛЯ завершення попереднього запуску
+     * (аналог {@link ScheduledExecutorService#scheduleWithFixedDelay}).
+     * {@link Timeout#cancel()} з іншого потоку перериває запуск, що виконується в цей момент.
+     */
+    public static Timeout scheduleWithFixedDelay(Runnable task, Duration initialDelay, Duration delay) {
+        var timeout = new Periodic(task, delay.toMillis());
+        timeout.arm(initialDelay.toMillis());
+        return timeout;
+    }
+
+    /* ────────────────── ПОСЛІДОВНЕ ВИКОНАННЯ ────────────────── */
+
+    /**
+     * Виконавець, що запускає задачі строго по черзі у віртуальних потоках,
+     * не тримаючи власного потоку, поки черга порожня.
+     */
+    public static Executor serialExecutor() {
+        return new SerialExecutor(WORKERS);
+    }
+
+    /** Кількість таймерів, що очікують спрацювання (для діагностики). */
+    public static int pendingCount() {
+        return CLOCK.getQueue().size();
+    }
+
+    /* ────────────────── РЕАЛІЗАЦІЯ ────────────────── */
+
+    private static final class OneShot implements Timeout {
+        private final Runnable task;
+        private final Executor executor;
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private volatile ScheduledFuture<?> future;
+
+        OneShot(Runnable task, Executor executor) {
+            this.task = task;
+            this.executor = executor;
+        }
+
+        private void dispatch() {
+            if (cancelled.get()) return;
+            executor.execute(() -> {
+                if (!cancelled.get()) task.run();
+            });
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled.compareAndSet(false, true)) return;
+            ScheduledFuture<?> f = future;
+            if (f != null) f.cancel(false);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+
+    private static final class Periodic implements Timeout {
+        private final Runnable task;
+        private final long delayMs;
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private volatile ScheduledFuture<?> future;
+        private volatile Thread runner;
+
+        Periodic(Runnable task, long delayMs) {
+            this.task = task;
+            this.delayMs = delayMs;
+        }
+
+        private void arm(long delay) {
+            if (cancelled.get()) return;
+            future = CLOCK.schedule(() -> WORKERS.execute(this::runOnce), Math.max(0, delay), TimeUnit.MILLISECONDS);
+            if (cancelled.get()) future.cancel(false); // скасували під час arm()
+        }
+
+        private void runOnce() {
+            if (cancelled.get()) return;
+            runner = Thread.currentThread();
+            try {
+                task.run();
+            } finally {
+                runner = null;
+                Thread.interrupted(); // не переносимо переривання від cancel() далі
+            }
+            arm(delayMs);
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled.compareAndSet(false, true)) return;
+            ScheduledFuture<?> f = future;
+            if (f != null) f.cancel(false);
+            Thread t = runner;
+            if (t != null && t != Thread.currentThread()) t.interrupt();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+
+    private static final class SerialExecutor implements Executor {
+        private final Executor delegate;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean active;
+
+        SerialExecutor(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            synchronized (tasks) {
+                tasks.add(task);
+                if (active) return;
+                active = true;
+            }
+            delegate.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable next;
+                synchronized (tasks) {
+                    next = tasks.poll();
+                    if (next == null) {
+                        active = false;
+                        return;
+                    }
+                }
+                try {
+                    next.run();
+                } catch (RuntimeException ignored) {
+                    // помилка однієї задачі не зупиняє чергу; задачі логують самі
+                }
+            }
+        }
+    }
+}
@@ -11,6 +11,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.HexFormat;
 import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * Простой файловый логгер устройства.
@@ -68,6 +69,13 @@ public final class DeviceLogger implements IAppLogger{
         logger.info(msg);
     }
 
+    /** Повідомлення будується лише тоді, коли рівень DEBUG увімкнено. */
+    public void debug(Supplier<String> msg) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(msg.get());
+        }
+    }
+
     @SuppressWarnings( "unused")
     public void hex(byte[] data) {
         if (logger.isInfoEnabled()) {
@@ -81,6 +89,12 @@ public final class DeviceLogger implements IAppLogger{
         logger.info("HEX:\n{}\nSTRING:\n{}", hex, str);
     }
 
+    public void message(byte[] data, int offset, int length) {
+        String hex = HEX.formatHex(data, offset, offset + length);
+        String str = new String(data, offset, length, encoding.get());
+        logger.info("HEX:\n{}\nSTRING:\n{}", hex, str);
+    }
+
     public void error(String msg) {logger.error(msg);}
 
     public void error(String msg, Throwable ex) {
@@ -0,0 +1,102 @@
+package ywh.labs.commons;
+
+import org.junit.jupiter.api.Test;
+import ywh.commons.Timers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimersTest {
+
+    @Test
+    void scheduledTaskFiresAndCancelledOneDoesNot() throws Exception {
+        var fired = new CountDownLatch(1);
+        Timers.schedule(fired::countDown, Duration.ofMillis(50));
+
+        var cancelledRuns = new AtomicInteger();
+        var cancelled = Timers.schedule(cancelledRuns::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        cancelled.cancel();
+        cancelled.cancel();                                  // повторне скасування — без ефекту
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertTrue(cancelled.isCancelled());
+        assertEquals(0, cancelledRuns.get());
+    }
+
+    @Test
+    void periodicRepeatsUntilCancelled() throws Exception {
+        var runs = new AtomicInteger();
+        var periodic = Timers.scheduleWithFixedDelay(runs::incrementAndGet, Duration.ZERO, Duration.ofMillis(20));
+        Thread.sleep(300);
+        periodic.cancel();
+
+        int afterCancel = runs.get();
+        Thread.sleep(150);
+        assertTrue(afterCancel > 3, "запусків: " + afterCancel);
+        assertEquals(afterCancel, runs.get());
+    }
+
+    @Test
+    void cancelInterruptsRunningPeriodicTask() throws Exception {
+        var started = new CountDownLatch(1);
+        var interrupted = new CountDownLatch(1);
+        var runs = new AtomicInteger();
+        var periodic = Timers.scheduleWithFixedDelay(() -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }, Duration.ZERO, Duration.ofMillis(10));
+
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        periodic.cancel();
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS), "задачу не перервано");
+        Thread.sleep(100);
+        assertEquals(1, runs.get());                         // після скасування нового запуску немає
+    }
+
+    @Test
+    void serialExecutorRunsTasksInSubmitOrderOneAtATime() throws Exception {
+        var executor = Timers.serialExecutor();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        var running = new AtomicInteger();
+        var overlaps = new AtomicInteger();
+        var done = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            Timers.schedule(() -> {
+                if (running.incrementAndGet() > 1) overlaps.incrementAndGet();
+                order.add(n);
+                running.decrementAndGet();
+                done.countDown();
+            }, 30, TimeUnit.MILLISECONDS, executor);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        assertEquals(IntStream.range(0, 100).boxed().toList(), order);
+    }
+
+    @Test
+    void failedTaskDoesNotStopSerialExecutor() throws Exception {
+        var executor = Timers.serialExecutor();
+        var next = new CountDownLatch(1);
+        executor.execute(() -> {
+            throw new IllegalStateException("test");
+        });
+        executor.execute(next::countDown);
+        assertTrue(next.await(2, TimeUnit.SECONDS));
+    }
+}
@@ -87,6 +87,9 @@ public class DeviceFactory {
                 if (chain.device() != null) {
                     Device.closeDevice(chain.device());
                 }
+                if (chain.manager().getHost() != null) {
+                    chain.manager().getHost().close();
+                }
                 chain.stage().close();
             } catch (Exception e) {
                 MainLogger.error("Error shutting down device", e);
@@ -15,6 +15,7 @@ import ywh.fx_app.tray.TrayManager;
 import ywh.services.data.enums.DeviceStatus;
 import ywh.services.data.models.DeviceConfig;
 import ywh.services.device.Device;
+import ywh.services.device.MultiAnalyzerHost;
 import ywh.services.device.parsers.IParser;
 import ywh.services.device.parsers.IParserWithFixedPort;
 import ywh.services.printing.PrintersService;
@@ -36,6 +37,8 @@ public class DeviceManager {
 
     @Getter
     private Device.DeviceHandle device;
+    @Getter
+    private MultiAnalyzerHost host;     // замість device, якщо порт обслуговує кілька аналізаторів
     private IParser parser;
     protected DeviceStatusUtil statusUtil;
     private final CheckManager checkManager = new CheckManager();
@@ -206,6 +209,13 @@ public class DeviceManager {
         stopDevice();
         // Тепер створюємо нові компоненти
         var logger = DeviceLogger.tryToCreateOrGetDefault(deviceSettings.getLogFileName(), deviceSettings.getParser().getCharset());
+        if (MultiAnalyzerHost.isConfigured(deviceSettings)) {
+            statusUtil.setStarting();
+            host = MultiAnalyzerHost.createAndStart(deviceSettings,
+                    deviceSettings.isClarificationWindow() ? new ClarificationProvider() : null, logger);
+            statusUtil.setWorking();
+            return;
+        }
         var communicator = parser.createDefaultCommunicator(deviceSettings.getCommunicatorSettings(), logger);
         statusUtil.setStarting();
         var deviceConfig = new DeviceConfig()
@@ -219,6 +229,11 @@ public class DeviceManager {
     }
 
     public void stopDevice() {
+        if (host != null) {
+            host.close();
+            host = null;
+            statusUtil.setStatus(DeviceStatus.STOPPED);
+        }
         if (device == null) return;
         Device.closeDevice(device);
         device = null;
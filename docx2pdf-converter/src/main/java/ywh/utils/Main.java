@@ -3,16 +3,32 @@ import com.documents4j.api.DocumentType;
 import com.documents4j.api.IConverter;
 import com.documents4j.job.LocalConverter;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 
 public class Main {
     private static final SimpleLogger LOGGER = new SimpleLogger("docx2pdf-converter");
-    
+    private static final String WORKER_FLAG = "--worker";
+
     public static void main(String[] args) {
+        if (args.length == 1 && WORKER_FLAG.equals(args[0])) {
+            // stdout належить протоколу — забираємо його до першого запису логера
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true);
+            System.setOut(new PrintStream(System.err, true));
+            LOGGER.info("docx2pdf-converter worker started");
+            runWorker(out);
+            return;
+        }
         LOGGER.info("docx2pdf-converter started");
         if (args.length != 2) {
-            LOGGER.error("Usage: java -jar docx2pdf.jar <input.docx> <output.pdf>");
-            System.err.println("Usage: java -jar docx2pdf.jar <input.docx> <output.pdf>");
+            LOGGER.error("Usage: java -jar docx2pdf.jar <input.docx> <output.pdf> | --worker");
+            System.err.println("Usage: java -jar docx2pdf.jar <input.docx> <output.pdf> | --worker");
             System.exit(1);
         }
 
@@ -21,7 +37,12 @@ public class Main {
 
         try {
             LOGGER.info("Trying to convert docx to pdf: " + inputPath + " -> " + outputPath + " ...");
-            convertDocxToPdf(inputPath, outputPath);
+            IConverter converter = LocalConverter.builder().build();
+            try {
+                convertDocxToPdf(converter, inputPath, outputPath);
+            } finally {
+                converter.shutDown();
+            }
             System.out.println("SUCCESS: " + outputPath);
         } catch (Exception e) {
             LOGGER.error("ERROR: " + e.getMessage(), e);
@@ -30,7 +51,60 @@ public class Main {
         }
     }
 
-    private static void convertDocxToPdf(String inputPath, String outputPath) {
+    /**
+     * Режим постійного процесу: один конвертер (і один запущений Word) на всі документи.
+     * <p>
+     * Протокол — рядки UTF-8 через stdin/stdout, поля через TAB:
+     * <pre>
+     *   → READY                         після старту конвертера
+     *   ← CONVERT  input.docx  out.pdf  → OK  out.pdf   |  ERROR  повідомлення
+     *   ← PING                          → PONG
+     *   ← QUIT (або закритий stdin)     — завершення
+     * </pre>
+     * stdout належить протоколу ({@code out}), консольний вивід логера на цей момент уже перенаправлено в stderr.
+     */
+    private static void runWorker(PrintWriter out) {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        IConverter converter = LocalConverter.builder().build();
+        try {
+            out.println("READY");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split("\t", -1);
+                switch (parts[0]) {
+                    case "PING":
+                        out.println("PONG");
+                        break;
+                    case "QUIT":
+                        return;
+                    case "CONVERT":
+                        if (parts.length != 3) {
+                            out.println("ERROR\tUsage: CONVERT<TAB>input<TAB>output");
+                            break;
+                        }
+                        try {
+                            LOGGER.info("Worker request: " + parts[1] + " -> " + parts[2]);
+                            convertDocxToPdf(converter, parts[1], parts[2]);
+                            out.println("OK\t" + parts[2]);
+                        } catch (Exception e) {
+                            LOGGER.error("ERROR: " + e.getMessage(), e);
+                            out.println("ERROR\t" + String.valueOf(e.getMessage()).replace('\n', ' ').replace('\r', ' '));
+                        }
+                        break;
+                    default:
+                        out.println("ERROR\tUnknown command: " + parts[0]);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Worker input closed with error", e);
+        } finally {
+            converter.shutDown();
+            LOGGER.info("docx2pdf-converter worker stopped");
+        }
+    }
+
+    private static void convertDocxToPdf(IConverter converter, String inputPath, String outputPath) {
         File inputFile = new File(inputPath);
         File outputFile = new File(outputPath);
 
@@ -46,17 +120,13 @@ public class Main {
             LOGGER.info("Created output directory: " + mkdir);
         }
 
-        IConverter converter = LocalConverter.builder().build();
-        try {
-            LOGGER.info("Converting docx to pdf: " + inputPath + " -> " + outputPath + " ...");
-            converter.convert(inputFile).as(DocumentType.DOCX)
-                    .to(outputFile).as(DocumentType.PDF)
-                    .execute();
-            LOGGER.info("Conversion completed successfully");
-        } catch (Exception e) {
-            LOGGER.error("ERROR while converting docx to pdf", e);
-        } finally {
-            converter.shutDown();
+        LOGGER.info("Converting docx to pdf: " + inputPath + " -> " + outputPath + " ...");
+        boolean done = converter.convert(inputFile).as(DocumentType.DOCX)
+                .to(outputFile).as(DocumentType.PDF)
+                .execute();
+        if (!done || !outputFile.exists()) {
+            throw new RuntimeException("Conversion failed: " + inputPath);
         }
+        LOGGER.info("Conversion completed successfully");
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 module ywh.labs.services {
     // Export all packages
     exports ywh.services.communicator;
+    exports ywh.services.communicator.capture;
     exports ywh.services.data.enums;
     exports ywh.services.data.models;
     exports ywh.services.data.serial_port;
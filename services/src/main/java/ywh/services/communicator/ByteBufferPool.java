@@ -0,0 +1,53 @@
+package ywh.services.communicator;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Невеликий пул буферів читання одного комунікатора.
+ * Буфери однакового розміру повертаються в пул і перевикористовуються
+ * (черга на масиві — без алокацій при acquire/release).
+ * Запис іде через {@link OutboundQueue}.
+ */
+final class ByteBufferPool {
+
+    private final int bufferSize;
+    private final boolean direct;
+    private final BlockingQueue<ByteBuffer> free;
+
+    private ByteBufferPool(int bufferSize, int maxPooled, boolean direct) {
+        if (bufferSize <= 0) throw new IllegalArgumentException("bufferSize must be > 0");
+        if (maxPooled <= 0) throw new IllegalArgumentException("maxPooled must be > 0");
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.free = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    static ByteBufferPool direct(int bufferSize, int maxPooled) {
+        return new ByteBufferPool(bufferSize, maxPooled, true);
+    }
+
+    static ByteBufferPool heap(int bufferSize, int maxPooled) {
+        return new ByteBufferPool(bufferSize, maxPooled, false);
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    /** Повертає очищений буфер з пулу або створює новий, якщо пул порожній. */
+    ByteBuffer acquire() {
+        ByteBuffer buf = free.poll();
+        if (buf == null) {
+            return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        }
+        return buf.clear();
+    }
+
+    /** Повертає буфер у пул; зайві або чужі буфери просто відкидаються. */
+    void release(ByteBuffer buf) {
+        if (buf == null || buf.isDirect() != direct || buf.capacity() != bufferSize) return;
+        free.offer(buf.clear());
+    }
+}
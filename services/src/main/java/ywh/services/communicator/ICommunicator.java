@@ -1,10 +1,15 @@
 package ywh.services.communicator;
 
 
+import ywh.services.exceptions.DeviceRuntimeException;
 import ywh.services.settings.data.CommunicatorSettings;
 import ywh.services.device.DeviceStatusListener;
 import ywh.logging.DeviceLogger;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Optional;
+
 
 public interface ICommunicator extends Runnable, AutoCloseable {
     static ICommunicator create(CommunicatorSettings params, DeviceLogger logger)  {
@@ -19,7 +24,11 @@ public interface ICommunicator extends Runnable, AutoCloseable {
                 return new SerialCommunicator(params.getSerialParams(), logger);
             }
             case FILE -> {
-                //TODO createApi communicator
+                return new ReplayCommunicator(Path.of(params.getReplayFile()), params.getReplaySpeed(), params.getReplayRepeat(), logger);
+            }
+            case TCP_MULTI_HOST -> {
+                // комунікатор на кожне з’єднання створює сам хост
+                throw new DeviceRuntimeException("TCP_MULTI_HOST port " + params.getPort() + " is served by MultiAnalyzerHost, not a single communicator");
             }
         }
         return null;
@@ -29,9 +38,31 @@ public interface ICommunicator extends Runnable, AutoCloseable {
     @FunctionalInterface
     interface ByteListener {
         void onByte(byte b);
+
+        /**
+         * Пакетна доставка: комунікатор віддає весь прочитаний фрагмент одним викликом.
+         * За замовчуванням розкладається на {@link #onByte(byte)}.
+         */
+        default void onChunk(byte[] data, int offset, int length) {
+            for (int i = offset, end = offset + length; i < end; i++) {
+                onByte(data[i]);
+            }
+        }
+
+        /** Те саме для {@link ByteBuffer}; позиція буфера зсувається до limit. */
+        default void onBytes(ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                onChunk(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                buffer.position(buffer.limit());
+            } else {
+                byte[] copy = new byte[buffer.remaining()];
+                buffer.get(copy);
+                onChunk(copy, 0, copy.length);
+            }
+        }
     }
     /**
-     * Регистрирует слушателя; передаётся один байт за раз.
+     * Регистрирует слушателя; байты передаются фрагментами через {@link ByteListener#onChunk}.
      */
     void setByteListener(ByteListener listener);
 
@@ -40,6 +71,13 @@ public interface ICommunicator extends Runnable, AutoCloseable {
 
     void sendByte(byte data);
 
+    /**
+     * Метрики вихідної черги поточного з’єднання (якщо комунікатор її має).
+     */
+    default Optional<OutboundQueue.Stats> getOutboundStats() {
+        return Optional.empty();
+    }
+
     void setDeviceStatusListener(DeviceStatusListener listener);
     void clearDeviceStatusListener();
     void clearByteListener();
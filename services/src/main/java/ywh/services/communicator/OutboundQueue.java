@@ -0,0 +1,201 @@
+package ywh.services.communicator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Черга вихідних даних одного з’єднання.
+ * <p>
+ * • {@link #offer(byte[])} може викликатися з будь-якого потоку (ACK протоколу, кадри ASTM-замовлень,
+ *   відповідь парсера) — порядок відправки відповідає порядку постановки в чергу;<br>
+ * • вичитує чергу ЛИШЕ один писар ({@link #drain(Sink)}), тож відправки з різних потоків не перемішуються;<br>
+ * • сусідні дрібні повідомлення (ACK + наступний кадр) склеюються в один буфер і йдуть одним системним викликом;<br>
+ * • глибина черги обмежена: якщо писар не встигає, відправник чекає {@link #DEFAULT_OFFER_TIMEOUT_MS},
+ *   після чого повідомлення відкидається і рахується в {@link Stats#dropped()}.
+ * <p>
+ * Масиви в чергу НЕ копіюються — після відправки їх не можна змінювати.
+ * <p>
+ * Писарська частина ({@link #awaitPending()}, {@link #drain(Sink)}) відкрита для транспортів поза пакетом;
+ * викликати її має лише той один потік, що пише в канал.
+ */
+public final class OutboundQueue implements AutoCloseable {
+
+    /*────────────── статичне ──────────────*/
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final long DEFAULT_OFFER_TIMEOUT_MS = 2_000;
+
+    /* маркер закриття, щоб розбудити писаря, що чекає в awaitPending() */
+    private static final byte[] CLOSED = new byte[0];
+
+    /** Знімок метрик черги. */
+    public record Stats(long enqueued, long enqueuedBytes, long writes, long writtenBytes,
+                        long coalesced, long dropped, int depth, int maxDepth) {
+    }
+
+    /** Куди писар віддає склеєний буфер; повертає кількість записаних байтів. */
+    @FunctionalInterface
+    public interface Sink {
+        int write(ByteBuffer buffer) throws IOException;
+    }
+
+    /*────────────── поля ──────────────*/
+    private final BlockingQueue<byte[]> queue;
+    private final long offerTimeoutMs;
+    private volatile boolean closed;
+
+    /* стан писаря — змінюється лише потоком, що викликає drain() */
+    private final ByteBuffer batch;
+    private boolean batchPending;
+    private byte[] current;
+    private int currentOffset;
+
+    /* метрики */
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong enqueuedBytes = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    /*────────────── ctor ──────────────*/
+    private OutboundQueue(int capacity, int batchSize, boolean direct, long offerTimeoutMs) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be > 0");
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batch = direct ? ByteBuffer.allocateDirect(batchSize) : ByteBuffer.allocate(batchSize);
+        this.offerTimeoutMs = offerTimeoutMs;
+    }
+
+    /** Черга для сокетних каналів — склеювання в direct-буфер. */
+    public static OutboundQueue direct(int batchSize) {
+        return new OutboundQueue(DEFAULT_CAPACITY, batchSize, true, DEFAULT_OFFER_TIMEOUT_MS);
+    }
+
+    /** Черга для API, що приймають лише {@code byte[]} (послідовний порт). */
+    public static OutboundQueue heap(int batchSize) {
+        return new OutboundQueue(DEFAULT_CAPACITY, batchSize, false, DEFAULT_OFFER_TIMEOUT_MS);
+    }
+
+    /*────────────── відправники ──────────────*/
+
+    /**
+     * Ставить дані в чергу.
+     *
+     * @return {@code false}, якщо черга закрита або переповнена довше за таймаут
+     */
+    public boolean offer(byte[] data) {
+        if (data == null || data.length == 0) return true;
+        if (closed) return false;
+        try {
+            if (!queue.offer(data) && !queue.offer(data, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+            return false;
+        }
+        enqueued.incrementAndGet();
+        enqueuedBytes.addAndGet(data.length);
+        maxDepth.accumulateAndGet(queue.size(), Math::max);
+        return true;
+    }
+
+    /*────────────── писар ──────────────*/
+
+    /**
+     * Блокує писаря, доки в черзі не з’являться дані.
+     *
+     * @return {@code false}, якщо чергу закрито
+     */
+    public boolean awaitPending() throws InterruptedException {
+        if (closed) return false;
+        if (batchPending || current != null) return true;
+        byte[] next = queue.take();
+        if (next == CLOSED || closed) return false;
+        current = next;
+        currentOffset = 0;
+        return true;
+    }
+
+    /**
+     * Віддає в {@code sink} усе, що є в черзі, склеюючи сусідні повідомлення.
+     * Для неблокуючого каналу може зупинитися посередині — решта піде наступним викликом.
+     *
+     * @return {@code true}, якщо черга повністю спорожніла
+     */
+    public boolean drain(Sink sink) throws IOException {
+        while (true) {
+            if (!batchPending) {
+                if (!fillBatch()) return true;
+                batchPending = true;
+            }
+            int n = sink.write(batch);
+            if (n > 0) writtenBytes.addAndGet(n);
+            writes.incrementAndGet();
+            if (batch.hasRemaining()) return false; // сокет переповнений
+            batchPending = false;
+        }
+    }
+
+    /** Відкидає частково відправлений буфер (після помилки запису), щоб писар не зациклився на ньому. */
+    public void discardBatch() {
+        batchPending = false;
+        current = null;
+    }
+
+    /** @return чи залишились невідправлені дані */
+    public boolean hasPending() {
+        return batchPending || current != null || !queue.isEmpty();
+    }
+
+    private boolean fillBatch() {
+        batch.clear();
+        int messages = 0;
+        while (batch.hasRemaining()) {
+            if (current == null) {
+                byte[] next = queue.poll();
+                if (next == null || next == CLOSED) break;
+                current = next;
+                currentOffset = 0;
+            }
+            int n = Math.min(current.length - currentOffset, batch.remaining());
+            batch.put(current, currentOffset, n);
+            currentOffset += n;
+            if (currentOffset == current.length) {
+                current = null;
+                messages++;
+            }
+        }
+        batch.flip();
+        if (messages > 1) coalesced.addAndGet(messages - 1);
+        return batch.hasRemaining();
+    }
+
+    /*────────────── метрики / закриття ──────────────*/
+
+    public Stats stats() {
+        return new Stats(enqueued.get(), enqueuedBytes.get(), writes.get(), writtenBytes.get(),
+                coalesced.get(), dropped.get(), queue.size(), maxDepth.get());
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** Відкидає невідправлене і будить писаря. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        queue.clear();
+        queue.offer(CLOSED);
+    }
+}
@@ -0,0 +1,298 @@
+package ywh.services.communicator;
+
+import ywh.logging.DeviceLogger;
+import ywh.services.data.enums.DeviceStatus;
+import ywh.services.data.enums.SpecialBytes;
+import ywh.services.exceptions.DeviceRuntimeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * «Віртуальний аналізатор»: відтворює записаний трафік через увесь конвеєр
+ * протокол → парсер → обробка результату без підключеного приладу.
+ * <p>
+ * • швидкість: {@code 1.0} — реальний темп запису, {@code >1} — прискорено,
+ *   {@code 0} — максимально швидко;<br>
+ * • ASTM-рукостискання грається за аналізатор: після ENQ і кожного кадру
+ *   відтворення чекає ACK/NAK хоста (на NAK — повтор), а на ENQ/кадри хоста відповідає ACK;<br>
+ * • HL7: після кожного MLLP-повідомлення (до FS) відтворення чекає MLLP-відповідь хоста.
+ *   Якщо хост (парсер без ACK) не відповів за {@link #HANDSHAKE_TIMEOUT}, решта HL7 грається
+ *   без очікування — так само, як прилад, що не вимагає підтверджень;<br>
+ * • кадр чи повідомлення, розірване між записаними фрагментами, віддається по мірі надходження,
+ *   а відповідь хоста чекається після його кінця в наступному фрагменті (на NAK повторюється цілим);<br>
+ * • після завершення {@link #completion()} повертає обсяг і тривалість — для заміру пропускної здатності.
+ */
+public final class ReplayCommunicator extends CommunicatorAbstract implements AutoCloseable {
+
+    /*────────────── статичне ──────────────*/
+    private static final Duration HANDSHAKE_TIMEOUT = Duration.ofSeconds(15);
+    private static final Duration ENQ_RETRY_PAUSE = Duration.ofSeconds(1);
+    private static final int MAX_RETRIES = 6;
+
+    private static final byte ENQ = SpecialBytes.ENQ.getValue();
+    private static final byte STX = SpecialBytes.STX.getValue();
+    private static final byte ETX = SpecialBytes.ETX.getValue();
+    private static final byte ETB = SpecialBytes.ETB.getValue();
+    private static final byte ACK = SpecialBytes.ACK.getValue();
+    private static final byte NAK = SpecialBytes.NAK.getValue();
+    private static final byte LF = SpecialBytes.LF.getValue();
+    private static final byte CR = SpecialBytes.CR.getValue();
+    private static final byte VT = SpecialBytes.HL7START.getValue();
+    private static final byte FS = SpecialBytes.HL7END.getValue();
+
+    /** Що відправлено — від цього залежить, яку відповідь хоста чекати. */
+    private enum Segment { ENQUIRY, FRAME, HL7_MESSAGE }
+
+    /** Підсумок відтворення. */
+    public record ReplayResult(long bytes, long segments, long retries, Duration elapsed) {
+        public double bytesPerSecond() {
+            long nanos = Math.max(1, elapsed.toNanos());
+            return bytes * 1_000_000_000d / nanos;
+        }
+    }
+
+    /*────────────── поля ──────────────*/
+    private final Path file;
+    private final double speed;
+    private final int repeat;
+    private volatile ReplaySource source;
+
+    // відповіді хоста на наші ENQ/кадри
+    private final BlockingQueue<Byte> hostReplies = new LinkedBlockingQueue<>();
+    private final CompletableFuture<ReplayResult> completion = new CompletableFuture<>();
+    private final AtomicLong retries = new AtomicLong();
+    private volatile boolean running = true;
+    // false — хост не підтверджує HL7, повідомлення йдуть без очікування (лише потік відтворення)
+    private boolean hl7Gated = true;
+    // сегмент, початок якого був у попередньому фрагменті запису (лише потік відтворення)
+    private final ByteArrayOutputStream unfinished = new ByteArrayOutputStream();
+    private boolean frameEnded;
+
+    // відтворення і доставка байтів — окремі потоки, щоб відповіді хоста не блокували запис
+    private final ExecutorService replayPool =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("replay-reader").factory());
+    private final ExecutorService deliveryPool =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("replay-delivery").factory());
+
+    /*────────────── ctor ──────────────*/
+    public ReplayCommunicator(Path file, double speed, int repeat, DeviceLogger logger) {
+        this(file, null, speed, repeat, logger);
+    }
+
+    public ReplayCommunicator(ReplaySource source, double speed, int repeat, DeviceLogger logger) {
+        this(null, source, speed, repeat, logger);
+    }
+
+    private ReplayCommunicator(Path file, ReplaySource source, double speed, int repeat, DeviceLogger logger) {
+        super(logger);
+        this.file = file;
+        this.source = source;
+        this.speed = Math.max(0, speed);
+        this.repeat = Math.max(1, repeat);
+        logger.log("Initializing ReplayCommunicator for " + (file != null ? file : "in-memory capture")
+                + " (speed: " + describeSpeed() + ", repeat: " + this.repeat + ")");
+    }
+
+    /*────────────── ICommunicator ──────────────*/
+    @Override
+    public void run() {
+        if (source == null) {
+            try {
+                source = ReplaySource.open(file);
+            } catch (IOException ex) {
+                logger.error("Cannot read replay file " + file, ex);
+                throw new DeviceRuntimeException("Cannot read replay file " + file + ": " + ex.getMessage() + " (see log for details)");
+            }
+        }
+        notifyDeviceStatus(DeviceStatus.CONNECTED);
+        replayPool.submit(this::replayLoop);
+    }
+
+    /** Завершується після відтворення всіх повторів (або винятком, якщо відтворення перервано). */
+    public CompletableFuture<ReplayResult> completion() {
+        return completion;
+    }
+
+    /**
+     * Дані від хоста: ACK/NAK і MLLP-відповідь (HL7 ACK) будять очікування рукостискання,
+     * на ENQ та кадри хоста відповідаємо ACK, як це зробив би аналізатор.
+     * Решта (EOT тощо) відповіді не потребує.
+     */
+    @Override
+    public void sendBytes(byte[] data) {
+        if (data == null || data.length == 0 || !running) return;
+        byte first = data[0];
+        if (data.length == 1 && (first == ACK || first == NAK)) {
+            hostReplies.offer(first);
+        } else if (first == VT) {
+            hostReplies.offer(ACK);
+        } else if (first == ENQ || first == STX) {
+            deliver(SpecialBytes.ACK.bytes(), 0, 1);
+        }
+    }
+
+    @Override
+    public void sendByte(byte data) {
+        sendBytes(new byte[]{data});
+    }
+
+    @Override
+    public void close() {
+        if (!running) return;
+        running = false;
+        replayPool.shutdownNow();
+        deliveryPool.shutdownNow();
+        completion.completeExceptionally(new CancellationException("Replay closed"));
+        notifyDeviceStatus(DeviceStatus.STOPPED);
+    }
+
+    /*────────────── відтворення ──────────────*/
+    private void replayLoop() {
+        long started = System.nanoTime();
+        long bytes = 0;
+        long segments = 0;
+        try {
+            for (int pass = 0; pass < repeat && running; pass++) {
+                unfinished.reset();
+                frameEnded = false;
+                long previousOffset = 0;
+                for (ReplaySource.Chunk chunk : source.chunks()) {
+                    if (!running) break;
+                    pace(chunk.offsetNanos() - previousOffset);
+                    previousOffset = chunk.offsetNanos();
+                    segments += replayChunk(chunk.data());
+                    bytes += chunk.data().length;
+                }
+            }
+            awaitDelivered();
+            var result = new ReplayResult(bytes, segments, retries.get(), Duration.ofNanos(System.nanoTime() - started));
+            logger.log(String.format("Replay finished: %d bytes, %d segments, %d retries in %d ms (%.0f B/s)",
+                    result.bytes(), result.segments(), result.retries(), result.elapsed().toMillis(), result.bytesPerSecond()));
+            completion.complete(result);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            completion.completeExceptionally(ex);
+        } catch (Exception ex) {
+            logger.error("Replay failed", ex);
+            completion.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Ділить фрагмент на сегменти рукостискання (ENQ, кадр до LF після ETX/ETB,
+     * HL7-повідомлення до FS і CR за ним) і після кожного чекає відповідь хоста.
+     * Незавершений кадр у кінці фрагмента віддається одразу і дописується наступним фрагментом.
+     *
+     * @return кількість завершених сегментів
+     */
+    private int replayChunk(byte[] data) throws InterruptedException {
+        int segments = 0;
+        int segmentStart = 0;
+        for (int i = 0; i < data.length && running; i++) {
+            byte b = data[i];
+            Segment segment = null;
+            if (b == ENQ) {
+                segment = Segment.ENQUIRY;
+            } else if (b == ETX || b == ETB) {
+                frameEnded = true;
+            } else if (frameEnded && b == LF) {
+                segment = Segment.FRAME;
+            } else if (b == FS) {
+                segment = Segment.HL7_MESSAGE;
+                if (i + 1 < data.length && data[i + 1] == CR) i++;
+            }
+            if (segment == null) continue;
+
+            if (unfinished.size() == 0) {
+                sendGated(data, segmentStart, i + 1 - segmentStart, 0, segment);
+            } else {
+                int delivered = unfinished.size();
+                unfinished.write(data, segmentStart, i + 1 - segmentStart);
+                byte[] whole = unfinished.toByteArray();
+                unfinished.reset();
+                sendGated(whole, 0, whole.length, delivered, segment);
+            }
+            segments++;
+            frameEnded = false;
+            segmentStart = i + 1;
+        }
+        if (segmentStart < data.length && running) {
+            deliver(data, segmentStart, data.length - segmentStart); // EOT, незавершений хвіст — без очікування
+            if (unfinished.size() > 0 || startsSegment(data, segmentStart)) {
+                unfinished.write(data, segmentStart, data.length - segmentStart);
+            } else {
+                segments++;
+            }
+        }
+        return segments;
+    }
+
+    /** Чи є в хвості початок кадру або HL7-повідомлення — тоді його кінець прийде наступним фрагментом. */
+    private static boolean startsSegment(byte[] data, int from) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == STX || data[i] == VT) return true;
+        }
+        return false;
+    }
+
+    /** @param delivered скільки байт сегмента вже віддано раніше; повтор на NAK віддає сегмент цілим */
+    private void sendGated(byte[] data, int offset, int length, int delivered, Segment segment) throws InterruptedException {
+        if (segment == Segment.HL7_MESSAGE && !hl7Gated) {
+            deliver(data, offset + delivered, length - delivered);
+            return;
+        }
+        for (int attempt = 0; attempt <= MAX_RETRIES && running; attempt++) {
+            hostReplies.clear();
+            int skip = attempt == 0 ? delivered : 0;
+            deliver(data, offset + skip, length - skip);
+            Byte reply = hostReplies.poll(HANDSHAKE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            if (reply == null) {
+                if (segment == Segment.HL7_MESSAGE) {
+                    hl7Gated = false;
+                    logger.log("Replay: host does not acknowledge HL7 in " + HANDSHAKE_TIMEOUT.toSeconds()
+                            + " sec, replaying the rest without waiting");
+                } else {
+                    logger.log("Replay: no answer from host in " + HANDSHAKE_TIMEOUT.toSeconds() + " sec, continuing");
+                }
+                return;
+            }
+            if (reply != NAK) return;
+
+            retries.incrementAndGet();
+            logger.log("Replay: host answered NAK, retry " + (attempt + 1));
+            if (segment == Segment.ENQUIRY) Thread.sleep(ENQ_RETRY_PAUSE.toMillis());
+        }
+    }
+
+    private void deliver(byte[] data, int offset, int length) {
+        byte[] copy = Arrays.copyOfRange(data, offset, offset + length);
+        try {
+            deliveryPool.execute(() -> {
+                ByteListener listener = byteListener.get();
+                if (listener != null) listener.onChunk(copy, 0, copy.length);
+            });
+        } catch (RejectedExecutionException ignored) {
+            // відтворення зупинено
+        }
+    }
+
+    private void awaitDelivered() throws InterruptedException, ExecutionException {
+        deliveryPool.submit(() -> { }).get();
+    }
+
+    private void pace(long gapNanos) throws InterruptedException {
+        if (speed == 0 || gapNanos <= 0) return;
+        long sleepNanos = (long) (gapNanos / speed);
+        TimeUnit.NANOSECONDS.sleep(sleepNanos);
+    }
+
+    private String describeSpeed() {
+        return speed == 0 ? "max" : speed + "x";
+    }
+}
@@ -0,0 +1,106 @@
+package ywh.services.communicator;
+
+import ywh.services.communicator.capture.CaptureReader;
+import ywh.services.communicator.capture.CaptureRecorder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Записаний вхідний трафік аналізатора для {@link ReplayCommunicator}.
+ * <p>
+ * Підтримувані формати файлу:
+ * • сегмент {@link CaptureRecorder} ({@code *.cap}) або тека з сегментами — вхідні фрагменти з часом запису;<br>
+ * • hex-дамп (як у тестових ресурсах: {@code "05 02 31 48 ..."}) — весь файл як один фрагмент;<br>
+ * • будь-який інший файл — сирі байти «як є».
+ * <p>
+ * Фрагменти мають зсув від початку запису, тож відтворення може йти в реальному темпі.
+ */
+public final class ReplaySource {
+
+    /** Вхідний фрагмент: зсув від початку запису (нс) і байти. */
+    public record Chunk(long offsetNanos, byte[] data) {
+    }
+
+    private final List<Chunk> chunks;
+    private final long totalBytes;
+
+    private ReplaySource(List<Chunk> chunks) {
+        this.chunks = List.copyOf(chunks);
+        this.totalBytes = chunks.stream().mapToLong(c -> c.data().length).sum();
+    }
+
+    public static ReplaySource of(List<Chunk> chunks) {
+        return new ReplaySource(chunks);
+    }
+
+    public static ReplaySource of(byte[] data) {
+        return new ReplaySource(List.of(new Chunk(0, data)));
+    }
+
+    public static ReplaySource open(Path file) throws IOException {
+        if (Files.isDirectory(file)) {
+            return CaptureReader.toReplaySource(readSegments(file));
+        }
+        byte[] content = Files.readAllBytes(file);
+        if (CaptureReader.isCapture(ByteBuffer.wrap(content))) {
+            return CaptureReader.toReplaySource(CaptureReader.parse(ByteBuffer.wrap(content)));
+        }
+        byte[] hex = tryParseHexDump(content);
+        return of(hex != null ? hex : content);
+    }
+
+    private static List<CaptureReader.Record> readSegments(Path directory) throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(p -> p.getFileName().toString().endsWith(".cap")).sorted().toList();
+        }
+        List<CaptureReader.Record> records = new ArrayList<>();
+        for (Path segment : segments) {
+            records.addAll(CaptureReader.read(segment));
+        }
+        records.sort(Comparator.comparingLong(CaptureReader.Record::epochNanos));
+        return records;
+    }
+
+    public List<Chunk> chunks() {
+        return chunks;
+    }
+
+    public long totalBytes() {
+        return totalBytes;
+    }
+
+    /* ─── hex-дамп ─── */
+
+    /**
+     * @return розібрані байти або {@code null}, якщо це не hex-дамп
+     */
+    static byte[] tryParseHexDump(byte[] content) {
+        var out = new ByteArrayOutputStream(content.length / 3 + 1);
+        int high = -1;
+        for (byte c : content) {
+            if (c == ' ' || c == '\r' || c == '\n' || c == '\t' || c == ',') {
+                if (high != -1) return null; // непарна кількість цифр у токені
+                continue;
+            }
+            int digit = Character.digit(c, 16);
+            if (digit < 0) return null;
+            if (high == -1) {
+                high = digit;
+            } else {
+                out.write((high << 4) | digit);
+                high = -1;
+            }
+        }
+        if (high != -1 || out.size() == 0) return null;
+        return out.toByteArray();
+    }
+}
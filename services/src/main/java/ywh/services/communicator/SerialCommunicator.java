@@ -3,29 +3,40 @@ package ywh.services.communicator;
 import com.fazecast.jSerialComm.SerialPort;
 import com.fazecast.jSerialComm.SerialPortDataListener;
 import com.fazecast.jSerialComm.SerialPortEvent;
+import ywh.commons.Timers;
 import ywh.logging.DeviceLogger;
 import ywh.services.data.enums.DeviceStatus;
+import ywh.services.data.enums.SpecialBytes;
 import ywh.services.data.serial_port.SerialParams;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SerialCommunicator extends CommunicatorAbstract implements AutoCloseable {
     private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
     private static final Duration AVAILABILITY_POLL = Duration.ofMillis(500);
+    private static final int READ_BUFFER_SIZE = 4096;
 
     private SerialPort serialPort;
     private final SerialParams params;
+    // подій DATA_AVAILABLE обробляє один потік jSerialComm, тож буфер спільний
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
 
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
-            Thread.ofVirtual().name("serial-comm").factory()
+    private final ExecutorService writerPool = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("serial-writer").factory()
     );
+    // усі відправки йдуть через чергу: порт пише лише потік-писар
+    private final OutboundQueue outbound = OutboundQueue.heap(READ_BUFFER_SIZE);
     private final AtomicBoolean closed = new AtomicBoolean(false);
-    private Future<?> availabilityFuture;
+    // повторне відкриття і перевірка доступності — через спільний таймер
+    private volatile Timers.Timeout retryTimer;
+    private volatile Timers.Timeout availabilityTimer;
 
     protected SerialCommunicator(SerialParams params, DeviceLogger logger) {
         super(logger);
@@ -62,15 +73,15 @@ public class SerialCommunicator extends CommunicatorAbstract implements AutoClos
             if (event.getEventType() == SerialPort.LISTENING_EVENT_DATA_AVAILABLE) {
                 try {
                     int bytesAvailable = serialPort.bytesAvailable();
-                    if (bytesAvailable > 0) {
-                        byte[] buffer = new byte[bytesAvailable];
-                        int numRead = serialPort.readBytes(buffer, buffer.length);
-
-                        if (numRead > 0) {
-                            for (int i = 0; i < numRead; i++) {
-                                byteListener.get().onByte(buffer[i]);
-                            }
+                    while (bytesAvailable > 0) {
+                        int numRead = serialPort.readBytes(readBuffer, Math.min(bytesAvailable, readBuffer.length));
+                        if (numRead <= 0) break;
+
+                        ByteListener listener = byteListener.get();
+                        if (listener != null) {
+                            listener.onChunk(readBuffer, 0, numRead);
                         }
+                        bytesAvailable -= numRead;
                     }
                 } catch (Exception e) {
                     logger.error("Error while reading data", e);
@@ -81,33 +92,57 @@ public class SerialCommunicator extends CommunicatorAbstract implements AutoClos
 
     @Override
     public void sendBytes(byte[] data) {
-        try {
-            if (serialPort != null && serialPort.isOpen()) {
-                serialPort.writeBytes(data, data.length);
-            }
-        } catch (Exception e) {
-            logger.error("Error while sending data", e);
+        if (data == null || data.length == 0) return;
+        if (serialPort == null || !serialPort.isOpen()) return;
+        if (!outbound.offer(data) && !outbound.isClosed()) {
+            logger.error("Outbound queue overflow, " + data.length + " bytes dropped: " + outbound.stats());
         }
     }
 
     @Override
     public void sendByte(byte data) {
+        SpecialBytes special = SpecialBytes.of(data);
+        sendBytes(special != null ? special.bytes() : new byte[]{data});
+    }
+
+    @Override
+    public Optional<OutboundQueue.Stats> getOutboundStats() {
+        return Optional.of(outbound.stats());
+    }
+
+    private void writeLoop() {
         try {
-            if (serialPort != null && serialPort.isOpen()) {
-                byte[] buffer = new byte[]{data};
-                serialPort.writeBytes(buffer, 1);
+            while (outbound.awaitPending()) {
+                try {
+                    outbound.drain(this::writeToPort);
+                } catch (IOException e) {
+                    logger.error("Error while sending data", e);
+                    outbound.discardBatch();
+                }
             }
-        } catch (Exception e) {
-            logger.error("Error while sending data", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
+    private int writeToPort(ByteBuffer buf) throws IOException {
+        int total = 0;
+        while (buf.hasRemaining()) {
+            int written = serialPort.writeBytes(buf.array(), buf.remaining(), buf.arrayOffset() + buf.position());
+            if (written < 0) throw new IOException("Write to port " + params.getPortName() + " failed");
+            buf.position(buf.position() + written);
+            total += written;
+        }
+        return total;
+    }
+
     @Override
     public void close() {
         if (!closed.compareAndSet(false, true)) return; // already closed
+        outbound.close();
+        writerPool.shutdownNow();
         safeClosePort();
-        if (availabilityFuture != null) availabilityFuture.cancel(true);
-        scheduler.shutdownNow();
+        cancelTimers();
         notifyDeviceStatus(DeviceStatus.STOPPED);
     }
 
@@ -137,12 +172,14 @@ public class SerialCommunicator extends CommunicatorAbstract implements AutoClos
 
     @Override
     public void run() {
+        writerPool.submit(this::writeLoop);
         retryOpenPort();
     }
 
     private void retryOpenPort() {
         if (closed.get()) return;
-        scheduler.schedule(() -> {
+        retryTimer = Timers.schedule(() -> {
+            if (closed.get()) return;
             try {
                 attemptOpen();
             } catch (Exception ex) {
@@ -152,6 +189,13 @@ public class SerialCommunicator extends CommunicatorAbstract implements AutoClos
         }, 1, TimeUnit.SECONDS);
     }
 
+    private void cancelTimers() {
+        Timers.Timeout retry = retryTimer;
+        if (retry != null) retry.cancel();
+        Timers.Timeout availability = availabilityTimer;
+        if (availability != null) availability.cancel();
+    }
+
     private void attemptOpen() throws Exception {
         notifyDeviceStatus(DeviceStatus.CONNECTING);
         logger.log("Trying to open port " + params.getPortName());
@@ -196,7 +240,9 @@ public class SerialCommunicator extends CommunicatorAbstract implements AutoClos
     }
 
     private void startComPortAvailabilityCheck() {
-        availabilityFuture = scheduler.scheduleAtFixedRate(() -> {
+        Timers.Timeout previous = availabilityTimer;
+        if (previous != null) previous.cancel();
+        availabilityTimer = Timers.scheduleWithFixedDelay(() -> {
             try {
                 if (closed.get()) return;
 
@@ -209,10 +255,12 @@ public class SerialCommunicator extends CommunicatorAbstract implements AutoClos
                 logger.error("Availability check error", ex);
                 handlePortLost();
             }
-        }, AVAILABILITY_POLL.toMillis(), AVAILABILITY_POLL.toMillis(), TimeUnit.MILLISECONDS);
+        }, AVAILABILITY_POLL, AVAILABILITY_POLL);
     }
 
     private void handlePortLost() {
+        Timers.Timeout availability = availabilityTimer;
+        if (availability != null) availability.cancel();
         safeClosePort();
         notifyDeviceStatus(DeviceStatus.CONNECTION_LOST);
         retryOpenPort();
@@ -1,6 +1,7 @@
 package ywh.services.communicator;
 
 import ywh.services.data.enums.DeviceStatus;
+import ywh.services.data.enums.SpecialBytes;
 import ywh.logging.DeviceLogger;
 
 import java.io.IOException;
@@ -8,6 +9,7 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SocketChannel;
+import java.util.Optional;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -34,6 +36,9 @@ public final class TcpClientCommunicator extends CommunicatorAbstract
 
     private final AtomicReference<SocketChannel> activeSocket = new AtomicReference<>();
     private final ReentrantLock socketLock = new ReentrantLock();
+    // черга вихідних даних поточного з’єднання; вичитується окремим потоком-писарем
+    private final AtomicReference<OutboundQueue> outbound = new AtomicReference<>();
+    private final ByteBufferPool bufferPool = ByteBufferPool.direct(BUFFER_SIZE, 4);
     private final AtomicBoolean running = new AtomicBoolean(true);
 
 
@@ -61,31 +66,22 @@ public final class TcpClientCommunicator extends CommunicatorAbstract
     @Override
     public void sendBytes(byte[] data) {
         if (data == null || data.length == 0) return;
-        SocketChannel sc = activeSocket.get();
-        if (sc == null || !sc.isOpen()) return;
-
-        ByteBuffer buf = ByteBuffer.wrap(data);
-        try {
-            while (buf.hasRemaining()) sc.write(buf);
-        } catch (IOException ex) {
-            logger.error("Send bytes error", ex);
-            closeSocket(sc, "Send failure – closing socket");
+        OutboundQueue queue = outbound.get();
+        if (queue == null) return;
+        if (!queue.offer(data) && !queue.isClosed()) {
+            logger.error("Outbound queue overflow, " + data.length + " bytes dropped: " + queue.stats());
         }
     }
 
     @Override
     public void sendByte(byte data) {
-        SocketChannel sc = activeSocket.get();
-        if (sc == null || !sc.isOpen()) return;
+        SpecialBytes special = SpecialBytes.of(data);
+        sendBytes(special != null ? special.bytes() : new byte[]{data});
+    }
 
-        ByteBuffer buf = ByteBuffer.allocate(1).put(data);
-        buf.flip();
-        try {
-            sc.write(buf);
-        } catch (IOException ex) {
-            logger.error("Send byte error", ex);
-            closeSocket(sc, "Send failure – closing socket");
-        }
+    @Override
+    public Optional<OutboundQueue.Stats> getOutboundStats() {
+        return Optional.ofNullable(outbound.get()).map(OutboundQueue::stats);
     }
 
     @Override
@@ -145,6 +141,9 @@ public final class TcpClientCommunicator extends CommunicatorAbstract
                 notifyDeviceStatus(DeviceStatus.CONNECTED);
 
                 SocketChannel finalSc = sc;
+                OutboundQueue queue = OutboundQueue.direct(BUFFER_SIZE);
+                outbound.set(queue);
+                readerPool.submit(() -> writeLoop(finalSc, queue));
                 readerPool.submit(() -> readLoop(finalSc));
 
             } catch (IOException ex) {
@@ -176,7 +175,8 @@ public final class TcpClientCommunicator extends CommunicatorAbstract
      * Чтение данных от сервера.
      */
     private void readLoop(SocketChannel sc) {
-        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer buf = bufferPool.acquire();
+        byte[] chunk = new byte[BUFFER_SIZE];
 
         try {
             while (running.get() && sc.isOpen()) {
@@ -184,10 +184,9 @@ public final class TcpClientCommunicator extends CommunicatorAbstract
                 if (n == -1) break;              // сервер разорвал соединение
 
                 buf.flip();
-                while (buf.hasRemaining()) {
-                    byte b = buf.get();
-                    if (byteListener != null) byteListener.get().onByte(b);
-                }
+                buf.get(chunk, 0, n);
+                ByteListener listener = byteListener.get();
+                if (listener != null && n > 0) listener.onChunk(chunk, 0, n);
                 buf.clear();
             }
         } catch (ClosedChannelException ignore) {
@@ -196,10 +195,31 @@ public final class TcpClientCommunicator extends CommunicatorAbstract
             logger.error("Read error", ex);
             notifyDeviceStatus(DeviceStatus.CONNECTION_LOST);
         } finally {
+            bufferPool.release(buf);
             closeSocket(sc, "Disconnected from server");
         }
     }
 
+    /**
+     * Писатель: единственный поток, который пишет в сокет.
+     */
+    private void writeLoop(SocketChannel sc, OutboundQueue queue) {
+        try {
+            while (queue.awaitPending()) {
+                queue.drain(buf -> {
+                    int written = 0;
+                    while (buf.hasRemaining()) written += sc.write(buf);
+                    return written;
+                });
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            logger.error("Send bytes error", ex);
+            closeSocket(sc, "Send failure – closing socket");
+        }
+    }
+
     /**
      * Безопасно закрывает socket и сбрасывает activeSocket.
      */
@@ -209,6 +229,8 @@ public final class TcpClientCommunicator extends CommunicatorAbstract
         socketLock.lock();
         try {
             if (activeSocket.compareAndSet(sc, null)) {
+                OutboundQueue queue = outbound.getAndSet(null);
+                if (queue != null) queue.close();
                 try {
                     sc.close();
                 } catch (IOException ignored) {
@@ -1,6 +1,7 @@
 package ywh.services.communicator;
 
 import ywh.services.data.enums.DeviceStatus;
+import ywh.services.data.enums.SpecialBytes;
 import ywh.services.exceptions.DeviceRuntimeException;
 import ywh.logging.DeviceLogger;
 
@@ -10,6 +11,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -30,6 +32,9 @@ public final class TcpHostCommunicator extends CommunicatorAbstract implements A
 
     private final AtomicReference<SocketChannel> activeClient = new AtomicReference<>();
     private final ReentrantLock clientLock = new ReentrantLock();
+    // черга вихідних даних поточного клієнта; вичитується окремим потоком-писарем
+    private final AtomicReference<OutboundQueue> outbound = new AtomicReference<>();
+    private final ByteBufferPool bufferPool = ByteBufferPool.direct(BUFFER_SIZE, 4);
     private final AtomicBoolean isAccepting = new AtomicBoolean(false);
     private volatile boolean running = true;
 
@@ -68,37 +73,30 @@ public final class TcpHostCommunicator extends CommunicatorAbstract implements A
     @Override
     public void sendBytes(byte[] data) {
         if (data == null || data.length == 0) return;
-        SocketChannel client = activeClient.get();
-        if (client == null || !client.isOpen()) return;
-
-        ByteBuffer buf = ByteBuffer.wrap(data);
-        try {
-            while (buf.hasRemaining()) client.write(buf);
-        } catch (IOException ex) {
-            logger.error("Send bytes error: ", ex);
-            closeClient(client, "Помилка надсилання даних: " + ex.getMessage());
+        OutboundQueue queue = outbound.get();
+        if (queue == null) return;
+        if (!queue.offer(data) && !queue.isClosed()) {
+            logger.error("Outbound queue overflow, " + data.length + " bytes dropped: " + queue.stats());
         }
     }
 
     @Override
     public void sendByte(byte data) {
-        SocketChannel client = activeClient.get();
-        if (client == null || !client.isOpen()) return;
+        SpecialBytes special = SpecialBytes.of(data);
+        sendBytes(special != null ? special.bytes() : new byte[]{data});
+    }
 
-        ByteBuffer buf = ByteBuffer.allocate(1).put(data);
-        buf.flip();
-        try {
-            client.write(buf);
-        } catch (IOException ex) {
-            logger.error("Send byte error: ", ex);
-            closeClient(client, "Помилка надсилання байта: " + ex.getMessage());
-        }
+    @Override
+    public Optional<OutboundQueue.Stats> getOutboundStats() {
+        return Optional.ofNullable(outbound.get()).map(OutboundQueue::stats);
     }
 
     @Override
     public void close() {
         running = false;
 
+        OutboundQueue queue = outbound.getAndSet(null);
+        if (queue != null) queue.close();
         SocketChannel client = activeClient.getAndSet(null);
         if (client != null) {
             try {
@@ -140,6 +138,9 @@ public final class TcpHostCommunicator extends CommunicatorAbstract implements A
                 client.configureBlocking(true);
 
                 if (activeClient.compareAndSet(null, client)) {
+                    OutboundQueue queue = OutboundQueue.direct(BUFFER_SIZE);
+                    outbound.set(queue);
+                    clientPool.submit(() -> writeLoop(client, queue));
                     clientPool.submit(() -> handleClient(client));
                     notifyDeviceStatus(DeviceStatus.CONNECTED);
                     logger.log("Client connected: " + client.getRemoteAddress());
@@ -164,7 +165,9 @@ public final class TcpHostCommunicator extends CommunicatorAbstract implements A
 
     // ─────────────────── обробка клієнта ────────────────────────────
     private void handleClient(SocketChannel client) {
-        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        // direct-буфер для сокета + масив, який віддаємо протоколу; обидва живуть усе з’єднання
+        ByteBuffer buf = bufferPool.acquire();
+        byte[] chunk = new byte[BUFFER_SIZE];
 
         try {
             while (running && client.isOpen()) {
@@ -172,20 +175,38 @@ public final class TcpHostCommunicator extends CommunicatorAbstract implements A
                 if (n == -1) break; // клиент закрылся
 
                 buf.flip();
-                while (buf.hasRemaining()) {
-                    byte b = buf.get();
-                    if (byteListener != null) byteListener.get().onByte(b);
-                }
+                buf.get(chunk, 0, n);
+                ByteListener listener = byteListener.get();
+                if (listener != null && n > 0) listener.onChunk(chunk, 0, n);
                 buf.clear();
             }
         } catch (IOException ex) {
             logger.error("Error while handling client: ", ex);
         } finally {
+            bufferPool.release(buf);
             notifyDeviceStatus(DeviceStatus.CONNECTION_LOST);
             closeClient(client, "Клієнт від’єднався");
         }
     }
 
+    // ─────────────────── писар ──────────────────────────────────────
+    private void writeLoop(SocketChannel client, OutboundQueue queue) {
+        try {
+            while (queue.awaitPending()) {
+                queue.drain(buf -> {
+                    int written = 0;
+                    while (buf.hasRemaining()) written += client.write(buf);
+                    return written;
+                });
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            logger.error("Send bytes error: ", ex);
+            closeClient(client, "Помилка надсилання даних: " + ex.getMessage());
+        }
+    }
+
     // ─────────────────── закриття клієнта ───────────────────────────
     private void closeClient(SocketChannel client, String reason) {
         if (client == null) return;
@@ -193,6 +214,8 @@ public final class TcpHostCommunicator extends CommunicatorAbstract implements A
         clientLock.lock();
         try {
             if (activeClient.compareAndSet(client, null)) {
+                OutboundQueue queue = outbound.getAndSet(null);
+                if (queue != null) queue.close();
                 try {
                     client.close();
                 } catch (IOException ex) {
@@ -0,0 +1,235 @@
+package ywh.services.communicator;
+
+import ywh.logging.DeviceLogger;
+import ywh.services.data.enums.DeviceStatus;
+import ywh.services.data.enums.SpecialBytes;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Одне клієнтське з’єднання {@link TcpSelectorHostCommunicator}.
+ * <p>
+ * Для протоколу/парсера виглядає як звичайний {@link ICommunicator}:
+ * байти приходять у {@link ByteListener}, відповіді йдуть через {@link #sendBytes(byte[])}.
+ * Доставка байтів виконується в окремому віртуальному потоці сесії,
+ * тож повільний парсер не гальмує selector і інші аналізатори.
+ * Черга доставки обмежена {@link #MAX_PENDING_CHUNKS}: коли парсер відстає, сесія перестає читати сокет
+ * (знімається OP_READ) і TCP сам притримує аналізатор, доки черга не спаде до {@link #RESUME_PENDING_CHUNKS}.
+ */
+public final class TcpHostSession extends CommunicatorAbstract {
+
+    private static final int WRITE_BUFFER_SIZE = 4096;
+    static final int MAX_PENDING_CHUNKS = 16;
+    static final int RESUME_PENDING_CHUNKS = MAX_PENDING_CHUNKS / 4;
+
+    private final TcpSelectorHostCommunicator host;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final String remoteName;
+    private final String remoteHost;
+
+    // писар черги — selector-потік; writeRequested не дає будити його на кожну відправку
+    private final OutboundQueue outbound = OutboundQueue.direct(WRITE_BUFFER_SIZE);
+    private final AtomicBoolean writeRequested = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicReference<Runnable> closeListener = new AtomicReference<>();
+    private final ExecutorService deliveryPool;
+
+    // фрагменти, передані в deliveryPool і ще не доставлені; readPaused змінюється лише selector-потоком
+    private final AtomicInteger pendingChunks = new AtomicInteger();
+    private volatile boolean readPaused;
+
+    TcpHostSession(TcpSelectorHostCommunicator host, SocketChannel channel, SelectionKey key, DeviceLogger logger) {
+        super(logger);
+        this.host = host;
+        this.channel = channel;
+        this.key = key;
+        this.remoteName = resolveRemoteName(channel);
+        this.remoteHost = resolveRemoteHost(channel);
+        this.deliveryPool = Executors.newSingleThreadExecutor(
+                Thread.ofVirtual().name("tcp-session-" + remoteName).factory());
+    }
+
+    /**
+     * Підключення вже встановлене — лише вмикаємо читання.
+     * Викликати після того, як під’єднано ByteListener.
+     */
+    @Override
+    public void run() {
+        if (closed.get()) return;
+        notifyDeviceStatus(DeviceStatus.CONNECTED);
+        host.execute(() -> {
+            if (key.isValid()) key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        });
+    }
+
+    /** Адреса з портом клієнта — для повідомлень у лозі. */
+    public String getRemoteName() {
+        return remoteName;
+    }
+
+    /** Лише адреса клієнта, без ефемерного порту: стабільна між перепідключеннями (імена логів, записів). */
+    public String getRemoteHost() {
+        return remoteHost;
+    }
+
+    /** Слухач, який викликається один раз після закриття сесії (з будь-якої сторони). */
+    public void setCloseListener(Runnable listener) {
+        closeListener.set(listener);
+    }
+
+    public boolean isOpen() {
+        return !closed.get() && channel.isOpen();
+    }
+
+    /*────────────── запис ──────────────*/
+    @Override
+    public void sendBytes(byte[] data) {
+        if (data == null || data.length == 0 || !isOpen()) return;
+        if (!outbound.offer(data)) {
+            if (!outbound.isClosed()) {
+                logger.error("Outbound queue overflow (" + remoteName + "), " + data.length + " bytes dropped: " + outbound.stats());
+            }
+            return;
+        }
+        if (writeRequested.compareAndSet(false, true)) {
+            host.execute(this::flushPending);
+        }
+    }
+
+    @Override
+    public void sendByte(byte data) {
+        SpecialBytes special = SpecialBytes.of(data);
+        sendBytes(special != null ? special.bytes() : new byte[]{data});
+    }
+
+    @Override
+    public Optional<OutboundQueue.Stats> getOutboundStats() {
+        return Optional.of(outbound.stats());
+    }
+
+    /** Викликається selector-потоком: після send() або коли сокет знову готовий до запису. */
+    void flushPending() {
+        if (!key.isValid()) return;
+        try {
+            if (!outbound.drain(channel::write)) {
+                // сокет переповнений — допишемо по OP_WRITE
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            writeRequested.set(false);
+            // хтось встиг покласти дані, поки прапорець ще стояв
+            if (outbound.hasPending() && writeRequested.compareAndSet(false, true)) {
+                flushPending();
+            }
+        } catch (IOException ex) {
+            logger.error("Flush error (" + remoteName + ")", ex);
+            close();
+        }
+    }
+
+    /*────────────── читання ──────────────*/
+
+    /** Викликається selector-потоком для кожного прочитаного фрагмента. */
+    void deliver(ByteBuffer chunk) {
+        if (closed.get()) {
+            host.releaseChunk(chunk);
+            return;
+        }
+        if (pendingChunks.incrementAndGet() >= MAX_PENDING_CHUNKS) pauseReading();
+        try {
+            deliveryPool.execute(() -> {
+                try {
+                    ByteListener listener = byteListener.get();
+                    if (listener != null) listener.onChunk(chunk.array(), chunk.arrayOffset(), chunk.limit());
+                } finally {
+                    host.releaseChunk(chunk);
+                    if (pendingChunks.decrementAndGet() == RESUME_PENDING_CHUNKS && readPaused) {
+                        host.execute(this::resumeReading);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            pendingChunks.decrementAndGet();
+            host.releaseChunk(chunk); // сесію вже закрито
+        }
+    }
+
+    // selector-потік
+    private void pauseReading() {
+        if (readPaused || !key.isValid()) return;
+        readPaused = true;
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+    }
+
+    // selector-потік
+    private void resumeReading() {
+        if (!readPaused || pendingChunks.get() > RESUME_PENDING_CHUNKS) return;
+        readPaused = false;
+        if (key.isValid()) key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+    }
+
+    SocketChannel channel() {
+        return channel;
+    }
+
+    /*────────────── закриття ──────────────*/
+    void closeByPeer() {
+        if (closed.get()) return;
+        logger.log("Client " + remoteName + " disconnected");
+        notifyDeviceStatus(DeviceStatus.CONNECTION_LOST);
+        close();
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            logger.error("Error while closing session channel (" + remoteName + ")", ex);
+        }
+        outbound.close();
+        deliveryPool.shutdown();
+        host.onSessionClosed(this);
+
+        Runnable listener = closeListener.getAndSet(null);
+        if (listener != null) {
+            try {
+                listener.run();
+            } catch (Exception ex) {
+                logger.error("Error in session close listener", ex);
+            }
+        }
+    }
+
+    private static String resolveRemoteHost(SocketChannel channel) {
+        try {
+            return channel.getRemoteAddress() instanceof InetSocketAddress address ? address.getHostString() : "unknown";
+        } catch (IOException ex) {
+            return "unknown";
+        }
+    }
+
+    private static String resolveRemoteName(SocketChannel channel) {
+        try {
+            var address = channel.getRemoteAddress();
+            return address != null ? address.toString().replace("/", "") : "unknown";
+        } catch (IOException ex) {
+            return "unknown";
+        }
+    }
+}
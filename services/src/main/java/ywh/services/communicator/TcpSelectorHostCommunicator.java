@@ -0,0 +1,248 @@
+package ywh.services.communicator;
+
+import ywh.logging.DeviceLogger;
+import ywh.services.exceptions.DeviceRuntimeException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * TCP-хост, що обслуговує БАГАТО аналізаторів на одному порту.
+ * <p>
+ * Усі з’єднання обробляються одним NIO {@link Selector} у єдиному потоці:
+ * немає ні acceptor-потоку з {@code Thread.sleep}, ні reader-потоку на кожного клієнта.
+ * Кожне прийняте з’єднання стає окремою {@link TcpHostSession} (власний {@link ICommunicator}),
+ * а {@link SessionHandler} вирішує, який протокол/парсер до неї під’єднати.
+ */
+public final class TcpSelectorHostCommunicator implements Runnable, AutoCloseable {
+
+    /*────────────── статичне ──────────────*/
+    private static final int BUFFER_SIZE = 8192;
+    private static final int DEFAULT_MAX_SESSIONS = 32;
+
+    /**
+     * Викликається для кожного нового з’єднання у власному віртуальному потоці, а не в selector-потоці:
+     * повільне відкриття сесії (парсер, лог, файли запису) не зупиняє обмін з іншими аналізаторами.
+     * Обробник має під’єднати слухачів і викликати {@link TcpHostSession#run()},
+     * після чого сесія почне читати дані.
+     */
+    @FunctionalInterface
+    public interface SessionHandler {
+        void onSessionOpened(TcpHostSession session);
+    }
+
+    /*────────────── поля ──────────────*/
+    private final int port;
+    private final int maxSessions;
+    private final DeviceLogger logger;
+    private final SessionHandler sessionHandler;
+
+    private final Set<TcpHostSession> sessions = ConcurrentHashMap.newKeySet();
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    // читання відбувається лише в selector-потоці, тож одного direct-буфера достатньо
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // фрагменти для передачі в потоки сесій; повертаються в пул після доставки
+    private final ByteBufferPool chunkPool = ByteBufferPool.heap(BUFFER_SIZE, 64);
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread selectorThread;
+    private volatile boolean running = true;
+
+    /*────────────── ctor ──────────────*/
+    public TcpSelectorHostCommunicator(int port, DeviceLogger logger, SessionHandler sessionHandler) {
+        this(port, DEFAULT_MAX_SESSIONS, logger, sessionHandler);
+    }
+
+    public TcpSelectorHostCommunicator(int port, int maxSessions, DeviceLogger logger, SessionHandler sessionHandler) {
+        if (maxSessions <= 0) throw new IllegalArgumentException("maxSessions must be > 0");
+        this.port = port;
+        this.maxSessions = maxSessions;
+        this.logger = logger;
+        this.sessionHandler = sessionHandler;
+        logger.log("Initializing TcpSelectorHostCommunicator for port " + port + " (max sessions: " + maxSessions + ")");
+    }
+
+    /*────────────── Runnable ──────────────*/
+    @Override
+    public void run() {
+        try {
+            logger.log("Trying to start multi-session tcp host on port " + port + " ...");
+            selector = Selector.open();
+            server = ServerSocketChannel.open();
+            server.configureBlocking(false);
+            server.bind(new InetSocketAddress("0.0.0.0", port));
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException ex) {
+            logger.error("Error while initializing selector host on port " + port, ex);
+            closeQuietly();
+            throw new DeviceRuntimeException("Error while initializing selector host on port " + port + ": " + ex.getMessage() + " (see log for details)");
+        }
+        // селектор блокує carrier-потік, тому тут звичайний (не віртуальний) daemon-потік
+        selectorThread = Thread.ofPlatform().daemon().name("tcp-selector-" + port).start(this::selectLoop);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    public Set<TcpHostSession> getSessions() {
+        return Set.copyOf(sessions);
+    }
+
+    /*────────────── selector-цикл ──────────────*/
+    private void selectLoop() {
+        logger.log("Selector host started on port " + port);
+        while (running) {
+            try {
+                selector.select();
+                runSelectorTasks();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        TcpHostSession session = (TcpHostSession) key.attachment();
+                        if (key.isReadable()) read(session);
+                        if (key.isValid() && key.isWritable()) session.flushPending();
+                    }
+                }
+            } catch (ClosedSelectorException ex) {
+                break;
+            } catch (IOException ex) {
+                logger.error("I/O error in selector loop", ex);
+            } catch (Exception ex) {
+                logger.error("Unexpected error in selector loop", ex);
+            }
+        }
+        logger.log("Selector host on port " + port + " stopped");
+    }
+
+    private void accept() throws IOException {
+        SocketChannel client = server.accept();
+        if (client == null) return;
+
+        if (sessions.size() >= maxSessions) {
+            logger.log("Max sessions (" + maxSessions + ") reached, rejecting " + client.getRemoteAddress());
+            client.close();
+            return;
+        }
+
+        client.configureBlocking(false);
+        client.socket().setTcpNoDelay(true);
+        // OP_READ вмикаємо лише після TcpHostSession.run(), щоб не загубити перші байти
+        SelectionKey key = client.register(selector, 0);
+        TcpHostSession session = new TcpHostSession(this, client, key, logger);
+        key.attach(session);
+        sessions.add(session);
+        logger.log("Session opened: " + session.getRemoteName() + " (active: " + sessions.size() + ")");
+
+        Thread.ofVirtual().name("tcp-session-open-" + session.getRemoteName()).start(() -> {
+            try {
+                sessionHandler.onSessionOpened(session);
+            } catch (Exception ex) {
+                logger.error("Session handler failed for " + session.getRemoteName(), ex);
+                session.close();
+            }
+        });
+    }
+
+    private void read(TcpHostSession session) {
+        readBuffer.clear();
+        int n;
+        try {
+            n = session.channel().read(readBuffer);
+        } catch (IOException ex) {
+            logger.error("Read error in session " + session.getRemoteName(), ex);
+            n = -1;
+        }
+        if (n == -1) {
+            session.closeByPeer();
+            return;
+        }
+        if (n == 0) return;
+
+        readBuffer.flip();
+        ByteBuffer chunk = chunkPool.acquire();
+        chunk.put(readBuffer).flip();
+        session.deliver(chunk);
+    }
+
+    void releaseChunk(ByteBuffer chunk) {
+        chunkPool.release(chunk);
+    }
+
+    /*────────────── внутрішнє API для сесій ──────────────*/
+
+    /** Виконує дію в selector-потоці (зміна interestOps тощо). */
+    void execute(Runnable task) {
+        if (Thread.currentThread() == selectorThread) {
+            task.run();
+            return;
+        }
+        selectorTasks.add(task);
+        Selector s = selector;
+        if (s != null) s.wakeup();
+    }
+
+    void onSessionClosed(TcpHostSession session) {
+        if (sessions.remove(session)) {
+            logger.log("Session closed: " + session.getRemoteName() + " (active: " + sessions.size() + ")");
+        }
+    }
+
+    private void runSelectorTasks() {
+        Runnable task;
+        while ((task = selectorTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception ex) {
+                logger.error("Error in selector task", ex);
+            }
+        }
+    }
+
+    /*────────────── AutoCloseable ──────────────*/
+    @Override
+    public void close() {
+        running = false;
+        for (TcpHostSession session : Set.copyOf(sessions)) {
+            session.close();
+        }
+        closeQuietly();
+        if (selectorThread != null) selectorThread.interrupt();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (server != null) server.close();
+        } catch (IOException ex) {
+            logger.error("Error while closing server socket", ex);
+        }
+        try {
+            if (selector != null) selector.close();
+        } catch (IOException ex) {
+            logger.error("Error while closing selector", ex);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ywh.services.communicator.capture;
+
+/**
+ * Бінарний формат запису трафіку.
+ * <pre>
+ * сегмент *.cap (фіксованого розміру, memory-mapped):
+ *   [0..8)   MAGIC "YWHCAP01"
+ *   [8..16)  час початку сегмента, epoch ms
+ *   [16..24) кінець записаних даних (позиція)
+ *   [24..32) резерв
+ *   далі записи: [long нс від початку сегмента][byte напрямок 'I'/'O'][int довжина][байти]
+ *
+ * індекс *.idx (розріджений — запис на кожні {@link #INDEX_STRIDE} байт даних):
+ *   [0..8)   MAGIC "YWHIDX01"
+ *   [8..16)  кількість записів
+ *   далі     [long нс від початку сегмента][long позиція запису в *.cap]
+ * </pre>
+ */
+final class CaptureFormat {
+
+    private CaptureFormat() {
+    }
+
+    static final long CAPTURE_MAGIC = 0x5957484341503031L; // "YWHCAP01"
+    static final long INDEX_MAGIC = 0x5957484944583031L;   // "YWHIDX01"
+
+    static final int HEADER_SIZE = 32;
+    static final int START_MILLIS_POS = 8;
+    static final int END_POS = 16;
+
+    static final int RECORD_HEADER_SIZE = Long.BYTES + 1 + Integer.BYTES;
+
+    static final int INDEX_HEADER_SIZE = 16;
+    static final int INDEX_COUNT_POS = 8;
+    static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+    static final long INDEX_STRIDE = 64 * 1024;
+
+    static final String CAPTURE_EXT = ".cap";
+    static final String INDEX_EXT = ".idx";
+}
@@ -0,0 +1,138 @@
+package ywh.services.communicator.capture;
+
+import ywh.services.communicator.ReplaySource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ywh.services.communicator.capture.CaptureFormat.*;
+
+/**
+ * Читання записів {@link CaptureRecorder}.
+ * <p>
+ * Сегменти читаються в heap, а не відображаються в пам'ять: відображення звільняється лише збирачем
+ * сміття, і на Windows доти не дало б рекордеру видалити старий сегмент при ротації.
+ */
+public final class CaptureReader {
+
+    private CaptureReader() {
+    }
+
+    /**
+     * Один записаний фрагмент.
+     *
+     * @param epochNanos абсолютний час (нс від epoch) — для зшивання кількох сегментів
+     */
+    public record Record(long epochNanos, Direction direction, byte[] data) {
+    }
+
+    /**
+     * Запис розрідженого індексу.
+     *
+     * @param offsetNanos час запису, нс від початку сегмента
+     * @param position    позиція запису в сегменті
+     */
+    public record IndexEntry(long offsetNanos, long position) {
+    }
+
+    /** Чи починається вміст із заголовка сегмента запису. */
+    public static boolean isCapture(ByteBuffer content) {
+        return content.remaining() >= HEADER_SIZE && content.getLong(content.position()) == CAPTURE_MAGIC;
+    }
+
+    /** Читає один сегмент. */
+    public static List<Record> read(Path segment) throws IOException {
+        return parse(ByteBuffer.wrap(Files.readAllBytes(segment)));
+    }
+
+    /**
+     * Читає сегмент, починаючи з моменту {@code fromNanos} (нс від початку сегмента):
+     * за індексом переходить до найближчого попереднього запису і не розбирає все, що було раніше.
+     */
+    public static List<Record> read(Path segment, long fromNanos) throws IOException {
+        long position = HEADER_SIZE;
+        for (IndexEntry entry : readIndex(segment)) {
+            if (entry.offsetNanos() > fromNanos) break;
+            position = entry.position();
+        }
+        return parse(ByteBuffer.wrap(Files.readAllBytes(segment)), position, fromNanos);
+    }
+
+    /** Індекс сегмента; порожній, якщо файлу індексу немає. */
+    public static List<IndexEntry> readIndex(Path segment) throws IOException {
+        Path file = CaptureRecorder.indexFileOf(segment);
+        if (!Files.exists(file)) return List.of();
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buf.remaining() < INDEX_HEADER_SIZE || buf.getLong(0) != INDEX_MAGIC) throw new IOException("Not a capture index");
+        long count = buf.getLong(INDEX_COUNT_POS);
+        if (count < 0 || INDEX_HEADER_SIZE + count * INDEX_ENTRY_SIZE > buf.limit()) {
+            throw new IOException("Corrupted capture index (count=" + count + ")");
+        }
+        List<IndexEntry> entries = new ArrayList<>((int) count);
+        buf.position(INDEX_HEADER_SIZE);
+        for (long i = 0; i < count; i++) {
+            entries.add(new IndexEntry(buf.getLong(), buf.getLong()));
+        }
+        return entries;
+    }
+
+    /** Читає всі сегменти пристрою {@code name} з теки у порядку запису. */
+    public static List<Record> readAll(Path directory, String name) throws IOException {
+        List<Record> records = new ArrayList<>();
+        for (Path segment : CaptureRecorder.listSegments(directory, CaptureRecorder.sanitize(name))) {
+            records.addAll(read(segment));
+        }
+        return records;
+    }
+
+    public static List<Record> parse(ByteBuffer content) throws IOException {
+        return parse(content, HEADER_SIZE, Long.MIN_VALUE);
+    }
+
+    private static List<Record> parse(ByteBuffer content, long from, long fromNanos) throws IOException {
+        if (!isCapture(content)) throw new IOException("Not a capture segment");
+        ByteBuffer buf = content.duplicate();
+        int base = buf.position();
+        long startNanos = buf.getLong(base + START_MILLIS_POS) * 1_000_000L;
+        long end = buf.getLong(base + END_POS);
+        if (end < HEADER_SIZE || end > buf.remaining()) throw new IOException("Corrupted capture header (end=" + end + ")");
+        if (from < HEADER_SIZE || from > end) throw new IOException("Corrupted capture index (position=" + from + ")");
+
+        List<Record> records = new ArrayList<>();
+        buf.position(base + (int) from);
+        while (buf.position() - base + RECORD_HEADER_SIZE <= end) {
+            long ts = buf.getLong();
+            Direction direction = Direction.of(buf.get());
+            int length = buf.getInt();
+            if (direction == null || length < 0 || buf.position() - base + length > end) {
+                throw new IOException("Corrupted capture record at " + (buf.position() - base - RECORD_HEADER_SIZE));
+            }
+            if (ts < fromNanos) {
+                buf.position(buf.position() + length);
+                continue;
+            }
+            byte[] data = new byte[length];
+            buf.get(data);
+            records.add(new Record(startNanos + ts, direction, data));
+        }
+        return records;
+    }
+
+    /**
+     * Вхідний трафік запису як джерело для ReplayCommunicator; зсуви — від першого фрагмента.
+     */
+    public static ReplaySource toReplaySource(List<Record> records) {
+        List<ReplaySource.Chunk> chunks = new ArrayList<>();
+        long first = -1;
+        for (Record record : records) {
+            if (record.direction() != Direction.IN) continue;
+            if (first < 0) first = record.epochNanos();
+            chunks.add(new ReplaySource.Chunk(record.epochNanos() - first, record.data()));
+        }
+        return ReplaySource.of(chunks);
+    }
+}
@@ -0,0 +1,229 @@
+package ywh.services.communicator.capture;
+
+import ywh.commons.DeferredFileDeleter;
+import ywh.commons.Environment;
+import ywh.logging.DeviceLogger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static ywh.services.communicator.capture.CaptureFormat.*;
+
+/**
+ * Запис сирого трафіку пристрою в бінарний журнал (див. {@link CaptureFormat}).
+ * <p>
+ * • запис — лише копіювання в memory-mapped сегмент під коротким lock, без системних викликів
+ *   і алокацій, тож його можна тримати ввімкненим у продакшні;<br>
+ * • сегменти фіксованого розміру ротуються, зберігається не більше {@code maxSegments} останніх;<br>
+ * • Java не дає явно звільнити відображення: закритий сегмент лише відпускається і звільняється збирачем сміття.
+ *   На Windows такий файл доти не видаляється — {@code deleteQuietly} передає його {@link DeferredFileDeleter};<br>
+ * • записи читає {@link CaptureReader} — для відтворення через ReplayCommunicator і бенчмарків.
+ */
+public final class CaptureRecorder implements AutoCloseable {
+
+    /*────────────── статичне ──────────────*/
+    public static final long DEFAULT_SEGMENT_SIZE = 4L << 20;
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+    private static final int INDEX_CAPACITY = 4096;
+
+    /*────────────── поля ──────────────*/
+    private final Path directory;
+    private final String name;
+    private final long segmentSize;
+    private final int maxSegments;
+    private final DeviceLogger logger;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long nextSequence;
+    private Path segmentFile;
+    private MappedByteBuffer data;
+    private MappedByteBuffer index;
+    private long segmentStartNanos;
+    private long lastIndexedPosition;
+    private int indexCount;
+    private boolean closed;
+
+    /*────────────── ctor ──────────────*/
+    public CaptureRecorder(Path directory, String name, DeviceLogger logger) {
+        this(directory, name, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS, logger);
+    }
+
+    public CaptureRecorder(Path directory, String name, long segmentSize, int maxSegments, DeviceLogger logger) {
+        if (segmentSize <= HEADER_SIZE + RECORD_HEADER_SIZE) throw new IllegalArgumentException("segmentSize is too small");
+        if (segmentSize > Integer.MAX_VALUE) throw new IllegalArgumentException("segmentSize must fit into int");
+        if (maxSegments <= 0) throw new IllegalArgumentException("maxSegments must be > 0");
+        this.directory = directory;
+        this.name = sanitize(name);
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.logger = logger;
+        Environment.createDirectoryIfNotExists(directory);
+        this.nextSequence = listSegments(directory, this.name).stream()
+                .mapToLong(p -> sequenceOf(p, this.name))
+                .max().orElse(0) + 1;
+    }
+
+    /*────────────── API ──────────────*/
+
+    public void record(Direction direction, byte[] bytes) {
+        record(direction, bytes, 0, bytes.length);
+    }
+
+    public void record(Direction direction, byte[] bytes, int offset, int length) {
+        if (length <= 0) return;
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            if (closed) return;
+            while (length > 0) {
+                if (data == null || data.remaining() <= RECORD_HEADER_SIZE) rotate(now);
+                int n = Math.min(length, data.remaining() - RECORD_HEADER_SIZE);
+                int recordPos = data.position();
+
+                data.putLong(now - segmentStartNanos)
+                        .put(direction.tag())
+                        .putInt(n)
+                        .put(bytes, offset, n);
+                data.putLong(END_POS, data.position());
+                indexIfNeeded(now, recordPos);
+
+                offset += n;
+                length -= n;
+            }
+        } catch (IOException ex) {
+            logger.error("Capture recording failed, disabled for " + name, ex);
+            closeSegment();
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Поточний сегмент (для діагностики і тестів). */
+    public Path currentSegment() {
+        lock.lock();
+        try {
+            return segmentFile;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            closeSegment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*────────────── сегменти ──────────────*/
+
+    private void rotate(long now) throws IOException {
+        closeSegment();
+
+        segmentFile = directory.resolve(String.format("%s-%06d%s", name, nextSequence++, CAPTURE_EXT));
+        data = map(segmentFile, segmentSize);
+        index = map(indexFileOf(segmentFile), INDEX_HEADER_SIZE + (long) INDEX_CAPACITY * INDEX_ENTRY_SIZE);
+
+        segmentStartNanos = now;
+        data.putLong(0, CAPTURE_MAGIC)
+                .putLong(START_MILLIS_POS, System.currentTimeMillis())
+                .putLong(END_POS, HEADER_SIZE);
+        data.position(HEADER_SIZE);
+        index.putLong(0, INDEX_MAGIC).putLong(INDEX_COUNT_POS, 0);
+        index.position(INDEX_HEADER_SIZE);
+        indexCount = 0;
+        lastIndexedPosition = -INDEX_STRIDE;
+
+        removeOldSegments();
+    }
+
+    private void indexIfNeeded(long now, int recordPos) {
+        if (recordPos - lastIndexedPosition < INDEX_STRIDE || indexCount >= INDEX_CAPACITY) return;
+        index.putLong(now - segmentStartNanos).putLong(recordPos);
+        index.putLong(INDEX_COUNT_POS, ++indexCount);
+        lastIndexedPosition = recordPos;
+    }
+
+    /** Скидає сегмент на диск і відпускає відображення (саме звільнення — за GC, див. опис класу). */
+    private void closeSegment() {
+        if (data != null) data.force();
+        if (index != null) index.force();
+        data = null;
+        index = null;
+    }
+
+    private void removeOldSegments() {
+        List<Path> segments = listSegments(directory, name);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Path old = segments.get(i);
+            deleteQuietly(old);
+            deleteQuietly(indexFileOf(old));
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            // на Windows файл може бути ще відображений у пам'ять — видалимо пізніше
+            DeferredFileDeleter.scheduleForDeletion(file);
+        }
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /*────────────── імена файлів ──────────────*/
+
+    static Path indexFileOf(Path segment) {
+        String file = segment.getFileName().toString();
+        return segment.resolveSibling(file.substring(0, file.length() - CAPTURE_EXT.length()) + INDEX_EXT);
+    }
+
+    static List<Path> listSegments(Path directory, String name) {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> sequenceOf(p, name) > 0)
+                    .sorted((a, b) -> Long.compare(sequenceOf(a, name), sequenceOf(b, name)))
+                    .toList();
+        } catch (IOException ex) {
+            return List.of();
+        }
+    }
+
+    private static long sequenceOf(Path file, String name) {
+        String fileName = file.getFileName().toString();
+        String prefix = name + "-";
+        if (!fileName.startsWith(prefix) || !fileName.endsWith(CAPTURE_EXT)) return -1;
+        try {
+            return Long.parseLong(fileName.substring(prefix.length(), fileName.length() - CAPTURE_EXT.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    static String sanitize(String name) {
+        return name.replaceAll("[\\\\/:*?\"<>|\\[\\] ]+", "_").replaceAll("^_+|_+$", "");
+    }
+}
@@ -0,0 +1,23 @@
+package ywh.services.communicator.capture;
+
+/** Напрямок записаного фрагмента. */
+public enum Direction {
+    /** аналізатор → хост */
+    IN((byte) 'I'),
+    /** хост → аналізатор */
+    OUT((byte) 'O');
+
+    private final byte tag;
+
+    Direction(byte tag) {
+        this.tag = tag;
+    }
+
+    byte tag() {
+        return tag;
+    }
+
+    static Direction of(byte tag) {
+        return tag == IN.tag ? IN : tag == OUT.tag ? OUT : null;
+    }
+}
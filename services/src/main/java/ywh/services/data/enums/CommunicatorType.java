@@ -1,5 +1,7 @@
 package ywh.services.data.enums;
 
 public enum CommunicatorType {
-    TCP_HOST, TCP_CLIENT, SERIAL, FILE
+    TCP_HOST, TCP_CLIENT, SERIAL, FILE,
+    /* кілька аналізаторів на одному TCP-порту: кожне з’єднання — окремий пристрій (MultiAnalyzerHost) */
+    TCP_MULTI_HOST
 }
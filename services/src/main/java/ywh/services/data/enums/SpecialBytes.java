@@ -7,15 +7,43 @@ public enum SpecialBytes {
     HL7START(0x0B), HL7END(0x1C);
 
     private final byte specialByte;
+    private final byte[] asArray;
+
+    /* таблиця byte -> enum, щоб не перебирати values() на кожному байті */
+    private static final SpecialBytes[] BY_VALUE = new SpecialBytes[256];
+
+    static {
+        for (SpecialBytes value : values()) {
+            if (BY_VALUE[value.specialByte & 0xFF] == null) {
+                BY_VALUE[value.specialByte & 0xFF] = value;
+            }
+        }
+    }
 
     SpecialBytes(int specialByte) {
         this.specialByte = (byte) specialByte;
+        this.asArray = new byte[]{this.specialByte};
     }
 
     public byte getValue() {
         return specialByte;
     }
 
+    /**
+     * Однобайтовий масив для відправки без алокацій.
+     * Масив спільний — не змінювати.
+     */
+    public byte[] bytes() {
+        return asArray;
+    }
+
+    /**
+     * @return спецбайт із таким значенням або {@code null}
+     */
+    public static SpecialBytes of(byte value) {
+        return BY_VALUE[value & 0xFF];
+    }
+
     @Override
     public String toString() {
         return new String(new byte[]{specialByte});
@@ -3,6 +3,7 @@ package ywh.services.data.models;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import ywh.services.communicator.ICommunicator;
+import ywh.services.communicator.capture.CaptureRecorder;
 import ywh.services.device.IClarificationProvider;
 import ywh.services.device.parsers.IParser;
 import ywh.services.settings.data.DeviceSettings;
@@ -19,6 +20,7 @@ public class DeviceConfig {
     private IParser parser;
     private DeviceLogger logger;
     private DeviceSettings deviceSettings;
+    private CaptureRecorder captureRecorder;
 
     // ✅ Fluent Builder Methods
     public DeviceConfig setCommunicator(ICommunicator communicator) {
@@ -50,6 +52,15 @@ public class DeviceConfig {
         return this;
     }
 
+    public DeviceConfig setCaptureRecorder(CaptureRecorder captureRecorder) {
+        this.captureRecorder = captureRecorder;
+        return this;
+    }
+
+    public Optional<CaptureRecorder> getCaptureRecorder() {
+        return Optional.ofNullable(captureRecorder);
+    }
+
     // ✅ Static Builder Method (якщо потрібно)
     public static DeviceConfig builder() {
         return new DeviceConfig();
@@ -18,6 +18,17 @@ public class Order {
         return patientData;
     }
 
+    /** Копія для змін на боці парсера (показники фільтруються на місці); пацієнт спільний. */
+    public Order copy() {
+        Order copy = new Order();
+        copy.id = id;
+        copy.bioMaterialTypeCode = bioMaterialTypeCode;
+        copy.isCito = isCito;
+        copy.patientData = patientData;
+        copy.indicators = new ArrayList<>(indicators);
+        return copy;
+    }
+
     public void distinctIndicators() {
         indicators = indicators.stream().distinct().toList();
     }
@@ -21,6 +21,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,7 +43,9 @@ public class DbfResultProcessor {
         File dbfFile = getDbfFile(data);
         Path imagesDir = dbfFile.toPath().getParent();
         var result = new ProcessorResult(ProcessResult.SUCCESS, Optional.of(dbfFile));
-        data.getImages().forEach((name, image) -> Task.start(() -> {
+        // картинки пишуться паралельно; чекаємо лише свої — результати обробляються одночасно
+        List<Thread> imageWriters = new ArrayList<>();
+        data.getImages().forEach((name, image) -> imageWriters.add(Task.startDetached(() -> {
             try {
                 logger.log("Trying to process image" + name + "...");
                 ImageUtils.saveBase64Image(image, imagesDir.resolve(name));
@@ -50,7 +53,7 @@ public class DbfResultProcessor {
             } catch (IOException e) {
                 logger.error("Error while saving an image", e);
             }
-        }));
+        })));
         logger.log("Trying to process DBF file " + dbfFile.getName() + "...");
         List<String> onTop = List.of(ObservationKey.ANIMAL_TYPE.getName(),
                 ObservationKey.AGE.getName(), ObservationKey.DATE.getName(), ObservationKey.ID.getName());
@@ -70,10 +73,14 @@ public class DbfResultProcessor {
         } catch (IOException e) {
             logger.error("Error while creating DBF file", e);
             result = new ProcessorResult(ProcessResult.FAILURE, ObservationResultProcessor.determineResultFile(dbfFile));
-            Task.cancelAll();
+            imageWriters.forEach(Thread::interrupt);
             return result;
         }
-        Task.awaitAll();
+        try {
+            for (Thread writer : imageWriters) writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         ConsoleUtil.printGreen("DBF таблиця створена");
         logger.log("DBF file " + dbfFile.getName() + " processed successfully");
         return result;
@@ -9,6 +9,7 @@ import ywh.services.settings.data.PrintSettings;
 import ywh.services.data.models.ProcessorResult;
 import ywh.services.data.models.observation.ObservationData;
 import ywh.services.files.DocxPdfConverter;
+import ywh.services.files.PdfReportRenderer;
 import ywh.services.files.WordTemplateService;
 import ywh.services.printing.PrintServiceManager;
 import ywh.services.web.FtpClient;
@@ -17,11 +18,14 @@ import ywh.logging.DeviceLogger;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
 public class ObservationResultProcessor {
     @FunctionalInterface
@@ -29,12 +33,22 @@ public class ObservationResultProcessor {
         void onProcessed(ProcessorResult result);
     }
 
-    private File wordFile = new File("");
-    private File pdfFile = new File("");
+    /*
+     * Етапи обробки результату: рендер → конвертація → друк → вивантаження → прибирання.
+     * Виконавці спільні для всіх пристроїв і обмежені ресурсом етапу, тож пачка результатів іде
+     * конвеєром: поки один друкується, наступний конвертується, а ще наступний рендериться.
+     * Друк — окрема черга на кожен принтер.
+     */
+    private static final Executor RENDER = stage("result-render", Runtime.getRuntime().availableProcessors());
+    private static final Executor CONVERT = stage("result-convert", 2);     // скільки процесів у Docx2PdfWorkerPool
+    private static final Executor NETWORK = stage("result-network", 4);     // FTP і API
+    public static final int MAX_JOBS_IN_FLIGHT = 16;
 
     private final List<ProcessListener> listeners = new CopyOnWriteArrayList<>();
     protected final DeviceLogger logger;
     protected final DeviceSettings deviceSettings;
+    private final Semaphore jobs = new Semaphore(MAX_JOBS_IN_FLIGHT);
+    private CompletableFuture<ProcessorResult> last = CompletableFuture.completedFuture(null);   // під this
 
     public ObservationResultProcessor(DeviceLogger logger, DeviceSettings deviceSettings) {
         this.logger = logger;
@@ -65,226 +79,321 @@ public class ObservationResultProcessor {
         listeners.clear();
     }
 
-    private Optional<ProcessorResult> processDbf(List<FileResultActions> actions, ObservationData data) {
-        if (actions.contains(FileResultActions.CREATE_DBF_FILE)) {
-            boolean hasOtherActions = actions.size() > 1;
-            DbfResultProcessor dbfProcessor = new DbfResultProcessor(deviceSettings.getFileResultProcessorSettings());
-            var result = dbfProcessor.process(data, logger);
-            fireProcessed(result);
-            if (deviceSettings.getFileResultProcessorSettings().isUseFtp() && result.getFile().isPresent()) {
-                logger.log("Uploading files to FTP server...");
-                FtpClient ftpClient = new FtpClient(deviceSettings.getFileResultProcessorSettings().getFtpSettings());
-                Path path = result.getFile().get().getParentFile().toPath();
-                ftpClient.uploadAllFilesFromDir(path);
-                logger.log("Uploading files to FTP finished");
-                DeferredFileDeleter.scheduleForDeletion(path);
-            }
-            if (!hasOtherActions) {
-                return Optional.of(result);
-            }
-        }
-        return Optional.empty();
-    }
-
-
-    private Optional<ProcessorResult> processApi(List<FileResultActions> actions, ObservationData data) {
-        if (actions.contains(FileResultActions.API)) {
-            boolean hasOtherActions = actions.size() > 1;
-            if (hasOtherActions) {
-                Task.start(() -> {
-                    APIProcessor apiProcessor = new APIProcessor(deviceSettings);
-                    var result = apiProcessor.process(data);
-                    fireProcessed(result);
-                });
-            } else {
-                APIProcessor apiProcessor = new APIProcessor(deviceSettings);
-                var result = apiProcessor.process(data);
-                fireProcessed(result);
-                return Optional.of(result);
+    /** Виконавець етапу: кожна задача — у віртуальному потоці, одночасно не більше {@code permits}. */
+    private static Executor stage(String name, int permits) {
+        Semaphore semaphore = new Semaphore(permits, true);
+        return task -> Thread.ofVirtual().name(name).start(() -> {
+            semaphore.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                semaphore.release();
             }
-        }
-        return Optional.empty();
+        });
     }
 
     /**
      * Універсальний метод для обробки даних на основі списку дій
      *
      * @param data Дані для обробки
-     * @return Результат обробки
+     * @return Результат обробки — коли результат пройшов усі етапи
      */
     public ProcessorResult process(ObservationData data) {
+        return submit(data).join();
+    }
+
+    /**
+     * Ставить результат у конвеєр етапів і одразу повертає його майбутній підсумок.
+     * Якщо в роботі вже {@link #MAX_JOBS_IN_FLIGHT} результатів пристрою — чекає, і тиск доходить
+     * до етапу результатів пристрою, а з ним — до контролю потоку.
+     * <p>
+     * Рендер і конвертація різних результатів перекриваються, а події слухачам, друк, вивантаження
+     * і сам підсумок — строго в порядку {@code submit}: кожен результат завершується після попереднього.
+     */
+    public CompletableFuture<ProcessorResult> submit(ObservationData data) {
         if (data.getData().isEmpty()) {
-            return new ProcessorResult(ProcessResult.SUCCESS, Optional.empty());
+            return CompletableFuture.completedFuture(new ProcessorResult(ProcessResult.SUCCESS, Optional.empty()));
+        }
+        try {
+            jobs.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(new ProcessorResult(ProcessResult.FAILURE, Optional.empty()));
         }
-        List<FileResultActions> actions = deviceSettings.getActions();
+        CompletableFuture<ProcessorResult> result;
         try {
-            // 1. Запускаємо DBF обробку в окремому потоці, якщо потрібно
-            var apiResult = processApi(actions, data);
-            if (apiResult.isPresent()) {
-                return apiResult.get();
+            synchronized (this) {
+                result = new Job(data, deviceSettings.getActions()).start(last);
+                last = result;
             }
+        } catch (RuntimeException e) {
+            jobs.release();
+            throw e;
+        }
+        return result.whenComplete((r, e) -> jobs.release());
+    }
 
-            var dbfResult = processDbf(actions, data);
-            if (dbfResult.isPresent()) {
-                return dbfResult.get();
-            }
+    /** Скільки результатів прийнято і ще не завершено — для контролю потоку пристрою. */
+    public int inFlight() {
+        return MAX_JOBS_IN_FLIGHT - jobs.availablePermits();
+    }
 
-            // 2. Генеруємо Word документ
-            var result = generateWordFile(data);
-            if (result.getResult() != ProcessResult.SUCCESS) {
-                return result;
-            }
+    /**
+     * PDF малюється одразу з даних ({@link PdfReportRenderer}), якщо це ввімкнено в налаштуваннях
+     * і .docx не потрібен ні для збереження, ні для друку.
+     */
+    private boolean rendersPdfDirectly(List<FileResultActions> actions) {
+        return deviceSettings.getFileResultProcessorSettings().isDirectPdf()
+                && !actions.contains(FileResultActions.SAVE_DOCX)
+                && (!actions.contains(FileResultActions.PRINT) || deviceSettings.getPrintSettings().isPrintFromPDF());
+    }
 
-            var wordFile = result.getFile();
-            var printFile = wordFile;
-            // 3. Створюємо PDF, якщо потрібно
-            boolean needsPdf = actions.contains(FileResultActions.SAVE_PDF)
-                    || actions.contains(FileResultActions.SEND)
-                    || deviceSettings.getPrintSettings().isPrintFromPDF();
-            // 4. Друк, якщо потрібно
+    /*────────────── один результат ──────────────*/
 
-            if (needsPdf && wordFile.isPresent()) {
-                var pdfResult = generatePdfFile(wordFile.get());
-                if (pdfResult.getResult() != ProcessResult.SUCCESS) {
-                    return pdfResult;
-                }
-                if (deviceSettings.getPrintSettings().isPrintFromPDF() && pdfResult.getFile().isPresent()) {
-                    printFile = pdfResult.getFile();
-                }
-                // 5. Відправка на email, якщо потрібно
-                if (actions.contains(FileResultActions.SEND)) {
-                    logger.log("Sending file via email...");
-                    // TODO: Реалізувати EmailSenderService
-                    // ProcessResult sendResult = sendEmail(pdfConverter.getPdfFile(), params);
-                    logger.log("Email sending not implemented yet");
-                }
+    /**
+     * Результат на шляху через етапи; файли — свої в кожного, тож паралельні результати не заважають один одному.
+     * <p>
+     * Спершу {@link #prepare()} — API, DBF, рендер і конвертація, паралельно з іншими результатами;
+     * події слухачам при цьому лише накопичуються. Далі, коли завершився попередній результат пристрою,
+     * {@link #finish} — події, друк, вивантаження звіту і прибирання.
+     */
+    private final class Job {
+        private final ObservationData data;
+        private final List<FileResultActions> actions;
+        private final List<ProcessorResult> events = new ArrayList<>();   // під this
+        private File wordFile = new File("");
+        private File pdfFile = new File("");
+        private Optional<File> reportFile = Optional.empty();              // звіт готовий до друку / FTP
+        private Optional<File> printFile = Optional.empty();
+
+        Job(ObservationData data, List<FileResultActions> actions) {
+            this.data = data;
+            this.actions = actions;
+        }
+
+        CompletableFuture<ProcessorResult> start(CompletableFuture<?> previous) {
+            return prepare()
+                    .exceptionally(this::failure)
+                    .thenCombine(previous.exceptionally(e -> null), (prepared, ignored) -> prepared)
+                    .thenCompose(this::finish)
+                    .exceptionally(this::failure);
+        }
+
+        private CompletableFuture<ProcessorResult> prepare() {
+            boolean hasOtherActions = actions.size() > 1;
+            // 1. API — у мережевому етапі; без інших дій його відповідь і є результатом
+            CompletableFuture<ProcessorResult> api = CompletableFuture.completedFuture(null);
+            if (actions.contains(FileResultActions.API)) {
+                api = CompletableFuture.supplyAsync(this::sendToApi, NETWORK);
+                if (!hasOtherActions) return api;
+                api = api.exceptionally(this::failure);
             }
-            if (actions.contains(FileResultActions.PRINT)) {
-                Thread.sleep(100);
-                printFile.ifPresent(f -> performPrint(f, deviceSettings.getPrintSettings()));
+
+            // 2. DBF; звіт — після нього (DBF-маппер доповнює дані), FTP для DBF — паралельно зі звітом
+            CompletableFuture<ProcessorResult> main;
+            if (actions.contains(FileResultActions.CREATE_DBF_FILE)) {
+                var created = CompletableFuture.supplyAsync(this::createDbf, RENDER);
+                var dbf = created.thenCompose(this::uploadDbf);
+                if (!hasOtherActions) return dbf;
+                main = created.thenCompose(r -> report())
+                        .thenCombine(dbf, (report, ignored) -> report);
+            } else {
+                main = report();
             }
+            return main.thenCombine(api, (report, ignored) -> report);
+        }
 
-        } catch (Exception e) {
-            logger.error("Error during file processing", e);
+        private ProcessorResult failure(Throwable e) {
+            logger.error("Error during file processing", e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
             return new ProcessorResult(ProcessResult.FAILURE, Optional.empty());
         }
-        // 6. Видалення файлів, якщо не потрібно зберігати
-        var file = cleanupFiles();
-        return new ProcessorResult(ProcessResult.SUCCESS, file);
 
-    }
+        /** Подію буде передано слухачам у {@link #finish}, в черзі пристрою. */
+        private ProcessorResult note(ProcessorResult result) {
+            synchronized (this) {
+                events.add(result);
+            }
+            return result;
+        }
 
+        /*────────────── API / DBF ──────────────*/
 
-    public ProcessorResult generateWordFile(ObservationData data) {
-        logger.log("Try to generate Word file...");
-        var word = new WordTemplateService(deviceSettings.getFileResultProcessorSettings().getTemplateFile(), deviceSettings.getFileResultProcessorSettings().getOutputPath());
-        try {
-            String docPath = word.generate(data);
-            logger.log("Word file generated successfully");
-            wordFile = new File(docPath);
-            ProcessorResult result = new ProcessorResult(ProcessResult.SUCCESS, determineResultFile(wordFile));
-            fireProcessed(result);
-            return result;
-        } catch (Exception e) {
-            logger.error("Word file generation failed", e);
-            return fireFailure(new File(""));
+        private ProcessorResult sendToApi() {
+            APIProcessor apiProcessor = new APIProcessor(deviceSettings);
+            return note(apiProcessor.process(data));
         }
-    }
 
+        private ProcessorResult createDbf() {
+            DbfResultProcessor dbfProcessor = new DbfResultProcessor(deviceSettings.getFileResultProcessorSettings());
+            return note(dbfProcessor.process(data, logger));
+        }
 
-    public ProcessorResult generatePdfFile(File docxFile) {
-        logger.log("Try to createApi PDF file...");
-        var pdf = new DocxPdfConverter(docxFile.getAbsolutePath());
-        try {
-            pdf.convert();
-            logger.log("PDF file created successfully");
-            pdfFile = pdf.getPdfFile();
-            ProcessorResult result = new ProcessorResult(ProcessResult.SUCCESS, determineResultFile(pdfFile));
-            fireProcessed(result);
-            return result;
-        } catch (IOException | InterruptedException e) {
-            logger.error("Error during PDF conversion", e);
-            return fireFailure(new File(""));
+        private CompletableFuture<ProcessorResult> uploadDbf(ProcessorResult result) {
+            if (!deviceSettings.getFileResultProcessorSettings().isUseFtp() || result.getFile().isEmpty()) {
+                return CompletableFuture.completedFuture(result);
+            }
+            return CompletableFuture.supplyAsync(() -> {
+                logger.log("Uploading files to FTP server...");
+                FtpClient ftpClient = new FtpClient(deviceSettings.getFileResultProcessorSettings().getFtpSettings());
+                Path path = result.getFile().get().getParentFile().toPath();
+                ftpClient.uploadAllFilesFromDir(path);
+                logger.log("Uploading files to FTP finished");
+                DeferredFileDeleter.scheduleForDeletion(path);
+                return result;
+            }, NETWORK);
         }
-    }
 
-    CompletableFuture<Void> printFuture = CompletableFuture.completedFuture(null);
+        /*────────────── звіт: рендер → конвертація ──────────────*/
 
-    @SuppressWarnings("UnusedReturnValue")
-    public ProcessorResult performPrint(File file, PrintSettings printParams) {
-        logger.log("Starting print job for file: " + file.getName());
-        // Зберігаємо Future для очікування в cleanupFiles
-        printFuture = PrintServiceManager.printFileAsync(file, printParams);
+        private CompletableFuture<ProcessorResult> report() {
+            // 3. Генеруємо Word документ (або одразу PDF, якщо .docx не потрібен)
+            boolean directPdf = rendersPdfDirectly(actions);
+            return CompletableFuture.supplyAsync(() -> directPdf ? renderPdf() : renderWord(), RENDER)
+                    .thenCompose(rendered -> rendered.getResult() != ProcessResult.SUCCESS
+                            ? CompletableFuture.completedFuture(rendered)
+                            : convert(rendered, directPdf));
+        }
 
-        // Додаємо обробку завершення для логування
-        printFuture.whenComplete((result, throwable) -> {
-            if (throwable != null) {
-                logger.error("Error while printing file", throwable);
-                ProcessorResult failureResult = new ProcessorResult(ProcessResult.FAILURE, determineResultFile(file));
-                fireProcessed(failureResult);
-            } else {
-                logger.log("Print job completed for file: " + file.getName());
-                ProcessorResult successResult = new ProcessorResult(ProcessResult.SUCCESS, determineResultFile(file));
-                fireProcessed(successResult);
-            }
-        });
-        // Повертаємо успішний результат (друк розпочато)
-        return new ProcessorResult(ProcessResult.SUCCESS, determineResultFile(file));
-    }
+        private CompletableFuture<ProcessorResult> convert(ProcessorResult rendered, boolean directPdf) {
+            // 4. Створюємо PDF, якщо потрібно
+            Optional<File> rendering = rendered.getFile();
+            CompletableFuture<ProcessorResult> converted = needsPdf() && !directPdf && rendering.isPresent()
+                    ? CompletableFuture.supplyAsync(() -> convertToPdf(rendering.get()), CONVERT)
+                    : CompletableFuture.completedFuture(null);
 
+            return converted.thenApply(pdfResult -> {
+                if (pdfResult != null && pdfResult.getResult() != ProcessResult.SUCCESS) {
+                    return pdfResult;
+                }
+                reportFile = rendering;
+                printFile = pdfResult != null && deviceSettings.getPrintSettings().isPrintFromPDF() && pdfResult.getFile().isPresent()
+                        ? pdfResult.getFile()
+                        : rendering;
+                return rendered;
+            });
+        }
 
-    public Optional<File> cleanupFiles() {
+        private boolean needsPdf() {
+            return actions.contains(FileResultActions.SAVE_PDF)
+                    || actions.contains(FileResultActions.SEND)
+                    || deviceSettings.getPrintSettings().isPrintFromPDF();
+        }
 
-        if (printFuture != null && !printFuture.isDone()) {
-            logger.log("Waiting for print job to complete before cleanup...");
+        private ProcessorResult renderWord() {
+            logger.log("Try to generate Word file...");
+            var word = new WordTemplateService(deviceSettings.getFileResultProcessorSettings().getTemplateFile(), deviceSettings.getFileResultProcessorSettings().getOutputPath());
             try {
-                printFuture.join();
-                logger.log("Print job completed, proceeding with cleanup");
-            } catch (CompletionException ex) {
-                logger.error("Print job failed, but proceeding with cleanup", ex.getCause());
+                String docPath = word.generate(data);
+                logger.log("Word file generated successfully");
+                wordFile = new File(docPath);
+                return note(new ProcessorResult(ProcessResult.SUCCESS, determineResultFile(wordFile)));
+            } catch (Exception e) {
+                logger.error("Word file generation failed", e);
+                return note(failureResult(new File("")));
             }
         }
 
-        List<FileResultActions> actions = deviceSettings.getActions();
-        boolean saveDocx = actions.contains(FileResultActions.SAVE_DOCX);
-        boolean savePdf = actions.contains(FileResultActions.SAVE_PDF);
+        private ProcessorResult renderPdf() {
+            logger.log("Try to render PDF file...");
+            var renderer = new PdfReportRenderer(deviceSettings.getFileResultProcessorSettings().getOutputPath(), logger);
+            try {
+                String pdfPath = renderer.generate(data);
+                logger.log("PDF file rendered successfully");
+                pdfFile = new File(pdfPath);
+                return note(new ProcessorResult(ProcessResult.SUCCESS, determineResultFile(pdfFile)));
+            } catch (Exception e) {
+                logger.error("PDF rendering failed", e);
+                return note(failureResult(new File("")));
+            }
+        }
 
-        if (deviceSettings.getFileResultProcessorSettings().isUseFtp()) {
-            logger.log("Uploading files to FTP server...");
-            FtpClient ftpClient = new FtpClient(deviceSettings.getFileResultProcessorSettings().getFtpSettings());
-            if (wordFile != null && wordFile.exists()) {
-                ftpClient.uploadSingleFile(wordFile);
-                DeferredFileDeleter.scheduleForDeletion(wordFile);
+        private ProcessorResult convertToPdf(File docxFile) {
+            logger.log("Try to createApi PDF file...");
+            var pdf = new DocxPdfConverter(docxFile.getAbsolutePath());
+            try {
+                pdf.convert();
+                logger.log("PDF file created successfully");
+                pdfFile = pdf.getPdfFile();
+                return note(new ProcessorResult(ProcessResult.SUCCESS, determineResultFile(pdfFile)));
+            } catch (IOException | InterruptedException e) {
+                logger.error("Error during PDF conversion", e);
+                return note(failureResult(new File("")));
             }
-            if (pdfFile != null && pdfFile.exists()) {
-                ftpClient.uploadSingleFile(pdfFile);
-                DeferredFileDeleter.scheduleForDeletion(pdfFile);
+        }
+
+        /*────────────── у черзі пристрою: події → друк / FTP → прибирання ──────────────*/
+
+        private CompletableFuture<ProcessorResult> finish(ProcessorResult prepared) {
+            List<ProcessorResult> ready;
+            synchronized (this) {
+                ready = List.copyOf(events);
+            }
+            ready.forEach(ObservationResultProcessor.this::fireProcessed);
+            if (reportFile.isEmpty()) {
+                return CompletableFuture.completedFuture(prepared);
+            }
+            // 5. Відправка на email, якщо потрібно
+            if (needsPdf() && actions.contains(FileResultActions.SEND)) {
+                logger.log("Sending file via email...");
+                // TODO: Реалізувати EmailSenderService
+                // ProcessResult sendResult = sendEmail(pdfConverter.getPdfFile(), params);
+                logger.log("Email sending not implemented yet");
             }
+            // 6. Друк (черга принтера) і FTP (мережевий етап) — паралельно, прибирання — після обох
+            CompletableFuture<Void> printed = actions.contains(FileResultActions.PRINT) && printFile.isPresent()
+                    ? print(printFile.get(), deviceSettings.getPrintSettings())
+                    : CompletableFuture.completedFuture(null);
+            CompletableFuture<Void> uploaded = deviceSettings.getFileResultProcessorSettings().isUseFtp()
+                    ? CompletableFuture.runAsync(this::uploadReport, NETWORK)
+                    : CompletableFuture.completedFuture(null);
+            return printed.thenCombine(uploaded, (p, u) -> cleanup());
+        }
+
+        /** Друк у черзі свого принтера: на один принтер — одне завдання за раз, у порядку надходження. */
+        private CompletableFuture<Void> print(File file, PrintSettings printParams) {
+            return Task.startDetached("print:" + printParams.getPrinterName(), () -> {
+                logger.log("Starting print job for file: " + file.getName());
+                try {
+                    PrintServiceManager.printFile(file, printParams);
+                    logger.log("Print job completed for file: " + file.getName());
+                    fireProcessed(new ProcessorResult(ProcessResult.SUCCESS, determineResultFile(file)));
+                } catch (Exception e) {
+                    logger.error("Error while printing file", e);
+                    fireProcessed(new ProcessorResult(ProcessResult.FAILURE, determineResultFile(file)));
+                }
+            });
+        }
+
+        private void uploadReport() {
+            logger.log("Uploading files to FTP server...");
+            FtpClient ftpClient = new FtpClient(deviceSettings.getFileResultProcessorSettings().getFtpSettings());
+            if (wordFile.exists()) ftpClient.uploadSingleFile(wordFile);
+            if (pdfFile.exists()) ftpClient.uploadSingleFile(pdfFile);
             logger.log("Uploading files to FTP finished");
+        }
 
-        } else {
-            // Видаляємо файли які не потрібно зберігати через DeferredFileDeleter
-            if (!saveDocx && wordFile != null && wordFile.exists()) {
+        /** 7. Видалення файлів, які не потрібно зберігати (після FTP — усіх). */
+        private ProcessorResult cleanup() {
+            boolean useFtp = deviceSettings.getFileResultProcessorSettings().isUseFtp();
+            boolean saveDocx = actions.contains(FileResultActions.SAVE_DOCX);
+            boolean savePdf = actions.contains(FileResultActions.SAVE_PDF);
+            if ((useFtp || !saveDocx) && wordFile.exists()) {
                 DeferredFileDeleter.scheduleForDeletion(wordFile);
             }
-            if (!savePdf && pdfFile != null && pdfFile.exists()) {
+            if ((useFtp || !savePdf) && pdfFile.exists()) {
                 DeferredFileDeleter.scheduleForDeletion(pdfFile);
             }
+            return new ProcessorResult(ProcessResult.SUCCESS, resultFile());
         }
 
-        var resultFile = determineResultFile();
-        printFuture = CompletableFuture.completedFuture(null);
-        return resultFile;
-
-    }
-
-    private Optional<File> determineResultFile() {
-        if (pdfFile != null && pdfFile.exists()) {
-            return Optional.of(pdfFile);
-        } else if (wordFile != null && wordFile.exists()) {
-            return Optional.of(wordFile);
+        private Optional<File> resultFile() {
+            if (pdfFile.exists()) {
+                return Optional.of(pdfFile);
+            } else if (wordFile.exists()) {
+                return Optional.of(wordFile);
+            }
+            return Optional.empty();
         }
-        return Optional.empty();
     }
 
     protected static Optional<File> determineResultFile(File file) {
@@ -294,9 +403,7 @@ public class ObservationResultProcessor {
         return Optional.empty();
     }
 
-    private ProcessorResult fireFailure(File file) {
-        ProcessorResult failureResult = new ProcessorResult(ProcessResult.FAILURE, determineResultFile(file));
-        fireProcessed(failureResult);
-        return failureResult;
+    private static ProcessorResult failureResult(File file) {
+        return new ProcessorResult(ProcessResult.FAILURE, determineResultFile(file));
     }
 }
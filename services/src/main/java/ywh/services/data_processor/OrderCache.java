@@ -0,0 +1,146 @@
+package ywh.services.data_processor;
+
+import ywh.logging.DeviceLogger;
+import ywh.services.data.models.api.Order;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Кеш замовлень LIS для одного пристрою (host query).
+ * <p>
+ * • знайдене замовлення живе {@code ttlMs}, порожнє («немає замовлення» або помилка API) — коротше,
+ *   {@code negativeTtlMs}, щоб повторний запит аналізатора не чекав LIS ще раз, але й не залипав;<br>
+ * • кілька штрихкодів запитуються паралельно у віртуальних потоках, один штрихкод — не більше
+ *   одного запиту одночасно (повторний запит чекає вже запущений);<br>
+ * • {@link #prefetch(Collection)} запускає пошук заздалегідь — наприклад, щойно прийшов Q-запис,
+ *   ще до кінця повідомлення;<br>
+ * • прострочені записи вичищаються при додаванні нових (не частіше ніж раз на {@code negativeTtlMs}),
+ *   тож кеш не росте з кожним новим штрихкодом на довго працюючому пристрої.
+ * <p>
+ * Назовні віддаються копії: парсери фільтрують показники прямо в {@link Order}.
+ */
+public final class OrderCache {
+    private static final ExecutorService LOOKUPS = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("order-lookup-", 0).factory());
+
+    private record Entry(Order order, long expiresAt) {
+    }
+
+    /*────────────── поля ──────────────*/
+    private final Function<String, Order> loader;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+    private final DeviceLogger logger;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Order>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepAt = new AtomicLong();
+
+    /**
+     * @param loader        запит одного замовлення в LIS; порожній {@link Order} = замовлення немає
+     * @param ttlMs         скільки тримати знайдене замовлення
+     * @param negativeTtlMs скільки тримати відповідь «замовлення немає»
+     */
+    public OrderCache(Function<String, Order> loader, long ttlMs, long negativeTtlMs, DeviceLogger logger) {
+        this.loader = loader;
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.logger = logger;
+    }
+
+    /** Запускає пошук штрихкодів, яких ще немає в кеші; не чекає. */
+    public void prefetch(Collection<String> ids) {
+        for (String id : ids) lookup(id);
+    }
+
+    /**
+     * Замовлення для всіх штрихкодів (у порядку запиту). Якщо LIS не відповів за {@code waitMs}
+     * (на всі разом), для такого штрихкоду повертається порожній {@link Order}, а запит
+     * дороблюється у фоні й потрапить у кеш до наступного запиту аналізатора.
+     */
+    public Map<String, Order> getAll(List<String> ids, long waitMs) {
+        Map<String, CompletableFuture<Order>> pending = new LinkedHashMap<>();
+        for (String id : ids) pending.putIfAbsent(id, lookup(id));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs);
+        Map<String, Order> result = new LinkedHashMap<>();
+        for (var e : pending.entrySet()) {
+            result.put(e.getKey(), await(e.getKey(), e.getValue(), deadline).copy());
+        }
+        return result;
+    }
+
+    public void invalidate(String id) {
+        entries.remove(id);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /** Кількість записів у кеші, включно з ще не вичищеними простроченими (для діагностики). */
+    public int size() {
+        return entries.size();
+    }
+
+    /*────────────── внутрішнє ──────────────*/
+
+    private CompletableFuture<Order> lookup(String id) {
+        Entry cached = entries.get(id);
+        if (cached != null) {
+            if (cached.expiresAt() > System.currentTimeMillis()) {
+                return CompletableFuture.completedFuture(cached.order());
+            }
+            entries.remove(id, cached);
+        }
+        // спершу публікуємо майбутнє, потім запускаємо пошук: колбек завершення не може спрацювати
+        // всередині оновлення мапи, навіть якщо LIS відповів (чи впав) миттєво
+        var future = new CompletableFuture<Order>();
+        var running = inFlight.putIfAbsent(id, future);
+        if (running != null) return running;
+        CompletableFuture.supplyAsync(() -> loader.apply(id), LOOKUPS).whenComplete((order, ex) -> {
+            Order found = ex == null && order != null ? order : new Order();   // помилка API — теж «немає замовлення»
+            long ttl = found.getIndicators().isEmpty() ? negativeTtlMs : ttlMs;
+            long now = System.currentTimeMillis();
+            entries.put(id, new Entry(found, now + ttl));
+            sweepExpired(now);
+            inFlight.remove(id, future);
+            if (ex != null) {
+                future.completeExceptionally(ex);
+            } else {
+                future.complete(found);
+            }
+        });
+        return future;
+    }
+
+    private void sweepExpired(long now) {
+        long due = nextSweepAt.get();
+        if (now < due || !nextSweepAt.compareAndSet(due, now + negativeTtlMs)) return;
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+
+    private Order await(String id, CompletableFuture<Order> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            logger.log("Order for id: [" + id + "] is not ready in time, answering without it. Lookup continues in background.");
+        } catch (ExecutionException e) {
+            logger.error("Error during getting order for id: [" + id + "]", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new Order();
+    }
+}
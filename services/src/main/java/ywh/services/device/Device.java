@@ -4,6 +4,9 @@ import lombok.Getter;
 import org.slf4j.MDC;
 import ywh.commons.Task;
 import ywh.services.communicator.ICommunicator;
+import ywh.services.communicator.capture.CaptureRecorder;
+import ywh.services.communicator.capture.Direction;
+import ywh.services.data.enums.CommunicatorType;
 import ywh.services.data.enums.DeviceStatus;
 import ywh.services.data.enums.ObservationKey;
 import ywh.services.data.models.DeviceConfig;
@@ -11,10 +14,15 @@ import ywh.services.data.models.ParsingResult;
 import ywh.services.data.models.observation.ObservationData;
 import ywh.services.data_processor.ObservationResultProcessor;
 import ywh.services.device.parsers.IParser;
+import ywh.services.device.parsers.IRecordParser;
+import ywh.services.device.protocol.FlowControl;
 import ywh.services.device.protocol.IProtocol;
+import ywh.services.device.protocol.IRecordProtocol;
 import ywh.services.exceptions.DeviceRuntimeException;
 import ywh.logging.DeviceLogger;
 
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -26,6 +34,9 @@ public final class Device implements Runnable, AutoCloseable {
     public record DeviceHandle(Device device, Future<?> future) {
     }
 
+    /* тека для бінарних записів трафіку (DeviceSettings.captureTraffic) */
+    public static final Path CAPTURES_DIR = Path.of("captures");
+
     /* ───────────── статический ExecutorService для виртуальных потоков ───────────── */
     private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().factory());
 
@@ -123,8 +134,21 @@ public final class Device implements Runnable, AutoCloseable {
     private final Optional<IClarificationProvider> clarificationProvider;
     private final ObservationResultProcessor resultProcessor;
     private final DeviceLogger logger;
+    private final Optional<CaptureRecorder> captureRecorder;
     private final CountDownLatch startedLatch = new CountDownLatch(1);
 
+    /* етапи: читання порту → розбір → обробка результатів; кожен по черзі й з обмеженою глибиною */
+    private static final int PARSE_QUEUE_CAPACITY = 256;
+    private static final int RESULT_QUEUE_CAPACITY = 16;
+    // контроль потоку: притримуємо ACK раніше, ніж етап результатів і процесор упруться в місткість
+    // і зупинять читання; рахуємо і чергу етапу, і результати, які процесор уже взяв у роботу
+    private static final int RESULTS_CAPACITY = RESULT_QUEUE_CAPACITY + ObservationResultProcessor.MAX_JOBS_IN_FLIGHT;
+    private static final int FLOW_CONTROL_HIGH_WATERMARK = RESULTS_CAPACITY * 3 / 4;
+    private static final int FLOW_CONTROL_LOW_WATERMARK = RESULTS_CAPACITY / 4;
+    private static final long FLOW_CONTROL_MAX_WAIT_MS = 10_000;   // менше за 15 с очікування відповіді в ASTM
+    private final PipelineStage parseStage;
+    private final PipelineStage resultStage;
+
 
     /* ───────────── конструктор (приватный!) ───────────── */
 
@@ -138,6 +162,24 @@ public final class Device implements Runnable, AutoCloseable {
         this.parser.setDeviceSettings(config.getDeviceSettings());
         this.resultProcessor = new ObservationResultProcessor(logger, config.getDeviceSettings());
         this.clarificationProvider = config.getClarificationProvider();
+        this.captureRecorder = config.getCaptureRecorder().or(() -> createCaptureRecorder(config));
+        this.parseStage = new PipelineStage(parser.getName() + " parse", PARSE_QUEUE_CAPACITY, logger);
+        this.resultStage = new PipelineStage(parser.getName() + " results", RESULT_QUEUE_CAPACITY, logger);
+        var settings = config.getDeviceSettings();
+        if (settings != null && settings.isFlowControl()) {
+            protocol.setFlowControl(new FlowControl(() -> resultStage.backlog() + resultProcessor.inFlight(),
+                    FLOW_CONTROL_HIGH_WATERMARK, FLOW_CONTROL_LOW_WATERMARK, FLOW_CONTROL_MAX_WAIT_MS));
+        }
+    }
+
+    private static Optional<CaptureRecorder> createCaptureRecorder(DeviceConfig config) {
+        var settings = config.getDeviceSettings();
+        if (settings == null || !settings.isCaptureTraffic()) return Optional.empty();
+        var communicatorSettings = settings.getCommunicatorSettings();
+        String endpoint = communicatorSettings.getType() == CommunicatorType.SERIAL
+                ? communicatorSettings.getSerialParams().getPortName()
+                : String.valueOf(communicatorSettings.getPort());
+        return Optional.of(new CaptureRecorder(CAPTURES_DIR, config.getParser().getName() + "_" + endpoint, config.getLogger()));
     }
 
 
@@ -159,10 +201,10 @@ public final class Device implements Runnable, AutoCloseable {
     private void handleParsingResult(ParsingResult result) {
         byte[] ack = result.ack();
         if (ack.length > 0) {
-            communicator.sendBytes(ack);
+            protocol.sendResponse(ack);
         }
         if (result.data() != null && !result.data().getData().isEmpty()) {
-            Task.startDetached(() -> {
+            submit(resultStage, () -> {
                 var data = result.data();
                 data.put(ObservationKey.ANALYZER, parser.getServiceName());
                 if (clarificationProvider.isPresent()) {
@@ -182,34 +224,113 @@ public final class Device implements Runnable, AutoCloseable {
                     logger.log("Message is empty, skipping processing");
                     return;
                 }
-                var procResult = resultProcessor.process(data);
-                logger.log("Message process result: " + procResult.getResult());
-                logger.log("Message processed finished \n---------------------------------------------");
+                // далі результат іде етапами процесора, а етап пристрою вже бере наступний
+                resultProcessor.submit(data).thenAccept(procResult -> {
+                    logger.log("Message process result: " + procResult.getResult());
+                    logger.log("Message processed finished \n---------------------------------------------");
+                });
             });
         }
 
     }
 
+    private void submit(PipelineStage stage, Runnable task) {
+        if (!stage.submit(task)) {
+            logger.error("Device is closing, " + stage.stats().name() + " task dropped");
+        }
+    }
+
+    /** Знімки метрик етапів розбору і обробки результатів. */
+    public List<PipelineStage.Stats> getPipelineStats() {
+        return List.of(parseStage.stats(), resultStage.stats());
+    }
+
+    /** Усі відправки пристрою: запис у capture (якщо ввімкнено) і передача в комунікатор. */
+    private void send(byte[] data) {
+        captureRecorder.ifPresent(r -> r.record(Direction.OUT, data));
+        communicator.sendBytes(data);
+    }
+
+    /**
+     * Адаптер комунікатор → протокол: фрагменти передаються в {@link IProtocol#onBytes} цілком.
+     */
+    private static ICommunicator.ByteListener byteListenerFor(IProtocol protocol, CaptureRecorder recorder) {
+        return new ICommunicator.ByteListener() {
+            @Override
+            public void onByte(byte b) {
+                if (recorder != null) recorder.record(Direction.IN, new byte[]{b});
+                protocol.onByte(b);
+            }
+
+            @Override
+            public void onChunk(byte[] data, int offset, int length) {
+                if (recorder != null) recorder.record(Direction.IN, data, offset, length);
+                protocol.onBytes(data, offset, length);
+            }
+        };
+    }
+
+    /**
+     * Записи розбираються, щойно протокол їх прийняв; результат по пацієнту не чекає кінця повідомлення.
+     * Ділянка буфера протоколу дійсна лише під час виклику, тому в етап розбору йде копія.
+     */
+    private IRecordProtocol.IRecordListener recordListenerFor(IRecordParser recordParser) {
+        return new IRecordProtocol.IRecordListener() {
+            @Override
+            public void onRecord(byte[] data, int offset, int length) {
+                byte[] records = Arrays.copyOfRange(data, offset, offset + length);
+                submit(parseStage, () -> {
+                    try {
+                        logger.message(records);
+                        changeStatus(DeviceStatus.TRY_PARSE);
+                        recordParser.onRecord(records, 0, records.length);
+                    } catch (Exception e) {
+                        logger.error("Error while parsing record", e);
+                        changeStatus(DeviceStatus.PARSING_ERROR);
+                    }
+                });
+            }
+
+            @Override
+            public void onMessageEnd() {
+                submit(parseStage, () -> {
+                    try {
+                        recordParser.onMessageEnd();
+                        logger.log("Message parsed successfully");
+                        changeStatus(DeviceStatus.WORKING);
+                    } catch (Exception e) {
+                        logger.error("Error while parsing data", e);
+                        changeStatus(DeviceStatus.PARSING_ERROR);
+                    }
+                });
+            }
+        };
+    }
+
     @Override
     public void run() throws RuntimeException {
         try (var ignored = MDC.putCloseable("device", parser.getName())) {
             changeStatus(DeviceStatus.TRY_START);
             communicator.setDeviceStatusListener(this::handleCommunicatorStatus);
-            communicator.setByteListener(protocol::onByte);
-            protocol.setFrameListener(data -> {
-                try {
-                    logger.log("Message received. Trying to parse it ...");
-                    logger.message(data);
-                    changeStatus(DeviceStatus.TRY_PARSE);
-                    parser.parse(data);
-                    logger.log("Message parsed successfully");
-                    changeStatus(DeviceStatus.WORKING);
-                } catch (Exception e) {
-                    logger.error("Error while parsing data", e);
-                    changeStatus(DeviceStatus.PARSING_ERROR);
-                }
-            });
-            protocol.setTransport(communicator::sendBytes);
+            communicator.setByteListener(byteListenerFor(protocol, captureRecorder.orElse(null)));
+            if (parser instanceof IRecordParser recordParser && protocol instanceof IRecordProtocol recordProtocol) {
+                recordProtocol.setRecordListener(recordListenerFor(recordParser));
+            } else {
+                protocol.setFrameListener(data -> submit(parseStage, () -> {
+                    try {
+                        logger.log("Message received. Trying to parse it ...");
+                        logger.message(data);
+                        changeStatus(DeviceStatus.TRY_PARSE);
+                        parser.parse(data);
+                        logger.log("Message parsed successfully");
+                        changeStatus(DeviceStatus.WORKING);
+                    } catch (Exception e) {
+                        logger.error("Error while parsing data", e);
+                        changeStatus(DeviceStatus.PARSING_ERROR);
+                    }
+                }));
+            }
+            protocol.setTransport(this::send);
             parser.addResponseListener(this::handleParsingResult);
             // Завершена конфигурация – устройство считается запущенным.
             logger.log("Device " + parser.getName() + " started successfully");
@@ -245,6 +366,10 @@ public final class Device implements Runnable, AutoCloseable {
                 }
             }
 
+            // нові кадри більше не приймаються, уже прийняті розбираються й обробляються до кінця
+            parseStage.close();
+            resultStage.close();
+
             // 3. Очищуємо слухачів communicator
             if (communicator != null) {
                 communicator.clearDeviceStatusListener();
@@ -256,9 +381,13 @@ public final class Device implements Runnable, AutoCloseable {
                 resultProcessor.clearProcessListeners();
             }
 
-            // 5. Закриваємо communicator
-            if (communicator != null)
+            // 5. Закриваємо communicator; підсумок вихідної черги — до закриття, поки з'єднання ще є
+            if (communicator != null) {
+                communicator.getOutboundStats().ifPresent(stats -> logger.log("Outbound queue on close: " + stats));
                 communicator.close();
+            }
+
+            captureRecorder.ifPresent(CaptureRecorder::close);
 
             if (logger != null)
                 logger.close();
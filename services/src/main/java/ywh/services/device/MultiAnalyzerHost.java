@@ -0,0 +1,160 @@
+package ywh.services.device;
+
+import lombok.Getter;
+import ywh.logging.DeviceLogger;
+import ywh.services.communicator.TcpHostSession;
+import ywh.services.communicator.TcpSelectorHostCommunicator;
+import ywh.services.communicator.capture.CaptureRecorder;
+import ywh.services.data.enums.CommunicatorType;
+import ywh.services.data.models.DeviceConfig;
+import ywh.services.device.parsers.IParser;
+import ywh.services.device.parsers.ParserAbstract;
+import ywh.services.exceptions.DeviceRuntimeException;
+import ywh.services.settings.data.DeviceSettings;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Обслуговує кілька аналізаторів на ОДНОМУ TCP-порту.
+ * <p>
+ * Для кожного з’єднання {@link TcpSelectorHostCommunicator} створюється окремий {@link Device}
+ * зі своїм екземпляром парсера (а отже, і протоколу) та власним логом.
+ * Лог і запис трафіку названі за адресою аналізатора (без порту клієнта), тож перепідключення
+ * продовжує ті самі файли. Після розриву з’єднання девайс сесії закривається.
+ * <p>
+ * Вмикається в налаштуваннях пристрою типом {@link CommunicatorType#TCP_MULTI_HOST}
+ * (див. {@link #isConfigured(DeviceSettings)} і {@link #createAndStart}).
+ */
+public final class MultiAnalyzerHost implements Runnable, AutoCloseable {
+
+    private final DeviceSettings deviceSettings;
+    private final Supplier<IParser> parserFactory;
+    private final IClarificationProvider clarificationProvider;
+    private final DeviceLogger logger;
+    @Getter
+    private final TcpSelectorHostCommunicator communicator;
+
+    private final Map<TcpHostSession, Device.DeviceHandle> devices = new ConcurrentHashMap<>();
+    // імена логів/записів активних сесій — два аналізатори з однієї адреси не пишуть в один файл
+    private final Set<String> sessionNames = ConcurrentHashMap.newKeySet();
+    private final Map<TcpHostSession, String> namesBySession = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public MultiAnalyzerHost(int port, DeviceSettings deviceSettings, Supplier<IParser> parserFactory,
+                             IClarificationProvider clarificationProvider, DeviceLogger logger) {
+        this.deviceSettings = deviceSettings;
+        this.parserFactory = parserFactory;
+        this.clarificationProvider = clarificationProvider;
+        this.logger = logger;
+        this.communicator = new TcpSelectorHostCommunicator(port, logger, this::openSession);
+    }
+
+    /** Хост за налаштуваннями пристрою: порт — з {@link DeviceSettings#getCommunicatorSettings()}, парсер — свій на кожне з’єднання. */
+    public MultiAnalyzerHost(DeviceSettings deviceSettings, IClarificationProvider clarificationProvider, DeviceLogger logger) {
+        this(deviceSettings.getCommunicatorSettings().getPort(), deviceSettings, parserFactoryOf(deviceSettings),
+                clarificationProvider, logger);
+    }
+
+    /** Чи налаштовано пристрій обслуговувати кілька аналізаторів на одному порту. */
+    public static boolean isConfigured(DeviceSettings settings) {
+        return settings.getCommunicatorSettings() != null
+                && settings.getCommunicatorSettings().getType() == CommunicatorType.TCP_MULTI_HOST;
+    }
+
+    /**
+     * Створює хост і відкриває порт; сесії приймаються у selector-потоці.
+     *
+     * @throws DeviceRuntimeException якщо порт не вдалося відкрити
+     */
+    public static MultiAnalyzerHost createAndStart(DeviceSettings deviceSettings, IClarificationProvider clarificationProvider,
+                                                   DeviceLogger logger) {
+        var host = new MultiAnalyzerHost(deviceSettings, clarificationProvider, logger);
+        host.run();
+        return host;
+    }
+
+    /**
+     * Фабрика, що створює новий екземпляр парсера того ж класу, що й у налаштуваннях.
+     */
+    public static Supplier<IParser> parserFactoryOf(DeviceSettings settings) {
+        return () -> {
+            try {
+                IParser parser = settings.getParser().getClass().getDeclaredConstructor().newInstance();
+                if (parser instanceof ParserAbstract parserAbstract) {
+                    parserAbstract.setServiceName(settings.getServiceName());
+                }
+                return parser;
+            } catch (Exception e) {
+                throw new DeviceRuntimeException("Cannot create parser for session: " + e.getMessage());
+            }
+        };
+    }
+
+    @Override
+    public void run() {
+        communicator.run();
+    }
+
+    public int getActiveDeviceCount() {
+        return devices.size();
+    }
+
+    public Map<TcpHostSession, Device> getDevices() {
+        Map<TcpHostSession, Device> copy = new ConcurrentHashMap<>();
+        devices.forEach((session, handle) -> copy.put(session, handle.device()));
+        return copy;
+    }
+
+    /** Викликається у віртуальному потоці відкриття сесії (див. {@link TcpSelectorHostCommunicator.SessionHandler}). */
+    private void openSession(TcpHostSession session) {
+        IParser parser = parserFactory.get();
+        String logName = reserveName(parser.getName() + " [" + communicator.getPort() + "] " + session.getRemoteHost().replace(':', '_'));
+        namesBySession.put(session, logName);
+        session.setCloseListener(() -> closeSession(session)); // звільнить ім’я, навіть якщо девайс не створиться
+        DeviceLogger sessionLogger = DeviceLogger.tryToCreateOrGetDefault(logName, parser.getCharset());
+
+        var config = new DeviceConfig()
+                .setCommunicator(session)
+                .setParser(parser)
+                .setLogger(sessionLogger)
+                .setClarificationProvider(clarificationProvider)
+                .setDeviceSettings(deviceSettings);
+        if (deviceSettings.isCaptureTraffic()) {
+            config.setCaptureRecorder(new CaptureRecorder(Device.CAPTURES_DIR, logName, sessionLogger));
+        }
+
+        // Device.run сам викличе session.run() після під’єднання слухачів
+        Device.DeviceHandle handle = Device.createAndStart(config);
+        devices.put(session, handle);
+        if (!session.isOpen() || closed) closeSession(session); // клієнт встиг від’єднатися або хост закрито
+        logger.log("Analyzer session started for " + session.getRemoteName());
+    }
+
+    private String reserveName(String base) {
+        String name = base;
+        for (int n = 2; !sessionNames.add(name); n++) name = base + " #" + n;
+        return name;
+    }
+
+    private void closeSession(TcpHostSession session) {
+        Optional.ofNullable(namesBySession.remove(session)).ifPresent(sessionNames::remove);
+        Optional.ofNullable(devices.remove(session)).ifPresent(handle -> {
+            try {
+                Device.closeDevice(handle);
+            } catch (Exception e) {
+                logger.error("Error while closing session device " + session.getRemoteName(), e);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        communicator.close();
+        devices.keySet().forEach(this::closeSession);
+    }
+}
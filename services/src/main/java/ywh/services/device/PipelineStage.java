@@ -0,0 +1,130 @@
+package ywh.services.device;
+
+import ywh.logging.DeviceLogger;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Один етап обробки пристрою: задачі виконуються строго по черзі у віртуальному потоці,
+ * який живе лише поки в черзі щось є.
+ * <p>
+ * • порядок виконання = порядок {@link #submit(Runnable)} — результати одного пристрою не перемішуються;<br>
+ * • глибина обмежена: коли етап не встигає, {@link #submit(Runnable)} чекає на вільне місце,
+ *   і тиск доходить до попереднього етапу, а зрештою — до читання з порту (TCP сам пригальмує пристрій);<br>
+ * • після {@link #close()} нові задачі не приймаються, уже поставлені — доробляються.
+ */
+public final class PipelineStage implements AutoCloseable {
+
+    /** Знімок метрик етапу. */
+    public record Stats(String name, long submitted, long completed, long failed, long blocked,
+                        int depth, int maxDepth) {
+    }
+
+    /*────────────── поля ──────────────*/
+    private final String name;
+    private final DeviceLogger logger;
+    private final int capacity;
+    private final Semaphore slots;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private boolean active;         // під tasks: потік, що вичитує чергу, уже запущено
+    private boolean saturated;      // під tasks: про переповнення вже залоговано
+    private volatile boolean closed;
+
+    /* метрики */
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    public PipelineStage(String name, int capacity, DeviceLogger logger) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        this.name = name;
+        this.logger = logger;
+        this.capacity = capacity;
+        this.slots = new Semaphore(capacity);
+    }
+
+    /**
+     * Ставить задачу в кінець черги; якщо черга повна — чекає.
+     *
+     * @return {@code false}, якщо етап закрито або потік перервано під час очікування
+     */
+    public boolean submit(Runnable task) {
+        if (closed) return false;
+        if (!slots.tryAcquire()) {
+            blocked.incrementAndGet();
+            warnSaturated();
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        synchronized (tasks) {
+            tasks.add(task);
+            maxDepth.accumulateAndGet(tasks.size(), Math::max);
+            submitted.incrementAndGet();
+            if (active) return true;
+            active = true;
+        }
+        Thread.ofVirtual().name(name).start(this::drain);
+        return true;
+    }
+
+    private void warnSaturated() {
+        synchronized (tasks) {
+            if (saturated) return;
+            saturated = true;
+        }
+        logger.log("Stage '" + name + "' is full, waiting for it to catch up ...");
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable next;
+            synchronized (tasks) {
+                next = tasks.poll();
+                if (next == null) {
+                    active = false;
+                    saturated = false;
+                    return;
+                }
+            }
+            try {
+                next.run();
+                completed.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                logger.error("Error in stage '" + name + "'", e);
+            } finally {
+                slots.release();
+            }
+        }
+    }
+
+    /*────────────── метрики / закриття ──────────────*/
+
+    /** Скільки задач поставлено і ще не завершено (разом із тією, що виконується). */
+    public int backlog() {
+        return capacity - slots.availablePermits();
+    }
+
+    public Stats stats() {
+        int depth;
+        synchronized (tasks) {
+            depth = tasks.size();
+        }
+        return new Stats(name, submitted.get(), completed.get(), failed.get(), blocked.get(), depth, maxDepth.get());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
@@ -1,18 +1,24 @@
 package ywh.services.device.parsers;
 
-import org.jetbrains.annotations.NotNull;
 import ywh.commons.DateTime;
 import ywh.logging.DeviceLogger;
 import ywh.repository.animals.enteties.AnimalType;
 import ywh.services.communicator.ICommunicator;
 import ywh.services.communicator.TcpHostCommunicator;
 import ywh.services.data.models.observation.ObservationData;
+import ywh.services.device.protocol.hl7.Hl7AckTemplate;
 import ywh.services.device.protocol.hl7.Hl7PartsProcessor;
 import ywh.services.device.protocol.hl7.Hl7Protocol;
 import ywh.services.settings.data.CommunicatorSettings;
 @ParserMetaData(name ="Dymind DF50 VET HL7", defaultProtocol = Hl7Protocol.class, encoding = "utf-8")
 
-public class DymindDF50Vet extends ParserAbstract implements IParserWithImages{
+public class DymindDF50Vet extends RecordParserAbstract implements IParserWithImages{
+    private Hl7PartsProcessor processor;
+    private ParsingContext context;
+    // {0} — control ID (MSH-10), {1} — тип ACK (MSH-15)
+    private final Hl7AckTemplate ackTemplate = Hl7AckTemplate.compile(
+            "\u000BMSH|^~\\&|||||{ts}||ACK^R01|{0}|P|2.3.1||||{1}||UNICODE|||\r"
+                    + "MSA|AA|{0}|Message accepted|||0|\r\u001C\r", charset);
 
     @Override
     public ICommunicator createDefaultCommunicator(CommunicatorSettings params, DeviceLogger logger) {
@@ -21,20 +27,18 @@ public class DymindDF50Vet extends ParserAbstract implements IParserWithImages{
 
 
     @Override
-    public void parse(byte[] data) {
-        var processor = new Hl7PartsProcessor(logger);
-        var context = new ParsingContext();
-        var frames = processor.getFrames(data, getCharset());
-        processor
-                .setOnMSH(parts -> context.setAck(buildAck(parts[9], parts[15])))
-                .setOnOBR(parts -> {
-                    context.putId(parts[3]);
-                    context.putDate(DateTime.tryGetFromPatternOrCurrent("yyyyMMddHHmmss", parts[6]));
+    protected void startMessage() {
+        context = new ParsingContext();
+        processor = new Hl7PartsProcessor(logger)
+                .setOnMSH(msh -> context.setAck(buildAck(msh.field(9), msh.field(15))))
+                .setOnOBR(obr -> {
+                    context.putId(obr.field(3));
+                    context.putDate(DateTime.tryGetFromPatternOrCurrent("yyyyMMddHHmmss", obr.field(6)));
                 })
-                .setOnOBX(parts -> {
-                    String name = parts[3].split("\\^")[1];
-                    String value = parts[5];
-                    switch (parts[2]) {
+                .setOnOBX(obx -> {
+                    String name = obx.component(3, 1);
+                    String value = obx.field(5);
+                    switch (obx.field(2)) {
                         case "NM" -> {
                             if (name.equals("MCHC")){
                                 try {
@@ -45,7 +49,7 @@ public class DymindDF50Vet extends ParserAbstract implements IParserWithImages{
                             }
                             context.put(name, value);
                         }
-                        case "ED" -> context.putImage(name, value.split("\\^")[4]);
+                        case "ED" -> context.putImage(name, obx.component(5, 4));
                         case "IS" -> {
                             if(name.equals("Ref Group"))
                                 context.putAnimalType(AnimalType.define(value));
@@ -53,8 +57,15 @@ public class DymindDF50Vet extends ParserAbstract implements IParserWithImages{
                         default -> {}
                     }
                 });
+    }
 
-        processor.processFrames(frames);
+    @Override
+    protected void parseRecords(byte[] data, int offset, int length) {
+        processor.processFrames(data, offset, length, getCharset());
+    }
+
+    @Override
+    protected void finishMessage() {
         addColorationIndex(context.getObservationData());
         fireResponse(context.getParsingResultAndReset());
     }
@@ -79,20 +90,8 @@ public class DymindDF50Vet extends ParserAbstract implements IParserWithImages{
             }
     }
 
-    private byte @NotNull [] buildAck(String id, String ackType) {
-        var responseBuilder = "\u000BMSH|^~\\&|||||" +
-                DateTime.getHl7DateTime() +
-                "||ACK^R01|" +
-                id +
-                "|P|2.3.1||||" +
-                ackType +
-                "||UNICODE|||" +
-                "\r" +
-                "MSA|" +
-                "AA|" +
-                id +
-                "|Message accepted|||0|\r\u001C\r";
-        return responseBuilder.getBytes(getCharset());
+    private byte[] buildAck(String id, String ackType) {
+        return ackTemplate.render(id, ackType);
     }
 
 }
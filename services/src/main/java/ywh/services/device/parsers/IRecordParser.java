@@ -0,0 +1,10 @@
+package ywh.services.device.parsers;
+
+import ywh.services.device.protocol.IRecordProtocol;
+
+/**
+ * Парсер, що приймає повідомлення по записах — так, як їх віддає протокол
+ * ({@link IRecordProtocol#setRecordListener}), не чекаючи кінця всього повідомлення.
+ */
+public interface IRecordParser extends IParser, IRecordProtocol.IRecordListener {
+}
@@ -48,6 +48,7 @@ public abstract class ParserAbstract implements IParser {
             pauseTransport.setSendPause(sendPause);
         }
         this.protocol.setIdleTimeoutMs(annotation.defaultIdleTimeout());
+        this.protocol.setMaxFrameSize(annotation.maxFrameSize());
     }
 
     IProtocol createProtocol(Class<? extends IProtocol> protocolClass) {
@@ -1,6 +1,7 @@
 package ywh.services.device.parsers;
 
 
+import ywh.services.device.protocol.FrameBuffer;
 import ywh.services.device.protocol.IProtocol;
 
 import java.lang.annotation.ElementType;
@@ -16,5 +17,6 @@ public @interface ParserMetaData {
     String encoding() default "UTF-8";
     int sendPause()default 0;
     long defaultIdleTimeout()default 5000;
+    int maxFrameSize() default FrameBuffer.DEFAULT_MAX_SIZE;
 }
 
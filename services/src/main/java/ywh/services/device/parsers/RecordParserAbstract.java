@@ -0,0 +1,45 @@
+package ywh.services.device.parsers;
+
+/**
+ * Основа парсерів, що розбирають повідомлення по записах (ASTM / HL7).
+ * <p>
+ * Стан розбору живе від першого запису до кінця повідомлення: {@link #startMessage()} готує
+ * процесор і контекст, {@link #parseRecords} отримує записи, щойно протокол їх прийняв,
+ * {@link #finishMessage()} віддає те, що лишилось. Результат по пацієнту можна віддавати
+ * ще до кінця повідомлення — на його L-записі або на наступному O-записі.
+ * {@link #parse(byte[])} робить те саме для цілого кадру.
+ */
+public abstract class RecordParserAbstract extends ParserAbstract implements IRecordParser {
+    private boolean inMessage;
+
+    /** Перший запис нового повідомлення — створити процесор і контекст. */
+    protected abstract void startMessage();
+
+    /** Записи як ділянка буфера протоколу — дійсна лише під час виклику. */
+    protected abstract void parseRecords(byte[] data, int offset, int length);
+
+    /** Повідомлення закінчилось — віддати те, що ще не віддано. */
+    protected abstract void finishMessage();
+
+    @Override
+    public final void parse(byte[] data) {
+        onRecord(data, 0, data.length);
+        onMessageEnd();
+    }
+
+    @Override
+    public final void onRecord(byte[] data, int offset, int length) {
+        if (!inMessage) {
+            inMessage = true;
+            startMessage();
+        }
+        parseRecords(data, offset, length);
+    }
+
+    @Override
+    public final void onMessageEnd() {
+        if (!inMessage) return;
+        inMessage = false;
+        finishMessage();
+    }
+}
@@ -1,23 +1,22 @@
 package ywh.services.device.parsers.fujifilm;
 
 
-import org.jetbrains.annotations.NotNull;
 import ywh.commons.DateTime;
 import ywh.repository.animals.enteties.AnimalType;
 import ywh.services.communicator.ICommunicator;
 import ywh.services.communicator.TcpHostCommunicator;
-import ywh.services.device.parsers.ParserAbstract;
 import ywh.services.device.parsers.ParserMetaData;
 import ywh.services.device.parsers.ParsingContext;
+import ywh.services.device.parsers.RecordParserAbstract;
+import ywh.services.device.protocol.hl7.Hl7AckTemplate;
 import ywh.services.device.protocol.hl7.Hl7PartsProcessor;
 import ywh.services.device.protocol.hl7.Hl7Protocol;
-import ywh.services.device.protocol.hl7.Hl7ResponseBuilder;
 import ywh.services.settings.data.CommunicatorSettings;
 import ywh.logging.DeviceLogger;
 
 @ParserMetaData(name = "Fujifilm DriChem NX 600 VET", defaultProtocol = Hl7Protocol.class, encoding = "utf-8")
 
-public class DryChemNX600Vet extends ParserAbstract {
+public class DryChemNX600Vet extends RecordParserAbstract {
 
     @Override
     public ICommunicator createDefaultCommunicator(CommunicatorSettings params, DeviceLogger logger) {
@@ -33,50 +32,57 @@ public class DryChemNX600Vet extends ParserAbstract {
     private String msh6 = ""; //Should be a copy of MSH-4 of the acknowledged message
     private String msh21 = "LAB-28R^ROCHE"; //Should be a copy of MSH-21 of the message being acknowledged
 
+    // {0}…{3} — MSH-3…6, {4} — тип повідомлення, {5} — ID хоста, {6} — MSH-21, {7} — control ID для MSA
+    private final Hl7AckTemplate ackTemplate = Hl7AckTemplate.compile(
+            "\u000BMSH|^~\\&|{0}|{1}|{2}|{3}|{ts}||ACK^{4}^ACK|{5}|P|2.5.1||||||UNICODE UTF-8|||{6}\r"
+                    + "MSA|AA|{7}\r\u001C\r", charset);
+
+    private Hl7PartsProcessor processor;
+    private ParsingContext context;
+
     @Override
-    public void parse(byte[] data) {
-        var processor = new Hl7PartsProcessor(logger);
-        var context = new ParsingContext();
-        var frames = processor.getFrames(data, getCharset());
+    protected void startMessage() {
+        context = new ParsingContext();
         context.putAnimalType(AnimalType.CAT);
-        processor
-                .setOnMSH(parts -> {
-                    msgType = parts[8].split("\\^")[1];
-                    msgId = parts[9];
-                    msh21 = parts[20];
-                    msh3 = parts[4];
-                    msh4 = parts[5];
-                    msh5 = parts[2];
-                    msh6 = parts[3];
+        processor = new Hl7PartsProcessor(logger)
+                .setOnMSH(msh -> {
+                    msgType = msh.component(8, 1);
+                    msgId = msh.field(9);
+                    msh21 = msh.field(20);
+                    msh3 = msh.field(4);
+                    msh4 = msh.field(5);
+                    msh5 = msh.field(2);
+                    msh6 = msh.field(3);
                     context.setAck(buildAck());
                 })
-                .setOnSPM(parts -> {
-                    context.putOwner(parts[2]);
+                .setOnSPM(spm -> {
+                    context.putOwner(spm.field(2));
                 })
-                .setOnSAC(parts -> {
-                    context.putId(parts[3]);
+                .setOnSAC(sac -> {
+                    context.putId(sac.field(3));
                 })
 
-                .setOnOBX(parts -> {
-                    String name = parts[3].split("\\^")[1];
-                    if (parts[2].equals("NM")) {
-                        context.putDate(DateTime.tryGetFromPatternOrCurrent("yyyyMMddHHmmss", parts[19]));
-                        context.put(name, parts[5]);
+                .setOnOBX(obx -> {
+                    String name = obx.component(3, 1);
+                    if (obx.field(2).equals("NM")) {
+                        context.putDate(DateTime.tryGetFromPatternOrCurrent("yyyyMMddHHmmss", obx.field(19)));
+                        context.put(name, obx.field(5));
                     }
                 });
+    }
 
-        processor.processFrames(frames);
-        fireResponse(context.getParsingResultAndReset());
+    @Override
+    protected void parseRecords(byte[] data, int offset, int length) {
+        processor.processFrames(data, offset, length, getCharset());
     }
 
-    private byte @NotNull [] buildAck() {
+    @Override
+    protected void finishMessage() {
+        fireResponse(context.getParsingResultAndReset());
+    }
 
-        Hl7ResponseBuilder builder = new Hl7ResponseBuilder(21);
-        builder.set(1, "MSH", "^~\\&",msh3, msh4, msh5, msh6, DateTime.getHl7DateTime()) // from 1 to 7
-                .set(9, "ACK^" + msgType + "^ACK", String.valueOf(hostMsgId), "P", "2.5.1") // 9 to 12
-                .set(18, "UNICODE UTF-8").set(21, msh21);
-        String resp = builder.buildWithAdditionalString("MSA|AA|" + msgId);
-        return resp.getBytes(getCharset());
+    private byte[] buildAck() {
+        return ackTemplate.render(msh3, msh4, msh5, msh6, msgType, String.valueOf(hostMsgId), msh21, msgId);
     }
 
 }
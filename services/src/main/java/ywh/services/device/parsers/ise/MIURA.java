@@ -7,83 +7,113 @@ import ywh.services.communicator.TcpHostCommunicator;
 import ywh.services.data.models.api.Order;
 import ywh.services.data.models.api.PatientData;
 import ywh.services.data_processor.APIProcessor;
-import ywh.services.device.parsers.ParserAbstract;
+import ywh.services.data_processor.OrderCache;
 import ywh.services.device.parsers.ParserMetaData;
 import ywh.services.device.parsers.ParsingContext;
+import ywh.services.device.parsers.RecordParserAbstract;
+import ywh.services.device.protocol.astm.ASTMOrder;
 import ywh.services.device.protocol.astm.ASTMOrderBuilder;
 import ywh.services.device.protocol.astm.ASTMPartsProcessor;
 import ywh.services.device.protocol.astm.ASTMProtocol;
 import ywh.services.settings.data.CommunicatorSettings;
+import ywh.services.settings.data.DeviceSettings;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 
 @ParserMetaData(name = "ISE Miura ASTM", defaultProtocol = ASTMProtocol.class, encoding = "windows-1251", sendPause = 150, defaultIdleTimeout = 15000)
-public class MIURA extends ParserAbstract {
+public class MIURA extends RecordParserAbstract {
+    private static final long ORDER_TTL_MS = 60_000;
+    private static final long NO_ORDER_TTL_MS = 5_000;
+
+    private ASTMPartsProcessor processor;
+    private OrderCache orderCache;
+    private ParsingContext context;
+    private List<String> barcodes;
+
     @Override
-    public void parse(byte[] data) {
-        ASTMPartsProcessor processor = new ASTMPartsProcessor(logger);
-        List<String> barcodes = new ArrayList<>();
-        var context = new ParsingContext();
-        processor
-                .setScipExtEtbSize(3)
-                .onHeader(parts -> {
+    protected void startMessage() {
+        barcodes = new ArrayList<>();
+        context = new ParsingContext();
+        processor = new ASTMPartsProcessor(logger)
+                .onHeader(record -> {
                     // Header: просто пропускаємо
                 })
-                .onOrder(parts -> {
-                    if (!parts[2].equals(context.getId()) && !context.getId().isEmpty() && context.isNotOrderFlag()) {
+                .onOrder(record -> {
+                    String barcode = record.field(2);
+                    if (!barcode.equals(context.getId()) && !context.getId().isEmpty() && context.isNotOrderFlag()) {
                         context.putIdFromLastBarcode();
                         fireResponse(context.getParsingResultAndReset());
                     }
-                    context.setBarcode(parts[2]);
-                    context.putDate(DateTime.tryGetFromASTMOrCurrentV1(parts[6]));
+                    context.setBarcode(barcode);
+                    context.putDate(DateTime.tryGetFromASTMOrCurrentV1(record.field(6)));
                 })
-                .onResult(parts -> {
-                    String[] codeParts = parts[2].split("\\^");
-                    String test = codeParts.length > 4 && !codeParts[4].trim().isEmpty()
-                            ? codeParts[4] : codeParts[3];
-                    context.put(test, parts[3]);
+                .onResult(record -> {
+                    String name = record.component(2, 4);
+                    String test = !name.trim().isEmpty() ? name : record.component(2, 3);
+                    context.put(test, record.field(3));
                     context.putReferences(ref -> {
-                                var refParts = parts[5].split(":");
+                                var refParts = record.field(5).split(":");
                                 ref.indicatorName(test)
                                         .min(refParts[0])
                                         .max(refParts[1])
-                                        .unit(parts[4]);
+                                        .unit(record.field(4));
                             }
                     );
 
                 })
-                .onQuery(parts -> {  // 0 = обробляти але не скіпати
-                    if (parts[2].contains("\\")) {
-                        barcodes.addAll(Arrays.asList(parts[2].split("\\\\")));
-                    } else {
-                        barcodes.add(parts[2]);
-                    }
+                .onQuery(record -> {  // 0 = обробляти але не скіпати
+                    List<String> ids = Arrays.stream(record.repeats(2)).map(String::trim).toList();
+                    barcodes.addAll(ids);
+                    orders().prefetch(ids); // LIS шукає, поки дочитуємо повідомлення
                     context.markAsOrder();
                 })
-                .onTerminator(parts -> {
+                .onTerminator(record -> {
                     if (context.isNotOrderFlag()) {
                         context.putIdFromLastBarcode();
                         fireResponse(context.getParsingResultAndReset());
                     }
                 });
+    }
+
+    @Override
+    protected void parseRecords(byte[] data, int offset, int length) {
+        processor.processFrames(data, offset, length, charset);
+    }
 
-        processor.processFrames(data, charset);
+    @Override
+    protected void finishMessage() {
         if (context.isOrderFlag()) {
             setEnquiry(barcodes);
         }
     }
 
+    private OrderCache orders() {
+        if (orderCache == null) {
+            APIProcessor api = new APIProcessor(deviceSettings);
+            orderCache = new OrderCache(id -> api.getOrderById(id, logger), ORDER_TTL_MS, NO_ORDER_TTL_MS, logger);
+        }
+        return orderCache;
+    }
+
+    @Override
+    public void setDeviceSettings(DeviceSettings settings) {
+        super.setDeviceSettings(settings);
+        orderCache = null;
+    }
+
     private void setEnquiry(List<String> barcodes) {
         try {
             barcodes = barcodes.stream().distinct().toList();
+            Map<String, Order> found = orders().getAll(barcodes, deviceSettings.getApiSettings().getOrderTimeOut());
             if (!(protocol instanceof ASTMProtocol astmProtocol)) {
                 logger.error("Only ASTM protocol is supported");
                 return;
             }
-            ASTMOrderBuilder builder = new ASTMOrderBuilder();
+            ASTMOrderBuilder builder = new ASTMOrderBuilder(getCharset());
             builder.setMaxFrameSize(2024) //2048 по мануалу
                     .byLine()
                     .skipCRafterETX()
@@ -97,13 +127,12 @@ public class MIURA extends ParserAbstract {
                     })
             ;
             boolean hasAnyOrder = false;
+            boolean cito = false;
             int patientCount = 1;
-            for (String s : barcodes) {
-                String barcode = s;
-                barcode = barcode.trim();
+            for (String barcode : barcodes) {
                 // barcode = "0000035";
                 List<String> orders;
-                Order orderModel = new APIProcessor(deviceSettings).getOrderById(barcode, logger);
+                Order orderModel = found.get(barcode);
                 if (orderModel.getIndicators().isEmpty()) {
                     logger.log("No order for id: [" + barcode + "]");
                     logger.writeSeparator();
@@ -111,6 +140,7 @@ public class MIURA extends ParserAbstract {
                 }
                 patientCount++;
                 hasAnyOrder = true;
+                cito |= orderModel.isCito();
                 // orderModel.splitByHyphenIndicators();
                 orderModel.removeNonIntegerIndicators();
                 orders = orderModel.getIndicators();
@@ -165,7 +195,9 @@ public class MIURA extends ParserAbstract {
                 var newOrder = builder.addTerminationRecord(3, termination -> {
                     termination[1] = "1";
                     termination[2] = "N";
-                }).buildWithEOT();
+                }).buildWithEOT()
+                        .forSpecimen(String.join(",", barcodes))
+                        .withPriority(cito ? ASTMOrder.Priority.STAT : ASTMOrder.Priority.ROUTINE);
                 astmProtocol.addOrderToQueue(newOrder);
                 logger.log("Order is prepared to ASTM. Adding to queue...");
 
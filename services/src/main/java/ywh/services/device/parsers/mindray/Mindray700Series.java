@@ -3,10 +3,11 @@ package ywh.services.device.parsers.mindray;
 import ywh.commons.DateTime;
 import ywh.services.communicator.ICommunicator;
 import ywh.services.communicator.TcpHostCommunicator;
-import ywh.services.device.parsers.ParserAbstract;
 import ywh.services.device.parsers.ParserMetaData;
 import ywh.services.device.parsers.ParsingContext;
+import ywh.services.device.parsers.RecordParserAbstract;
 import ywh.services.device.protocol.astm.ASTMPartsProcessor;
+import ywh.services.device.protocol.astm.ASTMRecord;
 import ywh.services.device.protocol.astm.ASTMProtocol;
 import ywh.services.settings.data.CommunicatorSettings;
 import ywh.logging.DeviceLogger;
@@ -14,52 +15,63 @@ import ywh.logging.DeviceLogger;
 import static ywh.services.device.parsers.mindray.MindrayBC30Vet.SKIP_LIST;
 
 @ParserMetaData(name = "Mindray BC-700 Series", defaultProtocol = ASTMProtocol.class, encoding = "utf-8")
-public class Mindray700Series extends ParserAbstract {
+public class Mindray700Series extends RecordParserAbstract {
+    private ASTMPartsProcessor processor;
+    private ParsingContext context;
+    private boolean fired;
 
     @Override
-    public void parse(byte[] data) {
-        ASTMPartsProcessor processor = new ASTMPartsProcessor(logger);
-        var context = new ParsingContext();
-        processor
-                .onHeader(parts -> {
+    protected void startMessage() {
+        context = new ParsingContext();
+        fired = false;
+        processor = new ASTMPartsProcessor(logger)
+                .onHeader(record -> {
                     // Header: просто пропускаємо
                 })
-                .onOrder(parts -> {
-                    context.putId(parts[2]);
-                    context.putDate(DateTime.tryGetFromASTMOrCurrentV1(parts[6]));
+                .onOrder(record -> {
+                    context.putId(record.field(2));
+                    context.putDate(DateTime.tryGetFromASTMOrCurrentV1(record.field(6)));
                 })
-                .onResult(parts -> {
-                    String indicatorName = parts[2].split("\\^")[1];
-                    if (parts[2].contains("Histogram.") || parts[2].contains("Scattergram.")) {
-                        context.putImage(indicatorName, parts[3]);
+                .onResult(record -> {
+                    String indicatorName = record.component(2, 1);
+                    String code = record.field(2);
+                    if (code.contains("Histogram.") || code.contains("Scattergram.")) {
+                        context.putImage(indicatorName, record.field(3));
                     } else {
                         if (!SKIP_LIST.contains(indicatorName)) {
-                            context.put(indicatorName, parts[3]);
-                            putReferences(parts, context, indicatorName);
+                            context.put(indicatorName, record.field(3));
+                            putReferences(record, context, indicatorName);
                         }
                     }
                 })
-                .onTerminator(parts -> {
-
+                .onTerminator(record -> {
+                    fired = true;
+                    fireResponse(context.getParsingResultAndReset());
                 });
+    }
 
-        processor.processFrames(data, charset);
-        fireResponse(context.getParsingResultAndReset());
+    @Override
+    protected void parseRecords(byte[] data, int offset, int length) {
+        processor.processFrames(data, offset, length, charset);
+    }
 
+    @Override
+    protected void finishMessage() {
+        if (!fired) fireResponse(context.getParsingResultAndReset());   // повідомлення без L-запису
     }
 
-    private static void putReferences(String[] parts, ParsingContext context, String indicatorName) {
+    private static void putReferences(ASTMRecord record, ParsingContext context, String indicatorName) {
         context.putReferences(ref -> {
-            var refParts = parts[5].split("\\^");
-            if (parts[4].contains("&")) {
-                var unitParts = parts[4].split("&");
+            String unit = record.field(4);
+            if (unit.contains("&")) {
+                var unitParts = unit.split("&");
                 ref.unit(unitParts[2]);
             } else {
-                ref.unit(parts[4]);
+                ref.unit(unit);
             }
             ref.indicatorName(indicatorName)
-                    .min(refParts[0])
-                    .max(refParts[1]);
+                    .min(record.component(5, 0))
+                    .max(record.component(5, 1));
         });
     }
 
@@ -7,8 +7,8 @@ import ywh.services.data.enums.ObservationKey;
 import ywh.services.data.models.ParsingResult;
 import ywh.services.data.models.observation.ObservationData;
 import ywh.services.device.parsers.IParserWithFixedPort;
-import ywh.services.device.parsers.ParserAbstract;
 import ywh.services.device.parsers.ParserMetaData;
+import ywh.services.device.parsers.RecordParserAbstract;
 import ywh.services.device.protocol.hl7.HL7V231Helper;
 import ywh.services.device.protocol.hl7.Hl7PartsProcessor;
 import ywh.services.device.protocol.hl7.Hl7Protocol;
@@ -18,10 +18,13 @@ import ywh.logging.DeviceLogger;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
 
 @ParserMetaData(name ="Mindray BC 30 VET HL7", defaultProtocol = Hl7Protocol.class, encoding = "utf-8")
-public class MindrayBC30Vet extends ParserAbstract implements IParserWithFixedPort {
+public class MindrayBC30Vet extends RecordParserAbstract implements IParserWithFixedPort {
+    private Hl7PartsProcessor processor;
+    private HL7V231Helper hl7v231;
+    private ObservationData observationData;
+    private String pid;
 
 
     @Override
@@ -41,59 +44,64 @@ public class MindrayBC30Vet extends ParserAbstract implements IParserWithFixedPo
     ));
 
     @Override
-    public void parse(byte[] data) {
-        var hl7v231 = new HL7V231Helper();
-        var observationData = new AtomicReference<>(new ObservationData());
-        Hl7PartsProcessor processor = new Hl7PartsProcessor(logger);
-
-        var pid = new AtomicReference<>("");
-        processor
-                .setOnMSH(parts -> {
-                    hl7v231.setHl7Id(parts[9]);
-                    hl7v231.setAckType(parts[15]);
-                    hl7v231.setCoding(parts[17]);
+    protected void startMessage() {
+        hl7v231 = new HL7V231Helper();
+        observationData = new ObservationData();
+        pid = "";
+        processor = new Hl7PartsProcessor(logger)
+                .setOnMSH(msh -> {
+                    hl7v231.setHl7Id(msh.field(9));
+                    hl7v231.setAckType(msh.field(15));
+                    hl7v231.setCoding(msh.field(17));
 
                 })
-                .setOnPID(parts -> {
-                    var names = parts[5].split("\\^");
-                    observationData.get().put(ObservationKey.ANIMAL_NAME, names[0]);
-                    observationData.get().put(ObservationKey.OWNER, names[1]);
+                .setOnPID(pidSegment -> {
+                    observationData.put(ObservationKey.ANIMAL_NAME, pidSegment.component(5, 0));
+                    var owner = pidSegment.component(5, 1);
+                    if (!owner.isEmpty()) observationData.put(ObservationKey.OWNER, owner);
                 })
-                .setOnPV1(parts -> observationData.get().putAnimalType(parts[2]))
+                .setOnPV1(pv1 -> observationData.putAnimalType(pv1.field(2)))
 
-                .setOnOBR(parts -> {
-                    if (parts[3].isEmpty()) {
-                        observationData.get().putId(pid.get());
+                .setOnOBR(obr -> {
+                    if (obr.isEmpty(3)) {
+                        observationData.putId(pid);
                     } else
-                        observationData.get().putId(parts[3]);
-                    observationData.get().putDate(DateTime.tryGetFromASTMOrCurrentV1(parts[7]));
+                        observationData.putId(obr.field(3));
+                    observationData.putDate(DateTime.tryGetFromASTMOrCurrentV1(obr.field(7)));
                 })
-                .setOnOBX(parts -> {
-                    if (parts.length <5)return;
-                    var name = parts[3].split("\\^")[1];
+                .setOnOBX(obx -> {
+                    if (obx.fieldCount() < 5) return;
+                    var name = obx.component(3, 1);
                     if (SKIP_LIST.contains(name))return;
-                    var value = parts[5];
-                    switch (parts[2]) {
+                    var value = obx.field(5);
+                    switch (obx.field(2)) {
                         case String s when s.equals("NM") && !name.contains("Histogram") && !name.contains("Scattergram") && !name.contains("line") -> {
                             if (name.equalsIgnoreCase("age")) {
-                                switch (parts[6]){
+                                switch (obx.field(6)){
                                     case "yr" -> value += " роки";
                                     case "mo" -> value += " місяці";
-                                    default -> value = value + " " + parts[6];
+                                    default -> value = value + " " + obx.field(6);
                                 }
-                                observationData.get().put(ObservationKey.AGE, value);
+                                observationData.put(ObservationKey.AGE, value);
                             } else
-                                observationData.get().put(name, value);
+                                observationData.put(name, value);
                         }
-                        case "ED" -> observationData.get().putImage(name, value.split("\\^")[4]);
+                        case "ED" -> observationData.putImage(name, obx.component(5, 4));
                         default -> {
                         }
                     }
                 });
+    }
+
+    @Override
+    protected void parseRecords(byte[] data, int offset, int length) {
+        processor.processFrames(data, offset, length, getCharset());
+    }
 
-        processor.processFrames(data, getCharset());
-        var ack = hl7v231.getResponse().getBytes(getCharset());
-        fireResponse(new ParsingResult(observationData.get(), ack));
+    @Override
+    protected void finishMessage() {
+        var ack = hl7v231.getResponse(getCharset());
+        fireResponse(new ParsingResult(observationData, ack));
     }
 
 
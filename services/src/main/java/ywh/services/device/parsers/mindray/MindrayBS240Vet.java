@@ -6,17 +6,19 @@ import ywh.services.communicator.ICommunicator;
 import ywh.services.communicator.TcpHostCommunicator;
 import ywh.services.data.models.ParsingResult;
 import ywh.services.data.models.observation.ObservationData;
-import ywh.services.device.parsers.ParserAbstract;
 import ywh.services.device.parsers.ParserMetaData;
+import ywh.services.device.parsers.RecordParserAbstract;
 import ywh.services.device.protocol.astm.ASTMPartsProcessor;
 import ywh.services.device.protocol.hl7.Hl7Protocol;
 import ywh.services.settings.data.CommunicatorSettings;
 import ywh.logging.DeviceLogger;
 
-import java.util.concurrent.atomic.AtomicReference;
-
 @ParserMetaData(name = "Mindray BS 240 ASTM", defaultProtocol = Hl7Protocol.class, encoding = "windows-1251")
-public class MindrayBS240Vet extends ParserAbstract {
+public class MindrayBS240Vet extends RecordParserAbstract {
+    private ASTMPartsProcessor processor;
+    private ObservationData observationData;
+    private String sampleId;
+    private String analysisCode;
 
 
     @Override
@@ -25,42 +27,46 @@ public class MindrayBS240Vet extends ParserAbstract {
     }
 
     @Override
-    public void parse(byte[] data) {
-        var observationData = new AtomicReference<>(new ObservationData());
-        var sampleId = new AtomicReference<>("");
-        var analysisCode = new AtomicReference<>("");
-        ASTMPartsProcessor processor = new ASTMPartsProcessor(logger);
-        var frames = processor.getFrames(data, charset);
-
-        processor.onOrder(parts -> {
-                    sampleId.set(parts[2].split("\\^")[0]);
-                    analysisCode.set(parts[3]);
+    protected void startMessage() {
+        observationData = new ObservationData();
+        sampleId = "";
+        analysisCode = "";
+        processor = new ASTMPartsProcessor(logger)
+                .onOrder(record -> {
+                    sampleId = record.component(2, 0);
+                    analysisCode = record.field(3);
                 })
-                .onResult(parts -> {
-                    String[] codeParts = parts[2].split("\\^");
-                    String[] resultParts = parts[3].split("\\^^");
-                    observationData.get().put(codeParts[0], resultParts[0].substring(0, 5));
-                    observationData.get().putDate(DateTime.tryGetFromASTMOrCurrentV2(parts[11]));
+                .onResult(record -> {
+                    observationData.put(record.component(2, 0), record.field(3).substring(0, 5));
+                    observationData.putDate(DateTime.tryGetFromASTMOrCurrentV2(record.field(11)));
                 })
-                .onComment(parts -> {
+                .onComment(record -> {
                     // Пропускаємо коментарі
                 })
-                .onQuery(parts -> {
+                .onQuery(record -> {
                     //  barcodeForOrder = parts[2].contains("^") ? parts[2].split("\\^")[1] : parts[3];
                     // sqNum = parts[1];
                     setEnquiry();
                     // isOrder = true;
                 })
-                .onTerminator(parts -> {
+                .onTerminator(record -> {
 
-                    if (TextUtils.isNullOrEmpty(analysisCode.get()))
-                        analysisCode.set(sampleId.get());
-                    observationData.get().putId(analysisCode.get());
-                    fireResponse(new ParsingResult(observationData.get(), new byte[0]));
+                    if (TextUtils.isNullOrEmpty(analysisCode))
+                        analysisCode = sampleId;
+                    observationData.putId(analysisCode);
+                    fireResponse(new ParsingResult(observationData, new byte[0]));
 
                 });
+    }
+
+    @Override
+    protected void parseRecords(byte[] data, int offset, int length) {
+        processor.processFrames(data, offset, length, charset);
+    }
 
-        processor.processFrames(frames);
+    @Override
+    protected void finishMessage() {
+        // результат віддається на L-записі
     }
 
     private void setEnquiry() {
@@ -81,7 +87,7 @@ public class MindrayBS240Vet extends ParserAbstract {
                 id.append("0");
             }
 
-            ASTMOrderBuilder builder = new ASTMOrderBuilder()
+            ASTMOrderBuilder builder = new ASTMOrderBuilder(getCharset())
                     .setMaxFrameSize(2024) // BS-240 використовує 2024!
                     .addHeader(14, header -> {
                         header[1] = "\\^&";
@@ -1,55 +1,156 @@
 package ywh.services.device.protocol;
 
+import ywh.commons.Timers;
 import ywh.services.data.enums.SpecialBytes;
 import ywh.logging.DeviceLogger;
 import ywh.services.device.IPauseTransport;
 
-import java.io.ByteArrayOutputStream;
 import java.time.Duration;
-import java.util.concurrent.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Основа протоколів з буфером кадру.
+ * <p>
+ * Байти від комунікатора і таймер простою працюють з одним {@link FrameBuffer}, тож доступ до нього
+ * іде під {@link #frameLock} — один раз на фрагмент, а не на кожен байт. Підкласи реалізують
+ * {@link #process(byte)} / {@link #process(byte[], int, int)} і вже всередині замка викликають
+ * {@link #append} та {@link #fireFrame()}.
+ * <p>
+ * Протоколи, що знають межі записів, можуть замість цілого кадру віддавати кожен запис
+ * через {@link #fireRecord(int)} — тоді в буфері лишається тільки незавершений запис,
+ * а кінець повідомлення сигналізує {@link #reset()}.
+ */
 public abstract class BufferedProtocolAbstract implements IProtocol, IPauseTransport, AutoCloseable {
 
 
-    protected final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    protected final FrameBuffer buf = new FrameBuffer(FrameBuffer.DEFAULT_MAX_SIZE);
+    private final ReentrantLock frameLock = new ReentrantLock();
     private IFrameListener listener;
+    private IRecordProtocol.IRecordListener recordListener;
+    private boolean messageOpen;   // записи вже віддано, а кінця повідомлення ще не було
     protected ITransport transport;
+    protected volatile FlowControl flowControl;
     protected DeviceLogger logger;
     protected Duration sendPause = Duration.ofMillis(0);
 
 
     /* ─── idle-timeout ─── */
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("proto-idle").factory());
-    private final ScheduledExecutorService sendScheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("proto-send").factory());
+    // таймер взводиться лише коли в буфері є незавершений кадр — простій пристрою нічого не коштує
+    private final AtomicReference<Timers.Timeout> idleTimer = new AtomicReference<>();
+    // відкладені відправки виконуються по черзі, без власного потоку
+    private final Executor sendExecutor = Timers.serialExecutor();
+    private volatile boolean closed;
 
-    private long idleTimeoutMs;
+    private volatile long idleTimeoutMs;
     private volatile long lastByteTs = System.currentTimeMillis();
 
     protected BufferedProtocolAbstract(DeviceLogger logger, long idleTimeoutMs) {
         this.logger = logger;
         this.idleTimeoutMs = idleTimeoutMs;
-        startIdleWatcher();
     }
 
     public BufferedProtocolAbstract(long idleTimeoutMs) {
         this.idleTimeoutMs = idleTimeoutMs;
-        startIdleWatcher();
+    }
+
+    /* ─── вхідні байти ─── */
+    @Override
+    public final void onByte(byte b) {
+        frameLock.lock();
+        try {
+            process(b);
+        } finally {
+            frameLock.unlock();
+        }
+    }
+
+    @Override
+    public final void onBytes(byte[] data, int offset, int length) {
+        frameLock.lock();
+        try {
+            process(data, offset, length);
+        } finally {
+            frameLock.unlock();
+        }
+    }
+
+    /** Обробка одного байта; викликається під замком кадру. */
+    protected abstract void process(byte b);
+
+    /** Обробка фрагмента; за замовчуванням — побайтово. Викликається під замком кадру. */
+    protected void process(byte[] data, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            process(data[i]);
+        }
     }
 
     /* ─── робота з буфером ─── */
     protected void append(byte b) {
-        buf.write(b);
+        if (!buf.append(b)) {
+            discardOversizedFrame(1);
+            return;
+        }
+        touch();
+    }
+
+    protected void append(byte[] data, int offset, int length) {
+        if (length <= 0) return;
+        if (!buf.append(data, offset, length)) {
+            discardOversizedFrame(length);
+            return;
+        }
+        touch();
+    }
+
+    /** Відкидає байти буфера після {@code size}; викликається під замком кадру. */
+    protected void truncate(int size) {
+        buf.truncate(size);
+    }
+
+    private void touch() {
         lastByteTs = System.currentTimeMillis();
+        armIdleTimer(idleTimeoutMs);
     }
 
+    private void discardOversizedFrame(int incoming) {
+        logger.error("Frame exceeds max size of " + buf.maxSize() + " bytes, discarding "
+                + (buf.size() + (long) incoming) + " bytes");
+        reset();
+    }
 
+    /** Передає вміст буфера слухачу ділянкою внутрішнього масиву (без копії) і скидає буфер. */
     protected void fireFrame() {
-        var data = buf.toByteArray();
         if (listener != null) {
-            listener.onFrame(data);
+            listener.onFrame(buf.array(), 0, buf.size());
         }
         reset();
     }
+
+    /** Чи віддаються записи слухачу записів замість цілих кадрів. */
+    protected boolean isRecordMode() {
+        return recordListener != null;
+    }
+
+    /**
+     * Віддає слухачу записів ділянку буфера від {@code from} до кінця і відкидає її.
+     * Без слухача записів нічого не робить — кадр збирається далі.
+     */
+    protected void fireRecord(int from) {
+        IRecordProtocol.IRecordListener l = recordListener;
+        if (l == null || from >= buf.size()) return;
+        messageOpen = true;
+        try {
+            l.onRecord(buf.array(), from, buf.size() - from);
+        } catch (Exception e) {
+            logger.error("Error while processing record", e);
+        }
+        truncate(from);
+    }
+
     @Override
     public CompletableFuture<Void> send(byte[] data) {
         if (transport == null) {
@@ -66,7 +167,7 @@ public abstract class BufferedProtocolAbstract implements IProtocol, IPauseTrans
             }
         } else {
             CompletableFuture<Void> future = new CompletableFuture<>();
-            sendScheduler.schedule(() -> {
+            Timers.schedule(() -> {
                 try {
                     transport.send(data);
                     future.complete(null);
@@ -74,18 +175,43 @@ public abstract class BufferedProtocolAbstract implements IProtocol, IPauseTrans
                     logger.error("Error during delayed send", e);
                     future.completeExceptionally(e);
                 }
-            }, sendPause.toMillis(), TimeUnit.MILLISECONDS);
+            }, sendPause.toMillis(), TimeUnit.MILLISECONDS, sendExecutor);
 
             return future;
         }
     }
+    /**
+     * Відповідь на повідомлення йде в транспорт одразу, а з контролем потоку — коли черга
+     * результатів спаде (або мине найдовше очікування — тоді все одно, щоб аналізатор не повторював повідомлення).
+     */
+    @Override
+    public void sendResponse(byte[] data) {
+        FlowControl fc = flowControl;
+        if (fc == null) {
+            sendResponseNow(data);
+            return;
+        }
+        if (fc.isPaused()) logger.log("Result queue is full, response to analyzer is held back");
+        fc.whenReady(() -> sendResponseNow(data), () -> sendResponseNow(data));
+    }
+
+    private void sendResponseNow(byte[] data) {
+        ITransport t = transport;
+        if (t == null) {
+            logger.error("Transport is not set, cannot send response");
+            return;
+        }
+        t.send(data);
+    }
+
     @Override
     public CompletableFuture<Void> send(byte data) {
-        return send(new byte[]{data});
+        SpecialBytes special = SpecialBytes.of(data);
+        return send(special != null ? special.bytes() : new byte[]{data});
     }
     @Override
     public CompletableFuture<Void> send(SpecialBytes data) {
-        return send(new byte[]{data.getValue()});
+        return send(data.bytes());
     }
 
 
@@ -95,11 +221,40 @@ public abstract class BufferedProtocolAbstract implements IProtocol, IPauseTrans
         this.idleTimeoutMs = idleTimeoutMs;
     }
 
+    @Override
+    public void setMaxFrameSize(int maxFrameSize) {
+        frameLock.lock();
+        try {
+            buf.setMaxSize(maxFrameSize);
+        } finally {
+            frameLock.unlock();
+        }
+    }
+
     @Override
     public void setFrameListener(IFrameListener l) {
         this.listener = l;
     }
 
+    /**
+     * Слухач записів для протоколів, що реалізують {@link IRecordProtocol}
+     * (вони ж викликають {@link #fireRecord(int)}).
+     */
+    public void setRecordListener(IRecordProtocol.IRecordListener listener) {
+        frameLock.lock();
+        try {
+            this.recordListener = listener;
+            messageOpen = false;
+        } finally {
+            frameLock.unlock();
+        }
+    }
+
+    @Override
+    public void setFlowControl(FlowControl flowControl) {
+        this.flowControl = flowControl;
+    }
+
     @Override
     public void setTransport(ITransport transport) {
         this.transport = transport;
@@ -107,7 +262,24 @@ public abstract class BufferedProtocolAbstract implements IProtocol, IPauseTrans
 
     @Override
     public void reset() {
-        buf.reset();
+        frameLock.lock();
+        try {
+            buf.clear();
+            endMessage();
+        } finally {
+            frameLock.unlock();
+        }
+    }
+
+    private void endMessage() {
+        IRecordProtocol.IRecordListener l = recordListener;
+        if (!messageOpen || l == null) return;
+        messageOpen = false;
+        try {
+            l.onMessageEnd();
+        } catch (Exception e) {
+            logger.error("Error while finishing message", e);
+        }
     }
 
     @Override
@@ -118,6 +290,7 @@ public abstract class BufferedProtocolAbstract implements IProtocol, IPauseTrans
     @Override
     public void clearFrameListener() {
         this.listener = null;
+        this.recordListener = null;
     }
 
     @Override
@@ -129,24 +302,42 @@ public abstract class BufferedProtocolAbstract implements IProtocol, IPauseTrans
     public void close() {
         clearFrameListener();
         clearTransport();
-        scheduler.shutdownNow();
+        closed = true;
+        Timers.Timeout timer = idleTimer.getAndSet(null);
+        if (timer != null) timer.cancel();
     }
 
     /* ─── idle-watcher ─── */
-    private void startIdleWatcher() {
-        long idleCheckPeriodMs = 500;
-        scheduler.scheduleWithFixedDelay(() -> {
+    private void armIdleTimer(long delayMs) {
+        if (closed || idleTimer.get() != null) return;
+        Timers.Timeout timer = Timers.schedule(this::checkIdle, delayMs, TimeUnit.MILLISECONDS);
+        if (!idleTimer.compareAndSet(null, timer)) timer.cancel();
+    }
+
+    private void checkIdle() {
+        idleTimer.set(null);
+        if (!frameLock.tryLock()) {
+            // саме зараз обробляється фрагмент — лінія не простоює
+            armIdleTimer(idleTimeoutMs);
+            return;
+        }
+        try {
+            if (buf.isEmpty() && !messageOpen) return; // кадр уже завершено
             long idle = System.currentTimeMillis() - lastByteTs;
-            if (idle >= idleTimeoutMs && buf.size() > 0) {
-                byte[] incomplete = buf.toByteArray();
-                try {
-                    onIdleTimeout(incomplete);
-                } catch (Exception ex) {
-                    logger.error("Error while handling idle timeout", ex);
-                }
-                reset();
+            if (idle < idleTimeoutMs) {
+                // байти ще надходили — чекаємо залишок від останнього
+                armIdleTimer(idleTimeoutMs - idle);
+                return;
             }
-        }, idleTimeoutMs, idleCheckPeriodMs, TimeUnit.MILLISECONDS);
+            try {
+                onIdleTimeout(buf);
+            } catch (Exception ex) {
+                logger.error("Error while handling idle timeout", ex);
+            }
+            reset();
+        } finally {
+            frameLock.unlock();
+        }
     }
 
     @Override
@@ -160,9 +351,15 @@ public abstract class BufferedProtocolAbstract implements IProtocol, IPauseTrans
      */
     //TODO добавить попытку парсить незавершённые байты
 
-    protected void onIdleTimeout(byte[] incompleteFrame) {
-        logger.log("Incomplete frame detected, " + incompleteFrame.length + " bytes. Will try to parse it anyway...");
-        if (incompleteFrame.length < 50) return;
+    protected void onIdleTimeout(FrameBuffer incompleteFrame) {
+        if (isRecordMode()) {
+            // записи вже віддано; незавершений відкидається, повідомлення закриє reset()
+            logger.log("Message is not finished within idle timeout, "
+                    + incompleteFrame.size() + " bytes of unfinished record dropped");
+            return;
+        }
+        logger.log("Incomplete frame detected, " + incompleteFrame.size() + " bytes. Will try to parse it anyway...");
+        if (incompleteFrame.size() < 50) return;
         fireFrame();
     }
 }
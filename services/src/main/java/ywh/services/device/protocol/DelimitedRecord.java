@@ -0,0 +1,129 @@
+package ywh.services.device.protocol;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Запис текстового протоколу з роздільниками (ASTM, HL7) поверх сирого буфера повідомлення — без копіювання.
+ * <p>
+ * Межі полів індексуються один раз, рядки декодуються лише для тих полів, які запитали.
+ * Нумерація полів як у {@code split("\\|")}: {@code field(0)} — тип запису, {@code field(1)} — наступне поле.
+ * Екземпляр перевикористовується для наступного запису — не зберігати його поза обробником.
+ */
+public abstract class DelimitedRecord {
+
+    /*────────────── поля ──────────────*/
+    protected byte[] data;
+    protected int start;
+    protected int end;
+    private Charset charset;
+    private byte componentDelimiter;
+    private byte repeatDelimiter;
+
+    // bounds[i] — позиція роздільника перед полем i (для поля 0 — start - 1), bounds[count] — end
+    private int[] bounds = new int[32];
+    private int count;
+    private String[] decoded = new String[32];
+
+    protected DelimitedRecord() {
+    }
+
+    /*────────────── індексація (підклас для свого процесора) ──────────────*/
+
+    protected void indexFields(byte[] data, int start, int end, Charset charset,
+                               byte fieldDelimiter, byte repeatDelimiter, byte componentDelimiter) {
+        this.data = data;
+        this.start = start;
+        this.end = end;
+        this.charset = charset;
+        this.repeatDelimiter = repeatDelimiter;
+        this.componentDelimiter = componentDelimiter;
+
+        int n = 0;
+        bounds[n++] = start - 1;
+        for (int i = start; i < end; i++) {
+            if (data[i] == fieldDelimiter) {
+                if (n == bounds.length) bounds = Arrays.copyOf(bounds, n * 2);
+                bounds[n++] = i;
+            }
+        }
+        if (n == bounds.length) bounds = Arrays.copyOf(bounds, n * 2);
+        bounds[n] = end;
+        count = n;
+        if (decoded.length < count) decoded = new String[bounds.length];
+        Arrays.fill(decoded, 0, count, null);
+    }
+
+    /*────────────── читання ──────────────*/
+
+    public int fieldCount() {
+        return count;
+    }
+
+    /** Поле за номером; відсутнє — порожній рядок. */
+    public String field(int index) {
+        if (index < 0 || index >= count) return "";
+        String s = decoded[index];
+        if (s == null) {
+            int from = bounds[index] + 1;
+            s = new String(data, from, bounds[index + 1] - from, charset);
+            decoded[index] = s;
+        }
+        return s;
+    }
+
+    /** Компонент поля (роздільник компонентів із заголовка повідомлення, зазвичай {@code ^}); відсутній — порожній рядок. */
+    public String component(int field, int index) {
+        if (field < 0 || field >= count || index < 0) return "";
+        int from = bounds[field] + 1;
+        int to = bounds[field + 1];
+        for (int i = from, n = 0; i <= to; i++) {
+            if (i == to || data[i] == componentDelimiter) {
+                if (n++ == index) return new String(data, from, i - from, charset);
+                from = i + 1;
+            }
+        }
+        return "";
+    }
+
+    /** Повтори поля (роздільник повторів із заголовка повідомлення); порожні в кінці відкидаються, як у {@code split}. */
+    public String[] repeats(int field) {
+        return split(field, repeatDelimiter);
+    }
+
+    public boolean isEmpty(int field) {
+        return field < 0 || field >= count || bounds[field + 1] - bounds[field] == 1;
+    }
+
+    /** Усі поля рядками — сумісно з {@code split("\\|")} (порожні в кінці відкидаються). */
+    public String[] toArray() {
+        int n = count;
+        while (n > 1 && isEmpty(n - 1)) n--;
+        String[] parts = new String[n];
+        for (int i = 0; i < n; i++) parts[i] = field(i);
+        return parts;
+    }
+
+    @Override
+    public String toString() {
+        return new String(data, start, end - start, charset);
+    }
+
+    private String[] split(int field, byte delimiter) {
+        if (field < 0 || field >= count) return new String[]{""};
+        int from = bounds[field] + 1;
+        int to = bounds[field + 1];
+        int pieces = 1;
+        for (int i = from; i < to; i++) if (data[i] == delimiter) pieces++;
+        String[] out = new String[pieces];
+        int n = 0;
+        for (int i = from; i <= to; i++) {
+            if (i == to || data[i] == delimiter) {
+                out[n++] = new String(data, from, i - from, charset);
+                from = i + 1;
+            }
+        }
+        while (n > 1 && out[n - 1].isEmpty()) n--;
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+}
@@ -0,0 +1,132 @@
+package ywh.services.device.protocol;
+
+import ywh.commons.Timers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Контроль потоку від черги результатів до аналізатора.
+ * <p>
+ * Поки необроблених результатів не менше за верхню межу, протокол притримує підтвердження
+ * (ACK на ENQ в ASTM, ACK на повідомлення в HL7) — аналізатор не передає далі і чекає або
+ * повторює сам. Пропускати знову починаємо, коли черга спала до нижньої межі (гістерезис,
+ * щоб не перемикатися на кожному результаті). Притримане підтвердження довше за
+ * {@code maxWaitMs} не чекає — раніше, ніж у аналізатора спрацює власний тайм-аут.
+ * <p>
+ * Притримані дії виконуються в порядку постановки, у потоці таймера. Під замком лише вирішується,
+ * які дії вже можна виконати, самі дії запускаються після нього — дія, що звертається до протоколу
+ * чи транспорту, не тримає монітор. Поки відпущені дії виконуються, нові теж стають у чергу,
+ * щоб не обігнати їх.
+ */
+public final class FlowControl {
+    private static final long POLL_MS = 200;
+
+    private record Waiter(Runnable ready, Runnable expired, long deadline) {
+    }
+
+    /*────────────── поля ──────────────*/
+    private final IntSupplier backlog;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final long maxWaitMs;
+
+    // під this
+    private final Queue<Waiter> waiting = new ArrayDeque<>();
+    private boolean paused;
+    private boolean polling;
+    private boolean releasing;              // відпущені дії ще виконуються поза замком
+
+    /**
+     * @param backlog       поточна кількість необроблених результатів
+     * @param highWatermark від скількох результатів притримувати підтвердження
+     * @param lowWatermark  до скількох має спасти черга, щоб знову пропускати
+     * @param maxWaitMs     найдовше очікування одного підтвердження
+     */
+    public FlowControl(IntSupplier backlog, int highWatermark, int lowWatermark, long maxWaitMs) {
+        if (lowWatermark < 0 || lowWatermark >= highWatermark) {
+            throw new IllegalArgumentException("0 <= lowWatermark < highWatermark required");
+        }
+        this.backlog = backlog;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /** Чи треба зараз притримувати підтвердження. */
+    public synchronized boolean isPaused() {
+        int depth = backlog.getAsInt();
+        if (paused) {
+            if (depth <= lowWatermark) paused = false;
+        } else if (depth >= highWatermark) {
+            paused = true;
+        }
+        return paused;
+    }
+
+    /**
+     * Виконує {@code ready} одразу, якщо черга не переповнена і ніхто не чекає раніше;
+     * інакше — коли черга спаде до нижньої межі. Якщо за {@code maxWaitMs} не спала — {@code expired}.
+     */
+    public void whenReady(Runnable ready, Runnable expired) {
+        synchronized (this) {
+            if (!waiting.isEmpty() || releasing || isPaused()) {
+                waiting.add(new Waiter(ready, expired, System.currentTimeMillis() + maxWaitMs));
+                schedulePoll();
+                return;
+            }
+        }
+        ready.run();
+    }
+
+    private void schedulePoll() {
+        if (polling) return;
+        polling = true;
+        Timers.schedule(this::poll, POLL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        List<Runnable> due;
+        synchronized (this) {
+            polling = false;
+            due = takeDue();
+        }
+        while (!due.isEmpty()) {
+            for (Runnable action : due) {
+                try {
+                    action.run();
+                } catch (RuntimeException ignored) {
+                    // дія логує сама; решта черги не повинна застрягти
+                }
+            }
+            synchronized (this) {
+                due = takeDue();
+            }
+        }
+    }
+
+    /** Знімає з черги дії, які вже можна виконати (під this); порожній список — відпускання закінчено. */
+    private List<Runnable> takeDue() {
+        boolean resumed = !isPaused();
+        long now = System.currentTimeMillis();
+        List<Runnable> due = new ArrayList<>();
+        while (!waiting.isEmpty()) {
+            Waiter head = waiting.peek();
+            if (!resumed && head.deadline() > now) break;
+            waiting.poll();
+            due.add(resumed ? head.ready() : head.expired());
+        }
+        releasing = !due.isEmpty();
+        if (!releasing && !waiting.isEmpty()) schedulePoll();
+        return due;
+    }
+
+    /** Скільки підтверджень зараз притримано. */
+    public synchronized int waitingCount() {
+        return waiting.size();
+    }
+}
@@ -0,0 +1,115 @@
+package ywh.services.device.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Буфер кадру, який наповнює протокол.
+ * <p>
+ * • без синхронізації: пише лише {@link BufferedProtocolAbstract} під своїм замком, по одному разу на фрагмент;<br>
+ * • масив переживає кадри — після {@link #clear()} ємність зберігається, тож у сталому режимі алокацій немає;<br>
+ * • назовні (стратегіям, слухачам) — лише читання: байт за індексом, порівняння ділянок, read-only {@link ByteBuffer}.
+ */
+public final class FrameBuffer {
+
+    /*────────────── статичне ──────────────*/
+    public static final int DEFAULT_MAX_SIZE = 16 << 20;
+    private static final int INITIAL_CAPACITY = 1024;
+    // після кадру, більшого за це, масив повертається до початкового розміру
+    private static final int RETAINED_CAPACITY = 256 << 10;
+
+    /*────────────── поля ──────────────*/
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int size;
+    private int maxSize;
+
+    /*────────────── ctor ──────────────*/
+    FrameBuffer(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    /*────────────── читання ──────────────*/
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public byte get(int index) {
+        Objects.checkIndex(index, size);
+        return data[index];
+    }
+
+    /** Чи збігаються байти з позиції {@code offset} з {@code pattern}; ділянка поза буфером — {@code false}. */
+    public boolean regionMatches(int offset, byte[] pattern) {
+        if (offset < 0 || offset + pattern.length > size) return false;
+        return Arrays.equals(data, offset, offset + pattern.length, pattern, 0, pattern.length);
+    }
+
+    public boolean endsWith(byte[] pattern) {
+        return regionMatches(size - pattern.length, pattern);
+    }
+
+    /** Read-only вікно на поточний вміст; дійсне лише до наступної зміни буфера. */
+    public ByteBuffer view() {
+        return ByteBuffer.wrap(data, 0, size).slice().asReadOnlyBuffer();
+    }
+
+    /** Копія вмісту — для тих, кому кадр потрібен після скидання буфера. */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    /*────────────── запис (лише протокол) ──────────────*/
+
+    /** @return {@code false}, якщо кадр перевищив би {@link #maxSize()} — тоді нічого не додано */
+    boolean append(byte b) {
+        if (size >= maxSize) return false;
+        if (size == data.length) grow(1);
+        data[size++] = b;
+        return true;
+    }
+
+    boolean append(byte[] src, int offset, int length) {
+        if ((long) size + length > maxSize) return false;
+        if (size + length > data.length) grow(length);
+        System.arraycopy(src, offset, data, size, length);
+        size += length;
+        return true;
+    }
+
+    /** Відкидає все після {@code newSize} байт — напр., текст кадру, який не пройшов перевірку. */
+    void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) throw new IllegalArgumentException("newSize out of range: " + newSize);
+        size = newSize;
+    }
+
+    void clear() {
+        size = 0;
+        if (data.length > RETAINED_CAPACITY) data = new byte[INITIAL_CAPACITY];
+    }
+
+    void setMaxSize(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be > 0");
+        this.maxSize = maxSize;
+    }
+
+    /** Внутрішній масив для передачі кадру слухачу без копіювання; дійсні лише перші {@link #size()} байт. */
+    byte[] array() {
+        return data;
+    }
+
+    private void grow(int extra) {
+        int required = size + extra;
+        int capacity = (int) Math.min(maxSize, Math.max(required, (long) data.length * 2));
+        data = Arrays.copyOf(data, capacity);
+    }
+}
@@ -2,18 +2,56 @@ package ywh.services.device.protocol;
 
 import ywh.logging.DeviceLogger;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 
 /** Відповідає лише за формування кадрів. */
 public interface IProtocol {
 
     /** Викликається Communicator'ом для кожного отриманого байта. */
     void onByte(byte b);
+
+    /**
+     * Пакетний варіант {@link #onByte(byte)} — фрагмент, прочитаний з порту за один раз.
+     * Протоколи перевизначають його, щоб шукати роздільники в одному циклі
+     * і додавати дані в буфер цілими шматками.
+     */
+    default void onBytes(byte[] data, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            onByte(data[i]);
+        }
+    }
+
+    default void onBytes(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            onBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        } else {
+            byte[] copy = new byte[buffer.remaining()];
+            buffer.get(copy);
+            onBytes(copy, 0, copy.length);
+        }
+    }
+
     void setIdleTimeoutMs(long idleTimeoutMs);
 
+    /** Найбільший допустимий кадр; довший відкидається, щоб сміття на лінії не з'їло пам'ять. */
+    void setMaxFrameSize(int maxFrameSize);
+
     /** Слухач завершених кадрів. */
     @FunctionalInterface
     interface IFrameListener {
         void onFrame(byte[] frame);
+
+        /**
+         * Кадр як ділянка буфера протоколу — дійсна лише під час виклику.
+         * За замовчуванням копіюється в {@link #onFrame(byte[])}; слухачі, яким кадр
+         * не потрібен після повернення, перевизначають цей метод і обходяться без копії.
+         */
+        default void onFrame(byte[] data, int offset, int length) {
+            onFrame(Arrays.copyOfRange(data, offset, offset + length));
+        }
     }
 
     @FunctionalInterface
@@ -30,6 +68,15 @@ public interface IProtocol {
     /** Реєстрація слухача. */
     void setFrameListener(IFrameListener listener);
 
+    /**
+     * Відповідь пристрою на прийняте повідомлення (напр. HL7 ACK від парсера).
+     * З контролем потоку протокол може її притримати, поки черга результатів переповнена.
+     */
+    void sendResponse(byte[] data);
+
+    /** Контроль потоку; {@code null} — підтвердження не притримуються. */
+    void setFlowControl(FlowControl flowControl);
+
     /** Скидання внутрішнього стану (за потреби). */
     void reset();
 
@@ -0,0 +1,24 @@
+package ywh.services.device.protocol;
+
+/**
+ * Протокол, що вміє віддавати повідомлення по записах (запис ASTM, сегмент HL7) —
+ * кожен, щойно завершився, не чекаючи кінця всього повідомлення.
+ * Протоколи без цього інтерфейсу віддають лише цілі кадри ({@link IProtocol#setFrameListener}).
+ */
+public interface IRecordProtocol extends IProtocol {
+
+    /** Слухач записів. */
+    interface IRecordListener {
+        /** Один або кілька завершених записів як ділянка буфера протоколу — дійсна лише під час виклику. */
+        void onRecord(byte[] data, int offset, int length);
+
+        /** Повідомлення закінчилось (EOT / FS, тай-аут простою або скидання протоколу). */
+        void onMessageEnd();
+    }
+
+    /**
+     * Реєстрація слухача записів. Поки він встановлений, протокол тримає в буфері лише
+     * незавершений запис, а слухач кадрів не викликається.
+     */
+    void setRecordListener(IRecordListener listener);
+}
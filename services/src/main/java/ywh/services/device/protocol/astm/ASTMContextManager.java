@@ -1,14 +1,27 @@
 package ywh.services.device.protocol.astm;
 
+import ywh.commons.Timers;
 import ywh.logging.DeviceLogger;
 import ywh.services.device.IPauseTransport;
 
-import java.util.concurrent.*;
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static ywh.services.data.enums.SpecialBytes.*;
 
+/**
+ * Стан лінії ASTM і відправка замовлень хоста.
+ * <p>
+ * Замовлення стартують за подією, а не за опитуванням: щойно замовлення стало в чергу або лінія
+ * звільнилась (EOT аналізатора, кінець нашої передачі, NAK, тайм-аут), {@link #dispatch()} шле ENQ
+ * для першого з {@link ASTMOrderQueue} (STAT — поперед рутинних). Тайм-аут відповіді — окремий
+ * таймер, від черги він не залежить.
+ */
 public class ASTMContextManager {
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration RETRY_DELAY = Duration.ofMillis(300);
+    private static final int MAX_TRIES = 7;
+
     private enum State {
         SENDER,
         RECEIVER,
@@ -16,9 +29,10 @@ public class ASTMContextManager {
     }
 
     private DeviceLogger logger;
-    private final BlockingQueue<ASTMOrder> ordersQueue = new LinkedBlockingQueue<>(50);
-    private final ScheduledExecutorService ordersScheduler;
-    private final AtomicReference<ScheduledFuture<?>> timeoutTask = new AtomicReference<>(null);
+    private final ASTMOrderQueue ordersQueue = new ASTMOrderQueue();
+    private final AtomicReference<Timers.Timeout> retryTask = new AtomicReference<>(null);
+    private final AtomicReference<Timers.Timeout> timeoutTask = new AtomicReference<>(null);
+    private volatile boolean closed = false;
     private final AtomicReference<ASTMOrder> currentOrder = new AtomicReference<>();
     private volatile State state = State.NEUTRAL;
     private final IPauseTransport transport;
@@ -26,18 +40,10 @@ public class ASTMContextManager {
     public ASTMContextManager(DeviceLogger logger, IPauseTransport transport) {
         this.logger = logger;
         this.transport = transport;
-        this.ordersScheduler = Executors.newSingleThreadScheduledExecutor(
-                Thread.ofVirtual().name("astm-orders").factory()
-        );
-       // startOrdersScheduler();
     }
 
     protected void setLogger(DeviceLogger logger) {
         this.logger = logger;
-        if (ordersScheduler != null && !ordersScheduler.isShutdown()) {
-            cancelTimeout();
-            startOrdersScheduler();
-        }
     }
 
     protected void clearCurrentOrder() {
@@ -97,6 +103,11 @@ public class ASTMContextManager {
         transport.send(ACK).thenRun(() -> logger.log("HOST ----------> [ACK]"));
     }
 
+    protected void sendNAK(Runnable runnable) {
+        runnable.run();
+        transport.send(NAK).thenRun(() -> logger.log("HOST ----------> [NAK]"));
+    }
+
     protected void sendENQ() {
         transport.send(ENQ).thenRun(() -> logger.log("HOST ----------> [ENQ]"));
     }
@@ -112,113 +123,157 @@ public class ASTMContextManager {
                 logger.log("Order failed, on part: " + (order.getCurrentIndex() + 1));
                 currentOrder.set(null);
                 sendEOT();
+                dispatch();
             } else {
                 order.incrementTryIndex();
                 logger.log("NAK received, incremented try index to: " + order.getTryIndex());
+                scheduleRetry();
             }
         } else {
             logger.log("Received NAK but no current order exists");
         }
     }
 
-    protected void addOrderToQueue(ASTMOrder order) {
-        if (!ordersQueue.offer(order)) {
-            logger.log("Orders queue is full, order rejected");
+    /** @return {@code false}, якщо доріжка замовлення переповнена і його відкинуто */
+    protected boolean addOrderToQueue(ASTMOrder order) {
+        String specimen = order.getSpecimenId().isEmpty() ? "" : " for [" + order.getSpecimenId() + "]";
+        switch (ordersQueue.offer(order)) {
+            case QUEUED -> logger.log("Order" + specimen + " queued, priority " + order.getPriority());
+            case REPLACED -> logger.log("Order" + specimen + " replaced the one already waiting in queue");
+            case REJECTED -> {
+                logger.error("Orders queue is full, order" + specimen + " rejected");
+                return false;
+            }
+        }
+        dispatch();
+        return true;
+    }
+
+    /** Лінію звільнив аналізатор (EOT) — можна починати наступне замовлення. */
+    protected void releaseLine() {
+        setNeutral();
+        cancelTimeout();
+        dispatch();
+    }
+
+    /**
+     * Аналізатор почав передачу (ENQ). Якщо ми саме чекали відповіді на свій ENQ — поступаємось:
+     * замовлення лишається поточним і піде заново, коли лінія звільниться.
+     */
+    protected void yieldLine() {
+        if (isSender()) {
+            cancelTimeout();
+            ASTMOrder order = currentOrder.get();
+            if (order != null) order.reset();
+            logger.log("Line contention, host order postponed");
         }
+        setReceiver();
+    }
+
+    /**
+     * Починає передачу поточного або наступного замовлення, якщо лінія вільна.
+     * Викликається на кожну подію, після якої це могло стати можливим; зайвий виклик нічого не робить.
+     */
+    protected void dispatch() {
+        ASTMOrder order;
+        boolean fresh = false;
+        synchronized (this) {
+            if (closed || isNotNeutral()) return;
+            order = currentOrder.get();
+            if (order != null && order.getTryIndex() >= MAX_TRIES) {
+                logger.log("Order failed after " + (MAX_TRIES - 1) + " attempts... State is NEUTRAL... Order deleted");
+                currentOrder.set(null);
+                order = null;
+            }
+            if (order == null) {
+                order = ordersQueue.poll();
+                if (order == null) return;
+                currentOrder.set(order);
+                fresh = true;
+            } else {
+                logger.log("Retrying to send order for " + order.getTryIndex() + " time");
+            }
+            setSender();
+            // тайм-аут — до ENQ: швидкий ACK і відправка однокадрового замовлення мають застати вже взведений
+            // таймер і скасувати його, а не отримати новий для замовлення, якого вже немає
+            startTimeout();
+            sendENQ();
+        }
+        if (fresh) {
+            logger.log("Found order in queue, ENQ sent");
+            // повний дамп — поза замком і після ENQ; текст і HEX будуються, лише якщо DEBUG увімкнено
+            ASTMOrder sent = order;
+            logger.debug(() -> "Full order is: \r\n" + sent.getFullOrder());
+            logger.debug(() -> "Full HEX order is: \r\n" + sent.getFullHexOrder());
+        }
+    }
+
+    private void scheduleRetry() {
+        if (closed) return;
+        Timers.Timeout previous = retryTask.getAndSet(Timers.schedule(this::dispatch, RETRY_DELAY));
+        if (previous != null) previous.cancel();
     }
 
     protected void sendNextFrame(Runnable runnable) {
         runnable.run();
         if (hasNoCurrentOrder()) return;
 
-        String frame = currentOrder.get().getNextFrame().orElse("");
-        setNeutral();
+        ASTMOrder order = currentOrder.get();
+        byte[] frame = order.getNextFrame().orElse(new byte[0]);
 
-        if (frame.isEmpty()) {
+        if (frame.length == 0) {
             logger.log("Got empty frame, order failed..... State is NEUTRAL.");
             logger.writeSeparator();
             cancelTimeout();
+            clearCurrentOrder();
+            setNeutral();
+            dispatch();
             return;
         }
 
-        logger.log("HOST ----------> " + frame);
-        transport.send(frame.getBytes());
+        logger.log("HOST ----------> " + order.toText(frame));
+        transport.send(frame);
 
-        if (currentOrder.get().hasNoNextFrame()) {
+        if (order.hasNoNextFrame()) {
             logger.log("Order send successfully. State is NEUTRAL.");
             cancelTimeout();
             clearCurrentOrder();
+            setNeutral();
+            dispatch();
         } else {
-            setSender();
             startTimeout();
         }
     }
-    private volatile boolean schedulerStarted = false;
-
-    protected boolean isSchedulerStarted() {
-        return schedulerStarted;
+    private void startTimeout() {
+        Timers.Timeout previous = timeoutTask.getAndSet(Timers.schedule(this::onResponseTimeout, RESPONSE_TIMEOUT));
+        if (previous != null) previous.cancel();
     }
 
-    protected void startOrdersScheduler() {
-        if (schedulerStarted) {
-            return;
+    private void onResponseTimeout() {
+        logger.log("No answer from host for 10 sec, will try later..");
+        ASTMOrder order = currentOrder.get();
+        if (order != null) {
+            order.reset();
+            order.incrementTryIndex();
         }
-        schedulerStarted = true;
-        ordersScheduler.scheduleWithFixedDelay(() -> {
-            if (isSender()) return;
-
-            try {
-                if (currentOrder.get() == null) {
-                    currentOrder.set(ordersQueue.take());
-                    logger.log("Found order in queue, sending ENQ...");
-                    logger.log("Full order is: \r\n" + currentOrder.get().getFullOrder());
-                    logger.log("Full HEX order is: \r\n" + currentOrder.get().getFullHexOrder());
-                } else {
-                    if (currentOrder.get().getTryIndex() >= 7) {
-                        logger.log("Order failed after 6 attempts... State is NEUTRAL... Order deleted");
-                        cancelTimeout();
-                        currentOrder.set(null);
-                        return;
-                    }
-                    logger.log("Retrying to send order for " + currentOrder.get().getTryIndex() + " time");
-                }
-                sendENQ();
-                setSender();
-                startTimeout();
-            } catch (InterruptedException e) {
-                logger.error("Error while processing orders queue", e);
-                Thread.currentThread().interrupt();
-            }
-        }, 5000, 300, TimeUnit.MILLISECONDS);
-    }
-
-    private void startTimeout() {
-        cancelTimeout();
-        timeoutTask.set(ordersScheduler.schedule(() -> {
-            logger.log("No answer from host for 10 sec, will try later..");
-            if (currentOrder.get() != null) {
-                currentOrder.get().reset();
-            }
-            sendEOT();
-            setNeutral();
-        }, 10, TimeUnit.SECONDS));
+        sendEOT();
+        setNeutral();
+        scheduleRetry();
     }
 
     protected void cancelTimeout() {
-        ScheduledFuture<?> task = timeoutTask.get();
+        Timers.Timeout task = timeoutTask.getAndSet(null);
         if (task != null) {
-            task.cancel(false);
-            timeoutTask.set(null);
+            task.cancel();
         }
     }
 
     protected void close() {
         logger.log("Closing ASTM Protocol Context...");
 
-        if (!ordersScheduler.isShutdown()) {
-            ordersScheduler.shutdownNow();
-            logger.log("Orders scheduler shut down");
-        }
+        closed = true;
+        Timers.Timeout retry = retryTask.getAndSet(null);
+        if (retry != null) retry.cancel();
 
         cancelTimeout();
         currentOrder.set(null);
@@ -4,14 +4,32 @@ package ywh.services.device.protocol.astm;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.ArrayList;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * Готове замовлення хоста: кадри вже закодовані (див. {@link ASTMOrderBuilder}) і не змінюються,
+ * тож відправка і повтори шлють ті самі масиви. Текст і HEX потрібні лише для логу й
+ * рендеряться на запит.
+ */
 public class ASTMOrder {
-    private final List<String> frames;
+    /** Доріжка в черзі хоста: STAT/CITO ідуть поперед рутинних. */
+    public enum Priority {
+        STAT,
+        ROUTINE
+    }
+
+    private final List<byte[]> frames;
+    private final Charset charset;
+    // ID зразка (або кількох, через кому) — нове замовлення на той самий зразок замінює чергове
+    @Getter
+    private String specimenId = "";
+    @Getter
+    private Priority priority = Priority.ROUTINE;
     @Getter
     private int currentIndex = 0;
     @Getter @Setter
@@ -21,9 +39,25 @@ public class ASTMOrder {
         tryIndex++;
     }
 
-    public ASTMOrder(List<String> frames) {
-        this.frames = new ArrayList<>(frames);
+    public ASTMOrder(List<byte[]> frames, Charset charset) {
+        this.frames = List.copyOf(frames);
+        this.charset = charset;
+    }
+
+    /** Замовлення з уже готових текстових кадрів (з STX/ETX і сумою) — для ручних і тестових замовлень. */
+    public static ASTMOrder of(Charset charset, String... frames) {
+        return new ASTMOrder(Arrays.stream(frames).map(frame -> frame.getBytes(charset)).toList(), charset);
     }
+    public ASTMOrder forSpecimen(String specimenId) {
+        this.specimenId = specimenId == null ? "" : specimenId;
+        return this;
+    }
+
+    public ASTMOrder withPriority(Priority priority) {
+        this.priority = priority;
+        return this;
+    }
+
     boolean hasNextFrame() {
         return currentIndex < frames.size();
     }
@@ -35,7 +69,8 @@ public class ASTMOrder {
         return currentIndex == frames.size();
     }
 
-    public Optional<String> getNextFrame() {
+    /** Наступний кадр; масив спільний з замовленням — не змінювати. */
+    public Optional<byte[]> getNextFrame() {
         if (currentIndex < frames.size()) {
             return Optional.ofNullable(frames.get(currentIndex++));
         }
@@ -44,8 +79,8 @@ public class ASTMOrder {
 
     public String getFullOrder() {
         StringBuilder sb = new StringBuilder();
-        for (String frame : frames) {
-            sb.append(frame);
+        for (byte[] frame : frames) {
+            sb.append(new String(frame, charset));
         }
         return sb.toString();
     }
@@ -54,10 +89,15 @@ public class ASTMOrder {
         HexFormat hex = HexFormat.of().withUpperCase().withDelimiter(" ");
 
         return frames.stream()
-                .map(frame -> hex.formatHex(frame.getBytes()))
+                .map(hex::formatHex)
                 .collect(Collectors.joining(" "));
     }
 
+    /** Текст кадру для логу. */
+    public String toText(byte[] frame) {
+        return new String(frame, charset);
+    }
+
     public void reset() {
         currentIndex = 0;
     }
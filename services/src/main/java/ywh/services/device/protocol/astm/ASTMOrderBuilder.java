@@ -1,55 +1,84 @@
 package ywh.services.device.protocol.astm;
-import lombok.Getter;
 import ywh.services.data.enums.SpecialBytes;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static ywh.services.data.enums.SpecialBytes.*;
 
+/**
+ * Будує замовлення ASTM одразу в байтах: текст полів кодується в кодуванні парсера,
+ * контрольна сума рахується по цих самих байтах під час запису, а готові кадри
+ * {@code <STX> FN text <ETB|ETX> C1 C2 <CR><LF>} потрапляють в {@link ASTMOrder} як незмінні масиви —
+ * відправка і повтори нічого не перекодовують.
+ */
 public class ASTMOrderBuilder {
-    @Getter
-    private final List<String> astmPreparedOrderParts = new ArrayList<>();
-    private final StringBuilder fullFrame = new StringBuilder();
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private final Charset charset;
+    private final List<byte[]> astmPreparedOrderParts = new ArrayList<>();
+    // поточний кадр: STX, номер, текст; checksum — сума байтів після STX
+    private byte[] fullFrame = new byte[256];
+    private int frameSize;
+    private int checksum;
     private int fn = 1;
     private boolean byLineMode = false;
     private boolean skipCRafterETX = false; // Режим без CR перед ETX/ETB (для MIURA)
     private int maxFrameSize = 220; // Значення за замовчуванням
 
     private void initializeFrame() {
-        fullFrame.setLength(0);
         fn = 1;
-        fullFrame.append(STX).append(fn);
+        startFrame();
+    }
+
+    private void startFrame() {
+        frameSize = 0;
+        checksum = 0;
+        fullFrame[frameSize++] = STX.getValue();
+        put((byte) ('0' + fn));
+    }
+
+    /** Байт кадру, що входить у контрольну суму. */
+    private void put(byte b) {
+        if (frameSize == fullFrame.length) fullFrame = Arrays.copyOf(fullFrame, frameSize * 2);
+        fullFrame[frameSize++] = b;
+        checksum += b & 0xFF;
+    }
+
+    private void put(SpecialBytes specialByte) {
+        put(specialByte.getValue());
     }
 
     private void addFrame(SpecialBytes specialByte) {
         if (skipCRafterETX || specialByte == ETB) {
             // Режим MIURA - без CR перед символом
-            fullFrame.append(specialByte);
+            put(specialByte);
         } else {
             // Стандартний режим - з CR перед символом
-            fullFrame.append(CR).append(specialByte);
+            put(CR);
+            put(specialByte);
         }
         appendWithCheckSum();
     }
 
     private void appendWithCheckSum() {
-        String checkSum = getResponseCheckSum(fullFrame.toString());
-        fullFrame.append(checkSum).append(CR).append(LF);
-        astmPreparedOrderParts.add(fullFrame.toString());
-        fullFrame.setLength(0);
-
-        if (fn + 1 >= 8) {
-            fn = 0;
-        } else {
-            fn++;
-        }
-        fullFrame.append(STX).append(fn);
+        int sum = checksum & 0xFF;
+        byte[] frame = Arrays.copyOf(fullFrame, frameSize + 4);
+        frame[frameSize] = HEX_DIGITS[sum >> 4];
+        frame[frameSize + 1] = HEX_DIGITS[sum & 0x0F];
+        frame[frameSize + 2] = CR.getValue();
+        frame[frameSize + 3] = LF.getValue();
+        astmPreparedOrderParts.add(frame);
+
+        fn = (fn + 1) & 7;
+        startFrame();
     }
 
     private void buildAndProcessFrame(String[] frame) {
@@ -62,15 +91,14 @@ public class ASTMOrderBuilder {
 
     private void buildAndAddFrameByLine(String[] frame) {
         for (int i = 0; i < frame.length; i++) {
-            char[] frameChars = frame[i].toCharArray();
-            for (char frameChar : frameChars) {
-                fullFrame.append(frameChar);
-                if (fullFrame.length() >= maxFrameSize) {
+            for (byte b : frame[i].getBytes(charset)) {
+                put(b);
+                if (frameSize >= maxFrameSize) {
                     addFrame(ETB);
                 }
             }
             if (i < frame.length - 1) {
-                fullFrame.append("|");
+                put((byte) '|');
             }
         }
         addFrame(ETX);
@@ -78,23 +106,17 @@ public class ASTMOrderBuilder {
 
     private void buildAndAddFrame(String[] frame) {
         for (int i = 0; i < frame.length; i++) {
-            fullFrame.append(frame[i]);
+            for (byte b : frame[i].getBytes(charset)) put(b);
             if (i < frame.length - 1) {
-                fullFrame.append("|");
-                if (fullFrame.length() >= maxFrameSize) {
-                    fullFrame.append(CR).append(ETB);
+                put((byte) '|');
+                if (frameSize >= maxFrameSize) {
+                    put(CR);
+                    put(ETB);
                     appendWithCheckSum();
                 }
             }
         }
-        fullFrame.append(CR);
-    }
-
-    private static String getResponseCheckSum(String response) {
-        byte[] check = response.getBytes();
-        int checksum = IntStream.range(1, check.length).map(i -> check[i]).sum();
-        checksum = checksum % 256;
-        return String.format("%02X", checksum);
+        put(CR);
     }
 
     private static String[] getEmptyArray(int size) {
@@ -104,7 +126,13 @@ public class ASTMOrderBuilder {
     }
 
     // Публічні методи білдера
-    public ASTMOrderBuilder() {
+
+    /**
+     * @param charset кодування тексту кадрів — те, що оголошене в парсері ({@code getCharset()});
+     *                кодування платформи тут не підходить — аналізатор його не знає
+     */
+    public ASTMOrderBuilder(Charset charset) {
+        this.charset = Objects.requireNonNull(charset, "charset");
         initializeFrame();
     }
 
@@ -266,20 +294,14 @@ public class ASTMOrderBuilder {
      * Завершує будування та повертає готову модель
      */
     public ASTMOrder buildWithEOT() {
-        if (!byLineMode && !fullFrame.isEmpty()) {
-            fullFrame.append(ETX);
+        if (!byLineMode) {
+            put(ETX);
             appendWithCheckSum();
-            fn = 1;
-            fullFrame.setLength(0);
         }
-        astmPreparedOrderParts.add(EOT.toString());
-   /*     for (int i = 0; i < astmPreparedOrderParts.size(); i++) {
-            System.out.println("----------");
-            System.out.println("part " + i);
-            System.out.println(astmPreparedOrderParts.get(i).replace("\r", "\n"));
-            System.out.println("----------");
-        }*/
-        return new ASTMOrder(astmPreparedOrderParts);
+        astmPreparedOrderParts.add(EOT.bytes());
+        ASTMOrder order = new ASTMOrder(astmPreparedOrderParts, charset);
+        initializeFrame();
+        return order;
     }
 
     /**
@@ -295,7 +317,7 @@ public class ASTMOrderBuilder {
      * Повертає поточний список частин фрейму (для відладки)
      */
     public List<String> getCurrentParts() {
-        return new ArrayList<>(astmPreparedOrderParts);
+        return astmPreparedOrderParts.stream().map(part -> new String(part, charset)).toList();
     }
 
 
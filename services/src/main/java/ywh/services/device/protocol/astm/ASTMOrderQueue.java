@@ -0,0 +1,74 @@
+package ywh.services.device.protocol.astm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Черга замовлень хоста з двома доріжками: STAT/CITO видаються поперед рутинних,
+ * усередині доріжки — по черзі. Замовлення на зразок, що вже чекає, замінює старе на його
+ * місці (а якщо стало STAT — переходить у STAT-доріжку), щоб повторний запит не слав дублі.
+ */
+final class ASTMOrderQueue {
+    static final int LANE_CAPACITY = 50;
+
+    enum Offer {
+        QUEUED,
+        REPLACED,
+        REJECTED
+    }
+
+    // доріжки короткі (до LANE_CAPACITY), тож лінійний пошук дешевший за індекс
+    private final List<ASTMOrder> stat = new ArrayList<>();
+    private final List<ASTMOrder> routine = new ArrayList<>();
+
+    synchronized Offer offer(ASTMOrder order) {
+        List<ASTMOrder> lane = laneOf(order);
+        String specimen = order.getSpecimenId();
+        if (!specimen.isEmpty()) {
+            int i = indexOf(stat, specimen);
+            if (i >= 0) {
+                stat.set(i, order);                   // уже чекає як STAT — там і лишається
+                return Offer.REPLACED;
+            }
+            i = indexOf(routine, specimen);
+            if (i >= 0) {
+                if (lane == routine) {
+                    routine.set(i, order);
+                } else {
+                    routine.remove(i);                // оновлення підняло пріоритет
+                    stat.add(order);
+                }
+                return Offer.REPLACED;
+            }
+        }
+        if (lane.size() >= LANE_CAPACITY) return Offer.REJECTED;
+        lane.add(order);
+        return Offer.QUEUED;
+    }
+
+    synchronized ASTMOrder poll() {
+        if (!stat.isEmpty()) return stat.removeFirst();
+        if (!routine.isEmpty()) return routine.removeFirst();
+        return null;
+    }
+
+    synchronized int size() {
+        return stat.size() + routine.size();
+    }
+
+    synchronized void clear() {
+        stat.clear();
+        routine.clear();
+    }
+
+    private List<ASTMOrder> laneOf(ASTMOrder order) {
+        return order.getPriority() == ASTMOrder.Priority.STAT ? stat : routine;
+    }
+
+    private static int indexOf(List<ASTMOrder> lane, String specimen) {
+        for (int i = 0; i < lane.size(); i++) {
+            if (lane.get(i).getSpecimenId().equals(specimen)) return i;
+        }
+        return -1;
+    }
+}
@@ -1,162 +1,180 @@
 package ywh.services.device.protocol.astm;
 
 import lombok.Getter;
-import ywh.services.data.enums.SpecialBytes;
 import ywh.logging.DeviceLogger;
 
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.function.Consumer;
-import java.util.stream.IntStream;
 
-@Getter
+/**
+ * Розбір повідомлення ASTM на записи прямо в байтовому буфері.
+ * <p>
+ * Записи розділені CR/LF, тип запису — перший байт, обробник вибирається з масиву за цим байтом.
+ * Роздільники полів/повторів/компонентів беруться з H-запису ({@code H|\^&}), до нього — стандартні.
+ * Обробники отримують {@link ASTMRecord} — поля декодуються в рядки лише на запит.
+ * <p>
+ * Повідомлення можна подавати частинами (по записах, як їх віддає протокол) — роздільники
+ * з H-запису зберігаються між викликами, тож один процесор — на одне повідомлення.
+ */
 public class ASTMPartsProcessor {
+    private static final byte STX = 0x02, ETX = 0x03, EOT = 0x04, ENQ = 0x05, ETB = 0x17;
+    private static final Consumer<ASTMRecord> SKIP = x -> {
+    }; // по замовчуванню нічого не робить
+
+    // лише для сирого ASTM, див. stripFraming
+    @Getter
     private int scipExtEtbSize = 4;
 
-    /* ─── геттери ─── */
-    private Consumer<String[]> onH = x -> {
-    }; // по замовчуванню нічого не робить
-    private Consumer<String[]> onP = x -> {
-    };
-    private Consumer<String[]> onO = x -> {
-    };
-    private Consumer<String[]> onR = x -> {
-    };
-    private Consumer<String[]> onM = x -> {
-    };
-    private Consumer<String[]> onQ = x -> {
-    };
-    private Consumer<String[]> onC = x -> {
-    };
-    private Consumer<String[]> onL = x -> {
-    };
+    // обробник за типом запису: 'A'..'Z' → [0..25]; null — невідомий тип
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Consumer<ASTMRecord>[] handlers = new Consumer[26];
 
     private final DeviceLogger logger;
+    private final ASTMRecord record = new ASTMRecord();
+    private byte field = '|', repeat = '\\', component = '^';
 
     public ASTMPartsProcessor(DeviceLogger logger) {
         this.logger = logger;
+        for (char type : new char[]{'H', 'P', 'O', 'R', 'M', 'Q', 'C', 'L'}) {
+            handlers[type - 'A'] = SKIP;
+        }
     }
 
+    /**
+     * Скільки байт пропустити після ETB/ETX у сирому ASTM (контрольна сума, CR, LF).
+     * Діє лише на вхід, який ще містить обрамлення (STX…ETX); записи й кадри від {@link ASTMProtocol}
+     * протокол уже розгорнув — для парсерів за ним налаштування не потрібне і нічого не змінює.
+     */
     public ASTMPartsProcessor setScipExtEtbSize(int scipExtEtbSize) {
         this.scipExtEtbSize = scipExtEtbSize;
         return this;
     }
 
-    ASTMPartsProcessor ASTMPartsProcessor(DeviceLogger logger) {
-        return new ASTMPartsProcessor(logger);
+    /* ─── сеттери ─── */
+    public ASTMPartsProcessor onHeader(Consumer<ASTMRecord> onH) {
+        return on('H', onH);
     }
 
-    /* ─── сеттери ─── */
-    public ASTMPartsProcessor onHeader(Consumer<String[]> onH) {
-        this.onH = onH;
-        return this;
+    public ASTMPartsProcessor onPatient(Consumer<ASTMRecord> onP) {
+        return on('P', onP);
     }
 
-    public ASTMPartsProcessor onPatient(Consumer<String[]> onP) {
-        this.onP = onP;
-        return this;
+    public ASTMPartsProcessor onOrder(Consumer<ASTMRecord> onO) {
+        return on('O', onO);
     }
 
-    public ASTMPartsProcessor onOrder(Consumer<String[]> onO) {
-        this.onO = onO;
-        return this;
+    public ASTMPartsProcessor onResult(Consumer<ASTMRecord> onR) {
+        return on('R', onR);
     }
 
-    public ASTMPartsProcessor onResult(Consumer<String[]> onR) {
-        this.onR = onR;
-        return this;
+    public ASTMPartsProcessor onManufacturer(Consumer<ASTMRecord> onM) {
+        return on('M', onM);
     }
 
-    public ASTMPartsProcessor onManufacturer(Consumer<String[]> onM) {
-        this.onM = onM;
-        return this;
+    public ASTMPartsProcessor onQuery(Consumer<ASTMRecord> onQ) {
+        return on('Q', onQ);
     }
 
-    public ASTMPartsProcessor onQuery(Consumer<String[]> onQ) {
-        this.onQ = onQ;
-        return this;
+    public ASTMPartsProcessor onComment(Consumer<ASTMRecord> onC) {
+        return on('C', onC);
     }
 
-    public ASTMPartsProcessor onComment(Consumer<String[]> onC) {
-        this.onC = onC;
-        return this;
+    public ASTMPartsProcessor onTerminator(Consumer<ASTMRecord> onL) {
+        return on('L', onL);
     }
 
-    public ASTMPartsProcessor onTerminator(Consumer<String[]> onL) {
-        this.onL = onL;
+    private ASTMPartsProcessor on(char type, Consumer<ASTMRecord> handler) {
+        handlers[type - 'A'] = handler;
         return this;
     }
 
+    /* ─── розбір ─── */
+
+    public void processFrames(byte[] data, Charset charset) {
+        processFrames(data, 0, data.length, charset);
+    }
+
+    /** Розбирає записи з ділянки {@code [offset, offset + length)}; масив потрібен лише під час виклику. */
+    public void processFrames(byte[] data, int offset, int length, Charset charset) {
+        int limit = offset + length;
+        if (hasFraming(data, offset, limit)) {
+            data = stripFraming(data, offset, limit);
+            offset = 0;
+            limit = data.length;
+        }
 
-    protected String convertToString(byte[] data, Charset charset) {
-        ArrayList<Byte> buffer = new ArrayList<>();
-        int i = 0;
-        while (i < data.length) {
-            SpecialBytes specialByte = ASTMProtocol.getSpecialByte(data[i]);
-            if (specialByte != null) {
-                switch (specialByte) {
-                    case EOT, ENQ, STX -> {
-                        //просто пропустить
-                    }
-                    case ETB, ETX -> i += scipExtEtbSize;
-                    default -> buffer.add(data[i]);
+        int i = offset;
+        while (i < limit) {
+            int end = i;
+            while (end < limit && data[end] != '\r' && data[end] != '\n') end++;
+            int start = recordStart(data, i, end);
+            i = end + 1;
+            if (start == end) continue;                       // порожній рядок
+
+            byte type = data[start];
+            if (type == 'H' && end - start > 4) {             // H|\^& — роздільники цього повідомлення
+                field = data[start + 1];
+                repeat = data[start + 2];
+                component = data[start + 3];
+            }
+            record.index(data, start, end, charset, field, repeat, component);
+            try {
+                if (end - start < 2) {
+                    logger.error("Frame too short: " + record);
+                    continue;
                 }
-            } else buffer.add(data[i]);
-            i++;
+                Consumer<ASTMRecord> handler = type >= 'A' && type <= 'Z' && data[start + 1] == field
+                        ? handlers[type - 'A'] : null;
+                if (handler == null)
+                    logger.error("Unknown frame type in: " + record);
+                else
+                    handler.accept(record);
+            } catch (Exception e) {
+                logger.error("Error while parsing ASTM frame: " + record, e);
+            }
         }
-        byte[] allBytes = new byte[buffer.size()];
-        IntStream.range(0, buffer.size()).forEach(j -> allBytes[j] = buffer.get(j));
-        return new String(allBytes, charset).replace("\r", "\n");
+    }
 
+    /** Пропускає керуючі байти й пробіли на початку та номер кадру, якщо він залишився ({@code 1H|...}). */
+    private static int recordStart(byte[] data, int from, int end) {
+        int i = from;
+        while (i < end && (data[i] & 0xFF) <= ' ') i++;
+        if (i + 1 < end && data[i] >= '0' && data[i] <= '7' && data[i + 1] >= 'A' && data[i + 1] <= 'Z') i++;
+        return i;
     }
 
-    public String[] getFrames(byte[] data, Charset charset) {
-        var message = convertToString(data, charset);
-        return message.split("\\R");
+    private static boolean hasFraming(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == STX) return true;
+        }
+        return false;
     }
 
-    public void processFrames(byte[] data, Charset charset) {
-        var frames = getFrames(data, charset);
-        processFrames(frames);
-    }
-
-    public void processFrames(String[] frames) {
-        Map<String, Consumer<String[]>> processorMap = new HashMap<>();
-        processorMap.put("H|", getOnH());
-        processorMap.put("P|", getOnP());
-        processorMap.put("O|", getOnO());
-        processorMap.put("R|", getOnR());
-        processorMap.put("M|", getOnM());
-        processorMap.put("Q|", getOnQ());
-        processorMap.put("C|", getOnC());
-        processorMap.put("L|", getOnL());
-
-        for (String frame : frames) {
-            try {
-                if (frame.trim().isEmpty()) continue;
-                if (frame.length() < 2) {
-                    logger.error("Frame too short: " + frame);
-                    continue;
+    /**
+     * Сирий ASTM (напр., загорнутий в інший протокол): прибирає STX і номер кадру, ENQ/EOT,
+     * ETB/ETX разом із наступними {@code scipExtEtbSize} байтами. Кінець ETX-кадру — кінець запису.
+     * Викликається лише тоді, коли у вхідних даних є STX, тобто протокол їх ще не розгорнув.
+     */
+    private byte[] stripFraming(byte[] data, int from, int to) {
+        byte[] text = new byte[to - from];
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            byte b = data[i];
+            switch (b) {
+                case STX -> {
+                    if (i + 1 < to && data[i + 1] >= '0' && data[i + 1] <= '7') i++;
                 }
-                String[] parts = frame.split("\\|");
-                String prefix = frame.length() >= 5 ? frame.substring(0, 5) : frame;
-                String foundFrameType = null;
-
-                for (String frameType : processorMap.keySet()) {
-                    if (prefix.contains(frameType)) {
-                        foundFrameType = frameType;
-                        break;
-                    }
+                case ENQ, EOT -> {
                 }
-                if (foundFrameType == null)
-                    logger.error("Unknown frame type in: " + frame);
-                 else
-                    processorMap.getOrDefault(foundFrameType, x -> {}).accept(parts);
-            } catch (Exception e) {
-                logger.error("Error while parsing ASTM frame: " + frame, e);
+                case ETX -> {
+                    text[size++] = '\r';
+                    i += scipExtEtbSize;
+                }
+                case ETB -> i += scipExtEtbSize;
+                default -> text[size++] = b;
             }
         }
+        return text.length == size ? text : Arrays.copyOf(text, size);
     }
-}
\ No newline at end of file
+}
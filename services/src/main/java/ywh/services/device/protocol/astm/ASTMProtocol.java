@@ -3,11 +3,21 @@ package ywh.services.device.protocol.astm;
 import ywh.logging.DeviceLogger;
 import ywh.services.data.enums.SpecialBytes;
 import ywh.services.device.protocol.BufferedProtocolAbstract;
+import ywh.services.device.protocol.FlowControl;
+import ywh.services.device.protocol.FrameBuffer;
+import ywh.services.device.protocol.IRecordProtocol;
 
-import java.util.Arrays;
-
-
-public class ASTMProtocol extends BufferedProtocolAbstract {
+/**
+ * ASTM E1381 / LIS2-A2.
+ * <p>
+ * Прийом — автомат станів по кадрах {@code <STX> FN text <ETB|ETX> C1 C2 <CR><LF>}:
+ * контрольна сума рахується по ходу, кадр підтверджується ACK лише якщо збіглися сума
+ * і номер кадру, інакше — NAK тільки на цей кадр (пристрій повторить лише його).
+ * У буфер потрапляє тільки текст записів, без STX/номерів/ETX/контрольних сум;
+ * кожен завершений ETX-кадр закінчується CR, тож повідомлення — це записи, розділені CR.
+ * Зі слухачем записів кожен запис віддається одразу після ACK на його ETX-кадр.
+ */
+public class ASTMProtocol extends BufferedProtocolAbstract implements IRecordProtocol {
     public ASTMProtocol(DeviceLogger logger, long idleTimeoutMs) {
         super(idleTimeoutMs);
         setLogger(logger);
@@ -15,55 +25,246 @@ public class ASTMProtocol extends BufferedProtocolAbstract {
 
     private final ASTMContextManager context = new ASTMContextManager(logger, this);
 
-    public void addOrderToQueue(ASTMOrder order) {
-        context.addOrderToQueue(order);
+    /*────────────── класи байтів ──────────────*/
+    private static final byte TEXT = 0, STX = 1, ETX = 2, ETB = 3, EOT = 4, ENQ = 5, ACK = 6, NAK = 7;
+    private static final byte[] CLASS = new byte[256];
+
+    static {
+        CLASS[SpecialBytes.STX.getValue() & 0xFF] = STX;
+        CLASS[SpecialBytes.ETX.getValue() & 0xFF] = ETX;
+        CLASS[SpecialBytes.ETB.getValue() & 0xFF] = ETB;
+        CLASS[SpecialBytes.EOT.getValue() & 0xFF] = EOT;
+        CLASS[SpecialBytes.ENQ.getValue() & 0xFF] = ENQ;
+        CLASS[SpecialBytes.ACK.getValue() & 0xFF] = ACK;
+        CLASS[SpecialBytes.NAK.getValue() & 0xFF] = NAK;
+    }
+
+    /*────────────── стан прийому ──────────────*/
+    private enum Rx {
+        IDLE,           // між кадрами: чекаємо STX, CR/LF після контрольної суми ігноруються
+        FRAME_NUMBER,
+        FRAME_TEXT,
+        CHECKSUM_HIGH,
+        CHECKSUM_LOW
+    }
+
+    private static final int ANY_FRAME_NUMBER = -1;
+
+    private Rx rx = Rx.IDLE;
+    // після ENQ передача починається з кадру 1; без ENQ приймаємо перший номер, який прийде
+    private int expectedFrameNumber = ANY_FRAME_NUMBER;
+    private int lastFrameNumber = ANY_FRAME_NUMBER;
+    private int frameNumber;
+    private int frameStart;        // розмір буфера до тексту поточного кадру
+    private int checksum;
+    private int receivedChecksum;
+    private boolean lastFrame;     // ETX (кінець запису), а не ETB
+
+    /** @return {@code false}, якщо черга замовлень переповнена і замовлення відкинуто */
+    public boolean addOrderToQueue(ASTMOrder order) {
+        return context.addOrderToQueue(order);
     }
 
     @Override
     public void setLogger(DeviceLogger logger) {
         this.logger = logger;
         context.setLogger(logger);
-        context.startOrdersScheduler();
-        if (!context.isSchedulerStarted()) {
-            context.startOrdersScheduler();
-        }
     }
 
     @Override
-    public void onByte(byte b) {
+    protected void process(byte b) {
         try {
-            SpecialBytes specialByte = getSpecialByte(b);
-
-            switch (specialByte) {
-                case ENQ -> context.sendACK(() -> logger.log("ANALYZER ------> [ENQ]"));
-                case ETB, ETX -> context.sendACK(() -> logger.log("ANALYZER ------> [ETX]|[ETB]"));
-                case EOT -> {
-                    append(b);
-                    logger.log("ANALYZER ------> [EOT]");
-                    logger.log("EOT byte detected, processing message...");
-                    context.setNeutral();
-                    context.cancelTimeout();
-                    fireFrame();
-                    return;
-                }
+            switch (CLASS[b & 0xFF]) {
+                case ENQ -> onEnq();
+                case EOT -> onEot();
                 case ACK -> context.sendNextFrame(() -> logger.log("ANALYZER ------> [ACK]"));
                 case NAK -> context.handleNak(() -> logger.log("ANALYZER ------> [NAK]"));
-                case null, default -> {
-                }
+                case STX -> onStx();
+                case ETX, ETB -> onFrameEnd(b);
+                default -> onText(b);
             }
-            if (context.isNotSender()) {
+        } catch (Exception e) {
+            logger.error("Unexpected error while processing byte", e);
+        }
+    }
+
+    /**
+     * Пакетна обробка: текст кадру між керуючими байтами додається в буфер одним шматком
+     * (сума — у тому ж проході), решта йде через {@link #process(byte)}.
+     */
+    @Override
+    protected void process(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if (rx != Rx.FRAME_TEXT) {
+                process(data[i++]);
+                continue;
+            }
+            int runStart = i;
+            int sum = checksum;
+            while (i < end && CLASS[data[i] & 0xFF] == TEXT) {
+                sum += data[i++] & 0xFF;
+            }
+            if (i > runStart) {
+                checksum = sum;
+                append(data, runStart, i - runStart);
+            }
+            if (i < end) process(data[i++]);
+        }
+    }
+
+    /* ─── переходи ─── */
+
+    private void onEnq() {
+        logger.log("ANALYZER ------> [ENQ]");
+        if (isRecordMode()) reset();              // EOT попереднього повідомлення загубився
+        dropPartialFrame();
+        context.yieldLine();
+        expectedFrameNumber = 1;
+        lastFrameNumber = ANY_FRAME_NUMBER;
+        FlowControl fc = flowControl;
+        if (fc == null) {
+            context.sendACK();
+            return;
+        }
+        // черга результатів переповнена: ACK на ENQ чекає; не дочекались — NAK, аналізатор повторить ENQ пізніше
+        if (fc.isPaused()) logger.log("Result queue is full, ACK to [ENQ] is held back");
+        fc.whenReady(context::sendACK, () -> context.sendNAK(() -> logger.log("Result queue is still full, [ENQ] refused")));
+    }
+
+    private void onEot() {
+        logger.log("ANALYZER ------> [EOT]");
+        dropPartialFrame();
+        context.releaseLine();
+        if (isRecordMode()) {
+            fireRecord(0);                        // запис, що обірвався на ETB-кадрі
+            reset();
+            return;
+        }
+        if (buf.isEmpty()) {
+            reset();
+            return;
+        }
+        logger.log("EOT byte detected, processing message...");
+        fireFrame();
+    }
+
+    private void onStx() {
+        if (context.isSender()) return;           // ми передаємо — кадрів від аналізатора не чекаємо
+        if (rx != Rx.IDLE) {
+            logger.log("STX inside unfinished frame, previous frame dropped");
+            dropPartialFrame();
+        }
+        context.setReceiver();
+        frameStart = buf.size();
+        checksum = 0;
+        rx = Rx.FRAME_NUMBER;
+    }
+
+    private void onText(byte b) {
+        switch (rx) {
+            case FRAME_NUMBER -> {
+                checksum += b & 0xFF;
+                frameNumber = b >= '0' && b <= '7' ? b - '0' : ANY_FRAME_NUMBER;
+                rx = Rx.FRAME_TEXT;
+            }
+            case FRAME_TEXT -> {
+                checksum += b & 0xFF;
                 append(b);
-                context.setReceiver();
             }
+            case CHECKSUM_HIGH -> {
+                receivedChecksum = hex(b) << 4;
+                rx = Rx.CHECKSUM_LOW;
+            }
+            case CHECKSUM_LOW -> {
+                receivedChecksum |= hex(b);
+                rx = Rx.IDLE;
+                completeFrame();
+            }
+            case IDLE -> {
+                // CR LF після контрольної суми або сміття між кадрами
+            }
+        }
+    }
 
-        } catch (Exception e) {
-            logger.error("Unexpected error while processing byte", e);
+    private void onFrameEnd(byte b) {
+        if (rx != Rx.FRAME_TEXT) {
+            logger.log("ETX/ETB outside of frame, ignored");
+            return;
+        }
+        checksum += b & 0xFF;
+        lastFrame = CLASS[b & 0xFF] == ETX;
+        rx = Rx.CHECKSUM_HIGH;
+    }
+
+    private void completeFrame() {
+        int expected = checksum & 0xFF;
+        if (receivedChecksum != expected) {
+            rejectFrame("checksum mismatch: got " + receivedChecksum + ", expected " + expected);
+            return;
+        }
+        if (frameNumber == ANY_FRAME_NUMBER) {
+            rejectFrame("invalid frame number");
+            return;
+        }
+        if (frameNumber == lastFrameNumber) {
+            // наш ACK загубився, і пристрій повторив уже прийнятий кадр
+            truncate(frameStart);
+            context.sendACK(() -> logger.log("ANALYZER ------> duplicate frame " + frameNumber + ", skipped"));
+            return;
+        }
+        if (expectedFrameNumber != ANY_FRAME_NUMBER && frameNumber != expectedFrameNumber) {
+            rejectFrame("frame number " + frameNumber + ", expected " + expectedFrameNumber);
+            return;
+        }
+
+        lastFrameNumber = frameNumber;
+        expectedFrameNumber = (frameNumber + 1) & 7;
+        if (lastFrame && (buf.isEmpty() || buf.get(buf.size() - 1) != '\r')) {
+            append((byte) '\r');                  // не всі пристрої ставлять CR перед ETX
+        }
+        context.sendACK(() -> logger.log("ANALYZER ------> " + (lastFrame ? "[ETX]" : "[ETB]") + " frame " + frameNumber));
+        if (lastFrame) fireRecord(0);
+    }
+
+    private void rejectFrame(String reason) {
+        truncate(frameStart);
+        context.sendNAK(() -> logger.log("ANALYZER ------> frame rejected, " + reason));
+    }
+
+    private void dropPartialFrame() {
+        if (rx != Rx.IDLE) {
+            truncate(Math.min(frameStart, buf.size()));
+            rx = Rx.IDLE;
         }
     }
 
+    private static int hex(byte b) {
+        if (b >= '0' && b <= '9') return b - '0';
+        if (b >= 'A' && b <= 'F') return b - 'A' + 10;
+        if (b >= 'a' && b <= 'f') return b - 'a' + 10;
+        return 0x100;                               // гарантовано не збіжеться з сумою
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        rx = Rx.IDLE;
+        frameStart = 0;
+        expectedFrameNumber = ANY_FRAME_NUMBER;
+        lastFrameNumber = ANY_FRAME_NUMBER;
+    }
+
+    @Override
+    protected void onIdleTimeout(FrameBuffer incompleteFrame) {
+        // прийом обірвався без EOT — лінія знову вільна для замовлень
+        if (context.isReceiver()) context.releaseLine();
+        super.onIdleTimeout(incompleteFrame);
+    }
 
     public static SpecialBytes getSpecialByte(byte test) {
-        return Arrays.stream(SpecialBytes.values()).filter(specialByte -> specialByte.getValue() == test).findFirst().orElse(null);
+        return SpecialBytes.of(test);
     }
 
     @Override
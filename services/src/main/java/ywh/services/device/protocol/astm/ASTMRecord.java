@@ -0,0 +1,24 @@
+package ywh.services.device.protocol.astm;
+
+import ywh.services.device.protocol.DelimitedRecord;
+
+import java.nio.charset.Charset;
+
+/**
+ * Один запис ASTM ({@code H}, {@code P}, {@code O}, {@code R}, ...) — див. {@link DelimitedRecord}.
+ * Роздільники полів, повторів і компонентів — з H-запису повідомлення.
+ */
+public final class ASTMRecord extends DelimitedRecord {
+
+    ASTMRecord() {
+    }
+
+    void index(byte[] data, int start, int end, Charset charset,
+               byte fieldDelimiter, byte repeatDelimiter, byte componentDelimiter) {
+        indexFields(data, start, end, charset, fieldDelimiter, repeatDelimiter, componentDelimiter);
+    }
+
+    public char type() {
+        return (char) data[start];
+    }
+}
@@ -0,0 +1,121 @@
+package ywh.services.device.protocol.custom;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Пошук будь-якого з кількох шаблонів алгоритмом Ахо–Корасік.
+ * <p>
+ * Автомат будується один раз у конструкторі й зводиться до повної таблиці переходів
+ * {@code state × byte → state}, тож {@link #feed(byte)} — один індексний доступ без циклів.
+ * Таблиця займає 1 КБ на стан (стани ≈ сумарна довжина шаблонів) — для кінцевих маркерів кадру це дрібниця.
+ */
+public final class AhoCorasickMatcher implements ByteMatcher {
+
+    private static final int ALPHABET = 256;
+
+    // next[state * ALPHABET + (b & 0xFF)]
+    private final int[] next;
+    // довжина найдовшого шаблону, що закінчується в стані; 0 — жодного
+    private final int[] output;
+    // індекс цього шаблону в аргументах конструктора; -1 — жодного
+    private final int[] outputPattern;
+
+    private int state;
+    private int matchLength;
+    private int matchedPattern = -1;
+
+    public AhoCorasickMatcher(byte[]... patterns) {
+        if (patterns.length == 0) throw new IllegalArgumentException("at least one pattern required");
+
+        int maxStates = 1;
+        for (byte[] p : patterns) {
+            if (p.length == 0) throw new IllegalArgumentException("pattern must not be empty");
+            maxStates += p.length;
+        }
+
+        /* ─── бор ─── */
+        int[] trie = new int[maxStates * ALPHABET];
+        Arrays.fill(trie, -1);
+        int[] out = new int[maxStates];
+        int[] outIdx = new int[maxStates];
+        Arrays.fill(outIdx, -1);
+        int states = 1;
+
+        for (int i = 0; i < patterns.length; i++) {
+            int s = 0;
+            for (byte b : patterns[i]) {
+                int slot = s * ALPHABET + (b & 0xFF);
+                if (trie[slot] < 0) trie[slot] = states++;
+                s = trie[slot];
+            }
+            if (out[s] == 0) {              // дублікати — перший виграє
+                out[s] = patterns[i].length;
+                outIdx[s] = i;
+            }
+        }
+
+        /* ─── суфіксні посилання → повна таблиця переходів (BFS) ─── */
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int t = trie[c];
+            if (t < 0) {
+                trie[c] = 0;
+            } else {
+                fail[t] = 0;
+                queue.add(t);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            // вихід суфікса, якщо свого немає (найдовший шаблон серед тих, що тут закінчуються)
+            if (out[s] == 0 && out[fail[s]] != 0) {
+                out[s] = out[fail[s]];
+                outIdx[s] = outIdx[fail[s]];
+            }
+            for (int c = 0; c < ALPHABET; c++) {
+                int slot = s * ALPHABET + c;
+                int t = trie[slot];
+                if (t < 0) {
+                    trie[slot] = trie[fail[s] * ALPHABET + c];
+                } else {
+                    fail[t] = trie[fail[s] * ALPHABET + c];
+                    queue.add(t);
+                }
+            }
+        }
+
+        this.next = Arrays.copyOf(trie, states * ALPHABET);
+        this.output = Arrays.copyOf(out, states);
+        this.outputPattern = Arrays.copyOf(outIdx, states);
+    }
+
+    @Override
+    public boolean feed(byte b) {
+        int s = next[state * ALPHABET + (b & 0xFF)];
+        state = s;
+        int len = output[s];
+        if (len == 0) return false;
+        matchLength = len;
+        matchedPattern = outputPattern[s];
+        return true;
+    }
+
+    @Override
+    public int matchLength() {
+        return matchLength;
+    }
+
+    /** Індекс шаблону (у порядку аргументів конструктора), що дав останній збіг; -1 — збігів не було. */
+    public int matchedPattern() {
+        return matchedPattern;
+    }
+
+    @Override
+    public void reset() {
+        state = 0;
+        matchLength = 0;
+        matchedPattern = -1;
+    }
+}
@@ -0,0 +1,105 @@
+package ywh.services.device.protocol.custom;
+
+/**
+ * Потоковий пошук шаблону: байти подаються по одному, стан зберігається між викликами.
+ * <p>
+ * Реалізації не алокують і не переглядають буфер кадру — кожен байт коштує O(1),
+ * тож перевірка закінчення кадру не залежить від його розміру.
+ */
+public interface ByteMatcher {
+
+    /** @return {@code true}, якщо цим байтом завершився збіг */
+    boolean feed(byte b);
+
+    /** Довжина останнього збігу (для кількох шаблонів — того, що спрацював). */
+    int matchLength();
+
+    /** Повернення до початкового стану — на початку нового кадру. */
+    void reset();
+
+    /* ─── фабрики ─── */
+
+    /** Один шаблон (Кнут–Морріс–Пратт). */
+    static ByteMatcher of(byte[] pattern) {
+        return new KmpMatcher(pattern);
+    }
+
+    /** Будь-який із шаблонів (Ахо–Корасік). */
+    static ByteMatcher anyOf(byte[]... patterns) {
+        return patterns.length == 1 ? new KmpMatcher(patterns[0]) : new AhoCorasickMatcher(patterns);
+    }
+
+    /** Спершу збіг {@code pattern}, потім перший байт {@code endByte} (можливо, останній байт самого збігу). */
+    static ByteMatcher thenByte(ByteMatcher pattern, byte endByte) {
+        return new ThenByteMatcher(pattern, endByte);
+    }
+
+    /**
+     * Зараховує лише збіги, що починаються не раніше {@code minStart}-го байта від {@link #reset()}.
+     */
+    default ByteMatcher from(int minStart) {
+        return minStart <= 0 ? this : new OffsetMatcher(this, minStart);
+    }
+
+    /* ─── комбінатори ─── */
+
+    final class ThenByteMatcher implements ByteMatcher {
+        private final ByteMatcher pattern;
+        private final byte endByte;
+        private boolean found;
+
+        private ThenByteMatcher(ByteMatcher pattern, byte endByte) {
+            this.pattern = pattern;
+            this.endByte = endByte;
+        }
+
+        @Override
+        public boolean feed(byte b) {
+            if (!found) found = pattern.feed(b);
+            if (found && b == endByte) {
+                reset();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int matchLength() {
+            return pattern.matchLength();
+        }
+
+        @Override
+        public void reset() {
+            found = false;
+            pattern.reset();
+        }
+    }
+
+    final class OffsetMatcher implements ByteMatcher {
+        private final ByteMatcher delegate;
+        private final int minStart;
+        private long position;
+
+        private OffsetMatcher(ByteMatcher delegate, int minStart) {
+            this.delegate = delegate;
+            this.minStart = minStart;
+        }
+
+        @Override
+        public boolean feed(byte b) {
+            position++;
+            return delegate.feed(b) && position - delegate.matchLength() >= minStart;
+        }
+
+        @Override
+        public int matchLength() {
+            return delegate.matchLength();
+        }
+
+        @Override
+        public void reset() {
+            position = 0;
+            delegate.reset();
+        }
+    }
+}
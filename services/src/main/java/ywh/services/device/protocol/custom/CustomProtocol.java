@@ -15,7 +15,7 @@ public class CustomProtocol extends BufferedProtocolAbstract {
     }
 
     @Override
-    public void onByte(byte b) {
+    protected void process(byte b) {
         append(b);
         if (terminationStrategy.analyze(b, buf)) {
             fireFrame();
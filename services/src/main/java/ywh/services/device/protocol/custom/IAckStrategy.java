@@ -1,16 +1,17 @@
 package ywh.services.device.protocol.custom;
 
-import java.io.ByteArrayOutputStream;
+import ywh.services.device.protocol.FrameBuffer;
+
 import java.util.Optional;
 
 public interface IAckStrategy {
     /**
      * @param b   черговий байт (той самий, що йде у onByte)
-     * @param buf поточний вміст буфера (read-only!)
+     * @param buf поточний вміст буфера (лише читання)
      * @return Optional<byte[]> – пакет, який слід надіслати у відповідь,
      *         або empty() якщо зараз нічого не відправляти
      */
-    default Optional<byte[]> analyze(byte b, ByteArrayOutputStream buf) { return Optional.empty(); }
+    default Optional<byte[]> analyze(byte b, FrameBuffer buf) { return Optional.empty(); }
 
     default void reset() { }
 }
@@ -1,8 +1,9 @@
 package ywh.services.device.protocol.custom;
 
-import java.io.ByteArrayOutputStream;
+import ywh.services.device.protocol.FrameBuffer;
+
 @FunctionalInterface
 public interface ITerminationStrategy {
-    boolean analyze(byte b, ByteArrayOutputStream buf);
+    boolean analyze(byte b, FrameBuffer buf);
     default void reset() { /* no-op by default */ }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package ywh.services.device.protocol.custom;
+
+/**
+ * Пошук одного шаблону алгоритмом Кнута–Морріса–Пратта.
+ * Стан — довжина найдовшого префікса шаблону, що закінчується на останньому байті;
+ * після збігу пошук продовжується з урахуванням перекриттів.
+ */
+public final class KmpMatcher implements ByteMatcher {
+
+    private final byte[] pattern;
+    // fail[i] — довжина найдовшого власного префікса pattern[0..i], що є його суфіксом
+    private final int[] fail;
+    private int state;
+
+    public KmpMatcher(byte[] pattern) {
+        if (pattern.length == 0) throw new IllegalArgumentException("pattern must not be empty");
+        this.pattern = pattern.clone();
+        this.fail = failureTable(this.pattern);
+    }
+
+    @Override
+    public boolean feed(byte b) {
+        int s = state;
+        while (s > 0 && pattern[s] != b) s = fail[s - 1];
+        if (pattern[s] == b) s++;
+        if (s == pattern.length) {
+            state = fail[s - 1];
+            return true;
+        }
+        state = s;
+        return false;
+    }
+
+    @Override
+    public int matchLength() {
+        return pattern.length;
+    }
+
+    @Override
+    public void reset() {
+        state = 0;
+    }
+
+    private static int[] failureTable(byte[] pattern) {
+        int[] fail = new int[pattern.length];
+        for (int i = 1, k = 0; i < pattern.length; i++) {
+            while (k > 0 && pattern[i] != pattern[k]) k = fail[k - 1];
+            if (pattern[i] == pattern[k]) k++;
+            fail[i] = k;
+        }
+        return fail;
+    }
+}
@@ -1,9 +1,8 @@
 package ywh.services.device.protocol.custom;
 
 import ywh.services.data.enums.SpecialBytes;
+import ywh.services.device.protocol.FrameBuffer;
 
-import java.io.ByteArrayOutputStream;
-import java.util.Arrays;
 import java.util.Optional;
 
 /**
@@ -78,6 +77,14 @@ public final class StrategyFactory {
         return new Builder(TerminationFactory.byEndString(skip, s));
     }
 
+    public static TermStep byAnyEndString(String... s) {
+        return byAnyEndString(0, s);
+    }
+
+    public static TermStep byAnyEndString(int skip, String... s) {
+        return new Builder(TerminationFactory.byAnyEndString(skip, s));
+    }
+
     public static TermStep byEndByteWithOffset(byte b, int offs) {
         return new Builder(TerminationFactory.byEndByteWithOffset(b, offs));
     }
@@ -94,7 +101,7 @@ public final class StrategyFactory {
     private static IAckStrategy simpleAck(byte trigger, byte... packet) {
         return new IAckStrategy() {
             @Override
-            public Optional<byte[]> analyze(byte b, ByteArrayOutputStream buf) {
+            public Optional<byte[]> analyze(byte b, FrameBuffer buf) {
                 return b == trigger ? Optional.of(packet) : Optional.empty();
             }
 
@@ -134,34 +141,23 @@ public final class StrategyFactory {
          * @param endString шуканий кінець повідомлення.
          */
         public static ITerminationStrategy byEndString(int skipSize, String endString) {
-
             final byte[] pattern = endString.getBytes();
-            final int initSkip = (skipSize == 0 ? pattern.length * 2 : skipSize);
-            final int[] skip = {initSkip};                 // mutable у лямбді
-
-            return new ITerminationStrategy() {
-                public boolean analyze(byte b, ByteArrayOutputStream buf) {
-                    byte[] arr = buf.toByteArray();
-
-                    if (arr.length >= skip[0] + pattern.length) {
-                        for (int i = 0; i < pattern.length; i++) {
-                            if (arr[skip[0] + i] != pattern[i]) {  // розбіжність
-                                skip[0]++;                         // зсуваємо вікно
-                                return false;
-                            }
-                        }
-                        // збіг знайдено
-                        skip[0] = initSkip;                       // готові до нового пошуку
-                        return true;
-                    }
-                    return false;
-                }
+            return matching(ByteMatcher.of(pattern).from(initSkip(skipSize, pattern.length)));
+        }
 
-                @Override
-                public void reset() {
-                    skip[0] = initSkip;                           // повернутися у вихідний стан
-                }
-            };
+        /**
+         * Завершення кадру будь-якою з послідовностей {@code endStrings}.
+         *
+         * @param skipSize к-ть байт перед початком порівняння; 0 – подвоєна довжина найкоротшого шаблону.
+         */
+        public static ITerminationStrategy byAnyEndString(int skipSize, String... endStrings) {
+            final byte[][] patterns = new byte[endStrings.length][];
+            int shortest = Integer.MAX_VALUE;
+            for (int i = 0; i < endStrings.length; i++) {
+                patterns[i] = endStrings[i].getBytes();
+                shortest = Math.min(shortest, patterns[i].length);
+            }
+            return matching(ByteMatcher.anyOf(patterns).from(initSkip(skipSize, shortest)));
         }
 
         /**
@@ -176,7 +172,7 @@ public final class StrategyFactory {
             return new ITerminationStrategy() {
 
                 @Override
-                public boolean analyze(byte b, ByteArrayOutputStream buf) {
+                public boolean analyze(byte b, FrameBuffer buf) {
                     if (b == countByte) counter[0]++;
                     if (counter[0] == howMany) {
                         counter[0] = 0;
@@ -204,7 +200,7 @@ public final class StrategyFactory {
 
             return new ITerminationStrategy() {
                 @Override
-                public boolean analyze(byte b, ByteArrayOutputStream buf) {
+                public boolean analyze(byte b, FrameBuffer buf) {
                     counter[0]++;
                     if (b == endByte) endSize[0] = counter[0] + offset;
                     return counter[0] >= endSize[0];
@@ -225,7 +221,7 @@ public final class StrategyFactory {
             if (minSize <= 0) throw new IllegalArgumentException("minSize must be > 0");
             return new ITerminationStrategy() {
                 @Override
-                public boolean analyze(byte b, ByteArrayOutputStream buf) {
+                public boolean analyze(byte b, FrameBuffer buf) {
                     return buf.size() >= minSize;
                 }
             };
@@ -233,37 +229,31 @@ public final class StrategyFactory {
 
         public static ITerminationStrategy byStringThenByte(int skipSize, String endString, byte endByte) {
             final byte[] pattern = endString.getBytes();
-            final int initSkip = (skipSize == 0 ? pattern.length * 2 : skipSize);
-            final int[] skip = {initSkip};
-            final boolean[] found = {false};
+            return matching(ByteMatcher.thenByte(
+                    ByteMatcher.of(pattern).from(initSkip(skipSize, pattern.length)), endByte));
+        }
 
+        /* ─── потокові збіги ─── */
+
+        // стан живе в matcher-і, буфер не переглядається — O(1) на байт незалежно від розміру кадру
+        private static ITerminationStrategy matching(ByteMatcher matcher) {
             return new ITerminationStrategy() {
                 @Override
-                public boolean analyze(byte b, ByteArrayOutputStream buf) {
-
-                    if (!found[0] && buf.size() >= skip[0] + pattern.length) {
-                        byte[] arr = buf.toByteArray();
-                        found[0] = Arrays.equals(
-                                Arrays.copyOfRange(arr, skip[0], skip[0] + pattern.length),
-                                pattern);
-                        if (!found[0]) skip[0]++;                     // зсуваємо вікно
-                    }
-
-                    if (found[0] && b == endByte) {                   // завершальний байт
-                        found[0] = false;
-                        skip[0] = initSkip;
-                        return true;
-                    }
-                    return false;
+                public boolean analyze(byte b, FrameBuffer buf) {
+                    if (!matcher.feed(b)) return false;
+                    matcher.reset();                              // готові до нового пошуку
+                    return true;
                 }
 
                 @Override
                 public void reset() {
-                    found[0] = false;
-                    skip[0] = initSkip;
+                    matcher.reset();
                 }
             };
         }
 
+        private static int initSkip(int skipSize, int patternLength) {
+            return skipSize == 0 ? patternLength * 2 : skipSize;
+        }
     }
 }
\ No newline at end of file
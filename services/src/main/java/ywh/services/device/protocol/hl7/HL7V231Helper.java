@@ -1,17 +1,21 @@
 package ywh.services.device.protocol.hl7;
 
-import ywh.commons.DateTime;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class HL7V231Helper {
+    // {0} — control ID, {1} — тип ACK (MSH-15), {2} — кодування, {3}…{5} — MSA-1, MSA-3, MSA-6
+    private static final String ACK_TEMPLATE = "\u000BMSH|^~\\&|||||{ts}||ACK^R01|{0}|P|2.3.1||||{1}||{2}|||\r"
+            + "MSA|{3}|{0}|{4}|||{5}\r\u001C\r";
+    private static final Map<Charset, Hl7AckTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
     private String hl7Id;
     private String ackType;
     private String ack;
     private String ackMessage;
     private String ackCode;
     private String coding;
-    private static final String START = "\u000B";
-    private static final String END = "\u001C";
-    private static final String CR = "\r";
 
 
     public void setCoding(String coding) {
@@ -45,10 +49,10 @@ public class HL7V231Helper {
 
 
 
-    public String getResponse() {
+    public byte[] getResponse(Charset charset) {
         setAAresponse();
-        return START + "MSH|^~\\&|||||" + DateTime.getHl7DateTime() + "||ACK^R01|" + getHl7Id() + "|P|2.3.1||||" + getAckType() + "||" + coding + "|||" + CR +
-                "MSA|" + getAck() + "|" + getHl7Id() + "|" + getAckMessage() + "|||" + getAckCode() + CR + END + CR;
+        return TEMPLATES.computeIfAbsent(charset, cs -> Hl7AckTemplate.compile(ACK_TEMPLATE, cs))
+                .render(getHl7Id(), getAckType(), coding, getAck(), getAckMessage(), getAckCode());
     }
 
     private String getHl7Id() {
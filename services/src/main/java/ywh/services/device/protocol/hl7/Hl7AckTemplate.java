@@ -0,0 +1,105 @@
+package ywh.services.device.protocol.hl7;
+
+import ywh.commons.DateTime;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Шаблон HL7-підтвердження, закодований заздалегідь.
+ * <p>
+ * Постійні частини повідомлення (MLLP-обрамлення, MSH, MSA, роздільники) кодуються в байти один раз —
+ * при {@link #compile(String, Charset)}; на кожне повідомлення у робочий буфер дописуються лише
+ * змінні поля: {@code {0}}…{@code {9}} — значення з {@link #render(String...)} (control ID, тип ACK, …),
+ * {@code {ts}} — поточний час у форматі HL7 (перекодовується раз на секунду).
+ * <p>
+ * Один шаблон — на парсер (кодування парсера); {@link #render(String...)} потокобезпечний.
+ * Фігурні дужки в самому тексті шаблону не підтримуються — у підтвердженнях HL7 їх не буває.
+ */
+public final class Hl7AckTemplate {
+    private static final int TIMESTAMP = -1;
+
+    /*────────────── поля ──────────────*/
+    private final Charset charset;
+    private final byte[][] literals;    // literals[i] — перед slots[i], останній — після всіх
+    private final int[] slots;          // індекс значення або TIMESTAMP
+
+    // під this
+    private byte[] buffer;
+    private long stampSecond = Long.MIN_VALUE;
+    private byte[] stamp;
+
+    private Hl7AckTemplate(Charset charset, byte[][] literals, int[] slots, int initialSize) {
+        this.charset = charset;
+        this.literals = literals;
+        this.slots = slots;
+        this.buffer = new byte[initialSize];
+    }
+
+    public static Hl7AckTemplate compile(String template, Charset charset) {
+        List<byte[]> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int from = 0;
+        int open;
+        while ((open = template.indexOf('{', from)) >= 0) {
+            int close = template.indexOf('}', open);
+            if (close < 0) throw new IllegalArgumentException("Unclosed placeholder at " + open + ": " + template);
+            String name = template.substring(open + 1, close);
+            int slot;
+            if (name.equals("ts")) {
+                slot = TIMESTAMP;
+            } else if (name.length() == 1 && Character.isDigit(name.charAt(0))) {
+                slot = name.charAt(0) - '0';
+            } else {
+                throw new IllegalArgumentException("Unknown placeholder {" + name + "} in ACK template");
+            }
+            literals.add(template.substring(from, open).getBytes(charset));
+            slots.add(slot);
+            from = close + 1;
+        }
+        literals.add(template.substring(from).getBytes(charset));
+
+        int constant = literals.stream().mapToInt(b -> b.length).sum();
+        return new Hl7AckTemplate(charset, literals.toArray(byte[][]::new),
+                slots.stream().mapToInt(Integer::intValue).toArray(), constant + 32 * slots.size());
+    }
+
+    /**
+     * Підставляє значення і повертає готове підтвердження. Масив — новий на кожен виклик
+     * (його можуть ще тримати черга відправки або контроль потоку), робочий буфер — спільний.
+     * Відсутнє або {@code null} значення дає порожнє поле.
+     */
+    public synchronized byte[] render(String... values) {
+        int size = 0;
+        for (int i = 0; i < slots.length; i++) {
+            size = put(size, literals[i]);
+            int slot = slots[i];
+            if (slot == TIMESTAMP) {
+                size = put(size, timestamp());
+            } else if (slot < values.length && values[slot] != null && !values[slot].isEmpty()) {
+                size = put(size, values[slot].getBytes(charset));
+            }
+        }
+        size = put(size, literals[slots.length]);
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private int put(int at, byte[] bytes) {
+        if (at + bytes.length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, at + bytes.length));
+        }
+        System.arraycopy(bytes, 0, buffer, at, bytes.length);
+        return at + bytes.length;
+    }
+
+    private byte[] timestamp() {
+        long second = System.currentTimeMillis() / 1000;
+        if (second != stampSecond) {
+            stampSecond = second;
+            stamp = DateTime.getHl7DateTime().getBytes(charset);
+        }
+        return stamp;
+    }
+}
@@ -1,106 +1,135 @@
 package ywh.services.device.protocol.hl7;
 
-import lombok.Getter;
-import ywh.commons.TextUtils;
 import ywh.logging.DeviceLogger;
 
 import java.nio.charset.Charset;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.function.Consumer;
 
-@Getter
+/**
+ * Розбір повідомлення HL7 v2 на сегменти прямо в байтовому кадрі MLLP.
+ * <p>
+ * Сегменти розділені CR (а також LF; VT/FS обрамлення MLLP пропускаються),
+ * роздільники полів/компонентів/повторів беруться з MSH-1/MSH-2.
+ * Обробник шукається за трьома байтами ідентифікатора сегмента, невідомі сегменти не декодуються зовсім.
+ * Обробники отримують {@link Hl7Segment} — поля декодуються в рядки лише на запит.
+ * <p>
+ * Повідомлення можна подавати частинами (по сегментах, як їх віддає протокол) — роздільники
+ * з MSH зберігаються між викликами, тож один процесор — на одне повідомлення.
+ */
 public class Hl7PartsProcessor {
-    /* ─── геттеры ─── */
-    private Consumer<String[]> onMSH = x -> {
-    };  // по умолчанию ничего не делает
-    private Consumer<String[]> onPID = x -> {
-    };
-    private Consumer<String[]> onOBR = x -> {
-    };
-    private Consumer<String[]> onOBX = x -> {
-    };
-    private Consumer<String[]> onPV1 = x -> {
-    };
-    private Consumer<String[]> onSPM = x -> {
-    };
-    private Consumer<String[]> onSAC = x -> {
-    };
+    private static final byte VT = 0x0B, FS = 0x1C;
+    private static final int MSH = key('M', 'S', 'H');
+
+    // ідентифікатори сегментів (3 байти в int) і їхні обробники, по індексу
+    private int[] keys = new int[8];
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Consumer<Hl7Segment>[] handlers = new Consumer[8];
+    private int size;
+
     private final DeviceLogger logger;
+    private final Hl7Segment segment = new Hl7Segment();
+    private byte field = '|', component = '^', repeat = '~';
 
     public Hl7PartsProcessor(DeviceLogger logger) {
         this.logger = logger;
     }
 
-    public Hl7PartsProcessor Hl7PartsProcessor(DeviceLogger logger) {
-        return new Hl7PartsProcessor(logger);
+    /* ─── сеттеры ─── */
+    public Hl7PartsProcessor setOnMSH(Consumer<Hl7Segment> onMSH) {
+        return on("MSH", onMSH);
     }
 
-    /* ─── сеттеры ─── */
-    public Hl7PartsProcessor setOnMSH(Consumer<String[]> onMSH) {
-        this.onMSH = onMSH;
-        return this;
+    public Hl7PartsProcessor setOnPID(Consumer<Hl7Segment> onPID) {
+        return on("PID", onPID);
     }
 
-    public Hl7PartsProcessor setOnPID(Consumer<String[]> onPID) {
-        this.onPID = onPID;
-        return this;
+    public Hl7PartsProcessor setOnOBR(Consumer<Hl7Segment> onOBR) {
+        return on("OBR", onOBR);
     }
 
-    public Hl7PartsProcessor setOnOBR(Consumer<String[]> onOBR) {
-        this.onOBR = onOBR;
-        return this;
+    public Hl7PartsProcessor setOnOBX(Consumer<Hl7Segment> onOBX) {
+        return on("OBX", onOBX);
     }
 
-    public Hl7PartsProcessor setOnOBX(Consumer<String[]> onOBX) {
-        this.onOBX = onOBX;
-        return this;
+    public Hl7PartsProcessor setOnPV1(Consumer<Hl7Segment> onPV1) {
+        return on("PV1", onPV1);
     }
 
-    public Hl7PartsProcessor setOnPV1(Consumer<String[]> onPV1) {
-        this.onPV1 = onPV1;
-        return this;
+    public Hl7PartsProcessor setOnSPM(Consumer<Hl7Segment> onSPM) {
+        return on("SPM", onSPM);
     }
 
-    public Hl7PartsProcessor setOnSPM(Consumer<String[]> onSPM) {
-        this.onSPM = onSPM;
-        return this;
+    public Hl7PartsProcessor setOnSAC(Consumer<Hl7Segment> onSAC) {
+        return on("SAC", onSAC);
     }
-   public Hl7PartsProcessor setOnSAC(Consumer<String[]> onSAC) {
-        this.onSAC = onSAC;
+
+    /** Обробник довільного сегмента, напр. {@code "NTE"}. */
+    public Hl7PartsProcessor on(String segmentId, Consumer<Hl7Segment> handler) {
+        if (segmentId.length() != 3) throw new IllegalArgumentException("segment id must be 3 characters: " + segmentId);
+        int key = key(segmentId.charAt(0), segmentId.charAt(1), segmentId.charAt(2));
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                handlers[i] = handler;
+                return this;
+            }
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            handlers = Arrays.copyOf(handlers, size * 2);
+        }
+        keys[size] = key;
+        handlers[size++] = handler;
         return this;
     }
 
-    public String[] getFrames(byte[] frame, Charset charset) {
-        var message = TextUtils.toString(frame, charset);
-        var split = message
-                .replaceAll("[\\u000B\\u001C]", "")
-                .split("\\R");
-        return split;
-    }
+    /* ─── розбір ─── */
+
     public void processFrames(byte[] data, Charset charset) {
-        var frames = getFrames(data, charset);
-        processFrames(frames);
+        processFrames(data, 0, data.length, charset);
     }
-    public void processFrames(String[] frames) {
-        Map<String, Consumer<String[]>> processorMap = Map.of(
-                "MSH", getOnMSH(),
-                "PID", getOnPID(),
-                "PV1", getOnPV1(),
-                "OBR", getOnOBR(),
-                "OBX", getOnOBX(),
-                "SPM", getOnSPM(),
-                "SAC", getOnSAC()
-        );
-
-        for (var frame : frames) {
+
+    /** Розбирає сегменти з ділянки {@code [offset, offset + length)}; масив потрібен лише під час виклику. */
+    public void processFrames(byte[] data, int offset, int length, Charset charset) {
+        int limit = offset + length;
+        int i = offset;
+        while (i < limit) {
+            while (i < limit && isSegmentBreak(data[i])) i++;
+            int start = i;
+            while (i < limit && !isSegmentBreak(data[i])) i++;
+            int end = i;
+            if (end - start < 3) continue;
+
+            int key = key(data[start], data[start + 1], data[start + 2]);
+            if (key == MSH && end - start > 5) {                    // MSH|^~\& — роздільники цього повідомлення
+                field = data[start + 3];
+                component = data[start + 4];
+                repeat = data[start + 5];
+            }
+            Consumer<Hl7Segment> handler = handler(key);
+            if (handler == null) continue;
+
+            segment.index(data, start, end, charset, field, repeat, component);
             try {
-                String[] parts = frame.split("\\|");
-                String frameType = frame.substring(0, 3);
-                processorMap.getOrDefault(frameType, x -> {
-                }).accept(parts);
+                handler.accept(segment);
             } catch (Exception e) {
                 logger.error("Error while parsing frame data", e);
             }
         }
     }
-}
\ No newline at end of file
+
+    private Consumer<Hl7Segment> handler(int key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) return handlers[i];
+        }
+        return null;
+    }
+
+    private static boolean isSegmentBreak(byte b) {
+        return b == '\r' || b == '\n' || b == VT || b == FS;
+    }
+
+    private static int key(int a, int b, int c) {
+        return (a & 0xFF) << 16 | (b & 0xFF) << 8 | (c & 0xFF);
+    }
+}
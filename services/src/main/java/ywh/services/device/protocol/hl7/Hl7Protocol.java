@@ -2,31 +2,76 @@ package ywh.services.device.protocol.hl7;
 
 import ywh.services.data.enums.SpecialBytes;
 import ywh.services.device.protocol.BufferedProtocolAbstract;
+import ywh.services.device.protocol.FrameBuffer;
+import ywh.services.device.protocol.IRecordProtocol;
 import ywh.logging.DeviceLogger;
 
-public final class Hl7Protocol extends BufferedProtocolAbstract {
+/** Сегменти закінчуються CR — їх можна віддавати по одному, не чекаючи FS. */
+public final class Hl7Protocol extends BufferedProtocolAbstract implements IRecordProtocol {
     public Hl7Protocol(DeviceLogger logger, long idleTimeoutMs) {
         super(logger, idleTimeoutMs);
     }
 
     @Override
-    public void onByte(byte b) {
+    protected void process(byte b) {
         if (b == SpecialBytes.HL7START.getValue()) {
             logger.log("Got HL7 start byte, flushing buffer...");
+            if (isRecordMode()) reset();            // FS попереднього повідомлення загубився
         } else if (b == SpecialBytes.HL7END.getValue()) {
             append(b);
             logger.log("HL7 end byte detected, processing message...");
-            fireFrame();
+            completeMessage();
             return;
         }
         append(b);
+        if (b == '\r') fireRecord(0);
+    }
+
+    @Override
+    protected void process(byte[] data, int offset, int length) {
+        final byte start = SpecialBytes.HL7START.getValue();
+        final byte end = SpecialBytes.HL7END.getValue();
+        final boolean records = isRecordMode();
+        int runStart = offset;
+        for (int i = offset, limit = offset + length; i < limit; i++) {
+            byte b = data[i];
+            if (b == start) {
+                logger.log("Got HL7 start byte, flushing buffer...");
+                if (records) {
+                    reset();
+                    runStart = i;
+                }
+            } else if (b == end) {
+                append(data, runStart, i + 1 - runStart);
+                logger.log("HL7 end byte detected, processing message...");
+                completeMessage();
+                runStart = i + 1;
+            } else if (b == '\r' && records) {
+                append(data, runStart, i + 1 - runStart);
+                fireRecord(0);
+                runStart = i + 1;
+            }
+        }
+        append(data, runStart, offset + length - runStart);
+    }
 
+    private void completeMessage() {
+        if (isRecordMode()) {
+            fireRecord(0);
+            reset();
+        } else {
+            fireFrame();
+        }
     }
 
     @Override
-    protected void onIdleTimeout(byte[] incompleteFrame) {
-        logger.log("HL7-idle: incomplete frame detected, " + incompleteFrame.length + " bytes. Will try to parse it anyway...");
-        if (incompleteFrame.length < 100) return;
+    protected void onIdleTimeout(FrameBuffer incompleteFrame) {
+        if (isRecordMode()) {
+            super.onIdleTimeout(incompleteFrame);
+            return;
+        }
+        logger.log("HL7-idle: incomplete frame detected, " + incompleteFrame.size() + " bytes. Will try to parse it anyway...");
+        if (incompleteFrame.size() < 100) return;
         fireFrame();
     }
 }
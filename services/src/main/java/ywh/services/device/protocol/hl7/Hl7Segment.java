@@ -0,0 +1,25 @@
+package ywh.services.device.protocol.hl7;
+
+import ywh.services.device.protocol.DelimitedRecord;
+
+import java.nio.charset.Charset;
+
+/**
+ * Один сегмент HL7 v2 ({@code MSH}, {@code PID}, {@code OBX}, ...) — див. {@link DelimitedRecord}.
+ * Роздільники — з MSH-1/MSH-2 повідомлення. Для MSH нумерація як у {@code split}:
+ * {@code field(1)} — символи кодування (MSH-2), {@code field(9)} — MSH-10.
+ */
+public final class Hl7Segment extends DelimitedRecord {
+
+    Hl7Segment() {
+    }
+
+    void index(byte[] data, int start, int end, Charset charset,
+               byte fieldDelimiter, byte repeatDelimiter, byte componentDelimiter) {
+        indexFields(data, start, end, charset, fieldDelimiter, repeatDelimiter, componentDelimiter);
+    }
+
+    public String type() {
+        return field(0);
+    }
+}
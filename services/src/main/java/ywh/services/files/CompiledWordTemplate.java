@@ -0,0 +1,440 @@
+package ywh.services.files;
+
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Шаблон Word, розібраний один раз.
+ * <p>
+ * При компіляції «розірвані» між run-ами плейсхолдери склеюються, строка-шаблон показника кожної
+ * таблиці один раз копіюється засобами POI (так само, як її копіював би рендер), а місце для картинок
+ * позначається порожнім абзацом. Отриманий {@code document.xml} ріжеться на фрагменти: готовий XML,
+ * тексти з {ключами}, прототип строки показника (по run-ах — щоб підсвітити значення і відхилення) та
+ * точка вставки картинок. Решта частин пакета зберігається як є — {@link DocxStreamWriter} переписує
+ * їх у результат без розбору.
+ * <p>
+ * Кеш — за абсолютним шляхом; змінений на диску файл (час модифікації або розмір) компілюється заново.
+ */
+final class CompiledWordTemplate {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([^{}]+)\\}");
+    private static final Set<String> INDICATOR_KEYS = Set.of(
+            "IndicatorCode", "IndicatorName", "Unit", "Value", "Norm", "Deviation");
+    private static final Map<Path, CompiledWordTemplate> CACHE = new ConcurrentHashMap<>();
+
+    /** Мітка (w:rsid…) прототипів строк і абзацу картинок на час компіляції; лише цифри — регістр не важить. */
+    private static final String MARKER = "31415926";
+    private static final String ROW_OPEN = "<w:tr w:rsidTr=\"" + MARKER + "\"";
+    private static final String IMAGES_OPEN = "<w:p w:rsidR=\"" + MARKER + "\"";
+    private static final Pattern ROW_TAG = Pattern.compile("<w:tr[ >]|</w:tr>");
+    private static final Pattern RUN_OPEN = Pattern.compile("<w:r(?: [^>]*[^/])?>");
+    private static final Pattern TEXT = Pattern.compile("<w:t( xml:space=\"preserve\")?>([^<]*)</w:t>");
+    private static final Pattern RUN = Pattern.compile(
+            "(?:<w:rPr>(.*)</w:rPr>)?<w:t(?:( xml:space=\"preserve\")?>([^<]*)</w:t>|/>)", Pattern.DOTALL);
+    private static final Pattern REL_ID = Pattern.compile("Id=\"rId(\\d+)\"");
+    private static final Pattern MEDIA = Pattern.compile("media/image(\\d+)\\.");
+    private static final Pattern DRAWING_ID = Pattern.compile("<wp:docPr id=\"(\\d+)\"");
+
+    /*────────────── фрагменти document.xml ──────────────*/
+
+    interface Fragment {
+    }
+
+    /** Готовий XML. */
+    record Literal(String xml) implements Fragment {
+    }
+
+    /** Вміст {@code <w:t>} з плейсхолдерами: парні шматки — літерали (розекрановані), непарні — ключі. */
+    record Text(boolean preserve, List<String> parts) implements Fragment {
+        String render(Map<String, String> values) {
+            if (parts.size() == 1) return parts.get(0);
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < parts.size(); i++) {
+                sb.append((i & 1) == 0 ? parts.get(i) : values.getOrDefault(parts.get(i), ""));
+            }
+            return sb.toString();
+        }
+    }
+
+    /** Run строки-прототипу: властивості ({@code null} — немає) і текст, який можна підсвітити. */
+    record Run(String rPr, Text text) implements Fragment {
+    }
+
+    /** Місце строк показників таблиці; {@code prototype} — одна строка, розібрана на фрагменти. */
+    record Rows(List<Fragment> prototype) implements Fragment {
+    }
+
+    /** Місце абзацу з картинками. */
+    enum Images implements Fragment {
+        AT
+    }
+
+    private record Stamp(long modified, long size) {
+    }
+
+    /*────────────── поля ──────────────*/
+    private final Stamp stamp;
+    private final byte[] pack;              // пакет з прототипами, з нього копіюються всі частини, крім документа
+    private final String documentPart;      // word/document.xml
+    private final List<Fragment> document;
+    private final boolean hasRows;
+    private final int nextRelId;
+    private final int nextImage;
+    private final int nextDrawingId;
+
+    private CompiledWordTemplate(Stamp stamp, byte[] pack, String documentPart, List<Fragment> document,
+                                 int nextRelId, int nextImage, int nextDrawingId) {
+        this.stamp = stamp;
+        this.pack = pack;
+        this.documentPart = documentPart;
+        this.document = document;
+        this.hasRows = document.stream().anyMatch(Rows.class::isInstance);
+        this.nextRelId = nextRelId;
+        this.nextImage = nextImage;
+        this.nextDrawingId = nextDrawingId;
+    }
+
+    static CompiledWordTemplate of(File templateFile) throws IOException {
+        Path path = templateFile.toPath().toAbsolutePath();
+        var attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        Stamp current = new Stamp(attrs.lastModifiedTime().toMillis(), attrs.size());
+
+        CompiledWordTemplate cached = CACHE.get(path);
+        if (cached != null && cached.stamp.equals(current)) return cached;
+        CompiledWordTemplate compiled = compile(path, current);
+        CACHE.put(path, compiled);
+        return compiled;
+    }
+
+    ZipInputStream openPackage() {
+        return new ZipInputStream(new ByteArrayInputStream(pack));
+    }
+
+    String documentPart() {
+        return documentPart;
+    }
+
+    String relationshipsPart() {
+        int slash = documentPart.lastIndexOf('/');
+        return documentPart.substring(0, slash + 1) + "_rels/" + documentPart.substring(slash + 1) + ".rels";
+    }
+
+    /** Тека документа в пакеті (з кінцевим «/»), відносно неї — цілі зв'язків. */
+    String documentFolder() {
+        return documentPart.substring(0, documentPart.lastIndexOf('/') + 1);
+    }
+
+    List<Fragment> document() {
+        return document;
+    }
+
+    /** Чи є в шаблоні строки показників (інакше показники можна не готувати). */
+    boolean hasRows() {
+        return hasRows;
+    }
+
+    int nextRelId() {
+        return nextRelId;
+    }
+
+    int nextImage() {
+        return nextImage;
+    }
+
+    int nextDrawingId() {
+        return nextDrawingId;
+    }
+
+    /*────────────── компіляція ──────────────*/
+
+    private static CompiledWordTemplate compile(Path path, Stamp stamp) throws IOException {
+        try (FileInputStream is = new FileInputStream(path.toFile());
+             XWPFDocument doc = new XWPFDocument(is)) {
+            for (XWPFParagraph p : doc.getParagraphs()) {
+                mergeSplitPlaceholders(p);
+            }
+            byte[] marker = HexFormat.of().parseHex(MARKER);
+            for (XWPFTable table : doc.getTables()) {
+                for (XWPFTableRow row : table.getRows()) {
+                    for (XWPFTableCell cell : row.getTableCells()) {
+                        cell.getParagraphs().forEach(CompiledWordTemplate::mergeSplitPlaceholders);
+                    }
+                }
+                int templateRow = findTemplateRow(table);
+                if (templateRow < 0) continue;
+                XWPFTableRow prototype = copyRow(table, table.getRow(templateRow), templateRow);
+                prototype.getCtRow().setRsidTr(marker);
+                table.removeRow(templateRow + 1);
+            }
+            // doc.createParagraph() всегда добавляется в конец — там же окажутся картинки
+            doc.createParagraph().getCTP().setRsidR(marker);
+
+            String documentPart = doc.getPackagePart().getPartName().getName().substring(1);
+            var out = new ByteArrayOutputStream();
+            doc.write(out);
+            byte[] pack = out.toByteArray();
+
+            String documentXml = null;
+            int nextRelId = 1;
+            int nextImage = 1;
+            try (var zip = new ZipInputStream(new ByteArrayInputStream(pack))) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    String name = entry.getName();
+                    if (name.equals(documentPart)) {
+                        documentXml = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                    } else if (name.endsWith(".rels")) {
+                        nextRelId = Math.max(nextRelId, maxNumber(REL_ID, new String(zip.readAllBytes(), StandardCharsets.UTF_8)) + 1);
+                    } else {
+                        nextImage = Math.max(nextImage, maxNumber(MEDIA, name) + 1);
+                    }
+                }
+            }
+            if (documentXml == null) throw new IOException("No " + documentPart + " in " + path);
+            return new CompiledWordTemplate(stamp, pack, documentPart, List.copyOf(split(documentXml)),
+                    nextRelId, nextImage, maxNumber(DRAWING_ID, documentXml) + 1);
+        }
+    }
+
+    private static int maxNumber(Pattern pattern, String text) {
+        int max = 0;
+        Matcher m = pattern.matcher(text);
+        while (m.find()) max = Math.max(max, Integer.parseInt(m.group(1)));
+        return max;
+    }
+
+    private static int findTemplateRow(XWPFTable table) {
+        List<XWPFTableRow> rows = table.getRows();
+        for (int r = 0; r < rows.size(); r++) {
+            StringBuilder text = new StringBuilder();
+            for (XWPFTableCell cell : rows.get(r).getTableCells()) {
+                text.append(cell.getText()).append(" ");
+            }
+            for (String key : INDICATOR_KEYS) {
+                if (text.indexOf("{" + key + "}") >= 0) return r;
+            }
+        }
+        return -1;
+    }
+
+    /** Склеює «розірвані» між run-ами плейсхолдери параграфа. */
+    private static void mergeSplitPlaceholders(XWPFParagraph p) {
+        List<XWPFRun> runs = p.getRuns();
+        for (int i = 0; i < runs.size() - 1; i++) {
+            String t = runs.get(i).getText(0);
+            if (t != null && t.contains("{") && !t.contains("}")) {
+                StringBuilder sb = new StringBuilder(t);
+                int j = i + 1;
+                while (j < runs.size()) {
+                    String nt = runs.get(j).getText(0);
+                    sb.append(nt == null ? "" : nt);
+                    if (nt != null && nt.contains("}")) break;
+                    j++;
+                }
+                runs.get(i).setText(sb.toString(), 0);
+                for (int k = Math.min(j, runs.size() - 1); k > i; k--) {
+                    p.removeRun(k);
+                }
+            }
+        }
+    }
+
+    private static XWPFTableRow copyRow(XWPFTable table, XWPFTableRow src, int pos) {
+        XWPFTableRow newRow = table.insertNewTableRow(pos);
+
+        List<XWPFTableCell> srcCells = src.getTableCells();
+        for (int i = 0; i < srcCells.size(); i++) {
+            XWPFTableCell srcCell = srcCells.get(i);
+            XWPFTableCell newCell = i < newRow.getTableCells().size()
+                    ? newRow.getCell(i)
+                    : newRow.createCell();
+
+            // Копируем свойства ЯЧЕЙКИ (vertical align, shading, width…)
+            if (srcCell.getCTTc().isSetTcPr()) {
+                newCell.getCTTc().setTcPr(srcCell.getCTTc().getTcPr());
+            }
+
+            // Проходим по параграфам
+            for (XWPFParagraph srcP : srcCell.getParagraphs()) {
+                XWPFParagraph newP = newCell.addParagraph();
+
+                // Копируем свойства ПАРАГРАФА (align, spacing, style …)
+                if (srcP.getCTP().isSetPPr()) {
+                    newP.getCTP().setPPr(srcP.getCTP().getPPr());
+                }
+
+                // Копируем runs (при необходимости – со всем RPr)
+                for (XWPFRun srcRun : srcP.getRuns()) {
+                    XWPFRun newRun = newP.createRun();
+                    newRun.setText(srcRun.getText(0), 0);
+                    if (srcRun.getCTR().isSetRPr()) {
+                        newRun.getCTR().setRPr(srcRun.getCTR().getRPr());
+                    }
+                }
+            }
+
+            // Удаляем лишний пустой параграф, созданный POI по-умолчанию
+            if (newCell.getParagraphs().size() > srcCell.getParagraphs().size()) {
+                newCell.removeParagraph(0);
+            }
+        }
+        // Копируем свойства СТРОКИ (высота, header, cantSplit…)
+        newRow.getCtRow().setTrPr(src.getCtRow().getTrPr());
+
+        return newRow;
+    }
+
+    /*────────────── розбір document.xml ──────────────*/
+
+    /** Ріже документ на фрагменти: прототипи строк і абзац картинок знаходяться за міткою. */
+    private static List<Fragment> split(String xml) throws IOException {
+        List<Fragment> out = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int row = xml.indexOf(ROW_OPEN, from);
+            int images = xml.indexOf(IMAGES_OPEN, from);
+            int next = row < 0 ? images : images < 0 ? row : Math.min(row, images);
+            if (next < 0) {
+                texts(xml.substring(from), out);
+                return out;
+            }
+            texts(xml.substring(from, next), out);
+            if (next == row) {
+                int end = rowEnd(xml, row);
+                out.add(new Rows(List.copyOf(runs("<w:tr" + xml.substring(row + ROW_OPEN.length(), end)))));
+                from = end;
+            } else {
+                int close = xml.indexOf('>', images);
+                from = xml.charAt(close - 1) == '/' ? close + 1 : xml.indexOf("</w:p>", close) + "</w:p>".length();
+                out.add(Images.AT);
+            }
+        }
+    }
+
+    private static int rowEnd(String xml, int start) throws IOException {
+        int depth = 0;
+        Matcher m = ROW_TAG.matcher(xml).region(start, xml.length());
+        while (m.find()) {
+            if (m.group().startsWith("</")) {
+                if (--depth == 0) return m.end();
+            } else {
+                depth++;
+            }
+        }
+        throw new IOException("Unclosed indicator row in compiled template");
+    }
+
+    /**
+     * Строка-прототип: кожен {@code <w:r>} з одним текстом — окремий {@link Run}, решта — як у документі.
+     * Атрибути run-а ({@code w:rsidR} тощо) відкидаються — рендер пише голий {@code <w:r>}.
+     */
+    private static List<Fragment> runs(String rowXml) {
+        List<Fragment> out = new ArrayList<>();
+        int from = 0;
+        Matcher open = RUN_OPEN.matcher(rowXml);
+        while (open.find(from)) {
+            int start = open.start();
+            int end = rowXml.indexOf("</w:r>", start);
+            if (end < 0) break;
+            texts(rowXml.substring(from, start), out);
+            Matcher m = RUN.matcher(rowXml).region(open.end(), end);
+            if (m.matches()) {
+                String text = m.group(3) == null ? "" : unescape(m.group(3));
+                List<String> parts = parts(text);
+                out.add(new Run(m.group(1), new Text(m.group(2) != null, parts.isEmpty() ? List.of(text) : parts)));
+            } else {
+                texts(rowXml.substring(start, end + "</w:r>".length()), out);
+            }
+            from = end + "</w:r>".length();
+        }
+        texts(rowXml.substring(from), out);
+        return out;
+    }
+
+    /** Виділяє з XML вміст {@code <w:t>} з плейсхолдерами. */
+    private static void texts(String xml, List<Fragment> out) {
+        Matcher m = TEXT.matcher(xml);
+        int from = 0;
+        while (m.find()) {
+            List<String> parts = parts(unescape(m.group(2)));
+            if (parts.isEmpty()) continue;
+            literal(xml.substring(from, m.start()), out);
+            out.add(new Text(m.group(1) != null, parts));
+            from = m.end();
+        }
+        literal(xml.substring(from), out);
+    }
+
+    private static void literal(String xml, List<Fragment> out) {
+        if (xml.isEmpty()) return;
+        if (!out.isEmpty() && out.get(out.size() - 1) instanceof Literal prev) {
+            out.set(out.size() - 1, new Literal(prev.xml() + xml));
+        } else {
+            out.add(new Literal(xml));
+        }
+    }
+
+    /** Шматки «літерал / ключ / … / літерал»; порожній список — плейсхолдерів немає. */
+    private static List<String> parts(String text) {
+        if (!text.contains("{")) return List.of();
+        Matcher m = PLACEHOLDER.matcher(text);
+        List<String> parts = new ArrayList<>();
+        int from = 0;
+        while (m.find()) {
+            parts.add(text.substring(from, m.start()));
+            parts.add(m.group(1));
+            from = m.end();
+        }
+        if (parts.isEmpty()) return List.of();
+        parts.add(text.substring(from));
+        return List.copyOf(parts);
+    }
+
+    private static String unescape(String xml) {
+        if (xml.indexOf('&') < 0) return xml;
+        StringBuilder sb = new StringBuilder(xml.length());
+        int i = 0;
+        while (i < xml.length()) {
+            char c = xml.charAt(i);
+            int semi = c == '&' ? xml.indexOf(';', i) : -1;
+            if (semi < 0) {
+                sb.append(c);
+                i++;
+                continue;
+            }
+            String entity = xml.substring(i + 1, semi);
+            switch (entity) {
+                case "lt" -> sb.append('<');
+                case "gt" -> sb.append('>');
+                case "amp" -> sb.append('&');
+                case "quot" -> sb.append('"');
+                case "apos" -> sb.append('\'');
+                default -> {
+                    if (entity.startsWith("#x")) sb.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+                    else if (entity.startsWith("#")) sb.appendCodePoint(Integer.parseInt(entity.substring(1)));
+                    else sb.append('&').append(entity).append(';');
+                }
+            }
+            i = semi + 1;
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,324 @@
+package ywh.services.files;
+
+import ywh.commons.Timers;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Пул «теплих» процесів docx2pdf ({@code java -jar docx2pdf.jar --worker}).
+ * <p>
+ * • JAR вилучається з ресурсів один раз на версію — у теку з хешем вмісту в {@code java.io.tmpdir};<br>
+ * • процес запускається при першому запиті й далі живе: JVM, класи і Word вже підняті,
+ *   тож запит коштує лише саму конвертацію;<br>
+ * • не більше {@link #POOL_SIZE} процесів одночасно, решта запитів чекає;<br>
+ * • простояний процес перед видачею перевіряється PING-ом; мертвий, завислий або той, що не відповів
+ *   вчасно, — знищується, замість нього стартує новий. Якщо процес упав посеред конвертації,
+ *   запит один раз повторюється на свіжому.
+ */
+public final class Docx2PdfWorkerPool implements AutoCloseable {
+    private static final String JAR_RESOURCE = "/tools/docx2pdf.jar";
+    private static final int POOL_SIZE = 2;
+    private static final long START_TIMEOUT_MS = 60_000;
+    private static final long CONVERT_TIMEOUT_MS = 30_000;
+    private static final long PING_TIMEOUT_MS = 5_000;
+    private static final long PING_AFTER_IDLE_MS = 60_000;
+
+    private static volatile Docx2PdfWorkerPool shared;
+
+    /*────────────── поля ──────────────*/
+    private final Semaphore permits = new Semaphore(POOL_SIZE, true);
+    private final Deque<Worker> idle = new ArrayDeque<>();     // під this
+    private final List<Worker> all = new ArrayList<>();        // під this
+    private Path jar;                                           // під this
+    private boolean closed;                                     // під this
+
+    public static Docx2PdfWorkerPool shared() {
+        if (shared == null) {
+            synchronized (Docx2PdfWorkerPool.class) {
+                if (shared == null) {
+                    var pool = new Docx2PdfWorkerPool();
+                    Runtime.getRuntime().addShutdownHook(new Thread(pool::close, "docx2pdf-shutdown"));
+                    shared = pool;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Конвертує документ у вільному процесі пулу.
+     *
+     * @throws IOException якщо конвертація не вдалася, процес не відповів вчасно або не стартував
+     */
+    public void convert(File docx, File pdf) throws IOException, InterruptedException {
+        permits.acquire();
+        try {
+            try {
+                convertOnce(docx, pdf);
+            } catch (WorkerCrashedException e) {
+                convertOnce(docx, pdf);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Піднімає процес заздалегідь (щоб перша конвертація не чекала старту JVM і Word) і перевіряє його PING-ом.
+     *
+     * @throws IOException якщо процес не стартував або не відповів
+     */
+    public void warmUp() throws IOException, InterruptedException {
+        permits.acquire();
+        try {
+            Worker worker = acquire();
+            boolean healthy = false;
+            try {
+                String reply = worker.request("PING", PING_TIMEOUT_MS);
+                if (!"PONG".equals(reply)) throw new IOException("Unexpected docx2pdf worker reply: " + reply);
+                healthy = true;
+            } finally {
+                release(worker, healthy);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void convertOnce(File docx, File pdf) throws IOException {
+        Worker worker = acquire();
+        boolean healthy = false;
+        try {
+            String reply = worker.request("CONVERT\t" + docx.getAbsolutePath() + "\t" + pdf.getAbsolutePath(), CONVERT_TIMEOUT_MS);
+            healthy = true;
+            if (!reply.startsWith("OK")) {
+                throw new IOException("Conversion failed: " + reply.substring(reply.indexOf('\t') + 1));
+            }
+        } finally {
+            release(worker, healthy);
+        }
+    }
+
+    /*────────────── процеси ──────────────*/
+
+    private Worker acquire() throws IOException {
+        Worker worker;
+        synchronized (this) {
+            if (closed) throw new IOException("docx2pdf pool is closed");
+            worker = idle.pollFirst();
+        }
+        if (worker != null && worker.isAlive()) {
+            if (worker.idleMs() < PING_AFTER_IDLE_MS) return worker;
+            try {
+                if ("PONG".equals(worker.request("PING", PING_TIMEOUT_MS))) return worker;
+            } catch (IOException ignored) {
+                // не відповів — замінюємо нижче
+            }
+        }
+        if (worker != null) discard(worker);
+        return start();
+    }
+
+    private void release(Worker worker, boolean healthy) {
+        synchronized (this) {
+            if (healthy && !closed && worker.isAlive()) {
+                idle.addFirst(worker);  // найсвіжіший — першим, решта рідше чіпаються і рідше пінгуються
+                return;
+            }
+        }
+        discard(worker);
+    }
+
+    private Worker start() throws IOException {
+        Path jarPath;
+        synchronized (this) {
+            if (jar == null) jar = extractJar();
+            jarPath = jar;
+        }
+        var pb = new ProcessBuilder(javaExecutable(), "-jar", jarPath.toString(), "--worker")
+                .directory(new File(System.getProperty("user.dir")))
+                .redirectError(ProcessBuilder.Redirect.DISCARD);   // свій лог конвертер пише у файл
+        Worker worker = new Worker(pb.start());
+        synchronized (this) {
+            all.add(worker);
+        }
+        try {
+            awaitReady(worker);
+        } catch (IOException e) {
+            discard(worker);
+            throw e;
+        }
+        return worker;
+    }
+
+    /**
+     * Чекає READY; рядки до нього (консольний вивід старішої версії конвертера) пропускаються.
+     */
+    private static void awaitReady(Worker worker) throws IOException {
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MS;
+        String line;
+        do {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) throw new IOException("docx2pdf worker did not send READY in " + START_TIMEOUT_MS + " ms");
+            line = worker.read(left);
+        } while (!"READY".equals(line));
+    }
+
+    private void discard(Worker worker) {
+        synchronized (this) {
+            all.remove(worker);
+            idle.remove(worker);
+        }
+        worker.kill();
+    }
+
+    @Override
+    public void close() {
+        List<Worker> workers;
+        synchronized (this) {
+            closed = true;
+            workers = new ArrayList<>(all);
+            all.clear();
+            idle.clear();
+        }
+        for (Worker worker : workers) worker.quit();
+    }
+
+    /*────────────── JAR / java ──────────────*/
+
+    private Path extractJar() throws IOException {
+        byte[] content;
+        try (InputStream is = getClass().getResourceAsStream(JAR_RESOURCE)) {
+            if (is == null) {
+                throw new IOException("docx2pdf.jar не знайдено в ресурсах по шляху " + JAR_RESOURCE);
+            }
+            content = is.readAllBytes();
+        }
+        Path dir = Path.of(System.getProperty("java.io.tmpdir"), "ywh-docx2pdf", sha256(content).substring(0, 16));
+        Path target = dir.resolve("docx2pdf.jar");
+        if (Files.exists(target) && Files.size(target) == content.length) return target;
+
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, "docx2pdf", ".part");
+        Files.write(temp, content);
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            if (!Files.exists(target)) throw e; // паралельний процес уже вилучив ту саму версію
+        }
+        return target;
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String javaExecutable() {
+        String javaHome = System.getProperty("java.home");
+        boolean windows = System.getProperty("os.name").toLowerCase().contains("win");
+        return javaHome + File.separator + "bin" + File.separator + (windows ? "java.exe" : "java");
+    }
+
+    /*────────────── один процес ──────────────*/
+
+    /** Процес завершився посеред запиту — на відміну від відповіді ERROR, запит має сенс повторити. */
+    private static final class WorkerCrashedException extends IOException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        WorkerCrashedException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Worker {
+        private final Process process;
+        private final BufferedWriter in;
+        private final BufferedReader out;
+        private long lastUsed = System.currentTimeMillis();
+
+        Worker(Process process) {
+            this.process = process;
+            this.in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            this.out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        long idleMs() {
+            return System.currentTimeMillis() - lastUsed;
+        }
+
+        String request(String line, long timeoutMs) throws IOException {
+            try {
+                in.write(line);
+                in.newLine();
+                in.flush();
+            } catch (IOException e) {
+                throw new WorkerCrashedException("docx2pdf worker is gone: " + e.getMessage());
+            }
+            String reply = read(timeoutMs);
+            lastUsed = System.currentTimeMillis();
+            return reply;
+        }
+
+        /** Читає рядок відповіді; якщо не встиг за {@code timeoutMs} — процес знищується. */
+        String read(long timeoutMs) throws IOException {
+            var expired = new AtomicBoolean();
+            var watchdog = Timers.schedule(() -> {
+                expired.set(true);
+                process.destroyForcibly();
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+            String reply;
+            try {
+                reply = out.readLine();
+            } catch (IOException e) {
+                reply = null;
+            } finally {
+                watchdog.cancel();
+            }
+            if (reply != null) return reply;
+            if (expired.get()) throw new IOException("Converter timeout");
+            throw new WorkerCrashedException("docx2pdf worker crashed");
+        }
+
+        void quit() {
+            try {
+                in.write("QUIT");
+                in.newLine();
+                in.flush();
+                if (process.waitFor(5, TimeUnit.SECONDS)) return;
+            } catch (IOException ignored) {
+                // вже закритий
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            kill();
+        }
+
+        void kill() {
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package ywh.services.files;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Записує готовий DOCX напряму у {@link ZipOutputStream} — без DOM POI.
+ * <p>
+ * Частини пакета з {@link CompiledWordTemplate} переписуються як є, {@code document.xml} збирається
+ * з готових фрагментів: тексти з {ключами}, строки показників за прототипом, абзац з картинками.
+ * Картинки лягають у {@code word/media}, до зв'язків документа і {@code [Content_Types].xml}
+ * дописуються лише нові записи. Пам'ять — на шаблон, а не на дерево документа.
+ */
+final class DocxStreamWriter {
+    private static final Pattern SIZE = Pattern.compile("<w:sz w:val=\"(\\d+)\"/>");
+    private static final Pattern COLOR = Pattern.compile("<w:color w:val=\"[^\"]*\"");
+    private static final String DEFAULT_SIZE = "26";  // 12 pt, якщо розмір не задано, + 1 pt
+    private static final String IMAGE_REL = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/image";
+
+    /**
+     * Значення строки показника. {@code valueText} — текст run-а, якому збільшити шрифт на 1 pt,
+     * {@code deviationText} — якому задати колір {@code deviationColor}; {@code null} — без підсвітки.
+     */
+    record Row(Map<String, String> values, String valueText, String deviationText, String deviationColor) {
+    }
+
+    /** Картинка: опис (ім'я файлу), вміст, розширення і тип частини пакета, розмір у EMU. */
+    record Picture(String name, byte[] bytes, String extension, String contentType, long cx, long cy) {
+    }
+
+    /** Картинка в пакеті: одна частина на однаковий вміст. */
+    private record Media(Picture picture, String relId, String part) {
+    }
+
+    private DocxStreamWriter() {
+    }
+
+    static void write(CompiledWordTemplate template, Map<String, String> values, List<Row> rows,
+                      List<Picture> pictures, OutputStream os) throws IOException {
+        List<Media> media = new ArrayList<>();
+        List<Media> placed = new ArrayList<>();
+        int relId = template.nextRelId();
+        int image = template.nextImage();
+        for (Picture picture : pictures) {
+            Media same = media.stream().filter(m -> Arrays.equals(m.picture().bytes(), picture.bytes())).findFirst().orElse(null);
+            if (same == null) {
+                same = new Media(picture, "rId" + relId++, "media/image" + image++ + "." + picture.extension());
+                media.add(same);
+            }
+            placed.add(new Media(picture, same.relId(), same.part()));
+        }
+
+        var zip = new ZipOutputStream(os);
+        String folder = template.documentFolder();
+        String relsPart = template.relationshipsPart();
+        boolean relsWritten = false;
+        try (ZipInputStream in = template.openPackage()) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                String name = entry.getName();
+                zip.putNextEntry(new ZipEntry(name));
+                if (name.equals(template.documentPart())) {
+                    Writer w = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+                    writeDocument(w, template, values, rows, placed);
+                    w.flush();
+                } else if (!media.isEmpty() && name.equals(relsPart)) {
+                    zip.write(addRelationships(new String(in.readAllBytes(), StandardCharsets.UTF_8), media));
+                    relsWritten = true;
+                } else if (!media.isEmpty() && name.equals("[Content_Types].xml")) {
+                    zip.write(addContentTypes(new String(in.readAllBytes(), StandardCharsets.UTF_8), media));
+                } else {
+                    in.transferTo(zip);
+                }
+                zip.closeEntry();
+            }
+        }
+        if (!media.isEmpty() && !relsWritten) {
+            zip.putNextEntry(new ZipEntry(relsPart));
+            zip.write(addRelationships("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\"></Relationships>", media));
+            zip.closeEntry();
+        }
+        for (Media m : media) {
+            zip.putNextEntry(new ZipEntry(folder + m.part()));
+            zip.write(m.picture().bytes());
+            zip.closeEntry();
+        }
+        zip.finish();
+    }
+
+    /*────────────── document.xml ──────────────*/
+
+    private static void writeDocument(Writer w, CompiledWordTemplate template, Map<String, String> values,
+                                      List<Row> rows, List<Media> pictures) throws IOException {
+        for (CompiledWordTemplate.Fragment fragment : template.document()) {
+            if (fragment instanceof CompiledWordTemplate.Literal literal) {
+                w.write(literal.xml());
+            } else if (fragment instanceof CompiledWordTemplate.Text text) {
+                writeText(w, text.preserve(), text.render(values));
+            } else if (fragment instanceof CompiledWordTemplate.Rows table) {
+                for (Row row : rows) writeRow(w, table.prototype(), row);
+            } else if (!pictures.isEmpty()) {
+                writeImages(w, pictures, template.nextDrawingId());
+            }
+        }
+    }
+
+    private static void writeRow(Writer w, List<CompiledWordTemplate.Fragment> prototype, Row row) throws IOException {
+        for (CompiledWordTemplate.Fragment fragment : prototype) {
+            if (fragment instanceof CompiledWordTemplate.Literal literal) {
+                w.write(literal.xml());
+            } else if (fragment instanceof CompiledWordTemplate.Text text) {
+                writeText(w, text.preserve(), text.render(row.values()));
+            } else if (fragment instanceof CompiledWordTemplate.Run run) {
+                String text = run.text().render(row.values());
+                String rPr = run.rPr();
+                if (text.equals(row.valueText())) rPr = enlarge(rPr);
+                if (text.equals(row.deviationText())) rPr = color(rPr, row.deviationColor());
+                w.write("<w:r>");
+                if (rPr != null) {
+                    w.write("<w:rPr>");
+                    w.write(rPr);
+                    w.write("</w:rPr>");
+                }
+                writeText(w, run.text().preserve(), text);
+                w.write("</w:r>");
+            }
+        }
+    }
+
+    /** Як {@code XWPFRun.setText}: пробіли на краях вимагають {@code xml:space="preserve"}. */
+    private static void writeText(Writer w, boolean preserve, String text) throws IOException {
+        if (!preserve && !text.isEmpty()
+                && (Character.isWhitespace(text.charAt(0)) || Character.isWhitespace(text.charAt(text.length() - 1)))) {
+            preserve = true;
+        }
+        if (text.isEmpty() && !preserve) {
+            w.write("<w:t/>");
+            return;
+        }
+        w.write(preserve ? "<w:t xml:space=\"preserve\">" : "<w:t>");
+        escape(w, text);
+        w.write("</w:t>");
+    }
+
+    private static void escape(Writer w, String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> w.write("&lt;");
+                case '>' -> w.write("&gt;");
+                case '&' -> w.write("&amp;");
+                case '"' -> w.write("&quot;");
+                default -> w.write(c);
+            }
+        }
+    }
+
+    private static String enlarge(String rPr) {
+        if (rPr == null) return "<w:sz w:val=\"" + DEFAULT_SIZE + "\"/>";
+        Matcher m = SIZE.matcher(rPr);
+        if (!m.find()) return rPr + "<w:sz w:val=\"" + DEFAULT_SIZE + "\"/>";
+        return rPr.substring(0, m.start(1)) + (Integer.parseInt(m.group(1)) + 2) + rPr.substring(m.end(1));
+    }
+
+    private static String color(String rPr, String color) {
+        String tag = "<w:color w:val=\"" + color + "\"";
+        if (rPr == null) return tag + "/>";
+        Matcher m = COLOR.matcher(rPr);
+        return m.find() ? rPr.substring(0, m.start()) + tag + rPr.substring(m.end()) : rPr + tag + "/>";
+    }
+
+    private static void writeImages(Writer w, List<Media> pictures, int drawingId) throws IOException {
+        // абзац по центру, один run на кожну картинку, щоб Word ставив їх підряд в одну строку
+        w.write("<w:p><w:pPr><w:spacing w:after=\"10\" w:before=\"100\" w:line=\"24000\" w:lineRule=\"auto\"/>"
+                + "<w:ind w:left=\"0\" w:right=\"0\"/><w:jc w:val=\"center\"/></w:pPr>");
+        for (Media media : pictures) {
+            Picture p = media.picture();
+            int id = drawingId++;
+            w.write("<w:r><w:t xml:space=\"preserve\"> </w:t><w:drawing>"
+                    + "<wp:inline distT=\"0\" distR=\"0\" distB=\"0\" distL=\"0\""
+                    + " xmlns:wp=\"http://schemas.openxmlformats.org/drawingml/2006/wordprocessingDrawing\">"
+                    + "<wp:extent cx=\"" + p.cx() + "\" cy=\"" + p.cy() + "\"/>"
+                    + "<wp:docPr id=\"" + id + "\" name=\"Drawing " + id + "\" descr=\"");
+            escape(w, p.name());
+            w.write("\"/><a:graphic xmlns:a=\"http://schemas.openxmlformats.org/drawingml/2006/main\">"
+                    + "<a:graphicData uri=\"http://schemas.openxmlformats.org/drawingml/2006/picture\">"
+                    + "<pic:pic xmlns:pic=\"http://schemas.openxmlformats.org/drawingml/2006/picture\">"
+                    + "<pic:nvPicPr><pic:cNvPr id=\"0\" name=\"Picture " + id + "\" descr=\"");
+            escape(w, p.name());
+            w.write("\"/><pic:cNvPicPr><a:picLocks noChangeAspect=\"true\"/></pic:cNvPicPr></pic:nvPicPr>"
+                    + "<pic:blipFill><a:blip r:embed=\"" + media.relId() + "\""
+                    + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"/>"
+                    + "<a:stretch><a:fillRect/></a:stretch></pic:blipFill>"
+                    + "<pic:spPr><a:xfrm><a:off x=\"0\" y=\"0\"/><a:ext cx=\"" + p.cx() + "\" cy=\"" + p.cy() + "\"/></a:xfrm>"
+                    + "<a:prstGeom prst=\"rect\"><a:avLst/></a:prstGeom></pic:spPr></pic:pic>"
+                    + "</a:graphicData></a:graphic></wp:inline></w:drawing></w:r>");
+        }
+        w.write("</w:p>");
+    }
+
+    /*────────────── зв'язки і типи ──────────────*/
+
+    private static byte[] addRelationships(String rels, List<Media> media) {
+        StringBuilder added = new StringBuilder();
+        for (Media m : media) {
+            added.append("<Relationship Id=\"").append(m.relId()).append("\" Target=\"").append(m.part())
+                    .append("\" Type=\"").append(IMAGE_REL).append("\"/>");
+        }
+        int end = rels.lastIndexOf("</Relationships>");
+        return (rels.substring(0, end) + added + rels.substring(end)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] addContentTypes(String types, List<Media> media) {
+        StringBuilder added = new StringBuilder();
+        String lower = types.toLowerCase(Locale.ROOT);
+        for (Media m : media) {
+            String ext = m.picture().extension();
+            String attr = "extension=\"" + ext.toLowerCase(Locale.ROOT) + "\"";
+            if (lower.contains(attr) || added.indexOf("Extension=\"" + ext + "\"") >= 0) continue;
+            added.append("<Default ContentType=\"").append(m.picture().contentType())
+                    .append("\" Extension=\"").append(ext).append("\"/>");
+        }
+        int open = types.indexOf('>', types.indexOf("<Types")) + 1;
+        return (types.substring(0, open) + added + types.substring(open)).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,377 @@
+package ywh.services.files;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import ywh.commons.ImageUtils;
+import ywh.commons.TextUtils;
+import ywh.logging.DeviceLogger;
+import ywh.services.data.enums.ObservationKey;
+import ywh.services.data.mapping.LocalObservationMapper;
+import ywh.services.data.models.observation.DeviationType;
+import ywh.services.data.models.observation.ObservationData;
+import ywh.services.data.models.observation.PrintIndicatorResultModel;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Звіт одразу в PDF — для тих, кому не потрібен {@code .docx}: без POI і без процесу docx2pdf.
+ * <p>
+ * Макет повторює стандартний шаблон: шапка з тими самими плейсхолдерами (власник, тварина, дати),
+ * таблиця показників ({@link PrintIndicatorResultModel}) з підсвіткою відхилень і гістограми під нею.
+ * Таблиця переноситься на наступні сторінки разом із заголовком.
+ * <p>
+ * Шрифт з кирилицею — {@code /fonts/report-regular.ttf} / {@code report-bold.ttf} з ресурсів, якщо є,
+ * інакше системний (Arial, DejaVu Sans). Файли шрифтів читаються з диска один раз на процес; розбирає
+ * їх кожен документ сам (розібраний шрифт не потокобезпечний), тож звіти будуються паралельно.
+ */
+public class PdfReportRenderer {
+    private static final PDRectangle PAGE = PDRectangle.A4;
+    private static final float MARGIN_X = 28;
+    private static final float MARGIN_TOP = 36;
+    private static final float MARGIN_BOTTOM = 36;
+    private static final float TITLE_SIZE = 13;
+    private static final float TEXT_SIZE = 10;
+    private static final float TABLE_SIZE = 9;
+    private static final float PADDING = 3;
+    private static final float[] COLUMNS = {0.34f, 0.12f, 0.12f, 0.24f, 0.18f};
+    private static final float IMAGE_WIDTH = 125 * 0.75f;     // 125×115 px, як у Word
+    private static final float IMAGE_HEIGHT = 115 * 0.75f;
+    private static final float IMAGE_GAP = 6;
+    private static final Color GRID = new Color(0x80, 0x80, 0x80);
+    private static final Color HEADER_FILL = new Color(0xE7, 0xE6, 0xE6);
+
+    private static final String WINDOWS_FONTS = System.getenv().getOrDefault("WINDIR", "C:\\Windows") + File.separator + "Fonts";
+    private static final List<Path> REGULAR_FONTS = List.of(
+            Path.of(WINDOWS_FONTS, "arial.ttf"),
+            Path.of("/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf"),
+            Path.of("/System/Library/Fonts/Supplemental/Arial.ttf"));
+    private static final List<Path> BOLD_FONTS = List.of(
+            Path.of(WINDOWS_FONTS, "arialbd.ttf"),
+            Path.of("/usr/share/fonts/truetype/dejavu/DejaVuSans-Bold.ttf"),
+            Path.of("/System/Library/Fonts/Supplemental/Arial Bold.ttf"));
+
+    private static byte[] regularFont;          // під PdfReportRenderer.class
+    private static byte[] boldFont;             // під PdfReportRenderer.class
+
+    private final Path outputPath;
+    private final DeviceLogger logger;
+
+    public PdfReportRenderer(Path outputPath, DeviceLogger logger) {
+        this.outputPath = outputPath;
+        this.logger = logger;
+    }
+
+    /** Будує PDF у теці виводу; ім'я — як у Word-звіту. Повертає шлях до файлу. */
+    public String generate(ObservationData data) throws IOException {
+        Map<String, String> values = WordTemplateService.placeholders(data);
+        List<PrintIndicatorResultModel> indicators = LocalObservationMapper.map(data);
+
+        File dir = outputPath.toFile();
+        if (!dir.exists()) dir.mkdirs();
+        String out = dir.getAbsolutePath() + File.separator + LocalObservationMapper.getFileName(data) + ".pdf";
+
+        byte[][] fonts = fonts();
+        try (PDDocument doc = new PDDocument()) {
+            // шрифт, завантажений з потоку, документ закриє сам
+            var canvas = new Canvas(doc, PDType0Font.load(doc, new ByteArrayInputStream(fonts[0]), true),
+                    PDType0Font.load(doc, new ByteArrayInputStream(fonts[1]), true));
+            try {
+                header(canvas, values);
+                table(canvas, values, indicators, data);
+                images(canvas, data);
+            } finally {
+                canvas.close();
+            }
+            doc.save(new File(out));
+        }
+        return out;
+    }
+
+    /*────────────── розділи звіту ──────────────*/
+
+    private void header(Canvas c, Map<String, String> values) throws IOException {
+        String title = "Результати аналізу";
+        float width = c.width(title, c.bold, TITLE_SIZE);
+        c.text(title, c.bold, TITLE_SIZE, Color.BLACK, (PAGE.getWidth() - width) / 2, c.y - TITLE_SIZE);
+        c.y -= TITLE_SIZE * 2;
+
+        String[][] left = {{"Власник: ", ObservationKey.OWNER.getName()},
+                {"Номер телефону: ", ObservationKey.PHONE.getName()},
+                {"Дата: ", ObservationKey.PRINT_DATE.getName()}};
+        String[][] right = {{"Тварина: ", ObservationKey.ANIMAL_TYPE.getName()},
+                {"Кличка: ", ObservationKey.ANIMAL_NAME.getName()},
+                {"Вік: ", ObservationKey.AGE.getName()}};
+        float half = c.contentWidth() / 2;
+        for (int i = 0; i < left.length; i++) {
+            float baseline = c.y - TEXT_SIZE;
+            labelled(c, left[i][0], values.getOrDefault(left[i][1], ""), MARGIN_X, half, baseline);
+            labelled(c, right[i][0], values.getOrDefault(right[i][1], ""), MARGIN_X + half, half, baseline);
+            c.y -= TEXT_SIZE * 1.4f;
+        }
+        c.y -= TEXT_SIZE;
+    }
+
+    private void labelled(Canvas c, String label, String value, float x, float width, float baseline) throws IOException {
+        c.text(label, c.bold, TEXT_SIZE, Color.BLACK, x, baseline);
+        float labelWidth = c.width(label, c.bold, TEXT_SIZE);
+        List<String> lines = c.wrap(value, c.regular, TEXT_SIZE, width - labelWidth - PADDING);
+        if (!lines.isEmpty()) c.text(lines.get(0), c.regular, TEXT_SIZE, Color.BLACK, x + labelWidth, baseline);
+    }
+
+    private void table(Canvas c, Map<String, String> values, List<PrintIndicatorResultModel> indicators,
+                       ObservationData data) throws IOException {
+        List<Cell> head = List.of(
+                new Cell("Показник", c.bold, TABLE_SIZE, Color.BLACK),
+                new Cell("Одиниці вимір.", c.bold, TABLE_SIZE, Color.BLACK),
+                new Cell("Результат", c.bold, TABLE_SIZE, Color.BLACK),
+                new Cell("Орієнтовні норми для " + values.getOrDefault(ObservationKey.ANIMAL_NORM_NAME.getName(), ""), c.bold, TABLE_SIZE, Color.BLACK),
+                new Cell("Відхилення", c.bold, TABLE_SIZE, Color.BLACK));
+        row(c, head, true);
+
+        for (PrintIndicatorResultModel ind : indicators) {
+            if (TextUtils.isNullOrEmpty(ind.value())) continue;   // у Word така строка лишається порожньою
+            Map<String, String> v = WordTemplateService.indicatorValues(ind, data.getAnimalType());
+            boolean deviates = ind.deviation().type() != DeviationType.NORMAL;
+            Color deviation = deviates ? Color.decode("#" + WordTemplateService.deviationColor(ind.deviation())) : Color.BLACK;
+            List<Cell> cells = List.of(
+                    new Cell(v.get("IndicatorCode") + " – " + v.get("IndicatorName"), c.regular, TABLE_SIZE, Color.BLACK),
+                    new Cell(v.get("Unit"), c.regular, TABLE_SIZE, Color.BLACK),
+                    new Cell(v.get("Value"), c.regular, deviates ? TABLE_SIZE + 1 : TABLE_SIZE, Color.BLACK),
+                    new Cell(v.get("Norm"), c.regular, TABLE_SIZE, Color.BLACK),
+                    new Cell(v.get("Deviation"), c.regular, TABLE_SIZE, deviation));
+            if (!row(c, cells, false)) {
+                c.newPage();
+                row(c, head, true);
+                row(c, cells, false);
+            }
+        }
+        c.y -= TEXT_SIZE;
+    }
+
+    private record Cell(String text, PDFont font, float size, Color color) {
+    }
+
+    /** Малює строку таблиці; {@code false} — не вміщується на сторінці (і нічого не намальовано). */
+    private boolean row(Canvas c, List<Cell> cells, boolean header) throws IOException {
+        float[] widths = new float[cells.size()];
+        List<List<String>> lines = new ArrayList<>();
+        float height = 0;
+        for (int i = 0; i < cells.size(); i++) {
+            Cell cell = cells.get(i);
+            widths[i] = c.contentWidth() * COLUMNS[i];
+            List<String> wrapped = c.wrap(cell.text(), cell.font(), cell.size(), widths[i] - 2 * PADDING);
+            lines.add(wrapped);
+            height = Math.max(height, Math.max(1, wrapped.size()) * cell.size() * 1.2f + 2 * PADDING);
+        }
+        if (!c.fits(height) && !c.atTop()) return false;
+
+        float x = MARGIN_X;
+        float bottom = c.y - height;
+        if (header) {
+            c.stream.setNonStrokingColor(HEADER_FILL);
+            c.stream.addRect(MARGIN_X, bottom, c.contentWidth(), height);
+            c.stream.fill();
+        }
+        c.stream.setStrokingColor(GRID);
+        c.stream.setLineWidth(0.5f);
+        for (float width : widths) {
+            c.stream.addRect(x, bottom, width, height);
+            x += width;
+        }
+        c.stream.stroke();
+
+        x = MARGIN_X;
+        for (int i = 0; i < cells.size(); i++) {
+            Cell cell = cells.get(i);
+            float baseline = c.y - PADDING - cell.size();
+            for (String line : lines.get(i)) {
+                c.text(line, cell.font(), cell.size(), cell.color(), x + PADDING, baseline);
+                baseline -= cell.size() * 1.2f;
+            }
+            x += widths[i];
+        }
+        c.y = bottom;
+        return true;
+    }
+
+    private void images(Canvas c, ObservationData data) throws IOException {
+        List<PDImageXObject> images = new ArrayList<>();
+        data.getImages().forEach((key, base64) -> {
+            try {
+                images.add(PDImageXObject.createFromByteArray(c.doc, ImageUtils.decodeBase64(base64), key));
+            } catch (Exception ex) {
+                // звіт без однієї картинки кращий, ніж жодного
+                logger.error("Image [" + key + "] skipped in PDF report", ex);
+            }
+        });
+        int perLine = Math.max(1, (int) ((c.contentWidth() + IMAGE_GAP) / (IMAGE_WIDTH + IMAGE_GAP)));
+        for (int from = 0; from < images.size(); from += perLine) {
+            List<PDImageXObject> line = images.subList(from, Math.min(images.size(), from + perLine));
+            if (!c.fits(IMAGE_HEIGHT)) c.newPage();
+            float lineWidth = line.size() * IMAGE_WIDTH + (line.size() - 1) * IMAGE_GAP;
+            float x = (PAGE.getWidth() - lineWidth) / 2;
+            for (PDImageXObject image : line) {
+                c.stream.drawImage(image, x, c.y - IMAGE_HEIGHT, IMAGE_WIDTH, IMAGE_HEIGHT);
+                x += IMAGE_WIDTH + IMAGE_GAP;
+            }
+            c.y -= IMAGE_HEIGHT + IMAGE_GAP;
+        }
+    }
+
+    /*────────────── сторінки і текст ──────────────*/
+
+    private static final class Canvas {
+        final PDDocument doc;
+        final PDFont regular;
+        final PDFont bold;
+        PDPageContentStream stream;
+        float y;
+
+        Canvas(PDDocument doc, PDFont regular, PDFont bold) throws IOException {
+            this.doc = doc;
+            this.regular = regular;
+            this.bold = bold;
+            newPage();
+        }
+
+        void newPage() throws IOException {
+            close();
+            PDPage page = new PDPage(PAGE);
+            doc.addPage(page);
+            stream = new PDPageContentStream(doc, page);
+            y = PAGE.getHeight() - MARGIN_TOP;
+        }
+
+        void close() throws IOException {
+            if (stream != null) stream.close();
+            stream = null;
+        }
+
+        float contentWidth() {
+            return PAGE.getWidth() - 2 * MARGIN_X;
+        }
+
+        boolean fits(float height) {
+            return y - height >= MARGIN_BOTTOM;
+        }
+
+        boolean atTop() {
+            return y == PAGE.getHeight() - MARGIN_TOP;
+        }
+
+        void text(String text, PDFont font, float size, Color color, float x, float baseline) throws IOException {
+            if (text.isEmpty()) return;
+            stream.beginText();
+            stream.setFont(font, size);
+            stream.setNonStrokingColor(color);
+            stream.newLineAtOffset(x, baseline);
+            stream.showText(printable(text, font));
+            stream.endText();
+        }
+
+        float width(String text, PDFont font, float size) throws IOException {
+            return font.getStringWidth(printable(text, font)) / 1000 * size;
+        }
+
+        /** Розбиває текст на рядки по словах; задовге слово ріжеться по символах. */
+        List<String> wrap(String text, PDFont font, float size, float maxWidth) throws IOException {
+            List<String> lines = new ArrayList<>();
+            if (text == null || text.isBlank()) return lines;
+            for (String paragraph : text.split("\\R")) {
+                StringBuilder line = new StringBuilder();
+                for (String word : paragraph.trim().split("\\s+")) {
+                    String candidate = line.isEmpty() ? word : line + " " + word;
+                    if (width(candidate, font, size) <= maxWidth) {
+                        line.setLength(0);
+                        line.append(candidate);
+                        continue;
+                    }
+                    if (!line.isEmpty()) lines.add(line.toString());
+                    line.setLength(0);
+                    while (width(word, font, size) > maxWidth && word.length() > 1) {
+                        int cut = word.length() - 1;
+                        while (cut > 1 && width(word.substring(0, cut), font, size) > maxWidth) cut--;
+                        lines.add(word.substring(0, cut));
+                        word = word.substring(cut);
+                    }
+                    line.append(word);
+                }
+                if (!line.isEmpty()) lines.add(line.toString());
+            }
+            return lines;
+        }
+
+        /** Символи, яких немає у шрифті (і керівні), замінюються — інакше PDFBox кидає виняток. */
+        private static String printable(String text, PDFont font) throws IOException {
+            StringBuilder sb = null;
+            for (int i = 0; i < text.length(); ) {
+                int cp = text.codePointAt(i);
+                String ch = new String(Character.toChars(cp));
+                String replacement = null;
+                if (Character.isISOControl(cp)) {
+                    replacement = " ";
+                } else {
+                    try {
+                        font.encode(ch);
+                    } catch (IllegalArgumentException e) {
+                        replacement = "?";
+                    }
+                }
+                if (replacement != null && sb == null) sb = new StringBuilder(text.substring(0, i));
+                if (sb != null) sb.append(replacement != null ? replacement : ch);
+                i += Character.charCount(cp);
+            }
+            return sb == null ? text : sb.toString();
+        }
+    }
+
+    /*────────────── шрифти ──────────────*/
+
+    /** Чи знайдено шрифт з кирилицею; без нього {@link #generate} кидає {@link IOException}. */
+    public static boolean isFontAvailable() {
+        try {
+            fonts();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** Вміст файлів шрифтів: {звичайний, жирний}; жирного немає — обидва звичайні. */
+    private static synchronized byte[][] fonts() throws IOException {
+        if (regularFont == null) {
+            byte[] regular = readFont("regular", REGULAR_FONTS);
+            if (regular == null) {
+                throw new IOException("Не знайдено шрифт з кирилицею для PDF: " + REGULAR_FONTS);
+            }
+            byte[] bold = readFont("bold", BOLD_FONTS);
+            regularFont = regular;
+            boldFont = bold != null ? bold : regular;
+        }
+        return new byte[][]{regularFont, boldFont};
+    }
+
+    private static byte[] readFont(String style, List<Path> system) throws IOException {
+        try (InputStream is = PdfReportRenderer.class.getResourceAsStream("/fonts/report-" + style + ".ttf")) {
+            if (is != null) return is.readAllBytes();
+        }
+        for (Path path : system) {
+            if (Files.isRegularFile(path)) return Files.readAllBytes(path);
+        }
+        return null;
+    }
+}
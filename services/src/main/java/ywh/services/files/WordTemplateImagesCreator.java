@@ -1,69 +1,60 @@
 package ywh.services.files;
 
 import org.apache.poi.util.Units;
-import org.apache.poi.xwpf.usermodel.*;
 import ywh.commons.ImageUtils;
 import ywh.services.data.models.observation.ObservationData;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 public class WordTemplateImagesCreator {
     private WordTemplateImagesCreator() {
     }
 
-    protected static void addImagesAfterTables(XWPFDocument doc, ObservationData data) {
-        if (data.getImages().isEmpty()) return;
-
-        // создаём «пустой» абзац после всех таблиц (doc.createParagraph() всегда добавляется в конец)
-        XWPFParagraph p = doc.createParagraph();
-        p.setSpacingAfter(10);
-        p.setSpacingBefore(100);
-        p.setSpacingBetween(100);
-        p.setIndentationLeft(0);
-        p.setIndentationRight(0);
-
-        p.setAlignment(ParagraphAlignment.CENTER);
-        // один run на каждое изображение, чтобы Word ставил их подряд в одной строке
+    /** Картинки результату для абзацу після всіх таблиць — у порядку {@link ObservationData#getImages()}. */
+    protected static List<DocxStreamWriter.Picture> pictures(ObservationData data) {
+        List<DocxStreamWriter.Picture> pictures = new ArrayList<>();
         data.getImages().forEach((key, base64) -> {
             try {
                 byte[] bytes = ImageUtils.decodeBase64(base64);
 
-                // формат и тип картинки для Apache POI
+                // формат и тип части пакета для картинки
                 String format = ImageUtils.detectImageFormat(bytes);
-                int poiType = getPoiPictureType(format);   // новый метод
+                String[] type = getPictureType(format);
                 int width = 125;
                 int height = 115;
 
-                XWPFRun run = p.createRun();
                 // Units.toEMU переводит px → EMU (англ. «English Metric Unit»)
-                run.setText(" ");
-                run.addPicture(
-                        new ByteArrayInputStream(bytes),
-                        poiType,
+                pictures.add(new DocxStreamWriter.Picture(
                         key + "." + format.toLowerCase(Locale.ROOT),
+                        bytes,
+                        type[0],
+                        type[1],
                         Units.toEMU(width),
                         Units.toEMU(height)
-                );
+                ));
             } catch (Exception ex) {
                 // не валим генерацию документа — просто логируем/игнорируем
                 ex.printStackTrace();
             }
         });
+        return pictures;
     }
 
-    private static int getPoiPictureType(String format) throws IOException {
+    /** Расширение и content type части word/media — как у Apache POI. */
+    private static String[] getPictureType(String format) throws IOException {
         if (format == null) throw new IOException("Невідомий формат зображення");
         return switch (format.toLowerCase(Locale.ROOT)) {
-            case "jpeg", "jpg" -> Document.PICTURE_TYPE_JPEG;
-            case "png" -> Document.PICTURE_TYPE_PNG;
-            case "bmp" -> Document.PICTURE_TYPE_BMP;
-            case "gif" -> Document.PICTURE_TYPE_GIF;
-            case "tiff", "tif" -> Document.PICTURE_TYPE_TIFF;
-            case "emf" -> Document.PICTURE_TYPE_EMF;
-            case "wmf" -> Document.PICTURE_TYPE_WMF;
-            default -> throw new IOException("Формат зображення \"" + format + "\" не підтримується POI");
+            case "jpeg", "jpg" -> new String[]{"jpeg", "image/jpeg"};
+            case "png" -> new String[]{"png", "image/png"};
+            case "bmp" -> new String[]{"bmp", "image/bmp"};
+            case "gif" -> new String[]{"gif", "image/gif"};
+            case "tiff", "tif" -> new String[]{"tiff", "image/tiff"};
+            case "emf" -> new String[]{"emf", "image/x-emf"};
+            case "wmf" -> new String[]{"wmf", "image/x-wmf"};
+            default -> throw new IOException("Формат зображення \"" + format + "\" не підтримується");
         };
     }
 }
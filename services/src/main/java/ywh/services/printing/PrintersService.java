@@ -97,7 +97,9 @@ public class PrintersService {
     }
 
     public static String getDefaultPrinter() {
-       return PrintServiceLookup.lookupDefaultPrintService().getName();
+       PrintService service = PrintServiceLookup.lookupDefaultPrintService();
+       // без жодного принтера (сервер, CI) — порожнє ім'я, як у PrintSettings за замовчуванням
+       return service != null ? service.getName() : "";
     }
 
     /**
@@ -13,6 +13,10 @@ public class CommunicatorSettings {
     private String host = "127.0.0.1";
     private int port = ThreadLocalRandom.current().nextInt(1024, 65535);
     private SerialParams serialParams = new SerialParams();
+    /* FILE: відтворення запису трафіку */
+    private String replayFile = "";
+    private double replaySpeed = 1.0; // 0 — максимально швидко
+    private int replayRepeat = 1;
 
     /**
      * Фабричный метод для создания параметров TCP_HOST с заданным портом и парсером.
@@ -24,6 +28,16 @@ public class CommunicatorSettings {
         return params;
     }
 
+    /**
+     * Параметри TCP_MULTI_HOST: на порт може під’єднатися кілька аналізаторів одного типу.
+     */
+    public static CommunicatorSettings createTcpMultiHostParams(int port) {
+        CommunicatorSettings params = new CommunicatorSettings();
+        params.setType(CommunicatorType.TCP_MULTI_HOST);
+        params.setPort(port);
+        return params;
+    }
+
     public static CommunicatorSettings createSerialParams(SerialParams serialParams) {
         CommunicatorSettings params = new CommunicatorSettings();
         params.setType(CommunicatorType.SERIAL);
@@ -29,6 +29,10 @@ public class DeviceSettings {
     private ApiSettings apiSettings = new ApiSettings("http://localhost:8080/result", "http://localhost:8080/order", 30000);
     private List<FileResultActions> actions = List.of(FileResultActions.PRINT, FileResultActions.SAVE_DOCX, FileResultActions.SAVE_PDF);
     private FileResultProcessorSettings fileResultProcessorSettings = new FileResultProcessorSettings();
+    // бінарний запис сирого трафіку в captures/ (для відтворення і бенчмарків)
+    private boolean captureTraffic = false;
+    // притримувати ACK аналізатору, поки черга результатів переповнена
+    private boolean flowControl = false;
 
     @Expose(serialize = false, deserialize = false)
     private IParser cachedParser;
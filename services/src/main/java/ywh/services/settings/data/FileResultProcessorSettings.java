@@ -15,6 +15,9 @@ public class FileResultProcessorSettings {
 
     private String outputPathString = "output/";
 
+    // PDF без Word: коли .docx не зберігається і не друкується, звіт малюється одразу в PDF
+    private boolean directPdf = false;
+
 
     public FileResultProcessorSettings() {
         // Создаём директорию для файла шаблона
@@ -21,9 +21,19 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public class ApiClient {
+    /**
+     * HttpClient потокобезпечний і тримає пул з'єднань, тож один на версію/тайм-аут на весь процес:
+     * кожен запит (ApiClient створюється на запит) не відкриває нове TCP/TLS-з'єднання.
+     */
+    private record ClientKey(HttpClient.Version version, Duration timeout) {
+    }
+
+    private static final Map<ClientKey, HttpClient> CLIENTS = new ConcurrentHashMap<>();
+
     private final HttpClient client;
     private final Gson gson;
     private final String baseUri;
@@ -42,10 +52,11 @@ public class ApiClient {
     private ApiClient(String baseUri, Duration timeout) {
         this.baseUri = baseUri;
         this.queryParams = new HashMap<>();
-        this.client = HttpClient.newBuilder()
-                .version(baseUri.contains("https") ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
-                .connectTimeout(timeout)
-                .build();
+        var key = new ClientKey(baseUri.contains("https") ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1, timeout);
+        this.client = CLIENTS.computeIfAbsent(key, k -> HttpClient.newBuilder()
+                .version(k.version())
+                .connectTimeout(k.timeout())
+                .build());
 
         this.gson = new GsonBuilder()
                 .setPrettyPrinting()
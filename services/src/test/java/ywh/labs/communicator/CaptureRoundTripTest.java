@@ -0,0 +1,107 @@
+package ywh.labs.communicator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ywh.logging.DeviceLogger;
+import ywh.services.communicator.ReplaySource;
+import ywh.services.communicator.capture.CaptureReader;
+import ywh.services.communicator.capture.CaptureRecorder;
+import ywh.services.communicator.capture.Direction;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaptureRoundTripTest {
+    private static final String DEVICE = "MIURA [5100]";
+    private static final int RECORDS = 1_000;
+    private static final int RECORD_SIZE = 1_000;
+
+    @TempDir
+    Path directory;
+
+    /** Запис {@code i}: байти зі значенням {@code i}, напрямок чергується. */
+    private static byte[] payload(int i) {
+        byte[] bytes = new byte[RECORD_SIZE];
+        Arrays.fill(bytes, (byte) i);
+        return bytes;
+    }
+
+    private static Direction direction(int i) {
+        return i % 2 == 0 ? Direction.IN : Direction.OUT;
+    }
+
+    private List<Path> files() throws Exception {
+        try (Stream<Path> list = Files.list(directory)) {
+            return list.sorted().toList();
+        }
+    }
+
+    @Test
+    void rotatedSegmentsReadBackInOrderWithDirections() throws Exception {
+        try (var recorder = new CaptureRecorder(directory, DEVICE, 256 * 1024, 2, new DeviceLogger())) {
+            for (int i = 0; i < RECORDS; i++) recorder.record(direction(i), payload(i));
+        }
+
+        // ~4 сегменти по 256 КБ, лишаються 2 останні — кожен зі своїм індексом
+        var names = files().stream().map(p -> p.getFileName().toString()).toList();
+        assertEquals(List.of("MIURA_5100-000003.cap", "MIURA_5100-000003.idx",
+                "MIURA_5100-000004.cap", "MIURA_5100-000004.idx"), names);
+
+        var records = CaptureReader.readAll(directory, DEVICE);
+        int expected = Byte.toUnsignedInt(records.getFirst().data()[0]);
+        int bytesOfCurrent = 0;
+        boolean oldest = true;                               // початок найстарішого запису пішов з видаленим сегментом
+        for (var record : records) {
+            int value = Byte.toUnsignedInt(record.data()[0]);
+            if (value != expected) {                         // запис міг розірватися між сегментами
+                if (!oldest) assertEquals(RECORD_SIZE, bytesOfCurrent, "запис " + expected + " неповний");
+                oldest = false;
+                expected = (expected + 1) & 0xFF;
+                bytesOfCurrent = 0;
+            }
+            assertEquals(expected, value);
+            for (byte b : record.data()) assertEquals(value, Byte.toUnsignedInt(b));
+            assertEquals(direction(value), record.direction());
+            bytesOfCurrent += record.data().length;
+        }
+        assertEquals((RECORDS - 1) & 0xFF, expected);
+        assertEquals(RECORD_SIZE, bytesOfCurrent);
+
+        var replay = ReplaySource.open(directory);
+        long inBytes = records.stream().filter(r -> r.direction() == Direction.IN).mapToLong(r -> r.data().length).sum();
+        assertEquals(inBytes, replay.totalBytes());
+    }
+
+    @Test
+    void indexPointsAtRecordsAndSeeksByTime() throws Exception {
+        Path segment;
+        try (var recorder = new CaptureRecorder(directory, DEVICE, 1024 * 1024, 1, new DeviceLogger())) {
+            for (int i = 0; i < 300; i++) {
+                recorder.record(direction(i), payload(i));
+                if (i % 50 == 0) Thread.sleep(2);
+            }
+            segment = recorder.currentSegment();
+        }
+
+        var all = CaptureReader.read(segment);
+        var index = CaptureReader.readIndex(segment);
+        assertTrue(index.size() >= 4, "індекс: " + index);
+        long segmentStart = all.getFirst().epochNanos();     // перший запис сегмента має зсув 0
+        assertEquals(0, index.getFirst().offsetNanos());
+
+        for (var entry : index) {
+            var fromEntry = CaptureReader.read(segment, entry.offsetNanos());
+            var expected = all.stream().filter(r -> r.epochNanos() - segmentStart >= entry.offsetNanos()).toList();
+            assertEquals(expected.size(), fromEntry.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).direction(), fromEntry.get(i).direction());
+                assertArrayEquals(expected.get(i).data(), fromEntry.get(i).data());
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package ywh.labs.communicator;
+
+import org.junit.jupiter.api.Test;
+import ywh.services.communicator.OutboundQueue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundQueueTest {
+
+    /** Sink, що забирає весь буфер і запам’ятовує кожен системний «запис» окремо. */
+    private static final class RecordingSink implements OutboundQueue.Sink {
+        final List<byte[]> writes = new ArrayList<>();
+        final ByteArrayOutputStream all = new ByteArrayOutputStream();
+
+        @Override
+        public int write(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            writes.add(bytes);
+            all.writeBytes(bytes);
+            return bytes.length;
+        }
+    }
+
+    private static byte[] message(int producer, int seq) {
+        return new byte[]{(byte) producer, (byte) (seq >>> 8), (byte) seq, '\r'};
+    }
+
+    @Test
+    void keepsEachProducersOrderAndNeverInterleavesMessages() throws Exception {
+        int producers = 4, perProducer = 1_000;
+        var queue = OutboundQueue.heap(64);
+        var sink = new RecordingSink();
+
+        var writer = CompletableFuture.runAsync(() -> {
+            try {
+                while (queue.awaitPending()) queue.drain(sink);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        var threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perProducer; i++) assertTrue(queue.offer(message(producer, i)));
+            }));
+        }
+        for (Thread t : threads) t.join();
+        while (queue.hasPending()) Thread.sleep(10);
+        queue.close();
+        writer.get(5, TimeUnit.SECONDS);
+
+        byte[] out = sink.all.toByteArray();
+        assertEquals(producers * perProducer * 4, out.length);
+        int[] next = new int[producers];
+        for (int i = 0; i < out.length; i += 4) {
+            int producer = out[i];
+            int seq = (out[i + 1] & 0xFF) << 8 | out[i + 2] & 0xFF;
+            assertEquals('\r', out[i + 3], "повідомлення розірване іншим");
+            assertEquals(next[producer]++, seq, "порушено порядок відправника " + producer);
+        }
+
+        var stats = queue.stats();
+        assertEquals(producers * perProducer, stats.enqueued());
+        assertEquals(out.length, stats.writtenBytes());
+        assertEquals(0, stats.dropped());
+    }
+
+    @Test
+    void adjacentSmallMessagesGoOutInOneWrite() throws Exception {
+        var queue = OutboundQueue.direct(1024);
+        queue.offer(new byte[]{0x06});                       // ACK
+        queue.offer("\u00021H|\\^&\r\u000312\r\n".getBytes());
+        queue.offer("\u00022L|1\r\u000345\r\n".getBytes());
+
+        var sink = new RecordingSink();
+        assertTrue(queue.drain(sink));
+
+        assertEquals(1, sink.writes.size());
+        assertArrayEquals(("\u0006\u00021H|\\^&\r\u000312\r\n\u00022L|1\r\u000345\r\n").getBytes(), sink.all.toByteArray());
+        var stats = queue.stats();
+        assertEquals(1, stats.writes());
+        assertEquals(2, stats.coalesced());
+        assertFalse(queue.hasPending());
+    }
+
+    @Test
+    void partialWriteIsResumedByTheNextDrain() throws Exception {
+        var queue = OutboundQueue.direct(16);
+        byte[] data = "0123456789ABCDEFGHIJ".getBytes();
+        queue.offer(data);
+
+        var all = new ByteArrayOutputStream();
+        OutboundQueue.Sink fiveAtATime = buffer -> {
+            int n = Math.min(5, buffer.remaining());
+            byte[] chunk = new byte[n];
+            buffer.get(chunk);
+            all.writeBytes(chunk);
+            return n;
+        };
+
+        assertFalse(queue.drain(buffer -> 0));               // сокет переповнений — нічого не пішло
+        assertTrue(queue.hasPending());
+        while (!queue.drain(fiveAtATime)) assertTrue(queue.hasPending());
+        assertArrayEquals(data, all.toByteArray());
+        assertFalse(queue.hasPending());
+    }
+
+    @Test
+    void fullQueueDropsAfterTimeoutAndCountsIt() {
+        var queue = OutboundQueue.heap(64);
+        for (int i = 0; i < OutboundQueue.DEFAULT_CAPACITY; i++) assertTrue(queue.offer(message(0, i)));
+
+        long start = System.nanoTime();
+        assertFalse(queue.offer(message(0, -1)));
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waitedMs >= OutboundQueue.DEFAULT_OFFER_TIMEOUT_MS - 100, "відправник не чекав: " + waitedMs);
+
+        var stats = queue.stats();
+        assertEquals(1, stats.dropped());
+        assertEquals(OutboundQueue.DEFAULT_CAPACITY, stats.enqueued());
+        assertEquals(OutboundQueue.DEFAULT_CAPACITY, stats.depth());
+        assertEquals(OutboundQueue.DEFAULT_CAPACITY, stats.maxDepth());
+    }
+
+    @Test
+    void closeWakesTheWriterAndRejectsNewData() throws Exception {
+        var queue = OutboundQueue.heap(64);
+        var writer = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.awaitPending();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(writer.isDone());                        // писар спить у take()
+
+        queue.close();
+        assertFalse(writer.get(5, TimeUnit.SECONDS));
+        assertTrue(queue.isClosed());
+        assertFalse(queue.offer(new byte[]{1}));
+        assertFalse(queue.hasPending());
+        assertEquals(0, queue.stats().depth());
+    }
+}
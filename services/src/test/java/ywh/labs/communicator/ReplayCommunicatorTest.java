@@ -0,0 +1,167 @@
+package ywh.labs.communicator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ywh.logging.DeviceLogger;
+import ywh.services.communicator.ICommunicator;
+import ywh.services.communicator.ReplayCommunicator;
+import ywh.services.communicator.ReplaySource;
+import ywh.services.data.enums.SpecialBytes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayCommunicatorTest {
+    private static final byte ACK = SpecialBytes.ACK.getValue();
+    private static final byte NAK = SpecialBytes.NAK.getValue();
+
+    private static final String ENQ = "\u0005";
+    private static final String FRAME_1 = "\u00021H|\\^&|||MIURA\r\u000312\r\n";
+    private static final String FRAME_2 = "\u00022L|1|N\r\u000334\r\n";
+    private static final String EOT = "\u0004";
+
+    private static final String HL7_1 = "\u000BMSH|^~\\&|A|B|||20250101||ORU^R01|1|P|2.3.1\rOBX|1|NM|WBC||5\r\u001C\r";
+    private static final String HL7_2 = "\u000BMSH|^~\\&|A|B|||20250101||ORU^R01|2|P|2.3.1\rOBX|1|NM|WBC||6\r\u001C\r";
+    private static final String HL7_ACK = "\u000BMSH|^~\\&|LIS||A|B|20250101||ACK^R01|1|P|2.3.1\rMSA|AA|1\r\u001C\r";
+
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private ReplayCommunicator replay;
+
+    private ReplayCommunicator start(ReplaySource source, double speed) {
+        replay = new ReplayCommunicator(source, speed, 1, new DeviceLogger());
+        replay.setByteListener(new ICommunicator.ByteListener() {
+            @Override
+            public void onByte(byte b) {
+                received.add(String.valueOf((char) b));
+            }
+
+            @Override
+            public void onChunk(byte[] data, int offset, int length) {
+                received.add(new String(data, offset, length, StandardCharsets.ISO_8859_1));
+            }
+        });
+        replay.run();
+        return replay;
+    }
+
+    private static ReplaySource source(String... chunks) {
+        return ReplaySource.of(String.join("", chunks).getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private String next() throws InterruptedException {
+        String segment = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(segment, "відтворення нічого не віддало");
+        return segment;
+    }
+
+    /** Наступний сегмент не йде, доки хост не відповів. */
+    private void assertHeldBack() throws InterruptedException {
+        assertNull(received.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (replay != null) replay.close();
+    }
+
+    @Test
+    void astmWaitsForAckAfterEnqAndEachFrameAndRepeatsOnNak() throws Exception {
+        var comm = start(source(ENQ, FRAME_1, FRAME_2, EOT), 0);
+
+        assertEquals(ENQ, next());
+        assertHeldBack();
+        comm.sendByte(ACK);
+
+        assertEquals(FRAME_1, next());
+        assertHeldBack();
+        comm.sendByte(NAK);
+        assertEquals(FRAME_1, next());                       // повтор кадру
+        comm.sendByte(ACK);
+
+        assertEquals(FRAME_2, next());
+        comm.sendByte(ACK);
+        assertEquals(EOT, next());                           // EOT — без очікування
+
+        var result = comm.completion().get(5, TimeUnit.SECONDS);
+        assertEquals(4, result.segments());
+        assertEquals(1, result.retries());
+        assertEquals((ENQ + FRAME_1 + FRAME_2 + EOT).length(), result.bytes());
+    }
+
+    @Test
+    void answersHostEnquiryAndFramesWithAck() throws Exception {
+        var comm = start(source(), 0);
+        comm.completion().get(5, TimeUnit.SECONDS);
+
+        comm.sendBytes(ENQ.getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals(String.valueOf((char) ACK), next());
+        comm.sendBytes(FRAME_1.getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals(String.valueOf((char) ACK), next());
+        comm.sendBytes(EOT.getBytes(StandardCharsets.ISO_8859_1));
+        assertHeldBack();
+    }
+
+    @Test
+    void hl7WaitsForMllpAckBeforeNextMessage() throws Exception {
+        var comm = start(source(HL7_1, HL7_2), 0);
+
+        assertEquals(HL7_1, next());
+        assertHeldBack();
+        comm.sendBytes(HL7_ACK.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(HL7_2, next());
+        comm.sendBytes(HL7_ACK.getBytes(StandardCharsets.UTF_8));
+
+        var result = comm.completion().get(5, TimeUnit.SECONDS);
+        assertEquals(2, result.segments());
+        assertEquals(0, result.retries());
+    }
+
+    @Test
+    void frameSplitBetweenRecordedChunksStillWaitsForAck() throws Exception {
+        String head = FRAME_1.substring(0, FRAME_1.length() - 1);  // кінець запису — перед LF
+        var comm = start(ReplaySource.of(List.of(
+                new ReplaySource.Chunk(0, (ENQ + head).getBytes(StandardCharsets.ISO_8859_1)),
+                new ReplaySource.Chunk(1, ("\n" + FRAME_2 + EOT).getBytes(StandardCharsets.ISO_8859_1)))), 0);
+
+        assertEquals(ENQ, next());
+        comm.sendByte(ACK);
+        assertEquals(head, next());                          // початок кадру — одразу, як у запису
+        assertEquals("\n", next());
+        assertHeldBack();
+        comm.sendByte(NAK);
+        assertEquals(FRAME_1, next());                       // повтор — цілим кадром
+        comm.sendByte(ACK);
+
+        assertEquals(FRAME_2, next());
+        comm.sendByte(ACK);
+        assertEquals(EOT, next());
+
+        var result = comm.completion().get(5, TimeUnit.SECONDS);
+        assertEquals(4, result.segments());
+        assertEquals(1, result.retries());
+    }
+
+    @Test
+    void speedScalesRecordedGaps() throws Exception {
+        var chunks = List.of(
+                new ReplaySource.Chunk(0, "first".getBytes(StandardCharsets.ISO_8859_1)),
+                new ReplaySource.Chunk(TimeUnit.MILLISECONDS.toNanos(400), "second".getBytes(StandardCharsets.ISO_8859_1)));
+
+        long realTime = start(ReplaySource.of(chunks), 1.0).completion().get(5, TimeUnit.SECONDS).elapsed().toMillis();
+        replay.close();
+        long doubled = start(ReplaySource.of(chunks), 2.0).completion().get(5, TimeUnit.SECONDS).elapsed().toMillis();
+        replay.close();
+        long max = start(ReplaySource.of(chunks), 0).completion().get(5, TimeUnit.SECONDS).elapsed().toMillis();
+
+        assertTrue(realTime >= 400, "1x: " + realTime);
+        assertTrue(doubled >= 200 && doubled < realTime, "2x: " + doubled);
+        assertTrue(max < 200, "max: " + max);
+        assertEquals(List.of("first", "second", "first", "second", "first", "second"), List.copyOf(received));
+    }
+}
@@ -0,0 +1,153 @@
+package ywh.labs.data_processor;
+
+import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ywh.repository.analysis.repos.RepositoryProvider;
+import ywh.repository.analysis.repos.impl.JsonIndicatorOrderRepositoryImpl;
+import ywh.repository.analysis.repos.impl.JsonIndicatorRepositoryImpl;
+import ywh.logging.DeviceLogger;
+import ywh.services.data.enums.FileResultActions;
+import ywh.services.data.enums.ObservationKey;
+import ywh.services.data.enums.ProcessResult;
+import ywh.services.data.models.ProcessorResult;
+import ywh.services.data.models.observation.ObservationData;
+import ywh.services.data_processor.ObservationResultProcessor;
+import ywh.services.device.protocol.FlowControl;
+import ywh.services.settings.data.DeviceSettings;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObservationResultProcessorTest {
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        Path repository = Paths.get(ObservationResultProcessorTest.class.getClassLoader().getResource("jsonRepository").toURI());
+        RepositoryProvider.initialize(new JsonIndicatorRepositoryImpl(repository), new JsonIndicatorOrderRepositoryImpl(repository));
+    }
+
+    private ObservationResultProcessor processor() throws IOException {
+        File template = dir.resolve("template.docx").toFile();
+        try (var doc = new XWPFDocument(); var os = new FileOutputStream(template)) {
+            doc.createParagraph().createRun().setText("Кличка: {Animal Name}");
+            XWPFTable table = doc.createTable(2, 2);
+            table.getRow(0).getCell(0).setText("Показник");
+            table.getRow(0).getCell(1).setText("Результат");
+            table.getRow(1).getCell(0).setText("{IndicatorCode}");
+            table.getRow(1).getCell(1).setText("{Value}");
+            doc.write(os);
+        }
+        var settings = new DeviceSettings().setActions(List.of(FileResultActions.SAVE_DOCX));
+        settings.getFileResultProcessorSettings().setTemplateFile(template).setOutputPath(dir.resolve("out"));
+        return new ObservationResultProcessor(new DeviceLogger(), settings);
+    }
+
+    private static ObservationData sample(int i) {
+        var data = new ObservationData(String.valueOf(i));
+        data.put(ObservationKey.ANIMAL_TYPE, "Кіт");
+        data.put(ObservationKey.ANIMAL_NAME, "pet" + i);
+        data.put("WBC", "8." + i);
+        return data;
+    }
+
+    @Test
+    void concurrentResultsKeepTheirOwnFiles() throws Exception {
+        var processor = processor();
+        List<CompletableFuture<ProcessorResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(processor.submit(sample(i)));     // усі восьмеро в роботі одночасно
+        }
+
+        Set<File> files = new HashSet<>();
+        for (int i = 0; i < futures.size(); i++) {
+            ProcessorResult result = futures.get(i).join();
+            assertSame(ProcessResult.SUCCESS, result.getResult());
+            File file = result.getFile().orElseThrow();
+            assertTrue(files.add(file), "file shared between results: " + file);
+            try (var doc = new XWPFDocument(new FileInputStream(file)); var text = new XWPFWordExtractor(doc)) {
+                assertTrue(text.getText().contains("pet" + i), file.getName());
+                assertTrue(text.getText().contains("8." + i), file.getName());
+            }
+        }
+    }
+
+    private static void pause(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void eventsAndResultsFollowSubmitOrder() throws Exception {
+        var processor = processor();
+        List<String> events = new CopyOnWriteArrayList<>();
+        List<String> completed = new CopyOnWriteArrayList<>();
+        processor.addProcessListener(r -> {
+            if (events.isEmpty()) pause(300);      // перша подія повільна — наступні не повинні її обігнати
+            events.add(r.getFile().orElseThrow().getName());
+        });
+
+        List<CompletableFuture<ProcessorResult>> futures = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            futures.add(processor.submit(sample(i))
+                    .whenComplete((r, e) -> completed.add(r.getFile().orElseThrow().getName())));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        for (var future : futures) expected.add(future.join().getFile().orElseThrow().getName());
+
+        assertEquals(expected, events);
+        assertEquals(expected, completed);
+    }
+
+    @Test
+    void saturatedProcessorHoldsBackAcks() throws Exception {
+        var processor = processor();
+        var release = new CountDownLatch(1);
+        processor.addProcessListener(r -> {
+            try {
+                release.await();                    // перший результат не завершується — решта стоїть за ним
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        int limit = ObservationResultProcessor.MAX_JOBS_IN_FLIGHT;
+        var flow = new FlowControl(processor::inFlight, limit * 3 / 4, limit / 4, 60_000);
+        List<CompletableFuture<ProcessorResult>> futures = new ArrayList<>();
+        for (int i = 0; i < limit; i++) futures.add(processor.submit(sample(i)));
+
+        assertEquals(limit, processor.inFlight());
+        var acked = new CountDownLatch(1);
+        flow.whenReady(acked::countDown, () -> fail("ACK refused"));
+        assertFalse(acked.await(500, TimeUnit.MILLISECONDS));
+        assertEquals(1, flow.waitingCount());
+
+        release.countDown();
+        assertTrue(acked.await(10, TimeUnit.SECONDS));
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        assertEquals(0, processor.inFlight());
+    }
+}
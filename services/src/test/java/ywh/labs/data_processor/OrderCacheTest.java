@@ -0,0 +1,96 @@
+package ywh.labs.data_processor;
+
+import org.junit.jupiter.api.Test;
+import ywh.logging.DeviceLogger;
+import ywh.services.data.models.api.Order;
+import ywh.services.data_processor.OrderCache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderCacheTest {
+
+    private static Order order(String id, String... indicators) {
+        Order order = new Order();
+        order.setId(id);
+        order.setIndicators(List.of(indicators));
+        return order;
+    }
+
+    @Test
+    void looksUpBarcodesInParallelAndCachesFoundAndMissing() {
+        Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        var cache = new OrderCache(id -> {
+            calls.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+            bothStarted.countDown();
+            try {
+                bothStarted.await();        // дочекається сусіда лише при паралельному пошуку
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return id.equals("A") ? order("A", "1", "2") : new Order();
+        }, 60_000, 60_000, new DeviceLogger());
+
+        Map<String, Order> first = cache.getAll(List.of("A", "B"), 5_000);
+        assertEquals(List.of("1", "2"), first.get("A").getIndicators());
+        assertTrue(first.get("B").getIndicators().isEmpty());
+
+        first.get("A").setIndicators(List.of());    // зміни копії не псують кеш
+        Map<String, Order> second = cache.getAll(List.of("A", "B"), 5_000);
+        assertEquals(List.of("1", "2"), second.get("A").getIndicators());
+        assertEquals(1, calls.get("A").get());
+        assertEquals(1, calls.get("B").get());
+    }
+
+    @Test
+    void answersEmptyWhenLookupIsLateAndKeepsTheLateResult() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        var cache = new OrderCache(id -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return order(id, "7");
+        }, 60_000, 1_000, new DeviceLogger());
+
+        assertTrue(cache.getAll(List.of("X"), 50).get("X").getIndicators().isEmpty());
+        release.countDown();
+        assertEquals(List.of("7"), cache.getAll(List.of("X"), 5_000).get("X").getIndicators());
+    }
+
+    @Test
+    void failedLookupIsCachedAsNoOrder() {
+        var calls = new AtomicInteger();
+        var cache = new OrderCache(id -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("LIS is down");     // падає миттєво, ще до підписки на результат
+        }, 60_000, 60_000, new DeviceLogger());
+
+        assertTrue(cache.getAll(List.of("E"), 5_000).get("E").getIndicators().isEmpty());
+        cache.prefetch(List.of("E"));
+        assertTrue(cache.getAll(List.of("E"), 5_000).get("E").getIndicators().isEmpty());
+        assertEquals(1, calls.get());
+
+        cache.invalidate("E");
+        cache.getAll(List.of("E"), 5_000);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void expiredEntriesAreSweptWhenNewOnesArrive() throws InterruptedException {
+        var cache = new OrderCache(id -> new Order(), 20, 20, new DeviceLogger());
+        for (int i = 0; i < 100; i++) cache.getAll(List.of("S" + i), 5_000);
+        assertTrue(cache.size() > 1);
+
+        Thread.sleep(50);
+        cache.getAll(List.of("next"), 5_000);
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,77 @@
+package ywh.labs.device;
+
+import org.junit.jupiter.api.Test;
+import ywh.logging.DeviceLogger;
+import ywh.services.data.enums.SpecialBytes;
+import ywh.services.communicator.TcpHostSession;
+import ywh.services.device.Device;
+import ywh.services.device.MultiAnalyzerHost;
+import ywh.services.device.parsers.ise.MIURA;
+import ywh.services.settings.data.CommunicatorSettings;
+import ywh.services.settings.data.DeviceSettings;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiAnalyzerHostTest {
+    private static final int ENQ = SpecialBytes.ENQ.getValue();
+    private static final int ACK = SpecialBytes.ACK.getValue();
+    private static final int EOT = SpecialBytes.EOT.getValue();
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 50 && !condition.getAsBoolean(); i++) Thread.sleep(100);
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /** ENQ → ACK → EOT: протокол сесії відповідає, отже з’єднання живе і має свій пристрій. */
+    private static void handshake(Socket client) throws IOException {
+        client.getOutputStream().write(ENQ);
+        assertEquals(ACK, client.getInputStream().read());
+        client.getOutputStream().write(EOT);
+    }
+
+    @Test
+    void eachConnectionGetsItsOwnDeviceAndOutlivesTheOther() throws Exception {
+        int port = freePort();
+        var settings = new DeviceSettings().setParser(new MIURA());
+        settings.setCommunicatorSettings(CommunicatorSettings.createTcpMultiHostParams(port));
+        assertTrue(MultiAnalyzerHost.isConfigured(settings));
+
+        try (var host = MultiAnalyzerHost.createAndStart(settings, null, new DeviceLogger());
+             var first = new Socket("localhost", port);
+             var second = new Socket("localhost", port)) {
+            first.setSoTimeout(5_000);
+            second.setSoTimeout(5_000);
+
+            handshake(first);
+            handshake(second);
+            assertEquals(2, host.getActiveDeviceCount());
+            assertEquals(2, host.getDevices().values().stream().map(Device::getParser).distinct().count());
+            assertTrue(host.getDevices().values().stream().noneMatch(d -> d.getParser() == settings.getCachedParser()));
+            // імена логів/записів — за адресою без ефемерного порту клієнта, тож не множаться з перепідключеннями
+            assertEquals(1, host.getDevices().keySet().stream().map(TcpHostSession::getRemoteHost).distinct().count());
+            assertFalse(host.getDevices().keySet().iterator().next().getRemoteHost().endsWith(":" + first.getLocalPort()));
+
+            first.close();
+            await(() -> host.getActiveDeviceCount() == 1);
+            handshake(second);                          // друга сесія не помітила розриву першої
+
+            second.close();
+            await(() -> host.getActiveDeviceCount() == 0);
+            try (var third = new Socket("localhost", port)) {
+                third.setSoTimeout(5_000);
+                handshake(third);                       // порт приймає далі
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ywh.labs.device;
+
+import org.junit.jupiter.api.Test;
+import ywh.logging.DeviceLogger;
+import ywh.services.device.PipelineStage;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineStageTest {
+
+    @Test
+    void keepsSubmissionOrderAndBlocksWhenFull() throws Exception {
+        var stage = new PipelineStage("test", 2, new DeviceLogger());
+        var release = new CountDownLatch(1);
+        var done = new CountDownLatch(50);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+
+        stage.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        var producer = Thread.ofVirtual().start(() -> IntStream.range(0, 50).forEach(i -> stage.submit(() -> {
+            order.add(i);
+            done.countDown();
+        })));
+
+        // перша задача тримає етап — продюсер упирається в місткість і чекає
+        Thread.sleep(100);
+        assertTrue(producer.isAlive());
+        assertTrue(stage.stats().depth() <= 2);
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        producer.join();
+
+        assertEquals(IntStream.range(0, 50).boxed().toList(), order);
+        var stats = stage.stats();
+        assertEquals(51, stats.submitted());
+        assertTrue(stats.blocked() > 0);
+        assertTrue(stats.maxDepth() <= 2);
+
+        stage.close();
+        assertFalse(stage.submit(() -> fail("closed stage must not run tasks")));
+    }
+}
@@ -0,0 +1,113 @@
+package ywh.labs.device.parsers;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import ywh.logging.DeviceLogger;
+import ywh.services.data.enums.ObservationKey;
+import ywh.services.data.models.ParsingResult;
+import ywh.services.device.parsers.DymindDF50Vet;
+import ywh.services.device.parsers.IRecordParser;
+import ywh.services.device.parsers.ParserAbstract;
+import ywh.services.device.parsers.fujifilm.DryChemNX600Vet;
+import ywh.services.device.parsers.ise.MIURA;
+import ywh.services.device.parsers.mindray.Mindray700Series;
+import ywh.services.device.parsers.mindray.MindrayBC30Vet;
+import ywh.services.device.parsers.mindray.MindrayBS240Vet;
+import ywh.services.device.protocol.BufferedProtocolAbstract;
+import ywh.services.device.protocol.astm.ASTMProtocol;
+import ywh.services.device.protocol.hl7.Hl7Protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Парсери, що приймають записи по одному ({@link IRecordParser}), мають давати той самий результат,
+ * що й розбір цілого кадру. Записані з приладів зразки проганяються обома шляхами.
+ */
+class RecordParsingTest {
+
+    static Stream<Arguments> samples() {
+        Supplier<BufferedProtocolAbstract> astm = () -> new ASTMProtocol(new DeviceLogger(), 60_000);
+        Supplier<BufferedProtocolAbstract> hl7 = () -> new Hl7Protocol(new DeviceLogger(), 60_000);
+        return Stream.of(
+                Arguments.of("miura multi hex.txt", (Supplier<ParserAbstract>) MIURA::new, astm),
+                Arguments.of("mindray 700 hex.txt", (Supplier<ParserAbstract>) Mindray700Series::new, astm),
+                Arguments.of("mindray bs240 hex.txt", (Supplier<ParserAbstract>) MindrayBS240Vet::new, hl7),
+                Arguments.of("mindray bc 30 hex.txt", (Supplier<ParserAbstract>) MindrayBC30Vet::new, hl7),
+                Arguments.of("dymindDF50 hex.txt", (Supplier<ParserAbstract>) DymindDF50Vet::new, hl7),
+                Arguments.of("drychem nx600 hex.txt", (Supplier<ParserAbstract>) DryChemNX600Vet::new, hl7));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("samples")
+    void recordsGiveTheSameResultsAsWholeFrames(String sample,
+                                                Supplier<ParserAbstract> parsers,
+                                                Supplier<BufferedProtocolAbstract> protocols) throws IOException {
+        byte[] data = readHex(sample);
+
+        List<String> expected = byFrames(parsers.get(), protocols.get(), data);
+        assertFalse(expected.isEmpty(), "зразок не дав жодного результату");
+
+        assertEquals(expected, byRecords(parsers.get(), protocols.get(), data, data.length));
+        assertEquals(expected, byRecords(parsers.get(), protocols.get(), data, 7));
+    }
+
+    /** Старий шлях: протокол збирає кадр цілком, парсер отримує його одним масивом. */
+    private static List<String> byFrames(ParserAbstract parser, BufferedProtocolAbstract protocol, byte[] data) {
+        List<byte[]> frames = new ArrayList<>();
+        protocol.setTransport(bytes -> {});
+        protocol.setFrameListener(frames::add);
+        protocol.onBytes(data, 0, data.length);
+        protocol.close();
+
+        List<String> results = new ArrayList<>();
+        parser.addResponseListener(r -> results.add(describe(r)));
+        frames.forEach(parser::parse);
+        return results;
+    }
+
+    /** Новий шлях: протокол віддає записи по мірі надходження байтів порціями по {@code chunk}. */
+    private static List<String> byRecords(ParserAbstract parser, BufferedProtocolAbstract protocol, byte[] data, int chunk) {
+        List<String> results = new ArrayList<>();
+        parser.addResponseListener(r -> results.add(describe(r)));
+        protocol.setTransport(bytes -> {});
+        protocol.setRecordListener((IRecordParser) parser);
+        for (int i = 0; i < data.length; i += chunk) {
+            protocol.onBytes(data, i, Math.min(chunk, data.length - i));
+        }
+        protocol.close();
+        return results;
+    }
+
+    /**
+     * Дата й дата друку без значення від приладу беруться з годинника, тож між двома прогонами
+     * можуть розійтися на секунду — їх не порівнюємо. З тієї ж причини прибираємо час з ACK.
+     */
+    private static String describe(ParsingResult result) {
+        var values = new TreeMap<>(result.data().getData());
+        values.remove(ObservationKey.DATE.getName());
+        values.remove(ObservationKey.PRINT_DATE.getName());
+        var images = new TreeMap<String, Integer>();
+        result.data().getImages().forEach((name, image) -> images.put(name, image.length()));
+        var ack = new String(result.ack(), StandardCharsets.UTF_8).replaceAll("\\d{14}", "");
+        return values + " images=" + images + " ack=" + ack;
+    }
+
+    private static byte[] readHex(String name) throws IOException {
+        try (InputStream in = RecordParsingTest.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) throw new IllegalStateException("Resource not found: " + name);
+            var text = new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
+            return HexFormat.of().parseHex(text.replaceAll("[^0-9A-Fa-f]", ""));
+        }
+    }
+}
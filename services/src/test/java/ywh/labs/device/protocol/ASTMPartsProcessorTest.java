@@ -0,0 +1,42 @@
+package ywh.labs.device.protocol;
+
+import org.junit.jupiter.api.Test;
+import ywh.logging.DeviceLogger;
+import ywh.services.device.protocol.astm.ASTMPartsProcessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTMPartsProcessorTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void dispatchesByRecordTypeWithDelimitersFromHeader() {
+        List<String> seen = new ArrayList<>();
+        new ASTMPartsProcessor(new DeviceLogger())
+                .onOrder(r -> seen.add("O " + r.field(2) + " " + String.join(",", r.repeats(4))))
+                .onResult(r -> seen.add("R " + r.component(2, 3) + "=" + r.field(3) + " " + r.field(42).isEmpty()))
+                .onTerminator(r -> seen.add("L " + r.fieldCount()))
+                .processFrames(bytes("H!~@%!!!HOST\rO!1!S-01!!@@@GLU~@@@ALT\rR!1!@@@GLU!5.6\rL!1!N\r"), StandardCharsets.US_ASCII);
+
+        assertEquals(List.of("O S-01 @@@GLU,@@@ALT", "R GLU=5.6 true", "L 3"), seen);
+    }
+
+    @Test
+    void stripsRawFramingAndFrameNumbers() {
+        List<String[]> results = new ArrayList<>();
+        new ASTMPartsProcessor(new DeviceLogger())
+                .onResult(r -> results.add(r.toArray()))
+                .processFrames(bytes("\u0005\u00021H|\\^&\u000300\r\n\u00022R|1|^^^GL\u001700\r\n\u00023U|5.6||\r\u000300\r\n\u0004"),
+                        StandardCharsets.US_ASCII);
+
+        assertEquals(1, results.size());
+        assertArrayEquals(new String[]{"R", "1", "^^^GLU", "5.6"}, results.getFirst());
+    }
+}
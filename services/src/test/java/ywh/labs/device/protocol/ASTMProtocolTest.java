@@ -0,0 +1,196 @@
+package ywh.labs.device.protocol;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ywh.logging.DeviceLogger;
+import ywh.services.device.protocol.IRecordProtocol;
+import ywh.services.device.protocol.astm.ASTMOrder;
+import ywh.services.device.protocol.astm.ASTMOrderBuilder;
+import ywh.services.device.protocol.astm.ASTMProtocol;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTMProtocolTest {
+
+    private static final byte STX = 0x02, ETX = 0x03, ETB = 0x17, EOT = 0x04, ENQ = 0x05, ACK = 0x06, NAK = 0x15;
+
+    private ASTMProtocol protocol;
+    private final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    private final List<String> messages = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        protocol = new ASTMProtocol(new DeviceLogger(), 60_000);
+        protocol.setTransport(sent::writeBytes);
+        protocol.setFrameListener(frame -> messages.add(new String(frame, StandardCharsets.US_ASCII)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        protocol.close();
+    }
+
+    /** {@code <STX> FN text <ETX|ETB> C1 C2 <CR><LF>} з правильною сумою. */
+    private static byte[] frame(int fn, String text, byte end) {
+        var out = new ByteArrayOutputStream();
+        out.write(STX);
+        int sum = '0' + fn;
+        out.write('0' + fn);
+        for (byte b : text.getBytes(StandardCharsets.US_ASCII)) {
+            out.write(b);
+            sum += b;
+        }
+        out.write(end);
+        sum += end;
+        out.writeBytes(String.format("%02X\r\n", sum & 0xFF).getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static byte[] corrupt(byte[] frame) {
+        byte[] copy = frame.clone();
+        copy[3] ^= 0x01;
+        return copy;
+    }
+
+    private void feed(byte[]... parts) {
+        for (byte[] p : parts) protocol.onBytes(p, 0, p.length);
+    }
+
+    private void feed(byte b) {
+        protocol.onByte(b);
+    }
+
+    @Test
+    void acceptsValidMessageAndKeepsOnlyRecordText() {
+        feed(ENQ);
+        feed(frame(1, "H|\\^&\r", ETX), frame(2, "R|1|^^^GLU|5.6\r", ETX), frame(3, "L|1|N", ETX));
+        feed(EOT);
+
+        assertArrayEquals(new byte[]{ACK, ACK, ACK, ACK}, sent.toByteArray());
+        assertEquals(List.of("H|\\^&\rR|1|^^^GLU|5.6\rL|1|N\r"), messages);
+    }
+
+    @Test
+    void startsQueuedOrdersWhenLineIsFreedStatFirst() {
+        feed(ENQ);
+        feed(frame(1, "H|\\^&\r", ETX));
+        protocol.addOrderToQueue(ASTMOrder.of(StandardCharsets.US_ASCII, "routine-1", "\u0004").forSpecimen("S1"));
+        protocol.addOrderToQueue(ASTMOrder.of(StandardCharsets.US_ASCII, "stat", "\u0004").forSpecimen("S2")
+                .withPriority(ASTMOrder.Priority.STAT));
+        protocol.addOrderToQueue(ASTMOrder.of(StandardCharsets.US_ASCII, "routine-2", "\u0004").forSpecimen("S1"));
+        assertArrayEquals(new byte[]{ACK, ACK}, sent.toByteArray());   // лінію зайняв аналізатор
+
+        feed(EOT);
+        assertArrayEquals(new byte[]{ACK, ACK, ENQ}, sent.toByteArray());
+
+        sent.reset();
+        feed(ACK);
+        feed(ACK);                                  // «stat» і EOT — замовлення завершено, одразу наступне
+        feed(ACK);
+        assertEquals("stat\u0004\u0005routine-2", sent.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void builtOrderFramesPassChecksumInDeclaredCharset() {
+        Charset cp1251 = Charset.forName("windows-1251");
+        ASTMOrder order = new ASTMOrderBuilder(cp1251)
+                .byLine()
+                .setMaxFrameSize(16)
+                .addHeader(new String[]{"H", "\\^&"})
+                .addPatient(new String[]{"P", "1", "", "", "Шевченко^Тарас"})
+                .addTerminationRecord(new String[]{"L", "1", "N"})
+                .buildWithEOT();
+        List<byte[]> received = new ArrayList<>();
+        protocol.setFrameListener(received::add);
+
+        feed(ENQ);
+        int frames = 0;
+        for (byte[] frame = order.getNextFrame().orElseThrow(); frame[0] == STX; frame = order.getNextFrame().orElseThrow()) {
+            feed(frame);
+            frames++;
+        }
+        feed(EOT);
+
+        assertTrue(frames > 3, "очікується розбиття пацієнта на ETB-кадри");
+        byte[] acks = new byte[frames + 1];
+        Arrays.fill(acks, ACK);
+        assertArrayEquals(acks, sent.toByteArray());   // жодного NAK — суми пораховані по байтах
+        assertEquals("H|\\^&\rP|1|||Шевченко^Тарас\rL|1|N\r", new String(received.getFirst(), cp1251));
+    }
+
+    @Test
+    void emitsEachRecordBeforeEndOfTransmission() {
+        List<String> records = new ArrayList<>();
+        protocol.setRecordListener(new IRecordProtocol.IRecordListener() {
+            @Override
+            public void onRecord(byte[] data, int offset, int length) {
+                records.add(new String(data, offset, length, StandardCharsets.US_ASCII));
+            }
+
+            @Override
+            public void onMessageEnd() {
+                records.add("END");
+            }
+        });
+        feed(ENQ);
+        feed(frame(1, "H|\\^&\r", ETX), frame(2, "R|1|^^^GL", ETB), frame(3, "U|5.6\r", ETX));
+        assertEquals(List.of("H|\\^&\r", "R|1|^^^GLU|5.6\r"), records);
+
+        feed(frame(4, "L|1|N", ETX));
+        feed(EOT);
+        assertEquals(List.of("H|\\^&\r", "R|1|^^^GLU|5.6\r", "L|1|N\r", "END"), records);
+        assertTrue(messages.isEmpty());
+    }
+
+    @Test
+    void naksOnlyCorruptedFrameAndAcceptsRetransmission() {
+        byte[] second = frame(2, "R|1|^^^GLU|5.6\r", ETX);
+        feed(ENQ);
+        feed(frame(1, "H|\\^&\r", ETX), corrupt(second), second);
+        feed(EOT);
+
+        assertArrayEquals(new byte[]{ACK, ACK, NAK, ACK}, sent.toByteArray());
+        assertEquals(List.of("H|\\^&\rR|1|^^^GLU|5.6\r"), messages);
+    }
+
+    @Test
+    void validatesFrameNumberAndSkipsDuplicates() {
+        byte[] first = frame(1, "H|\\^&\r", ETX);
+        feed(ENQ);
+        feed(first, first, frame(3, "L|1\r", ETX), frame(2, "L|1\r", ETX));
+        feed(EOT);
+
+        // дублікат підтверджується, але не додається; пропущений номер — NAK
+        assertArrayEquals(new byte[]{ACK, ACK, ACK, NAK, ACK}, sent.toByteArray());
+        assertEquals(List.of("H|\\^&\rL|1\r"), messages);
+    }
+
+    @Test
+    void joinsIntermediateFramesWithoutSeparator() {
+        feed(ENQ);
+        feed(frame(1, "R|1|^^^GL", ETB), frame(2, "U|5.6\r", ETX));
+        feed(EOT);
+
+        assertEquals(List.of("R|1|^^^GLU|5.6\r"), messages);
+    }
+
+    @Test
+    void sameResultWhenDeliveredBytePerByte() {
+        byte[] data = frame(1, "H|\\^&\r", ETX);
+        feed(ENQ);
+        for (byte b : corrupt(data)) feed(b);
+        for (byte b : data) feed(b);
+        feed(EOT);
+
+        assertArrayEquals(new byte[]{ACK, NAK, ACK}, sent.toByteArray());
+        assertEquals(List.of("H|\\^&\r"), messages);
+    }
+}
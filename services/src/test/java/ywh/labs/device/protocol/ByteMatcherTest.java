@@ -0,0 +1,70 @@
+package ywh.labs.device.protocol;
+
+import org.junit.jupiter.api.Test;
+import ywh.services.device.protocol.custom.AhoCorasickMatcher;
+import ywh.services.device.protocol.custom.ByteMatcher;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteMatcherTest {
+
+    /** Позиції (індекс останнього байта), на яких matcher повідомив про збіг. */
+    private static List<Integer> matches(ByteMatcher matcher, String input) {
+        List<Integer> hits = new ArrayList<>();
+        byte[] data = input.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < data.length; i++) {
+            if (matcher.feed(data[i])) hits.add(i);
+        }
+        return hits;
+    }
+
+    private static byte[] b(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void kmpFindsOverlappingOccurrences() {
+        assertEquals(List.of(3, 5), matches(ByteMatcher.of(b("abab")), "abababx"));
+        assertEquals(List.of(9), matches(ByteMatcher.of(b("aab")), "aaaaaaaaab"));
+    }
+
+    @Test
+    void matchSurvivesSplitAcrossFeeds() {
+        var m = ByteMatcher.of(b("FINISH"));
+        assertEquals(List.of(), matches(m, "xxFIN"));
+        assertEquals(List.of(2), matches(m, "ISH"));
+    }
+
+    @Test
+    void ahoCorasickReportsWhichPatternMatched() {
+        var m = new AhoCorasickMatcher(b("he"), b("she"), b("hers"));
+        assertEquals(List.of(3, 5), matches(m, "ushers"));
+        assertEquals(4, m.matchLength());
+        assertEquals(2, m.matchedPattern());
+
+        m.reset();
+        assertEquals(List.of(2), matches(m, "she"));
+        assertEquals(1, m.matchedPattern());            // найдовший із he/she
+    }
+
+    @Test
+    void offsetIgnoresMatchesStartingTooEarly() {
+        // як byEndString: шаблон рахується лише з позиції skip
+        assertEquals(List.of(9), matches(ByteMatcher.of(b("END")).from(4), "ENDxxxxEND"));
+        assertEquals(List.of(6), matches(ByteMatcher.of(b("END")).from(4), "xxxxEND"));
+    }
+
+    @Test
+    void thenByteWaitsForTerminatorAfterPattern() {
+        var m = ByteMatcher.thenByte(ByteMatcher.of(b("FINISH")), (byte) '\n');
+        assertEquals(List.of(), matches(m, "\nabc\n"));
+        assertEquals(List.of(9), matches(m, "FINISH,,,\n"));
+        // термінатор — останній байт самого шаблону
+        var self = ByteMatcher.thenByte(ByteMatcher.of(b("AB")), (byte) 'B');
+        assertEquals(List.of(1), matches(self, "AB"));
+    }
+}
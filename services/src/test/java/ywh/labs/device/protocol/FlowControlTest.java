@@ -0,0 +1,74 @@
+package ywh.labs.device.protocol;
+
+import org.junit.jupiter.api.Test;
+import ywh.services.device.protocol.FlowControl;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowControlTest {
+
+    private static void await(List<String> events, int size) throws InterruptedException {
+        for (int i = 0; i < 50 && events.size() < size; i++) Thread.sleep(100);
+    }
+
+    @Test
+    void holdsBackUntilBacklogDropsToLowWatermark() throws Exception {
+        var backlog = new AtomicInteger();
+        var flow = new FlowControl(backlog::get, 8, 2, 60_000);
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        flow.whenReady(() -> events.add("ack 1"), () -> events.add("nak 1"));
+        assertEquals(List.of("ack 1"), events);
+
+        backlog.set(8);
+        flow.whenReady(() -> events.add("ack 2"), () -> events.add("nak 2"));
+        backlog.set(5);                                   // нижче верхньої межі, але ще вище нижньої
+        flow.whenReady(() -> events.add("ack 3"), () -> events.add("nak 3"));
+        Thread.sleep(500);
+        assertEquals(List.of("ack 1"), events);
+        assertEquals(2, flow.waitingCount());
+
+        backlog.set(2);
+        await(events, 3);
+        assertEquals(List.of("ack 1", "ack 2", "ack 3"), events);
+        assertFalse(flow.isPaused());
+    }
+
+    @Test
+    void refusesWhenBacklogStaysHighLongerThanMaxWait() throws Exception {
+        var flow = new FlowControl(() -> 10, 8, 2, 300);
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        flow.whenReady(() -> events.add("ack"), () -> events.add("nak"));
+        await(events, 1);
+        assertEquals(List.of("nak"), events);
+    }
+
+    @Test
+    void releasedActionsRunOutsideTheLockAndKeepTheirOrder() throws Exception {
+        var backlog = new AtomicInteger(8);
+        var flow = new FlowControl(backlog::get, 8, 2, 60_000);
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        flow.whenReady(() -> {
+            events.add("ack 1");
+            // інший потік (читач іншого протоколу) звертається до контролю, поки дія виконується
+            Thread other = Thread.ofPlatform().start(() -> flow.whenReady(() -> events.add("ack 2"), () -> events.add("nak 2")));
+            try {
+                events.add(other.join(Duration.ofSeconds(2)) ? "other passed" : "other blocked");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, () -> events.add("nak 1"));
+        backlog.set(2);
+
+        await(events, 3);
+        assertEquals(List.of("ack 1", "other passed", "ack 2"), events);
+        assertEquals(0, flow.waitingCount());
+    }
+}
@@ -0,0 +1,36 @@
+package ywh.labs.device.protocol;
+
+import org.junit.jupiter.api.Test;
+import ywh.services.device.protocol.hl7.Hl7AckTemplate;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Hl7AckTemplateTest {
+
+    @Test
+    void patchesValuesAndTimestampIntoEncodedTemplate() {
+        var template = Hl7AckTemplate.compile("\u000BMSH|^~\\&|{1}|{ts}|{0}\rMSA|AA|{0}|{2}\r\u001C\r", StandardCharsets.UTF_8);
+
+        String first = new String(template.render("42", "ЛІС"), StandardCharsets.UTF_8);
+        String second = new String(template.render("7", null), StandardCharsets.UTF_8);
+
+        assertTrue(first.matches("\u000BMSH\\|\\^~\\\\&\\|ЛІС\\|\\d{14}\\|42\rMSA\\|AA\\|42\\|\r\u001C\r"), first);
+        assertTrue(second.matches("\u000BMSH\\|\\^~\\\\&\\|\\|\\d{14}\\|7\rMSA\\|AA\\|7\\|\r\u001C\r"), second);
+    }
+
+    @Test
+    void encodesConstantPartsInTemplateCharset() {
+        Charset cp1251 = Charset.forName("windows-1251");
+        byte[] ack = Hl7AckTemplate.compile("MSA|AA|{0}|Прийнято", cp1251).render("1");
+
+        assertArrayEquals("MSA|AA|1|Прийнято".getBytes(cp1251), ack);
+    }
+
+    @Test
+    void rejectsUnknownPlaceholder() {
+        assertThrows(IllegalArgumentException.class, () -> Hl7AckTemplate.compile("MSA|{id}", StandardCharsets.US_ASCII));
+    }
+}
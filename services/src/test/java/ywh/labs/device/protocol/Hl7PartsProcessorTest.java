@@ -0,0 +1,30 @@
+package ywh.labs.device.protocol;
+
+import org.junit.jupiter.api.Test;
+import ywh.logging.DeviceLogger;
+import ywh.services.device.protocol.hl7.Hl7PartsProcessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Hl7PartsProcessorTest {
+
+    @Test
+    void readsDelimitersFromMshAndSkipsMllpFraming() {
+        var message = "\u000BMSH#@~\\&#LIS#LAB#HOST#HL#20250525##ORU@R01#42\r"
+                + "OBX#1#NM#6690-2@WBC@LN##12,17#10*9/L\r"
+                + "NTE#1##ignored\r"
+                + "OBX#2#ED#15051@WBC Histogram@99MRC##^Image^BMP^Base64^AAAA\u001C\r";
+        List<String> seen = new ArrayList<>();
+
+        new Hl7PartsProcessor(new DeviceLogger())
+                .setOnMSH(msh -> seen.add(msh.type() + " " + msh.field(9) + " " + msh.component(8, 1)))
+                .setOnOBX(obx -> seen.add(obx.component(3, 1) + "=" + obx.field(5) + " " + obx.fieldCount()))
+                .processFrames(message.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+
+        assertEquals(List.of("MSH 42 R01", "WBC=12,17 7", "WBC Histogram=^Image^BMP^Base64^AAAA 6"), seen);
+    }
+}
@@ -0,0 +1,21 @@
+package ywh.labs.files;
+
+import org.junit.jupiter.api.Test;
+import ywh.services.files.Docx2PdfWorkerPool;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class Docx2PdfWorkerPoolTest {
+
+    /** Справжній процес конвертера: READY після старту, потім PING → PONG. JAR збирає docx2pdf-converter. */
+    @Test
+    void workerStartsAndAnswersPing() {
+        assumeTrue(Docx2PdfWorkerPool.class.getResource("/tools/docx2pdf.jar") != null,
+                "docx2pdf.jar не зібрано — тест пропущено");
+        try (var pool = new Docx2PdfWorkerPool()) {
+            assertDoesNotThrow(pool::warmUp);
+            assertDoesNotThrow(pool::warmUp);               // той самий процес із простою
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ywh.labs.files;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFPicture;
+import org.apache.poi.xwpf.usermodel.XWPFPictureData;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ywh.commons.ImageUtils;
+import ywh.repository.analysis.repos.RepositoryProvider;
+import ywh.repository.analysis.repos.impl.JsonIndicatorOrderRepositoryImpl;
+import ywh.repository.analysis.repos.impl.JsonIndicatorRepositoryImpl;
+import ywh.services.data.enums.ObservationKey;
+import ywh.services.data.models.observation.ObservationData;
+import ywh.services.files.WordTemplateService;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Потоковий запис DOCX: писар package-private, тож документ будується через {@link WordTemplateService}
+ * (єдиний його користувач) і відкривається назад POI.
+ */
+class DocxStreamWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        Path repository = Paths.get(DocxStreamWriterTest.class.getClassLoader().getResource("jsonRepository").toURI());
+        RepositoryProvider.initialize(new JsonIndicatorRepositoryImpl(repository), new JsonIndicatorOrderRepositoryImpl(repository));
+    }
+
+    /** Шаблон: кличка в абзаці, строка показника зі значенням 10 pt і чорним відхиленням. */
+    private File template() throws IOException {
+        File template = dir.resolve("template.docx").toFile();
+        try (var doc = new XWPFDocument(); var os = new FileOutputStream(template)) {
+            doc.createParagraph().createRun().setText("Кличка: {Animal Name}");
+            XWPFTable table = doc.createTable(2, 3);
+            table.getRow(0).getCell(0).setText("Показник");
+            table.getRow(0).getCell(1).setText("Результат");
+            table.getRow(0).getCell(2).setText("Відхилення");
+            table.getRow(1).getCell(0).setText("{IndicatorCode}");
+            XWPFRun value = table.getRow(1).getCell(1).getParagraphs().get(0).createRun();
+            value.setText("{Value}");
+            value.setFontSize(10);
+            XWPFRun deviation = table.getRow(1).getCell(2).getParagraphs().get(0).createRun();
+            deviation.setText("{Deviation}");
+            deviation.setColor("000000");
+            doc.write(os);
+        }
+        return template;
+    }
+
+    private static String png(Color color) {
+        var image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, 20, 20);
+        g.dispose();
+        return ImageUtils.encodePngToBase64(image);
+    }
+
+    @Test
+    void writesRowsWithHighlightAndSharesMediaOfEqualPictures() throws IOException {
+        var data = new ObservationData("1");
+        data.put(ObservationKey.ANIMAL_TYPE, "Кіт");
+        data.put(ObservationKey.ANIMAL_NAME, "Sirko");
+        data.put("WBC", "8.4");                               // у нормі
+        data.put("HGB", "200");                               // вище норми 85 - 162
+        String red = png(Color.RED);
+        data.putImage("WBC histogram", red);
+        data.putImage("RBC histogram", png(Color.BLUE));
+        data.putImage("PLT histogram", red);                  // той самий вміст, що й у WBC
+
+        File docx = new File(new WordTemplateService(template(), dir.resolve("out")).generate(data));
+
+        try (var is = new FileInputStream(docx); var doc = new XWPFDocument(is)) {
+            assertEquals("Кличка: Sirko", doc.getParagraphs().get(0).getText());
+
+            XWPFTable table = doc.getTables().get(0);
+            assertEquals(3, table.getNumberOfRows());
+            XWPFRun normalValue = run(row(table, "WBC"), 1);
+            assertEquals("8.4", normalValue.text());
+            assertEquals(10.0, normalValue.getFontSizeAsDouble());
+            assertEquals("000000", run(row(table, "WBC"), 2).getColor());
+
+            XWPFRun deviatingValue = run(row(table, "HGB"), 1);
+            assertEquals("200", deviatingValue.text());
+            assertEquals(11.0, deviatingValue.getFontSizeAsDouble());  // на 1 pt більше
+            XWPFRun deviation = run(row(table, "HGB"), 2);
+            assertEquals("▲23.5%", deviation.text());
+            assertEquals("8B0000", deviation.getColor());
+
+            List<XWPFPicture> placed = new ArrayList<>();
+            doc.getParagraphs().forEach(p -> p.getRuns().forEach(r -> placed.addAll(r.getEmbeddedPictures())));
+            assertEquals(3, placed.size());
+            List<String> relIds = placed.stream()
+                    .map(p -> p.getCTPicture().getBlipFill().getBlip().getEmbed())
+                    .toList();
+            assertEquals(relIds.get(0), relIds.get(2));
+            assertNotEquals(relIds.get(0), relIds.get(1));
+            assertEquals(2, doc.getAllPictures().size());     // одна частина на однаковий вміст
+
+            var wbc = (XWPFPictureData) doc.getRelationById(relIds.get(0));
+            assertArrayEquals(ImageUtils.decodeBase64(red), wbc.getData());
+            assertEquals("WBC histogram.png", placed.get(0).getDescription());
+            assertEquals("RBC histogram.png", placed.get(1).getDescription());
+        }
+    }
+
+    private static XWPFTableRow row(XWPFTable table, String code) {
+        return table.getRows().stream()
+                .filter(r -> r.getCell(0).getText().equals(code))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("немає строки " + code));
+    }
+
+    private static XWPFRun run(XWPFTableRow row, int cell) {
+        return row.getCell(cell).getParagraphs().get(0).getRuns().get(0);
+    }
+}
@@ -0,0 +1,86 @@
+package ywh.labs.files;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ywh.commons.ImageUtils;
+import ywh.logging.DeviceLogger;
+import ywh.repository.analysis.repos.RepositoryProvider;
+import ywh.repository.analysis.repos.impl.JsonIndicatorOrderRepositoryImpl;
+import ywh.repository.analysis.repos.impl.JsonIndicatorRepositoryImpl;
+import ywh.services.data.enums.ObservationKey;
+import ywh.services.data.models.observation.ObservationData;
+import ywh.services.files.PdfReportRenderer;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PdfReportRendererTest {
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        Path repository = Paths.get(PdfReportRendererTest.class.getClassLoader().getResource("jsonRepository").toURI());
+        RepositoryProvider.initialize(new JsonIndicatorRepositoryImpl(repository), new JsonIndicatorOrderRepositoryImpl(repository));
+    }
+
+    private static String png(Color color) {
+        var image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, 20, 20);
+        g.dispose();
+        return ImageUtils.encodePngToBase64(image);
+    }
+
+    @Test
+    void rendersCyrillicTableWithDeviationAndImage() throws IOException {
+        assumeTrue(PdfReportRenderer.isFontAvailable(), "у системі немає шрифту з кирилицею");
+
+        var data = new ObservationData("1");
+        data.put(ObservationKey.ANIMAL_TYPE, "Кіт");
+        data.put(ObservationKey.ANIMAL_NAME, "Sirko");                 // кличка йде в ім'я файлу
+        data.put(ObservationKey.OWNER, "Іван Петрович");
+        data.put("WBC", "8.4");
+        data.put("HGB", "200");                              // норма для кота 85 - 162
+        data.putImage("WBC histogram", png(Color.RED));
+
+        File pdf = new File(new PdfReportRenderer(dir, new DeviceLogger()).generate(data));
+        assertTrue(pdf.isFile());
+
+        try (PDDocument doc = Loader.loadPDF(pdf)) {
+            assertEquals(1, doc.getNumberOfPages());
+
+            String text = new PDFTextStripper().getText(doc);
+            assertTrue(text.contains("Результати аналізу"), text);
+            assertTrue(text.contains("Sirko"), text);
+            assertTrue(text.contains("Іван Петрович"), text);
+            assertTrue(text.contains("Гемоглобін"), text);
+            assertTrue(text.contains("8.4"), text);
+            assertTrue(text.contains("▲23.5%"), text);           // (200 - 162) / 162
+
+            var resources = doc.getPage(0).getResources();
+            int images = 0;
+            for (var name : resources.getXObjectNames()) {
+                if (resources.getXObject(name) instanceof PDImageXObject image) {
+                    assertEquals(20, image.getWidth());
+                    images++;
+                }
+            }
+            assertEquals(1, images);
+        }
+    }
+}
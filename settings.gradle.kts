@@ -17,3 +17,4 @@ include("services")
 include("commons")
 include("repository")
 include("connection_driver_application")
+include("benchmarks")